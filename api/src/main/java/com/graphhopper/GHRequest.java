@@ -45,6 +45,7 @@ public class GHRequest {
     private List<String> curbsides = new ArrayList<>();
     private List<String> snapPreventions = new ArrayList<>();
     private List<String> pathDetails = new ArrayList<>();
+    private List<List<Integer>> edges = new ArrayList<>();
     private String algo = "";
     private boolean possibleToAdd = false;
     private Locale locale = Locale.US;
@@ -322,6 +323,19 @@ public class GHRequest {
         return this.pathDetails;
     }
 
+    /**
+     * Skips the route calculation and creates the response from the given edges instead, one list per leg. They have
+     * to be the edges of an earlier response for the same points and profile, see {@link PathWrapper#getEdges()}.
+     */
+    public GHRequest setEdges(List<List<Integer>> edges) {
+        this.edges = edges;
+        return this;
+    }
+
+    public List<List<Integer>> getEdges() {
+        return edges;
+    }
+
     @Override
     public String toString() {
         String res = "";
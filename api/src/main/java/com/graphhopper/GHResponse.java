@@ -143,4 +143,18 @@ public class GHResponse {
     public PMap getHints() {
         return hintsMap;
     }
+
+    /**
+     * Creates a copy of this response and its paths, see {@link PathWrapper#copy()}.
+     */
+    public GHResponse copy() {
+        GHResponse copy = new GHResponse();
+        copy.errors.addAll(errors);
+        copy.hintsMap.putAll(hintsMap);
+        copy.debugInfo = debugInfo;
+        for (PathWrapper path : pathWrappers) {
+            copy.add(path.copy());
+        }
+        return copy;
+    }
 }
@@ -46,6 +46,7 @@ public class PathWrapper {
     private int numChanges;
     private final List<Trip.Leg> legs = new ArrayList<>(5);
     private final List<Integer> pointsOrder = new ArrayList<>(5);
+    private final List<List<Integer>> edges = new ArrayList<>(5);
     private final Map<String, List<PathDetail>> pathDetails = new HashMap<>();
     private BigDecimal fare;
     private boolean impossible = false;
@@ -239,6 +240,10 @@ public class PathWrapper {
         return instructions;
     }
 
+    public boolean hasInstructions() {
+        return instructions != null;
+    }
+
     public void setInstructions(InstructionList instructions) {
         this.instructions = instructions;
     }
@@ -325,6 +330,14 @@ public class PathWrapper {
         return numChanges;
     }
 
+    /**
+     * @return the edge ids of every leg between two points, if they were requested. Edges created for the snapped
+     * points have ids above the edges of the graph, so they are only valid together with the same points.
+     */
+    public List<List<Integer>> getEdges() {
+        return edges;
+    }
+
     public List<Trip.Leg> getLegs() {
         return legs;
     }
@@ -337,6 +350,41 @@ public class PathWrapper {
         return fare;
     }
 
+    /**
+     * Creates a copy of this path where all lists and maps can be changed independently. The point lists and the
+     * Instruction, PathDetail and Trip.Leg objects are shared with this path.
+     */
+    public PathWrapper copy() {
+        PathWrapper copy = new PathWrapper();
+        copy.errors.addAll(errors);
+        if (description != null)
+            copy.description = new ArrayList<>(description);
+        copy.distance = distance;
+        copy.ascend = ascend;
+        copy.descend = descend;
+        copy.routeWeight = routeWeight;
+        copy.time = time;
+        copy.debugInfo = debugInfo;
+        if (instructions != null) {
+            copy.instructions = new InstructionList(instructions.size(), instructions.getTr());
+            copy.instructions.addAll(instructions);
+        }
+        copy.waypointList = waypointList;
+        copy.pointList = pointList;
+        copy.numChanges = numChanges;
+        copy.legs.addAll(legs);
+        copy.pointsOrder.addAll(pointsOrder);
+        for (List<Integer> edgeList : edges) {
+            copy.edges.add(new ArrayList<>(edgeList));
+        }
+        for (Map.Entry<String, List<PathDetail>> entry : pathDetails.entrySet()) {
+            copy.pathDetails.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        copy.fare = fare;
+        copy.impossible = impossible;
+        return copy;
+    }
+
     public boolean isImpossible() {
         return impossible;
     }
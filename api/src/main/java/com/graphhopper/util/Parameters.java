@@ -104,6 +104,11 @@ public class Parameters {
          * if true the response will contain a point list
          */
         public static final String CALC_POINTS = "calc_points";
+        /**
+         * if true the response will contain the edges of every path, which can be passed to /route/details to
+         * calculate e.g. the instructions later without routing again
+         */
+        public static final String CALC_EDGES = "calc_edges";
         /**
          * configure simplification of returned point list
          */
@@ -208,6 +213,7 @@ public class Parameters {
         public static final String TIME = "time";
         public static final String WEIGHT = "weight";
         public static final String DISTANCE = "distance";
+        public static final String GRADE = "grade";
     }
 
 }
@@ -27,8 +27,11 @@ public class PathDetail {
     private int first;
     private int last;
 
-    // unprotected constructor used only in AbstractPathDetailsBuilder
-    PathDetail(Object value) {
+    /**
+     * Creates a detail with a value of any of the types the other constructors accept or an Integer, which is
+     * used by AbstractPathDetailsBuilder and to decode a detail without changing its type.
+     */
+    public PathDetail(Object value) {
         this.value = value;
     }
 
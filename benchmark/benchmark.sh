@@ -82,3 +82,77 @@ measurement.json=true \
 measurement.count=5000 \
 measurement.use_measurement_time_as_ref_time=${USE_MEASUREMENT_TIME_AS_REF_TIME} \
 "measurement.block_area=49.394664,11.144428,49.348388,11.144943,49.355768,11.227169,49.411643,11.227512"
+
+# 3 - big map: import with the dense node map, compare graph.import_time and graph.import_heap_peak_MB with 2
+java -cp tools/target/graphhopper-tools-*-jar-with-dependencies.jar com.graphhopper.tools.Measurement \
+datareader.file=${BIG_OSM_MAP} \
+datareader.date_range_parser_day=2019-11-01 \
+datareader.node_map=dense_mmap \
+measurement.folder=${SINGLE_RESULTS_DIR} \
+measurement.clean=true \
+measurement.summaryfile=${RESULTS_DIR}summary_big_dense_node_map.dat \
+measurement.repeats=1 \
+measurement.run_slow_routing=false \
+measurement.weighting=fastest \
+measurement.ch.node=false \
+measurement.ch.edge=false \
+measurement.lm=false \
+"graph.flag_encoders=car|turn_costs=true" \
+graph.location=${TMP_DIR}measurement-big-dense-gh \
+prepare.min_network_size=10000 \
+prepare.min_oneway_network_size=10000 \
+spatial_rules.borders_directory=${BORDERS_DIRECTORY} \
+measurement.json=true \
+measurement.count=1000
+
+# 4 - small map with elevation: andorra is hilly, so this measures the elevation lookups and the smoothing of the
+# edge geometries during the import (graph.import_time) and per edge (unit_tests.smooth_elevation)
+java -cp tools/target/graphhopper-tools-*-jar-with-dependencies.jar com.graphhopper.tools.Measurement \
+datareader.file=${SMALL_OSM_MAP} \
+datareader.date_range_parser_day=2019-11-01 \
+measurement.folder=${SINGLE_RESULTS_DIR} \
+measurement.clean=true \
+measurement.summaryfile=${RESULTS_DIR}summary_small_elevation.dat \
+measurement.repeats=1 \
+measurement.run_slow_routing=false \
+measurement.weighting=fastest \
+measurement.ch.node=false \
+measurement.ch.edge=false \
+measurement.lm=false \
+graph.flag_encoders=bike \
+graph.elevation.provider=srtm \
+graph.elevation.cache_dir=${DATA_DIR}srtm/ \
+graph.elevation.clear=false \
+graph.elevation.smoothing=true \
+graph.location=${TMP_DIR}measurement-small-elevation-gh \
+prepare.min_network_size=10000 \
+prepare.min_oneway_network_size=10000 \
+spatial_rules.borders_directory=${BORDERS_DIRECTORY} \
+measurement.json=true \
+measurement.count=1000
+
+# 5 - like 4 but with compressed pillar nodes: compare graph.geometry_size_in_MB and unit_tests.fetch_way_geometry with 4
+java -cp tools/target/graphhopper-tools-*-jar-with-dependencies.jar com.graphhopper.tools.Measurement \
+datareader.file=${SMALL_OSM_MAP} \
+datareader.date_range_parser_day=2019-11-01 \
+measurement.folder=${SINGLE_RESULTS_DIR} \
+measurement.clean=true \
+measurement.summaryfile=${RESULTS_DIR}summary_small_compressed_geometry.dat \
+measurement.repeats=1 \
+measurement.run_slow_routing=false \
+measurement.weighting=fastest \
+measurement.ch.node=false \
+measurement.ch.edge=false \
+measurement.lm=false \
+graph.flag_encoders=bike \
+graph.elevation.provider=srtm \
+graph.elevation.cache_dir=${DATA_DIR}srtm/ \
+graph.elevation.clear=false \
+graph.elevation.smoothing=true \
+graph.compressed_geometry=true \
+graph.location=${TMP_DIR}measurement-small-compressed-gh \
+prepare.min_network_size=10000 \
+prepare.min_oneway_network_size=10000 \
+spatial_rules.borders_directory=${BORDERS_DIRECTORY} \
+measurement.json=true \
+measurement.count=1000
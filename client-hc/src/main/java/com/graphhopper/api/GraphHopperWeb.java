@@ -25,12 +25,14 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.PathWrapper;
+import com.graphhopper.http.RouteProtobuf;
 import com.graphhopper.http.WebHelper;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.PathWrapperDeserializer;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.shapes.GHPoint;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -195,6 +197,10 @@ public class GraphHopperWeb implements GraphHopperAPI {
 
             Request okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
             rspBody = getClientForRequest(ghRequest).newCall(okRequest).execute().body();
+            // the binary format is only used for successful responses, errors are still returned as JSON
+            if (isProtobuf(rspBody.contentType()))
+                return RouteProtobuf.readFrom(rspBody.byteStream(), tmpTurnDescription);
+
             JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
 
             GHResponse res = new GHResponse();
@@ -218,6 +224,10 @@ public class GraphHopperWeb implements GraphHopperAPI {
         }
     }
 
+    private static boolean isProtobuf(MediaType mediaType) {
+        return mediaType != null && RouteProtobuf.MEDIA_TYPE.equals(mediaType.type() + "/" + mediaType.subtype());
+    }
+
     private OkHttpClient getClientForRequest(GHRequest request) {
         OkHttpClient client = this.downloader;
         if (request.getHints().has(TIMEOUT)) {
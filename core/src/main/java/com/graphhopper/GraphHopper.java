@@ -25,6 +25,8 @@ import com.graphhopper.reader.dem.*;
 import com.graphhopper.reader.osm.conditional.DateRangeParser;
 import com.graphhopper.routing.AlgorithmOptions;
 import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RouteStats;
+import com.graphhopper.routing.RouteStatsListener;
 import com.graphhopper.routing.RoutingAlgorithmFactory;
 import com.graphhopper.routing.RoutingAlgorithmFactorySimple;
 import com.graphhopper.routing.ch.CHPreparationHandler;
@@ -47,6 +49,7 @@ import com.graphhopper.routing.util.parsers.TagParserFactory;
 import com.graphhopper.routing.weighting.*;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.EdgeElevationIndex;
 import com.graphhopper.storage.index.PopularityIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.QueryResult;
@@ -67,6 +70,7 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -103,16 +107,19 @@ public class GraphHopper implements GraphHopperAPI {
     private boolean allowWrites = true;
     private boolean fullyLoaded = false;
     private boolean smoothElevation = false;
+    private boolean compressedGeometry = false;
     // for routing
     private final RoutingConfig routingConfig = new RoutingConfig();
     // for index
     private LocationIndex locationIndex;
     private PopularityIndex popularityIndex;
+    private EdgeElevationIndex edgeElevationIndex;
     private java.nio.file.Path popularityFile;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
     // for prepare
     private int minNetworkSize = 200;
+    private int subnetworksThreads = 1;
     private int minOneWayNetworkSize = 0;
 
     // preparation handlers
@@ -128,6 +135,9 @@ public class GraphHopper implements GraphHopperAPI {
     private EncodedValueFactory encodedValueFactory = new DefaultEncodedValueFactory();
     private TagParserFactory tagParserFactory = new DefaultTagParserFactory();
     private PathDetailsBuilderFactory pathBuilderFactory = new PathDetailsBuilderFactory();
+    private boolean customPathBuilderFactory = false;
+    private RouteStatsListener routeStatsListener;
+    private final List<Runnable> graphChangeListeners = new CopyOnWriteArrayList<>();
 
     public GraphHopper() {
     }
@@ -140,6 +150,7 @@ public class GraphHopper implements GraphHopperAPI {
         setFullyLoaded();
         initLocationIndex();
         initPopularityIndex();
+        initEdgeElevationIndex();
         return this;
     }
 
@@ -193,8 +204,13 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Replaces the default factory of the path details. To support the grade details the specified factory needs to
+     * be created with the {@link #getEdgeElevationIndex()} after the graph was loaded.
+     */
     public GraphHopper setPathDetailsBuilderFactory(PathDetailsBuilderFactory pathBuilderFactory) {
         this.pathBuilderFactory = pathBuilderFactory;
+        this.customPathBuilderFactory = true;
         return this;
     }
 
@@ -202,6 +218,33 @@ public class GraphHopper implements GraphHopperAPI {
         return pathBuilderFactory;
     }
 
+    /**
+     * Sets a listener that receives the timings of the routing stages and the search counters of every successful
+     * route request, e.g. to record metrics.
+     */
+    public GraphHopper setRouteStatsListener(RouteStatsListener routeStatsListener) {
+        this.routeStatsListener = routeStatsListener;
+        return this;
+    }
+
+    /**
+     * Adds a listener that is called after the loaded graph or one of its indices was changed in place, e.g. to drop
+     * cached routes.
+     */
+    public GraphHopper addGraphChangeListener(Runnable listener) {
+        graphChangeListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Notifies the listeners registered via addGraphChangeListener. Call this after changing the loaded graph in place.
+     */
+    public void fireGraphChanged() {
+        for (Runnable listener : graphChangeListeners) {
+            listener.run();
+        }
+    }
+
     /**
      * Configures the underlying storage and response to be used on a well equipped server. Result
      * also optimized for usage in the web module i.e. try reduce network IO.
@@ -452,6 +495,13 @@ public class GraphHopper implements GraphHopperAPI {
         return popularityIndex;
     }
 
+    /**
+     * @return the precalculated ascent, descent and grades of the edges or null if the graph has no elevation
+     */
+    public EdgeElevationIndex getEdgeElevationIndex() {
+        return edgeElevationIndex;
+    }
+
     /**
      * Sorts the graph which requires more RAM while import. See #12
      */
@@ -461,6 +511,20 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    public boolean isSortGraph() {
+        return sortGraph;
+    }
+
+    /**
+     * Stores the pillar nodes of a newly imported graph delta encoded, which makes the geometry file smaller but
+     * requires decoding when the geometry is fetched.
+     */
+    public GraphHopper setCompressedGeometry(boolean compressedGeometry) {
+        ensureNotLoaded();
+        this.compressedGeometry = compressedGeometry;
+        return this;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -524,6 +588,7 @@ public class GraphHopper implements GraphHopperAPI {
         // graph
         setGraphHopperLocation(graphHopperFolder);
         defaultSegmentSize = ghConfig.getInt("graph.dataaccess.segment_size", defaultSegmentSize);
+        compressedGeometry = ghConfig.getBool("graph.compressed_geometry", compressedGeometry);
 
         String graphDATypeStr = ghConfig.getString("graph.dataaccess", "RAM_STORE");
         dataAccessType = DAType.fromString(graphDATypeStr);
@@ -559,6 +624,7 @@ public class GraphHopper implements GraphHopperAPI {
         // optimizable prepare
         minNetworkSize = ghConfig.getInt("prepare.min_network_size", minNetworkSize);
         minOneWayNetworkSize = ghConfig.getInt("prepare.min_one_way_network_size", minOneWayNetworkSize);
+        subnetworksThreads = ghConfig.getInt("prepare.subnetworks.threads", subnetworksThreads);
 
         // profiles
         setProfiles(ghConfig.getProfiles());
@@ -645,6 +711,9 @@ public class GraphHopper implements GraphHopperAPI {
         if (!baseURL.isEmpty())
             elevationProvider.setBaseURL(baseURL);
         elevationProvider.setDAType(elevationDAType);
+        if (elevationProvider instanceof AbstractElevationProvider)
+            ((AbstractElevationProvider) elevationProvider).setMaxCachedTiles(
+                    ghConfig.getInt("graph.elevation.max_cached_tiles", AbstractElevationProvider.DEFAULT_MAX_CACHED_TILES));
         return elevationProvider;
     }
 
@@ -797,6 +866,7 @@ public class GraphHopper implements GraphHopperAPI {
 
         GHDirectory dir = new GHDirectory(ghLocation, dataAccessType);
         ghStorage = new GraphHopperStorage(dir, encodingManager, hasElevation(), encodingManager.needsTurnCostsSupport(), defaultSegmentSize);
+        ghStorage.setCompressedGeometry(compressedGeometry);
 
         checkProfilesConsistency();
 
@@ -971,6 +1041,8 @@ public class GraphHopper implements GraphHopperAPI {
 
         initPopularityIndex();
 
+        initEdgeElevationIndex();
+
         importPublicTransit();
 
         if (lmPreparationHandler.isEnabled())
@@ -1127,15 +1199,24 @@ public class GraphHopper implements GraphHopperAPI {
             }
             ghRsp.addDebugInfo("tmode:" + tMode.toString());
 
+            if (!request.getEdges().isEmpty() && (ROUND_TRIP.equalsIgnoreCase(algoStr) || ALT_ROUTE.equalsIgnoreCase(algoStr)))
+                throw new IllegalArgumentException("Edges can only be passed for a route through the given points, not for " + algoStr
+                        + ". For an alternative route pass its edges without the algorithm.");
             RoutingTemplate routingTemplate = createRoutingTemplate(request, ghRsp, algoStr, weighting);
 
+            String mode = chPreparationHandler.isEnabled() && !disableCH ? RouteStats.MODE_CH
+                    : lmPreparationHandler.isEnabled() && !disableLM ? RouteStats.MODE_LM : RouteStats.MODE_FLEXIBLE;
+            RouteStats stats = new RouteStats(profile.getName(), algoStr, mode);
             StopWatch sw = new StopWatch().start();
             List<QueryResult> qResults = routingTemplate.lookup(points);
             ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+            stats.setLookupNanos(sw.getNanos());
             if (ghRsp.hasErrors())
                 return Collections.emptyList();
 
+            sw = new StopWatch().start();
             QueryGraph queryGraph = QueryGraph.lookup(graph, qResults);
+            stats.setQueryGraphNanos(sw.stop().getNanos());
 
             int maxVisitedNodesForRequest = hints.getInt(Routing.MAX_VISITED_NODES, routingConfig.getMaxVisitedNodes());
             if (maxVisitedNodesForRequest > routingConfig.getMaxVisitedNodes())
@@ -1150,24 +1231,40 @@ public class GraphHopper implements GraphHopperAPI {
                     build();
 
             // do the actual route calculation !
+            sw = new StopWatch().start();
             List<Path> altPaths = routingTemplate.calcPaths(queryGraph, algorithmFactory, algoOpts);
+            sw.stop();
+            long extractionNanos = 0;
+            for (Path path : altPaths) {
+                extractionNanos += path.getExtractionNanos();
+            }
+            stats.setExtractionNanos(extractionNanos).
+                    setSearchNanos(Math.max(0, sw.getNanos() - extractionNanos)).
+                    setVisitedNodes(ghRsp.getHints().getLong("visited_nodes.sum", 0));
 
             boolean tmpEnableInstructions = hints.getBool(Routing.INSTRUCTIONS, encodingManager.isEnableInstructions());
             boolean tmpCalcPoints = hints.getBool(Routing.CALC_POINTS, routingConfig.isCalcPoints());
+            boolean tmpCalcEdges = hints.getBool(Routing.CALC_EDGES, false);
             double wayPointMaxDistance = hints.getDouble(Routing.WAY_POINT_MAX_DISTANCE, 1d);
 
             DouglasPeucker peucker = new DouglasPeucker().setMaxDistance(wayPointMaxDistance);
             PathMerger pathMerger = new PathMerger(queryGraph.getBaseGraph(), weighting).
                     setCalcPoints(tmpCalcPoints).
+                    setCalcEdges(tmpCalcEdges).
                     setDouglasPeucker(peucker).
                     setEnableInstructions(tmpEnableInstructions).
                     setPathDetailsBuilders(pathBuilderFactory, request.getPathDetails()).
+                    setEdgeElevationIndex(edgeElevationIndex).
                     setSimplifyResponse(routingConfig.isSimplifyResponse() && wayPointMaxDistance > 0);
 
             if (request.hasFavoredHeading(0))
                 pathMerger.setFavoredHeading(request.getFavoredHeading(0));
 
+            sw = new StopWatch().start();
             routingTemplate.finish(pathMerger, trMap.getWithFallBack(request.getLocale()));
+            stats.setPathMergeNanos(sw.stop().getNanos());
+            if (routeStatsListener != null && !ghRsp.hasErrors())
+                routeStatsListener.onRoute(stats);
             return altPaths;
         } catch (IllegalArgumentException ex) {
             ghRsp.addError(ex);
@@ -1260,6 +1357,29 @@ public class GraphHopper implements GraphHopperAPI {
         popularityIndex = createPopularityIndex(ghStorage.getDirectory());
     }
 
+    /**
+     * Loads or calculates the elevation statistics of the edges after the bridge and tunnel interpolation changed the
+     * elevation. Graphs imported without it get it calculated on their first load if writes are allowed.
+     */
+    protected void initEdgeElevationIndex() {
+        if (edgeElevationIndex != null)
+            throw new IllegalStateException("Cannot initialize edgeElevationIndex twice!");
+        if (!ghStorage.getNodeAccess().is3D())
+            return;
+
+        EdgeElevationIndex tmpIndex = new EdgeElevationIndex(ghStorage, ghStorage.getDirectory());
+        if (!tmpIndex.loadExisting()) {
+            if (!allowWrites) {
+                logger.warn("edge elevation index not found, ascend and descend are calculated from the geometry");
+                return;
+            }
+            tmpIndex.prepareIndex();
+        }
+        edgeElevationIndex = tmpIndex;
+        if (!customPathBuilderFactory)
+            pathBuilderFactory = new PathDetailsBuilderFactory(edgeElevationIndex);
+    }
+
     private boolean isCHPrepared() {
         return "true".equals(ghStorage.getProperties().get(CH.PREPARE + "done"))
                 // remove old property in >0.9
@@ -1280,6 +1400,10 @@ public class GraphHopper implements GraphHopperAPI {
                 locationIndex.close();
                 popularityIndex.flush();
                 popularityIndex.close();
+                if (edgeElevationIndex != null) {
+                    edgeElevationIndex.flush();
+                    edgeElevationIndex.close();
+                }
                 ghStorage.flushAndCloseEarly();
             }
 
@@ -1309,6 +1433,7 @@ public class GraphHopper implements GraphHopperAPI {
         int prevNodeCount = ghStorage.getNodes();
         PrepareRoutingSubnetworks preparation = new PrepareRoutingSubnetworks(ghStorage, encodingManager.fetchEdgeEncoders());
         preparation.setMinNetworkSize(minNetworkSize);
+        preparation.setThreads(subnetworksThreads);
         preparation.setMinOneWayNetworkSize(minOneWayNetworkSize);
         preparation.doWork();
         int currNodeCount = ghStorage.getNodes();
@@ -1340,6 +1465,9 @@ public class GraphHopper implements GraphHopperAPI {
         if (popularityIndex != null)
             popularityIndex.close();
 
+        if (edgeElevationIndex != null)
+            edgeElevationIndex.close();
+
         try {
             lockFactory.forceRemove(fileLockName, true);
         } catch (Exception ex) {
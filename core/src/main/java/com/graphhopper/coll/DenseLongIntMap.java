@@ -0,0 +1,117 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.io.File;
+
+/**
+ * A map from long to int for dense keys like the OSM node ids. The values are stored in a DataAccess at the
+ * position of the key, so this needs 4 bytes per key up to the highest key but no pointers and no storage for the
+ * keys. With a memory mapped DataAccess the map does not use the heap at all. Negative keys are stored in a hash map.
+ * <p>
+ * Compared to {@link GHLongIntBTree} this is faster and uses less memory for large data sets like the planet, but
+ * it is wasteful for small extracts as their keys are spread over the full id range.
+ */
+public class DenseLongIntMap implements LongIntMap {
+    private final Directory dir;
+    private final DataAccess values;
+    private final int noEntryValue;
+    private final GHLongLongHashMap negativeKeys = new GHLongLongHashMap(100, .5f);
+    private long size;
+
+    public DenseLongIntMap(Directory dir, DAType type) {
+        this(dir, type, -1);
+    }
+
+    public DenseLongIntMap(Directory dir, DAType type, int noEntryValue) {
+        this(dir, "tmp_dense_long_int_map", type, noEntryValue);
+    }
+
+    /**
+     * @param name the name of the storage in the specified directory, which must be unique for several maps
+     */
+    public DenseLongIntMap(Directory dir, String name, DAType type, int noEntryValue) {
+        this.dir = dir;
+        this.noEntryValue = noEntryValue;
+        if (type.isMMap())
+            new File(dir.getLocation()).mkdirs();
+        this.values = dir.find(name, type).setSegmentSize(1 << 24).create(1 << 24);
+    }
+
+    @Override
+    public int put(long key, int value) {
+        int oldValue;
+        if (key < 0) {
+            oldValue = negativeKeys.containsKey(key) ? (int) negativeKeys.get(key) : noEntryValue;
+            if (value == noEntryValue)
+                negativeKeys.remove(key);
+            else
+                negativeKeys.put(key, value);
+        } else {
+            long pointer = key * 4;
+            values.ensureCapacity(pointer + 4);
+            // the values are xor-ed with noEntryValue so that the zero filled storage means 'no entry'
+            oldValue = values.getInt(pointer) ^ noEntryValue;
+            values.setInt(pointer, value ^ noEntryValue);
+        }
+
+        if (oldValue == noEntryValue && value != noEntryValue)
+            size++;
+        else if (oldValue != noEntryValue && value == noEntryValue)
+            size--;
+        return oldValue;
+    }
+
+    @Override
+    public int get(long key) {
+        if (key < 0)
+            return negativeKeys.containsKey(key) ? (int) negativeKeys.get(key) : noEntryValue;
+
+        long pointer = key * 4;
+        if (pointer + 4 > values.getCapacity())
+            return noEntryValue;
+        return values.getInt(pointer) ^ noEntryValue;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public void optimize() {
+    }
+
+    @Override
+    public int getMemoryUsage() {
+        return Math.round(values.getCapacity() / Helper.MB);
+    }
+
+    /**
+     * Removes the storage of this map. The map cannot be used afterwards.
+     */
+    public void clear() {
+        dir.remove(values);
+        negativeKeys.clear();
+    }
+}
@@ -18,6 +18,7 @@
 package com.graphhopper.reader.dem;
 
 import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.util.Downloader;
@@ -26,6 +27,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider.
@@ -33,6 +37,7 @@ import java.io.IOException;
  * @author Robin Boldt
  */
 public abstract class AbstractElevationProvider implements ElevationProvider {
+    public static final int DEFAULT_MAX_CACHED_TILES = 64;
     final Logger logger = LoggerFactory.getLogger(getClass());
     Downloader downloader;
     final File cacheDir;
@@ -42,6 +47,21 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
     boolean interpolate = false;
     boolean autoRemoveTemporary = true;
     long sleep = 2000;
+    private int maxCachedTiles = DEFAULT_MAX_CACHED_TILES;
+    // the least recently used tile is evicted first, its decoded heights stay on disc unless they are temporary
+    private final Map<Integer, HeightTile> tileCache = new LinkedHashMap<Integer, HeightTile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, HeightTile> eldest) {
+            if (size() <= maxCachedTiles)
+                return false;
+
+            evictTile(eldest.getValue());
+            return true;
+        }
+    };
+    // consecutive lookups usually hit the same tile, so avoid the map lookup for them
+    private int lastTileKey = -1;
+    private HeightTile lastTile;
 
     protected AbstractElevationProvider(String cacheDirString) {
         File cacheDir = new File(cacheDirString);
@@ -59,6 +79,21 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
         this.interpolate = interpolate;
     }
 
+    /**
+     * Limits the number of tiles that are kept open at the same time. A tile that was evicted is loaded again from
+     * its decoded DataAccess, which is only decoded again from the downloaded file if temporary files are removed.
+     */
+    public AbstractElevationProvider setMaxCachedTiles(int maxCachedTiles) {
+        if (maxCachedTiles < 1)
+            throw new IllegalArgumentException("At least one tile has to be cached but was " + maxCachedTiles);
+        this.maxCachedTiles = maxCachedTiles;
+        return this;
+    }
+
+    public int getMaxCachedTiles() {
+        return maxCachedTiles;
+    }
+
     void setSleep(long sleep) {
         this.sleep = sleep;
     }
@@ -92,6 +127,104 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
     }
 
 
+    /**
+     * Fetches the heights of many points at once, in one batch if the specified provider supports it and otherwise
+     * point by point. This should be preferred over many single calls if the points are not spatially sorted.
+     *
+     * @param out receives the height in meters or Double.NaN for every point, in the same order as lat and lon
+     */
+    public static void getEle(ElevationProvider provider, double[] lat, double[] lon, double[] out) {
+        if (provider instanceof AbstractElevationProvider) {
+            ((AbstractElevationProvider) provider).getEle(lat, lon, out);
+        } else if (provider instanceof MultiSourceElevationProvider) {
+            ((MultiSourceElevationProvider) provider).getEle(lat, lon, out);
+        } else {
+            for (int i = 0; i < lat.length; i++) {
+                out[i] = provider.getEle(lat[i], lon[i]);
+            }
+        }
+    }
+
+    /**
+     * Fetches the heights of many points at once. The lookups are sorted by their tile so that every tile is loaded
+     * at most once per call, even if more tiles are requested than fit into the cache.
+     *
+     * @param out receives the height in meters or Double.NaN for every point, in the same order as lat and lon
+     */
+    public void getEle(double[] lat, double[] lon, double[] out) {
+        if (lat.length != lon.length || out.length < lat.length)
+            throw new IllegalArgumentException("lat, lon and out must have the same length: " + lat.length
+                    + ", " + lon.length + ", " + out.length);
+
+        // the tile key is positive, so sorting by key << 32 | index keeps the order of the lookups within a tile
+        long[] order = new long[lat.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = (long) getTileKey(lat[i], lon[i]) << 32 | i;
+        }
+        Arrays.sort(order);
+        for (long tileAndIndex : order) {
+            int i = (int) tileAndIndex;
+            out[i] = getEle(lat[i], lon[i]);
+        }
+    }
+
+    /**
+     * @return a non-negative key that is equal for all coordinates of the same tile
+     */
+    abstract int getTileKey(double lat, double lon);
+
+    HeightTile getCachedTile(int tileKey) {
+        if (tileKey == lastTileKey)
+            return lastTile;
+
+        HeightTile tile = tileCache.get(tileKey);
+        if (tile != null) {
+            lastTileKey = tileKey;
+            lastTile = tile;
+        }
+        return tile;
+    }
+
+    void putCachedTile(int tileKey, HeightTile tile) {
+        tileCache.put(tileKey, tile);
+        lastTileKey = tileKey;
+        lastTile = tile;
+    }
+
+    int getCachedTiles() {
+        return tileCache.size();
+    }
+
+    private void evictTile(HeightTile tile) {
+        if (tile == lastTile) {
+            lastTileKey = -1;
+            lastTile = null;
+        }
+        DataAccess heights = tile.getHeights();
+        if (heights == null || dir == null)
+            return;
+
+        // for memory mapped type we remove temporary files
+        if (autoRemoveTemporary)
+            dir.remove(heights);
+        else
+            dir.close(heights);
+    }
+
+    @Override
+    public void release() {
+        tileCache.clear();
+        lastTileKey = -1;
+        lastTile = null;
+        if (dir != null) {
+            // for memory mapped type we remove temporary files
+            if (autoRemoveTemporary)
+                dir.clear();
+            else
+                dir.close();
+        }
+    }
+
     protected Directory getDirectory() {
         if (dir != null)
             return dir;
@@ -17,7 +17,6 @@
  */
 package com.graphhopper.reader.dem;
 
-import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.util.BitUtil;
 import com.graphhopper.util.Downloader;
@@ -41,8 +40,6 @@ public abstract class AbstractSRTMElevationProvider extends AbstractElevationPro
     private final int MAX_LAT;
     private final int WIDTH_BYTE_INDEX = 0;
     private final int DEGREE = 1;
-    // use a map as an array is not quite useful if we want to hold only parts of the world
-    private final GHIntObjectHashMap<HeightTile> cacheData = new GHIntObjectHashMap<>();
     private final double precision = 1e7;
     private final double invPrecision = 1 / precision;
 
@@ -62,15 +59,8 @@ public abstract class AbstractSRTMElevationProvider extends AbstractElevationPro
     }
 
     @Override
-    public void release() {
-        cacheData.clear();
-        if (dir != null) {
-            // for memory mapped type we remove temporary files
-            if (autoRemoveTemporary)
-                dir.clear();
-            else
-                dir.close();
-        }
+    int getTileKey(double lat, double lon) {
+        return calcIntKey(lat, lon);
     }
 
     int down(double val) {
@@ -90,7 +80,7 @@ public abstract class AbstractSRTMElevationProvider extends AbstractElevationPro
         lat = (int) (lat * precision) / precision;
         lon = (int) (lon * precision) / precision;
         int intKey = calcIntKey(lat, lon);
-        HeightTile demProvider = cacheData.get(intKey);
+        HeightTile demProvider = getCachedTile(intKey);
         if (demProvider == null) {
             if (!cacheDir.exists())
                 cacheDir.mkdirs();
@@ -115,7 +105,7 @@ public abstract class AbstractSRTMElevationProvider extends AbstractElevationPro
                     updateHeightsFromFile(lat, lon, heights);
                 } catch (FileNotFoundException ex) {
                     demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
-                    cacheData.put(intKey, demProvider);
+                    putCachedTile(intKey, demProvider);
                     demProvider.setHeights(heights);
                     demProvider.setSeaLevel(true);
                     // use small size on disc and in-memory
@@ -130,7 +120,7 @@ public abstract class AbstractSRTMElevationProvider extends AbstractElevationPro
                 width = DEFAULT_WIDTH;
 
             demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
-            cacheData.put(intKey, demProvider);
+            putCachedTile(intKey, demProvider);
             demProvider.setInterpolate(interpolate);
             demProvider.setHeights(heights);
         }
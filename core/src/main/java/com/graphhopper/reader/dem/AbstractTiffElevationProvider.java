@@ -24,8 +24,6 @@ import java.awt.image.Raster;
 import java.io.File;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider that reads tiff files.
@@ -33,7 +31,6 @@ import java.util.Map;
  * @author Robin Boldt
  */
 public abstract class AbstractTiffElevationProvider extends AbstractElevationProvider {
-    private final Map<String, HeightTile> cacheData = new HashMap<>();
     final double precision = 1e7;
 
     private final int WIDTH;
@@ -54,18 +51,6 @@ public abstract class AbstractTiffElevationProvider extends AbstractElevationPro
         this.LON_DEGREE = lonDegree;
     }
 
-    @Override
-    public void release() {
-        cacheData.clear();
-        if (dir != null) {
-            // for memory mapped type we remove temporary files
-            if (autoRemoveTemporary)
-                dir.clear();
-            else
-                dir.close();
-        }
-    }
-
     /**
      * Return true if the coordinates are outside of the supported area
      */
@@ -86,6 +71,11 @@ public abstract class AbstractTiffElevationProvider extends AbstractElevationPro
      */
     abstract String getFileNameOfLocalFile(double lat, double lon);
 
+    @Override
+    int getTileKey(double lat, double lon) {
+        return (getMinLatForTile(lat) + 90) * 1000 + getMinLonForTile(lon) + 180;
+    }
+
     @Override
     public double getEle(double lat, double lon) {
         // Return fast, if there is no data available
@@ -94,9 +84,10 @@ public abstract class AbstractTiffElevationProvider extends AbstractElevationPro
 
         lat = (int) (lat * precision) / precision;
         lon = (int) (lon * precision) / precision;
-        String name = getFileName(lat, lon);
-        HeightTile demProvider = cacheData.get(name);
+        int tileKey = getTileKey(lat, lon);
+        HeightTile demProvider = getCachedTile(tileKey);
         if (demProvider == null) {
+            String name = getFileName(lat, lon);
             if (!cacheDir.exists())
                 cacheDir.mkdirs();
 
@@ -106,7 +97,7 @@ public abstract class AbstractTiffElevationProvider extends AbstractElevationPro
             demProvider = new HeightTile(minLat, minLon, WIDTH, HEIGHT, LON_DEGREE * precision, LON_DEGREE, LAT_DEGREE);
             demProvider.setInterpolate(interpolate);
 
-            cacheData.put(name, demProvider);
+            putCachedTile(tileKey, demProvider);
             DataAccess heights = getDirectory().find(name + ".gh");
             demProvider.setHeights(heights);
             boolean loadExisting = false;
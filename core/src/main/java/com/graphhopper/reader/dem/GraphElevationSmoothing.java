@@ -1,7 +1,20 @@
 package com.graphhopper.reader.dem;
 
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class smooths the elevation data of a PointList by calculating the average elevation over
@@ -12,51 +25,146 @@ import com.graphhopper.util.PointList;
  * This is because the elevation data is coarse and sometimes contains errors.
  * <p>
  * This can lead to incorrect ascend, descend, and distance calculation of a route.
+ * <p>
+ * The window of a point contains all points whose distance along the PointList is below 150m. As the window only
+ * moves forward, the average is updated with a running sum and a PointList is smoothed in linear time.
  *
  * @author Robin Boldt
  */
 public class GraphElevationSmoothing {
-
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphElevationSmoothing.class);
     // If the point is farther then this, we stop averaging
     private final static int MAX_SEARCH_DISTANCE = 150;
+    // the number of edges that are smoothed in one task of the parallel pass
+    private final static int EDGES_PER_TASK = 10_000;
 
-    public static PointList smoothElevation(PointList geometry) {
-        for (int i = 1; i < geometry.size() - 1; i++) {
-
-            int start = i;
-            for (int j = i-1; j >= 0 ; j--) {
-                if (MAX_SEARCH_DISTANCE > Helper.DIST_PLANE.calcDist(geometry.getLat(i), geometry.getLon(i), geometry.getLat(j), geometry.getLon(j))) {
-                    start = j;
-                }else{
-                    break;
+    private final Graph graph;
+    private final DistanceCalc distCalc;
+    private int threads = 1;
+
+    public GraphElevationSmoothing(Graph graph, DistanceCalc distCalc) {
+        this.graph = graph;
+        this.distCalc = distCalc;
+    }
+
+    public GraphElevationSmoothing setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive but was " + threads);
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Smooths the elevation of the pillar nodes of all edges. The geometry of every edge is overwritten in place, so
+     * the edges can be smoothed concurrently. This is not the case for a compressed geometry: the smoothed elevation
+     * can need more bytes and then the geometry is moved to a new slot at the end of the storage, so a single thread
+     * is used. The stored distance of an edge was calculated from the geometry before it was simplified and is only
+     * changed by the difference the smoothing makes for the stored geometry.
+     *
+     * @return the number of edges with a changed geometry
+     */
+    public int execute() {
+        StopWatch sw = new StopWatch().start();
+        final int edges = graph.getEdges();
+        final AtomicInteger smoothedEdges = new AtomicInteger();
+        int threads = isCompressedGeometry() ? 1 : this.threads;
+        if (threads == 1) {
+            smoothEdges(0, edges, smoothedEdges);
+        } else {
+            ExecutorService executorService = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int from = 0; from < edges; from += EDGES_PER_TASK) {
+                    final int start = from;
+                    final int end = Math.min(edges, from + EDGES_PER_TASK);
+                    futures.add(executorService.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            smoothEdges(start, end, smoothedEdges);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
                 }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(ex);
+            } catch (ExecutionException ex) {
+                throw new RuntimeException(ex.getCause());
+            } finally {
+                executorService.shutdownNow();
             }
+        }
+        LOGGER.info("smoothed elevation of " + smoothedEdges.get() + " edges with " + threads + " threads, took: "
+                + sw.stop().getSeconds() + "s");
+        return smoothedEdges.get();
+    }
 
-            int end = i;
-            for (int j = i+1; j < geometry.size(); j++) {
-                if (MAX_SEARCH_DISTANCE > Helper.DIST_PLANE.calcDist(geometry.getLat(i), geometry.getLon(i), geometry.getLat(j), geometry.getLon(j))) {
-                    // +1 because the end is exclusive
-                    end = j+1;
-                }else{
-                    break;
-                }
+    private boolean isCompressedGeometry() {
+        return graph instanceof GraphHopperStorage && ((GraphHopperStorage) graph).isCompressedGeometry();
+    }
+
+    private void smoothEdges(int fromEdge, int toEdge, AtomicInteger smoothedEdges) {
+        int count = 0;
+        for (int edge = fromEdge; edge < toEdge; edge++) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            PointList geometry = edgeState.fetchWayGeometry(FetchMode.ALL);
+            if (geometry.size() < 3)
+                continue;
+
+            double distance = geometry.calcDistance(distCalc);
+            smoothElevation(geometry);
+            double smoothedDistance = geometry.calcDistance(distCalc);
+            edgeState.setWayGeometry(geometry.shallowCopy(1, geometry.size() - 1, false));
+            edgeState.setDistance(Math.max(0.001, edgeState.getDistance() - distance + smoothedDistance));
+            count++;
+        }
+        smoothedEdges.addAndGet(count);
+    }
+
+    public static PointList smoothElevation(PointList geometry) {
+        int size = geometry.size();
+        if (size < 3)
+            return geometry;
+
+        double[] distances = new double[size];
+        for (int i = 1; i < size; i++) {
+            distances[i] = distances[i - 1] + Helper.DIST_PLANE.calcDist(geometry.getLat(i - 1), geometry.getLon(i - 1),
+                    geometry.getLat(i), geometry.getLon(i));
+        }
+
+        // the points in [start, end) with the already smoothed elevation for points before i
+        int start = 0;
+        int end = 0;
+        double sum = 0;
+        for (int i = 1; i < size - 1; i++) {
+            while (distances[i] - distances[start] >= MAX_SEARCH_DISTANCE) {
+                sum -= geometry.getEle(start);
+                start++;
+            }
+            while (end < size && distances[end] - distances[i] < MAX_SEARCH_DISTANCE) {
+                sum += geometry.getEle(end);
+                end++;
+            }
+
+            double ele = geometry.getEle(i);
+            double windowSum = sum;
+            int windowSize = end - start;
+            // The point itself is only used if the next point is within the max search distance
+            if (end == i + 1) {
+                windowSum -= ele;
+                windowSize--;
             }
 
             // In this case we cannot find any points withing the max search distance, so we simply skip this point
-            if(start == end)
+            if (windowSize == 0)
                 continue;
 
-            double sum = 0;
-            for (int j = start; j < end; j++) {
-                // We skip points that are too far away, important for motorways
-                if (MAX_SEARCH_DISTANCE > Helper.DIST_PLANE.calcDist(geometry.getLat(i), geometry.getLon(i), geometry.getLat(j), geometry.getLon(j))) {
-                    sum += geometry.getEle(j);
-                }
-            }
-            double smoothed = sum / (end-start);
+            double smoothed = windowSum / windowSize;
+            sum += smoothed - ele;
             geometry.setElevation(i, smoothed);
         }
         return geometry;
     }
-
 }
@@ -47,13 +47,55 @@ public class MultiSourceElevationProvider implements ElevationProvider {
 
     @Override
     public double getEle(double lat, double lon) {
-        // Sometimes the cgiar data north of 59.999 equals 0
-        if (lat < 59.999 && lat > -56) {
+        if (isSRTMArea(lat)) {
             return srtmProvider.getEle(lat, lon);
         }
         return globalProvider.getEle(lat, lon);
     }
 
+    /**
+     * Fetches the heights of many points at once, see {@link AbstractElevationProvider#getEle(ElevationProvider, double[], double[], double[])}
+     */
+    public void getEle(double[] lat, double[] lon, double[] out) {
+        int srtmCount = 0;
+        for (double l : lat) {
+            if (isSRTMArea(l))
+                srtmCount++;
+        }
+        if (srtmCount == lat.length) {
+            AbstractElevationProvider.getEle(srtmProvider, lat, lon, out);
+            return;
+        } else if (srtmCount == 0) {
+            AbstractElevationProvider.getEle(globalProvider, lat, lon, out);
+            return;
+        }
+
+        // split the points so that both providers can sort their lookups
+        double[] srtmLat = new double[srtmCount], srtmLon = new double[srtmCount];
+        double[] globalLat = new double[lat.length - srtmCount], globalLon = new double[lat.length - srtmCount];
+        for (int i = 0, s = 0, g = 0; i < lat.length; i++) {
+            if (isSRTMArea(lat[i])) {
+                srtmLat[s] = lat[i];
+                srtmLon[s++] = lon[i];
+            } else {
+                globalLat[g] = lat[i];
+                globalLon[g++] = lon[i];
+            }
+        }
+        double[] srtmEle = new double[srtmCount];
+        double[] globalEle = new double[globalLat.length];
+        AbstractElevationProvider.getEle(srtmProvider, srtmLat, srtmLon, srtmEle);
+        AbstractElevationProvider.getEle(globalProvider, globalLat, globalLon, globalEle);
+        for (int i = 0, s = 0, g = 0; i < lat.length; i++) {
+            out[i] = isSRTMArea(lat[i]) ? srtmEle[s++] : globalEle[g++];
+        }
+    }
+
+    private static boolean isSRTMArea(double lat) {
+        // Sometimes the cgiar data north of 59.999 equals 0
+        return lat < 59.999 && lat > -56;
+    }
+
     /**
      * For the MultiSourceElevationProvider you have to specify the base URL separated by a ';'.
      * The first for cgiar, the second for gmted.
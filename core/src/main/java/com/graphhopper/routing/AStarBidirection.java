@@ -123,6 +123,11 @@ public class AStarBidirection extends AbstractNonCHBidirAlgo implements Recalcul
         return this;
     }
 
+    @Override
+    void setFromDataStructures(AbstractBidirAlgo other) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     void setToDataStructures(AbstractBidirAlgo other) {
         throw new UnsupportedOperationException();
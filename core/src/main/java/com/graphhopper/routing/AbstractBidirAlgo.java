@@ -91,6 +91,76 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
         return extractPath();
     }
 
+    /**
+     * Calculates the path to the given target, re-using a forward search that has already been run to completion
+     * by another algorithm instance, see {@link #setFromDataStructures} and {@link #completeSearches}. Only the backward
+     * search is run, so many queries with the same source can share a single forward search.
+     */
+    Path calcPathFromCompletedFwdSearch(int to, int toInEdge) {
+        if (!finishedFrom || !pqOpenSetFrom.isEmpty())
+            throw new IllegalStateException("The forward search must be completed before it can be shared");
+        checkAlreadyRun();
+        this.toInEdge = toInEdge;
+        initTo(to, 0);
+        if (isEmptyEdgeBasedPath()) {
+            bestFwdEntry = bestBwdEntry = currTo;
+            bestWeight = 0;
+            return extractPath();
+        }
+        if (!traversalMode.isEdgeBased() && updateBestPath) {
+            bestWeightMapOther = bestWeightMapFrom;
+            updateBestPath(Double.POSITIVE_INFINITY, currTo, -1, to, true);
+        }
+        postInitTo();
+        runAlgo();
+        return extractPath();
+    }
+
+    /**
+     * @see #calcPathFromCompletedFwdSearch(int, int)
+     */
+    Path calcPathToCompletedBwdSearch(int from, int fromOutEdge) {
+        if (!finishedTo || !pqOpenSetTo.isEmpty())
+            throw new IllegalStateException("The backward search must be completed before it can be shared");
+        checkAlreadyRun();
+        this.fromOutEdge = fromOutEdge;
+        initFrom(from, 0);
+        if (isEmptyEdgeBasedPath()) {
+            bestFwdEntry = bestBwdEntry = currFrom;
+            bestWeight = 0;
+            return extractPath();
+        }
+        if (!traversalMode.isEdgeBased() && updateBestPath) {
+            bestWeightMapOther = bestWeightMapTo;
+            updateBestPath(Double.POSITIVE_INFINITY, currFrom, -1, from, false);
+        }
+        postInitFrom();
+        runAlgo();
+        return extractPath();
+    }
+
+    /**
+     * Same special case as in postInit: for edge-based traversal the path from a node to itself is empty if no
+     * directions are restricted.
+     */
+    private boolean isEmptyEdgeBasedPath() {
+        return traversalMode.isEdgeBased() && from == to && fromOutEdge == ANY_EDGE && toInEdge == ANY_EDGE;
+    }
+
+    /**
+     * Continues the forward and backward searches until both priority queues are empty. Afterwards the shortest path
+     * trees are complete and can be shared with other queries starting at the same source or ending at the same target.
+     */
+    void completeSearches() {
+        boolean tmpUpdateBestPath = updateBestPath;
+        updateBestPath = false;
+        while (fillEdgesFrom()) ;
+        while (fillEdgesTo()) ;
+        finishedFrom = true;
+        finishedTo = true;
+        updateBestPath = tmpUpdateBestPath;
+    }
+
     void init(int from, double fromWeight, int to, double toWeight) {
         initFrom(from, fromWeight);
         initTo(to, toWeight);
@@ -246,6 +316,15 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
         return visitedCountFrom + visitedCountTo;
     }
 
+    void setFromDataStructures(AbstractBidirAlgo other) {
+        from = other.from;
+        fromOutEdge = other.fromOutEdge;
+        pqOpenSetFrom = other.pqOpenSetFrom;
+        bestWeightMapFrom = other.bestWeightMapFrom;
+        finishedFrom = other.finishedFrom;
+        currFrom = other.currFrom;
+    }
+
     void setToDataStructures(AbstractBidirAlgo other) {
         to = other.to;
         toInEdge = other.toInEdge;
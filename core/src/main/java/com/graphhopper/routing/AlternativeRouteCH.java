@@ -31,6 +31,8 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
 /**
  * Minimum number-of-moving-parts implementation of alternative route search with
  * contraction hierarchies.
@@ -119,19 +121,27 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
             }
         });
 
+        // All s -> v queries share the same forward search and all v -> t queries share the same backward search.
+        // So instead of running two full bidirectional queries per via-node candidate we finish the upward searches
+        // of the main query once and only run the search starting at v for every candidate.
+        if (!potentialAlternativeInfos.isEmpty())
+            completeSearches();
+
         for (PotentialAlternativeInfo potentialAlternativeInfo : potentialAlternativeInfos) {
             int v = potentialAlternativeInfo.v;
 
             // Okay, now we want the s -> v -> t shortest via-path, so we route s -> v and v -> t
             // and glue them together.
             DijkstraBidirectionCH svRouter = new DijkstraBidirectionCH(graph);
-            final Path svPath = svRouter.calcPath(s, v);
-            extraVisitedNodes += svRouter.getVisitedNodes();
+            svRouter.setFromDataStructures(this);
+            final Path svPath = svRouter.calcPathFromCompletedFwdSearch(v, ANY_EDGE);
+            extraVisitedNodes += svRouter.visitedCountTo;
 
             DijkstraBidirectionCH vtRouter = new DijkstraBidirectionCH(graph);
-            final Path vtPath = vtRouter.calcPath(v, t);
+            vtRouter.setToDataStructures(this);
+            final Path vtPath = vtRouter.calcPathToCompletedBwdSearch(v, ANY_EDGE);
             Path path = concat(graph.getGraph().getBaseGraph(), svPath, vtPath);
-            extraVisitedNodes += vtRouter.getVisitedNodes();
+            extraVisitedNodes += vtRouter.visitedCountFrom;
 
             double sharedDistanceWithShortest = sharedDistanceWithShortest(path);
             double detourLength = path.getDistance() - sharedDistanceWithShortest;
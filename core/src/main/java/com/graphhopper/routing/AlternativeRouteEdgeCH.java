@@ -126,6 +126,12 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
             }
         });
 
+        // All s -> v queries share the same forward search and all v -> t queries share the same backward search.
+        // So instead of running two full bidirectional queries per via-node candidate we finish the upward searches
+        // of the main query once and only run the search starting at v for every candidate.
+        if (!potentialAlternativeInfos.isEmpty())
+            completeSearches();
+
         for (PotentialAlternativeInfo potentialAlternativeInfo : potentialAlternativeInfos) {
             final List<EdgeIteratorState> ins = new ArrayList<>();
             new ShortcutUnpacker(graph, new ShortcutUnpacker.Visitor() {
@@ -153,13 +159,15 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
             // Okay, now we want the s -> v -> t shortest via-path, so we route s -> v and v -> t
             // and glue them together.
             DijkstraBidirectionEdgeCHNoSOD svRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
-            final Path svPath = svRouter.calcPath(s, v, ANY_EDGE, tailSv.getEdge());
-            extraVisitedNodes += svRouter.getVisitedNodes();
+            svRouter.setFromDataStructures(this);
+            final Path svPath = svRouter.calcPathFromCompletedFwdSearch(v, tailSv.getEdge());
+            extraVisitedNodes += svRouter.visitedCountTo;
 
             DijkstraBidirectionEdgeCHNoSOD vtRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
-            final Path vtPath = vtRouter.calcPath(v, t, headVt.getEdge(), ANY_EDGE);
+            vtRouter.setToDataStructures(this);
+            final Path vtPath = vtRouter.calcPathToCompletedBwdSearch(v, headVt.getEdge());
             Path path = concat(graph.getGraph().getBaseGraph(), svPath, vtPath);
-            extraVisitedNodes += vtRouter.getVisitedNodes();
+            extraVisitedNodes += vtRouter.visitedCountFrom;
 
             double sharedDistanceWithShortest = sharedDistanceWithShortest(path);
             double detourLength = path.getDistance() - sharedDistanceWithShortest;
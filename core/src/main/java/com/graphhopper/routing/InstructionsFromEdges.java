@@ -36,7 +36,7 @@ import static com.graphhopper.routing.util.EncodingManager.getKey;
  * @author Robin Boldt
  * @author jan soe
  */
-public class InstructionsFromEdges implements Path.EdgeVisitor {
+public class InstructionsFromEdges implements Path.GeometryEdgeVisitor {
 
     private final Weighting weighting;
     private final FlagEncoder encoder;
@@ -138,6 +138,11 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
 
     @Override
     public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+        next(edge, edge.fetchWayGeometry(FetchMode.ALL), index, prevEdgeId);
+    }
+
+    @Override
+    public void next(EdgeIteratorState edge, PointList wayGeo, int index, int prevEdgeId) {
         // baseNode is the current node and adjNode is the next
         int adjNode = edge.getAdjNode();
         int baseNode = edge.getBaseNode();
@@ -151,7 +156,6 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
         double adjLon = nodeAccess.getLongitude(adjNode);
         double latitude, longitude;
 
-        PointList wayGeo = edge.fetchWayGeometry(FetchMode.ALL);
         boolean isRoundabout = edge.get(roundaboutEnc);
 
         if (wayGeo.getSize() <= 2) {
@@ -53,6 +53,7 @@ public class Path {
     private double weight;
     private NodeAccess nodeAccess;
     private String debugInfo = "";
+    private long extractionNanos;
 
     public Path(Graph graph) {
         this.weight = Double.MAX_VALUE;
@@ -111,6 +112,13 @@ public class Path {
         return edgeIds.size();
     }
 
+    /**
+     * @return the ids of the edges of this path, from start to end
+     */
+    public IntIndexedContainer getEdges() {
+        return edgeIds;
+    }
+
     public boolean isFound() {
         return found;
     }
@@ -184,6 +192,17 @@ public class Path {
         return debugInfo;
     }
 
+    public void setExtractionNanos(long extractionNanos) {
+        this.extractionNanos = extractionNanos;
+    }
+
+    /**
+     * @return the time it took to extract this path from the shortest path tree, in nanoseconds
+     */
+    public long getExtractionNanos() {
+        return extractionNanos;
+    }
+
     /**
      * Iterates over all edges in this path sorted from start to end and calls the visitor callback
      * for every edge.
@@ -193,6 +212,19 @@ public class Path {
      *                be stored.
      */
     public void forEveryEdge(EdgeVisitor visitor) {
+        forEveryEdge(Collections.singletonList(visitor));
+    }
+
+    /**
+     * Calls all visitors in a single iteration over the edges of this path. Every edge is looked up only once and its
+     * geometry is fetched only once for all {@link GeometryEdgeVisitor}s, which is cheaper than calling
+     * {@link #forEveryEdge(EdgeVisitor)} for every visitor, e.g. when calculating points, instructions and details.
+     */
+    public void forEveryEdge(List<? extends EdgeVisitor> visitors) {
+        boolean fetchGeometry = false;
+        for (EdgeVisitor visitor : visitors) {
+            fetchGeometry |= visitor instanceof GeometryEdgeVisitor;
+        }
         int tmpNode = getFromNode();
         int len = edgeIds.size();
         int prevEdgeId = EdgeIterator.NO_EDGE;
@@ -205,11 +237,19 @@ public class Path {
             tmpNode = edgeBase.getBaseNode();
             // more efficient swap, currently not implemented for virtual edges: visitor.next(edgeBase.detach(true), i);
             edgeBase = graph.getEdgeIteratorState(edgeBase.getEdge(), tmpNode);
-            visitor.next(edgeBase, i, prevEdgeId);
+            PointList wayGeometry = fetchGeometry ? edgeBase.fetchWayGeometry(FetchMode.ALL) : null;
+            for (EdgeVisitor visitor : visitors) {
+                if (visitor instanceof GeometryEdgeVisitor)
+                    ((GeometryEdgeVisitor) visitor).next(edgeBase, wayGeometry, i, prevEdgeId);
+                else
+                    visitor.next(edgeBase, i, prevEdgeId);
+            }
 
             prevEdgeId = edgeBase.getEdge();
         }
-        visitor.finish();
+        for (EdgeVisitor visitor : visitors) {
+            visitor.finish();
+        }
     }
 
     /**
@@ -269,6 +309,14 @@ public class Path {
      * @return the geometry of this path
      */
     public PointList calcPoints() {
+        return calcPoints(Collections.<EdgeVisitor>emptyList());
+    }
+
+    /**
+     * Calculates the points of this path like {@link #calcPoints()} and calls the given visitors in the same iteration
+     * over the edges, see {@link #forEveryEdge(List)}. The visitors are not called if this path has no edges.
+     */
+    public PointList calcPoints(List<? extends EdgeVisitor> visitors) {
         final PointList points = new PointList(edgeIds.size() + 1, nodeAccess.is3D());
         if (edgeIds.isEmpty()) {
             if (isFound()) {
@@ -277,22 +325,11 @@ public class Path {
             return points;
         }
 
-        int tmpNode = getFromNode();
-        points.add(nodeAccess, tmpNode);
-        forEveryEdge(new EdgeVisitor() {
-            @Override
-            public void next(EdgeIteratorState eb, int index, int prevEdgeId) {
-                PointList pl = eb.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
-                for (int j = 0; j < pl.getSize(); j++) {
-                    points.add(pl, j);
-                }
-            }
-
-            @Override
-            public void finish() {
-
-            }
-        });
+        points.add(nodeAccess, getFromNode());
+        List<EdgeVisitor> allVisitors = new ArrayList<>(visitors.size() + 1);
+        allVisitors.add(new PointsVisitor(points));
+        allVisitors.addAll(visitors);
+        forEveryEdge(allVisitors);
         return points;
     }
 
@@ -313,4 +350,42 @@ public class Path {
 
         void finish();
     }
+
+    /**
+     * An EdgeVisitor that needs the geometry of every edge. When several of them are passed to
+     * {@link #forEveryEdge(List)} the geometry is fetched only once and shared.
+     */
+    public interface GeometryEdgeVisitor extends EdgeVisitor {
+        /**
+         * @param wayGeometry the geometry of the edge including base and adjacent node, see {@link FetchMode#ALL}.
+         *                    It is shared between the visitors and must not be modified.
+         */
+        void next(EdgeIteratorState edge, PointList wayGeometry, int index, int prevEdgeId);
+    }
+
+    private static class PointsVisitor implements GeometryEdgeVisitor {
+        private final PointList points;
+
+        PointsVisitor(PointList points) {
+            this.points = points;
+        }
+
+        @Override
+        public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+            next(edge, edge.fetchWayGeometry(FetchMode.ALL), index, prevEdgeId);
+        }
+
+        @Override
+        public void next(EdgeIteratorState edge, PointList wayGeometry, int index, int prevEdgeId) {
+            // skip the base node, it is the last point of the previous edge
+            for (int j = 1; j < wayGeometry.getSize(); j++) {
+                points.add(wayGeometry, j);
+            }
+        }
+
+        @Override
+        public void finish() {
+
+        }
+    }
 }
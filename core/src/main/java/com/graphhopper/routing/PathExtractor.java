@@ -26,6 +26,8 @@ import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.StopWatch;
 
+import java.util.List;
+
 public class PathExtractor {
     private final Graph graph;
     private final Weighting weighting;
@@ -35,6 +37,41 @@ public class PathExtractor {
         return new PathExtractor(graph, weighting).extract(sptEntry);
     }
 
+    /**
+     * Creates the path along the given edges, e.g. the edges of an earlier response.
+     *
+     * @throws IllegalArgumentException if the edges do not form a path starting at fromNode that can be used with the
+     *                                  weighting
+     */
+    public static Path extractPath(Graph graph, Weighting weighting, int fromNode, List<Integer> edges) {
+        StopWatch sw = new StopWatch().start();
+        Path path = new Path(graph);
+        path.setFromNode(fromNode);
+        int node = fromNode;
+        int prevEdge = EdgeIterator.NO_EDGE;
+        double weight = 0;
+        for (int edge : edges) {
+            EdgeIteratorState edgeState = edge >= 0 && edge < graph.getEdges() ? graph.getEdgeIteratorState(edge, Integer.MIN_VALUE) : null;
+            if (edgeState != null && edgeState.getBaseNode() != node)
+                edgeState = edgeState.getAdjNode() == node ? graph.getEdgeIteratorState(edge, edgeState.getBaseNode()) : null;
+            if (edgeState == null)
+                throw new IllegalArgumentException("Edge " + edge + " does not start at node " + node + ". Make sure to pass the same points and profile as for the route.");
+            weight += GHUtility.calcWeightWithTurnWeight(weighting, edgeState, false, prevEdge);
+            if (Double.isInfinite(weight))
+                throw new IllegalArgumentException("Edge " + edge + " cannot be used with this profile");
+            path.addDistance(edgeState.getDistance());
+            path.addTime(GHUtility.calcMillisWithTurnMillis(weighting, edgeState, false, prevEdge));
+            path.addEdge(edge);
+            node = edgeState.getAdjNode();
+            prevEdge = edge;
+        }
+        path.setEndNode(node);
+        path.setWeight(weight);
+        path.setFound(true);
+        path.setExtractionNanos(sw.stop().getNanos());
+        return path;
+    }
+
     protected PathExtractor(Graph graph, Weighting weighting) {
         this.graph = graph;
         this.weighting = weighting;
@@ -73,6 +110,7 @@ public class PathExtractor {
     }
 
     private void setExtractionTime(long nanos) {
+        path.setExtractionNanos(nanos);
         path.setDebugInfo("path extraction: " + nanos / 1000 + " micros");
     }
 
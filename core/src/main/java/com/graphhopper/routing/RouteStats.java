@@ -0,0 +1,131 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+/**
+ * The timings and counters of a single successful route request, reported to a {@link RouteStatsListener}.
+ * All times are in nanoseconds.
+ */
+public class RouteStats {
+    public static final String MODE_CH = "ch";
+    public static final String MODE_LM = "lm";
+    public static final String MODE_FLEXIBLE = "flexible";
+
+    private final String profile;
+    private final String algorithm;
+    private final String mode;
+    private long lookupNanos;
+    private long queryGraphNanos;
+    private long searchNanos;
+    private long extractionNanos;
+    private long pathMergeNanos;
+    private long visitedNodes;
+
+    public RouteStats(String profile, String algorithm, String mode) {
+        this.profile = profile;
+        this.algorithm = algorithm;
+        this.mode = mode;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return one of {@link #MODE_CH}, {@link #MODE_LM} or {@link #MODE_FLEXIBLE}
+     */
+    public String getMode() {
+        return mode;
+    }
+
+    public RouteStats setLookupNanos(long lookupNanos) {
+        this.lookupNanos = lookupNanos;
+        return this;
+    }
+
+    /**
+     * @return the time to snap the points to the graph, i.e. RoutingTemplate.lookup
+     */
+    public long getLookupNanos() {
+        return lookupNanos;
+    }
+
+    public RouteStats setQueryGraphNanos(long queryGraphNanos) {
+        this.queryGraphNanos = queryGraphNanos;
+        return this;
+    }
+
+    /**
+     * @return the time to create the QueryGraph with the virtual nodes and edges of the snapped points
+     */
+    public long getQueryGraphNanos() {
+        return queryGraphNanos;
+    }
+
+    public RouteStats setSearchNanos(long searchNanos) {
+        this.searchNanos = searchNanos;
+        return this;
+    }
+
+    /**
+     * @return the time of the shortest path searches excluding the path extraction
+     */
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    public RouteStats setExtractionNanos(long extractionNanos) {
+        this.extractionNanos = extractionNanos;
+        return this;
+    }
+
+    /**
+     * @return the time to extract the paths from the shortest path trees
+     */
+    public long getExtractionNanos() {
+        return extractionNanos;
+    }
+
+    public RouteStats setPathMergeNanos(long pathMergeNanos) {
+        this.pathMergeNanos = pathMergeNanos;
+        return this;
+    }
+
+    /**
+     * @return the time to merge the paths including the creation of points, instructions and path details
+     */
+    public long getPathMergeNanos() {
+        return pathMergeNanos;
+    }
+
+    public RouteStats setVisitedNodes(long visitedNodes) {
+        this.visitedNodes = visitedNodes;
+        return this;
+    }
+
+    /**
+     * @return the number of nodes the algorithms took from their queue (i.e. settled nodes) summed over all legs
+     */
+    public long getVisitedNodes() {
+        return visitedNodes;
+    }
+}
@@ -17,7 +17,6 @@
  */
 package com.graphhopper.routing.lm;
 
-import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.predicates.IntObjectPredicate;
@@ -270,29 +269,29 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
 
         // we cannot reuse the components calculated in PrepareRoutingSubnetworks as the edgeIds changed in between (called graph.optimize)
         // also calculating subnetworks from scratch makes bigger problems when working with many oneways
-        TarjansSCCAlgorithm tarjanAlgo = new TarjansSCCAlgorithm(graph, tarjanFilter, true);
-        List<IntArrayList> graphComponents = tarjanAlgo.findComponents();
+        TarjansSCCAlgorithm tarjanAlgo = new TarjansSCCAlgorithm(graph, tarjanFilter, true).findComponentIds();
         if (logDetails)
-            LOGGER.info("Calculated " + graphComponents.size() + " subnetworks via tarjan in " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
+            LOGGER.info("Calculated " + tarjanAlgo.getComponentCount() + " subnetworks via tarjan in " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
 
         EdgeExplorer tmpExplorer = graph.createEdgeExplorer(new RequireBothDirectionsEdgeFilter(encoder));
 
         int nodes = 0;
-        for (IntArrayList subnetworkIds : graphComponents) {
-            nodes += subnetworkIds.size();
-            if (subnetworkIds.size() < minimumNodes)
+        for (int component = 0; component < tarjanAlgo.getComponentCount(); component++) {
+            int componentSize = tarjanAlgo.getComponentSize(component);
+            nodes += componentSize;
+            if (componentSize < minimumNodes)
                 continue;
 
-            int index = subnetworkIds.size() - 1;
+            int index = componentSize - 1;
             // ensure start node is reachable from both sides and no subnetwork is associated
             for (; index >= 0; index--) {
-                int nextStartNode = subnetworkIds.get(index);
+                int nextStartNode = tarjanAlgo.getComponentNode(component, index);
                 if (subnetworks[nextStartNode] == UNSET_SUBNETWORK
                         && GHUtility.count(tmpExplorer.setBaseNode(nextStartNode)) > 0) {
 
                     GHPoint p = createPoint(graph, nextStartNode);
                     if (logDetails)
-                        LOGGER.info("start node: " + nextStartNode + " (" + p + ") subnetwork size: " + subnetworkIds.size()
+                        LOGGER.info("start node: " + nextStartNode + " (" + p + ") subnetwork size: " + componentSize
                                 + ", " + Helper.getMemInfo() + ((ruleLookup == null) ? "" : " area:" + ruleLookup.lookupRule(p).getId()));
 
                     if (createLandmarksForSubnetwork(nextStartNode, subnetworks, blockedEdges))
@@ -300,7 +299,8 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
                 }
             }
             if (index < 0)
-                LOGGER.warn("next start node not found in big enough network of size " + subnetworkIds.size() + ", first element is " + subnetworkIds.get(0) + ", " + createPoint(graph, subnetworkIds.get(0)));
+                LOGGER.warn("next start node not found in big enough network of size " + componentSize + ", first element is "
+                        + tarjanAlgo.getComponentNode(component, 0) + ", " + createPoint(graph, tarjanAlgo.getComponentNode(component, 0)));
         }
 
         int subnetworkCount = landmarkIDs.size();
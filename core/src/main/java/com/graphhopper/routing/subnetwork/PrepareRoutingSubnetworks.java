@@ -32,6 +32,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -51,6 +52,9 @@ public class PrepareRoutingSubnetworks {
     private int minNetworkSize = 200;
     private int minOneWayNetworkSize = 0;
     private int subnetworks = -1;
+    private int threads = 1;
+    // the edge flags of all encoders are written together, so only one thread must change them at a time
+    private final Object edgeFlagsLock = new Object();
 
     public PrepareRoutingSubnetworks(GraphHopperStorage ghStorage, List<FlagEncoder> encoders) {
         this.ghStorage = ghStorage;
@@ -71,32 +75,74 @@ public class PrepareRoutingSubnetworks {
         return this;
     }
 
+    /**
+     * Finds the subnetworks of the encoders in parallel. Every thread needs memory for all nodes.
+     */
+    public PrepareRoutingSubnetworks setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
     public void doWork() {
         if (minNetworkSize <= 0 && minOneWayNetworkSize <= 0)
             return;
 
-        logger.info("start finding subnetworks (min:" + minNetworkSize + ", min one way:" + minOneWayNetworkSize + ") " + Helper.getMemInfo());
-        int unvisitedDeadEnds = 0;
-        for (FlagEncoder encoder : encoders) {
-            // mark edges for one vehicle as inaccessible
-            DefaultEdgeFilter filter = DefaultEdgeFilter.allEdges(encoder);
-            if (minOneWayNetworkSize > 0)
-                unvisitedDeadEnds += removeDeadEndUnvisitedNetworks(filter);
-
-            List<IntArrayList> components = findSubnetworks(filter);
-            keepLargeNetworks(filter, components);
-            subnetworks = Math.max(components.size(), subnetworks);
-            logger.info(components.size() + " subnetworks found for " + encoder + ", " + Helper.getMemInfo());
+        logger.info("start finding subnetworks (min:" + minNetworkSize + ", min one way:" + minOneWayNetworkSize + ", threads:"
+                + threads + ") " + Helper.getMemInfo());
+        final AtomicInteger unvisitedDeadEnds = new AtomicInteger();
+        if (threads <= 1 || encoders.size() <= 1) {
+            for (FlagEncoder encoder : encoders) {
+                subnetworks = Math.max(removeSmallNetworks(encoder, unvisitedDeadEnds), subnetworks);
+            }
+        } else {
+            ExecutorService threadPool = Executors.newFixedThreadPool(Math.min(threads, encoders.size()));
+            try {
+                List<Future<Integer>> results = new ArrayList<>(encoders.size());
+                for (final FlagEncoder encoder : encoders) {
+                    results.add(threadPool.submit(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            return removeSmallNetworks(encoder, unvisitedDeadEnds);
+                        }
+                    }));
+                }
+                for (Future<Integer> result : results) {
+                    subnetworks = Math.max(result.get(), subnetworks);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(ex);
+            } catch (ExecutionException ex) {
+                throw new RuntimeException(ex.getCause());
+            } finally {
+                threadPool.shutdownNow();
+            }
         }
 
         markNodesRemovedIfUnreachable();
 
         logger.info("optimize to remove subnetworks (" + subnetworks + "), "
-                + "unvisited-dead-end-nodes (" + unvisitedDeadEnds + "), "
+                + "unvisited-dead-end-nodes (" + unvisitedDeadEnds.get() + "), "
                 + "maxEdges/node (" + maxEdgesPerNode.get() + ")");
         ghStorage.optimize();
     }
 
+    /**
+     * Marks the edges of the small networks of one vehicle as inaccessible.
+     *
+     * @return the number of subnetworks
+     */
+    private int removeSmallNetworks(FlagEncoder encoder, AtomicInteger unvisitedDeadEnds) {
+        DefaultEdgeFilter filter = DefaultEdgeFilter.allEdges(encoder);
+        if (minOneWayNetworkSize > 0)
+            unvisitedDeadEnds.addAndGet(removeDeadEndUnvisitedNetworks(filter));
+
+        List<IntArrayList> components = findSubnetworks(filter);
+        keepLargeNetworks(filter, components);
+        logger.info(components.size() + " subnetworks found for " + encoder + ", " + Helper.getMemInfo());
+        return components.size();
+    }
+
     public int getMaxSubnetworks() {
         return subnetworks;
     }
@@ -200,25 +246,21 @@ public class PrepareRoutingSubnetworks {
         final EdgeFilter outFilter = DefaultEdgeFilter.outEdges(bothFilter.getAccessEnc());
 
         // partition graph into strongly connected components using Tarjan's algorithm        
-        TarjansSCCAlgorithm tarjan = new TarjansSCCAlgorithm(ghStorage, outFilter, true);
-        List<IntArrayList> components = tarjan.findComponents();
-        logger.info(sw.stop() + ", size:" + components.size());
-
-        return removeEdges(bothFilter, components, minOneWayNetworkSize);
-    }
+        TarjansSCCAlgorithm tarjan = new TarjansSCCAlgorithm(ghStorage, outFilter, true).findComponentIds();
+        logger.info(sw.stop() + ", size:" + tarjan.getComponentCount());
 
-    /**
-     * This method removes the access to edges available from the nodes contained in the components.
-     * But only if a components' size is smaller then the specified min value.
-     *
-     * @return number of removed edges
-     */
-    int removeEdges(final DefaultEdgeFilter bothFilter, List<IntArrayList> components, int min) {
-        // remove edges determined from nodes but only if less than minimum size
         EdgeExplorer explorer = ghStorage.createEdgeExplorer(bothFilter);
         int removedEdges = 0;
-        for (IntArrayList component : components) {
-            removedEdges += removeEdges(explorer, bothFilter.getAccessEnc(), component, min);
+        for (int component = 0; component < tarjan.getComponentCount(); component++) {
+            int size = tarjan.getComponentSize(component);
+            if (size >= minOneWayNetworkSize)
+                continue;
+
+            synchronized (edgeFlagsLock) {
+                for (int i = 0; i < size; i++) {
+                    removedEdges += removeEdges(explorer, bothFilter.getAccessEnc(), tarjan.getComponentNode(component, i));
+                }
+            }
         }
         return removedEdges;
     }
@@ -226,11 +268,9 @@ public class PrepareRoutingSubnetworks {
     int removeEdges(EdgeExplorer explorer, BooleanEncodedValue accessEnc, IntIndexedContainer component, int min) {
         int removedEdges = 0;
         if (component.size() < min) {
-            for (int i = 0; i < component.size(); i++) {
-                EdgeIterator edge = explorer.setBaseNode(component.get(i));
-                while (edge.next()) {
-                    edge.set(accessEnc, false).setReverse(accessEnc, false);
-                    removedEdges++;
+            synchronized (edgeFlagsLock) {
+                for (int i = 0; i < component.size(); i++) {
+                    removedEdges += removeEdges(explorer, accessEnc, component.get(i));
                 }
             }
         }
@@ -238,6 +278,16 @@ public class PrepareRoutingSubnetworks {
         return removedEdges;
     }
 
+    private int removeEdges(EdgeExplorer explorer, BooleanEncodedValue accessEnc, int node) {
+        int removedEdges = 0;
+        EdgeIterator edge = explorer.setBaseNode(node);
+        while (edge.next()) {
+            edge.set(accessEnc, false).setReverse(accessEnc, false);
+            removedEdges++;
+        }
+        return removedEdges;
+    }
+
     /**
      * Removes nodes if all edges are not accessible. I.e. removes zero degree nodes.
      */
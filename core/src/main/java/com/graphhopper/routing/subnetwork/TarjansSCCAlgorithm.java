@@ -28,27 +28,39 @@ import com.graphhopper.util.EdgeIterator;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 
 /**
  * Implementation of Tarjan's algorithm using an explicit stack. The traditional recursive approach
  * runs into stack overflow pretty quickly. The algorithm is used within GraphHopper to find
  * strongly connected components to detect dead-ends leading to routes not found.
  * <p>
+ * The depth first search is kept in int arrays and one edge explorer per depth which are reused for all start
+ * nodes. The components are stored compactly: the nodes of all components one after another and the component id of
+ * every node, see {@link #getComponentId(int)}.
+ * <p>
  * See http://en.wikipedia.org/wiki/Tarjan's_strongly_connected_components_algorithm. See
  * http://www.timl.id.au/?p=327 and http://homepages.ecs.vuw.ac.nz/~djp/files/P05.pdf
  */
 public class TarjansSCCAlgorithm {
-    private final ArrayList<IntArrayList> components = new ArrayList<>();
     // TODO use just the Graph interface here
     private final GraphHopperStorage graph;
     private final IntArrayDeque nodeStack;
     private final GHBitSet onStack;
     private final GHBitSet ignoreSet;
+    // the depth first index of a node while it is on the stack, afterwards -(componentId + 1)
     private final int[] nodeIndex;
     private final int[] nodeLowLink;
     private final EdgeFilter edgeFilter;
+    // the current path of the depth first search
+    private final IntArrayList dfsNodes = new IntArrayList();
+    private final List<EdgeExplorer> dfsExplorers = new ArrayList<>();
+    private final List<EdgeIterator> dfsIterators = new ArrayList<>();
+    // the nodes of all components, the nodes of component i start at componentStarts.get(i)
+    private final int[] componentNodes;
+    private final IntArrayList componentStarts = new IntArrayList();
+    private int componentNodeCount;
     private int index = 1;
+    private boolean finished;
 
     public TarjansSCCAlgorithm(GraphHopperStorage ghStorage, final EdgeFilter edgeFilter, boolean ignoreSingleEntries) {
         this.graph = ghStorage;
@@ -56,6 +68,7 @@ public class TarjansSCCAlgorithm {
         this.onStack = new GHBitSetImpl(ghStorage.getNodes());
         this.nodeIndex = new int[ghStorage.getNodes()];
         this.nodeLowLink = new int[ghStorage.getNodes()];
+        this.componentNodes = new int[ghStorage.getNodes()];
         this.edgeFilter = edgeFilter;
 
         if (ignoreSingleEntries) {
@@ -85,6 +98,25 @@ public class TarjansSCCAlgorithm {
      * Find and return list of all strongly connected components in g.
      */
     public List<IntArrayList> findComponents() {
+        findComponentIds();
+        List<IntArrayList> components = new ArrayList<>(getComponentCount());
+        for (int component = 0; component < getComponentCount(); component++) {
+            int size = getComponentSize(component);
+            IntArrayList list = new IntArrayList(size);
+            list.add(componentNodes, componentStarts.get(component), size);
+            components.add(list);
+        }
+        return components;
+    }
+
+    /**
+     * Finds all strongly connected components without creating a list for every component. Use
+     * {@link #getComponentCount()}, {@link #getComponentNode(int, int)} and {@link #getComponentId(int)} to read them.
+     */
+    public TarjansSCCAlgorithm findComponentIds() {
+        if (finished)
+            return this;
+
         int nodes = graph.getNodes();
         for (int start = 0; start < nodes; start++) {
             if (nodeIndex[start] == 0
@@ -92,45 +124,51 @@ public class TarjansSCCAlgorithm {
                     && !graph.isNodeRemoved(start))
                 strongConnect(start);
         }
+        finished = true;
+        return this;
+    }
 
-        return components;
+    public int getComponentCount() {
+        return componentStarts.size();
+    }
+
+    public int getComponentSize(int component) {
+        int end = component + 1 < componentStarts.size() ? componentStarts.get(component + 1) : componentNodeCount;
+        return end - componentStarts.get(component);
+    }
+
+    /**
+     * @return the node at the specified position of the component. The nodes are in the order in which they were
+     * removed from the stack, i.e. the last node is the one the component was found from.
+     */
+    public int getComponentNode(int component, int position) {
+        return componentNodes[componentStarts.get(component) + position];
+    }
+
+    /**
+     * @return the component of the specified node or -1 if the node is not part of a component e.g. because it was
+     * ignored
+     */
+    public int getComponentId(int node) {
+        return nodeIndex[node] < 0 ? -nodeIndex[node] - 1 : -1;
     }
 
     /**
-     * Find all components reachable from firstNode, add them to 'components'
+     * Find all components reachable from firstNode, add them to the components
      * <p>
      *
      * @param firstNode start search of SCC at this node
      */
     private void strongConnect(int firstNode) {
-        final Stack<TarjanState> stateStack = new Stack<>();
-        stateStack.push(TarjanState.startState(firstNode));
+        int depth = 0;
+        visit(firstNode, depth);
 
-        // nextState label is equivalent to the function entry point in the recursive Tarjan's algorithm.
+        // every iteration of this loop is equivalent to the function entry or the return from a recursive call in the
+        // recursive Tarjan's algorithm
         nextState:
-
-        while (!stateStack.empty()) {
-            TarjanState state = stateStack.pop();
-            final int start = state.start;
-            final EdgeIterator iter;
-
-            if (state.isStart()) {
-                // We're traversing a new node 'start'.  Set the depth index for this node to the smallest unused index.
-                nodeIndex[start] = index;
-                nodeLowLink[start] = index;
-                index++;
-                nodeStack.addLast(start);
-                onStack.add(start);
-
-                iter = graph.createEdgeExplorer(edgeFilter).setBaseNode(start);
-
-            } else {
-                // We're resuming iteration over the next child of 'start', set lowLink as appropriate.
-                iter = state.iter;
-
-                int prevConnectedId = iter.getAdjNode();
-                nodeLowLink[start] = Math.min(nodeLowLink[start], nodeLowLink[prevConnectedId]);
-            }
+        while (depth >= 0) {
+            final int start = dfsNodes.get(depth);
+            final EdgeIterator iter = dfsIterators.get(depth);
 
             // Each element (excluding the first) in the current component should be able to find
             // a successor with a lower nodeLowLink.
@@ -140,10 +178,9 @@ public class TarjansSCCAlgorithm {
                     continue;
 
                 if (nodeIndex[connectedId] == 0) {
-                    // Push resume and start states onto state stack to continue our DFS through the graph after the jump.
-                    // Ideally we'd just call strongConnectIterative(connectedId);
-                    stateStack.push(TarjanState.resumeState(start, iter));
-                    stateStack.push(TarjanState.startState(connectedId));
+                    // continue our DFS through the graph at connectedId and resume 'start' afterwards
+                    depth++;
+                    visit(connectedId, depth);
                     continue nextState;
                 } else if (onStack.contains(connectedId)) {
                     nodeLowLink[start] = Math.min(nodeLowLink[start], nodeIndex[connectedId]);
@@ -153,45 +190,47 @@ public class TarjansSCCAlgorithm {
             // If nodeLowLink == nodeIndex, then we are the first element in a component.
             // Add all nodes higher up on nodeStack to this component.
             if (nodeIndex[start] == nodeLowLink[start]) {
-                IntArrayList component = new IntArrayList();
+                int componentId = componentStarts.size();
+                componentStarts.add(componentNodeCount);
                 int node;
                 while ((node = nodeStack.removeLast()) != start) {
-                    component.add(node);
-                    onStack.remove(node);
+                    addToComponent(node, componentId);
                 }
-                component.add(start);
-                component.trimToSize();
-                onStack.remove(start);
-                components.add(component);
+                addToComponent(start, componentId);
+            }
+
+            depth--;
+            if (depth >= 0) {
+                // We're resuming iteration over the next child of the parent, set lowLink as appropriate.
+                int parent = dfsNodes.get(depth);
+                nodeLowLink[parent] = Math.min(nodeLowLink[parent], nodeLowLink[start]);
             }
         }
     }
 
     /**
-     * Internal stack state of algorithm, used to avoid recursive function calls and hitting stack
-     * overflow exceptions. State is either 'start' for new nodes or 'resume' for partially
-     * traversed nodes.
+     * We're traversing a new node 'start'. Set the depth index for this node to the smallest unused index.
      */
-    private static class TarjanState {
-        final int start;
-        final EdgeIterator iter;
-
-        private TarjanState(final int start, final EdgeIterator iter) {
-            this.start = start;
-            this.iter = iter;
-        }
-
-        public static TarjanState startState(int start) {
-            return new TarjanState(start, null);
-        }
-
-        public static TarjanState resumeState(int start, EdgeIterator iter) {
-            return new TarjanState(start, iter);
+    private void visit(int start, int depth) {
+        nodeIndex[start] = index;
+        nodeLowLink[start] = index;
+        index++;
+        nodeStack.addLast(start);
+        onStack.add(start);
+
+        if (depth == dfsNodes.size()) {
+            dfsNodes.add(start);
+            dfsExplorers.add(graph.createEdgeExplorer(edgeFilter));
+            dfsIterators.add(null);
+        } else {
+            dfsNodes.set(depth, start);
         }
+        dfsIterators.set(depth, dfsExplorers.get(depth).setBaseNode(start));
+    }
 
-        // Iterator only present in 'resume' state.
-        boolean isStart() {
-            return iter == null;
-        }
+    private void addToComponent(int node, int componentId) {
+        componentNodes[componentNodeCount++] = node;
+        onStack.remove(node);
+        nodeIndex[node] = -componentId - 1;
     }
 }
@@ -100,6 +100,9 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
 
     @Override
     public List<Path> calcPaths(QueryGraph queryGraph, RoutingAlgorithmFactory algoFactory, AlgorithmOptions algoOpts) {
+        if (!ghRequest.getEdges().isEmpty())
+            return calcPathsFromEdges(queryGraph, queryGraph.wrapWeighting(algoOpts.getWeighting()));
+
         long visitedNodesSum = 0L;
         final boolean viaTurnPenalty = ghRequest.getHints().getBool(Routing.PASS_THROUGH, false);
         final int pointsCount = ghRequest.getPoints().size();
@@ -211,6 +214,26 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
         return pathList;
     }
 
+    /**
+     * Creates the paths from the edges of the request instead of calculating them. As the query graph is created from
+     * the same points, the ids of its virtual edges are the same as for the original request.
+     */
+    private List<Path> calcPathsFromEdges(QueryGraph queryGraph, Weighting weighting) {
+        List<List<Integer>> edges = ghRequest.getEdges();
+        if (edges.size() != queryResults.size() - 1)
+            throw new IllegalArgumentException("There has to be one list of edges for every leg, but there were "
+                    + edges.size() + " for " + queryResults.size() + " points");
+        pathList = new ArrayList<>(edges.size());
+        for (int placeIndex = 1; placeIndex < queryResults.size(); placeIndex++) {
+            Path path = PathExtractor.extractPath(queryGraph, weighting, queryResults.get(placeIndex - 1).getClosestNode(), edges.get(placeIndex - 1));
+            if (path.getEndNode() != queryResults.get(placeIndex).getClosestNode())
+                throw new IllegalArgumentException("The edges of leg " + (placeIndex - 1) + " do not end at point " + placeIndex
+                        + ". Make sure to pass the same points and profile as for the route.");
+            pathList.add(path);
+        }
+        return pathList;
+    }
+
     private int ignoreThrowOrAcceptImpossibleCurbsides(int edge, int placeIndex, boolean forceCurbsides) {
         if (edge != NO_EDGE) {
             return edge;
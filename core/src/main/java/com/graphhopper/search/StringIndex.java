@@ -17,6 +17,7 @@
  */
 package com.graphhopper.search;
 
+import com.graphhopper.coll.GHLongLongHashMap;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.Storable;
@@ -34,19 +35,25 @@ public class StringIndex implements Storable<StringIndex> {
     static final int MAX_UNIQUE_KEYS = (1 << 15);
     // Store string value as byte array and store the length into 1 byte
     private static final int MAX_LENGTH = (1 << 8) - 1;
+    // must be 1 << 12 as the slot is calculated from the upper 12 bits of the hashed pointer
+    private static final int VALUE_CACHE_SIZE = 1 << 12;
     boolean throwExceptionIfTooLong = false;
     private final DataAccess keys;
     // storage layout per entry:
     // 1 byte    | 2 bytes  | 1 byte      | x    | 2 bytes  | 1 byte      | x    | 2 bytes  (dup example) | 4 bytes | ...
     // vals count| key_idx_0| val_length_0| val_0| key_idx_1| val_length_1| val_1| -key_idx_2             | delta_2 | key_idx_3 | val_length_3 | val_3
     // Drawback: we need to loop through the entries to get the start of val_x.
-    // Note, that we detect duplicate values via smallCache and then use the negative key index as 'duplicate' marker.
+    // Note, that we detect duplicate values via valueHashes and then use the negative key index as 'duplicate' marker.
     // We then store only the delta (signed int) instead the absolute unsigned long value to reduce memory usage when duplicate entries.
     private final DataAccess vals;
     // array.indexOf could be faster than hashmap.get if not too many keys or even sort keys and use binarySearch
     private final Map<String, Integer> keysInMem = new LinkedHashMap<>();
     private final List<String> keyList = new ArrayList<>();
-    private final Map<String, Long> smallCache;
+    // 64 bit hash of every distinct value added since the last flush -> pointer of its first occurrence. Only needed
+    // while importing, so it is released in flush and close.
+    private final GHLongLongHashMap valueHashes = new GHLongLongHashMap();
+    // direct mapped cache of decoded values, a slot is replaced atomically and can be read without locking
+    private final CachedValue[] valueCache = new CachedValue[VALUE_CACHE_SIZE];
     private long bytePointer = START_POINTER;
     private long lastEntryPointer = -1;
     private Map<String, String> lastEntryMap;
@@ -56,18 +63,14 @@ public class StringIndex implements Storable<StringIndex> {
     }
 
     /**
-     * Specify a larger cacheSize to reduce disk usage. Note that this increases the memory usage of this object.
+     * @param cacheSize ignored, all distinct values are deduplicated while importing
+     * @deprecated use {@link #StringIndex(Directory)}
      */
+    @Deprecated
     public StringIndex(Directory dir, final int cacheSize) {
         keys = dir.find("string_index_keys");
         keys.setSegmentSize(10 * 1024);
         vals = dir.find("string_index_vals");
-        smallCache = new LinkedHashMap<String, Long>(cacheSize, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, Long> entry) {
-                return size() > cacheSize;
-            }
-        };
     }
 
     @Override
@@ -152,29 +155,28 @@ public class StringIndex implements Storable<StringIndex> {
                 vals.setByte(currentPointer + 2, (byte) 0);
                 currentPointer += 3;
             } else {
-                Long existingRef = smallCache.get(value);
-                if (existingRef != null) {
+                byte[] valueBytes = getBytesForString("Value for key" + key, value);
+                // only deduplicate the value if storing via duplicate marker is valuable (the delta costs 4 bytes minus 1 due to omitted valueBytes.length storage)
+                long valueHash = valueBytes.length > 3 ? hash(valueBytes) : 0;
+                if (valueBytes.length > 3) {
+                    long existingRef = valueHashes.getOrDefault(valueHash, -1);
                     long delta = lastEntryPointer - existingRef;
-                    if (delta < Integer.MAX_VALUE && delta > Integer.MIN_VALUE) {
+                    if (existingRef >= 0 && delta < Integer.MAX_VALUE && isValueAt(existingRef + 2, valueBytes)) {
                         vals.ensureCapacity(currentPointer + 2 + 4);
                         vals.setShort(currentPointer, (short) -keyIndex);
                         currentPointer += 2;
                         // do not store valueBytes.length as we know it already: it is 4!
-                        byte[] valueBytes = new byte[4];
-                        BitUtil.LITTLE.fromInt(valueBytes, (int) delta);
-                        vals.setBytes(currentPointer, valueBytes, valueBytes.length);
-                        currentPointer += valueBytes.length;
+                        byte[] deltaBytes = new byte[4];
+                        BitUtil.LITTLE.fromInt(deltaBytes, (int) delta);
+                        vals.setBytes(currentPointer, deltaBytes, deltaBytes.length);
+                        currentPointer += deltaBytes.length;
                         continue;
-                    } else {
-                        smallCache.remove(value);
                     }
+                    // new value, a hash collision or a duplicate too far away: the value is written again and the
+                    // following duplicates will point to this copy
+                    valueHashes.put(valueHash, currentPointer);
                 }
 
-                byte[] valueBytes = getBytesForString("Value for key" + key, value);
-                // only cache value if storing via duplicate marker is valuable (the delta costs 4 bytes minus 1 due to omitted valueBytes.length storage)
-                if (valueBytes.length > 3)
-                    smallCache.put(value, currentPointer);
-
                 vals.ensureCapacity(currentPointer + 2 + 1 + valueBytes.length);
                 vals.setShort(currentPointer, keyIndex.shortValue());
                 currentPointer += 2;
@@ -207,18 +209,11 @@ public class StringIndex implements Storable<StringIndex> {
 
             if (currentKeyIndex < 0) {
                 currentKeyIndex = -currentKeyIndex;
-                byte[] valueBytes = new byte[4];
-                vals.getBytes(tmpPointer, valueBytes, valueBytes.length);
+                map.put(keyList.get(currentKeyIndex), getValue(getDuplicatePointer(entryPointer, tmpPointer)));
                 tmpPointer += 4;
-
-                long dupPointer = entryPointer - BitUtil.LITTLE.toInt(valueBytes);
-                dupPointer += 2;
-                if (dupPointer > bytePointer)
-                    throw new IllegalStateException("dup marker should exist but points into not yet allocated area " + dupPointer + " > " + bytePointer);
-                putIntoMap(map, dupPointer, currentKeyIndex);
             } else {
-                int valueLength = putIntoMap(map, tmpPointer, currentKeyIndex);
-                tmpPointer += 1 + valueLength;
+                map.put(keyList.get(currentKeyIndex), getValue(tmpPointer));
+                tmpPointer += 1 + (vals.getByte(tmpPointer) & 0xFF);
             }
         }
 
@@ -226,22 +221,11 @@ public class StringIndex implements Storable<StringIndex> {
         return map;
     }
 
-    private int putIntoMap(Map<String, String> map, long tmpPointer, int currentKeyIndex) {
-        int valueLength = vals.getByte(tmpPointer) & 0xFF;
-        tmpPointer++;
-        String valueStr;
-        if (valueLength == 0) {
-            valueStr = "";
-        } else {
-            byte[] valueBytes = new byte[valueLength];
-            vals.getBytes(tmpPointer, valueBytes, valueBytes.length);
-            valueStr = new String(valueBytes, Helper.UTF_CS);
-        }
-
-        map.put(keyList.get(currentKeyIndex), valueStr);
-        return valueLength;
-    }
-
+    /**
+     * This method returns the value of the specified key for the specified entry. It does not lock and for values
+     * that were recently fetched it returns the cached String instance without allocating, so it is cheap to call
+     * it for every edge of a route from many threads.
+     */
     public String get(final long entryPointer, String key) {
         if (entryPointer < 0)
             throw new IllegalStateException("Pointer to access StringIndex cannot be negative:" + entryPointer);
@@ -262,33 +246,74 @@ public class StringIndex implements Storable<StringIndex> {
         for (int i = 0; i < keyCount; i++) {
             int currentKeyIndex = vals.getShort(tmpPointer);
             tmpPointer += 2;
-            if (Math.abs(currentKeyIndex) == keyIndex) {
-                if (currentKeyIndex < 0) {
-                    byte[] valueBytes = new byte[4];
-                    vals.getBytes(tmpPointer, valueBytes, valueBytes.length);
-                    tmpPointer = entryPointer - BitUtil.LITTLE.toInt(valueBytes);
-                    tmpPointer += 2;
-                    if (tmpPointer > bytePointer)
-                        throw new IllegalStateException("dup marker " + bytePointer + " should exist but points into not yet allocated area " + tmpPointer);
-                }
-
-                int valueLength = vals.getByte(tmpPointer) & 0xFF;
-                if (valueLength == 0)
-                    return "";
-
-                tmpPointer++;
-                byte[] valueBytes = new byte[valueLength];
-                vals.getBytes(tmpPointer, valueBytes, valueBytes.length);
-                return new String(valueBytes, Helper.UTF_CS);
+            if (currentKeyIndex < 0) {
+                if (-currentKeyIndex == keyIndex)
+                    return getValue(getDuplicatePointer(entryPointer, tmpPointer));
+                tmpPointer += 4;
+            } else {
+                if (currentKeyIndex == keyIndex)
+                    return getValue(tmpPointer);
+                tmpPointer += 1 + (vals.getByte(tmpPointer) & 0xFF);
             }
-            int valueLength = vals.getByte(tmpPointer) & 0xFF;
-            tmpPointer += 1 + valueLength;
         }
 
         // value for specified key does not existing for the specified pointer
         return null;
     }
 
+    /**
+     * @return the pointer to the length of the value that the duplicate marker at the specified pointer refers to
+     */
+    private long getDuplicatePointer(long entryPointer, long deltaPointer) {
+        int delta = (vals.getByte(deltaPointer) & 0xFF) | (vals.getByte(deltaPointer + 1) & 0xFF) << 8
+                | (vals.getByte(deltaPointer + 2) & 0xFF) << 16 | (vals.getByte(deltaPointer + 3) & 0xFF) << 24;
+        long dupPointer = entryPointer - delta + 2;
+        if (dupPointer > bytePointer)
+            throw new IllegalStateException("dup marker should exist but points into not yet allocated area " + dupPointer + " > " + bytePointer);
+        return dupPointer;
+    }
+
+    private String getValue(long valuePointer) {
+        int valueLength = vals.getByte(valuePointer) & 0xFF;
+        if (valueLength == 0)
+            return "";
+
+        int slot = (int) ((valuePointer * 0x9E3779B97F4A7C15L) >>> 52);
+        CachedValue cached = valueCache[slot];
+        if (cached != null && cached.pointer == valuePointer)
+            return cached.value;
+
+        byte[] valueBytes = new byte[valueLength];
+        for (int i = 0; i < valueLength; i++) {
+            valueBytes[i] = vals.getByte(valuePointer + 1 + i);
+        }
+        String value = new String(valueBytes, Helper.UTF_CS);
+        valueCache[slot] = new CachedValue(valuePointer, value);
+        return value;
+    }
+
+    private boolean isValueAt(long valuePointer, byte[] valueBytes) {
+        if ((vals.getByte(valuePointer) & 0xFF) != valueBytes.length)
+            return false;
+        for (int i = 0; i < valueBytes.length; i++) {
+            if (vals.getByte(valuePointer + 1 + i) != valueBytes[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * 64 bit FNV-1a hash
+     */
+    static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
     private byte[] getBytesForString(String info, String name) {
         byte[] bytes = name.getBytes(Helper.UTF_CS);
         if (bytes.length > MAX_LENGTH) {
@@ -320,10 +345,12 @@ public class StringIndex implements Storable<StringIndex> {
         vals.setHeader(0, BitUtil.LITTLE.getIntLow(bytePointer));
         vals.setHeader(4, BitUtil.LITTLE.getIntHigh(bytePointer));
         vals.flush();
+        valueHashes.release();
     }
 
     @Override
     public void close() {
+        valueHashes.release();
         keys.close();
         vals.close();
     }
@@ -347,4 +374,14 @@ public class StringIndex implements Storable<StringIndex> {
         keys.copyTo(stringIndex.keys);
         vals.copyTo(stringIndex.vals);
     }
+
+    private static final class CachedValue {
+        final long pointer;
+        final String value;
+
+        CachedValue(long pointer, String value) {
+            this.pointer = pointer;
+            this.value = value;
+        }
+    }
 }
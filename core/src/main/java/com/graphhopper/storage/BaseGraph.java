@@ -70,6 +70,7 @@ class BaseGraph implements Graph {
     private final int intsForFlags;
     // length | nodeA | nextNode | ... | nodeB
     // as we use integer index in 'egdes' area => 'geometry' area is limited to 4GB (we use pos&neg values!)
+    // compressed: byteCapacity | vlong(length) | first point | delta to previous point | ...
     private final DataAccess wayGeometry;
     private final Directory dir;
     private final InternalGraphEventListener listener;
@@ -98,6 +99,7 @@ class BaseGraph implements Graph {
     private GHBitSet removedNodes;
     private int edgeEntryIndex, nodeEntryIndex;
     private long maxGeoRef;
+    private boolean compressedGeometry = false;
     private boolean frozen = false;
 
     public BaseGraph(Directory dir, final EncodingManager encodingManager, boolean withElevation,
@@ -243,13 +245,29 @@ class BaseGraph implements Graph {
 
     protected int loadWayGeometryHeader() {
         maxGeoRef = bitUtil.combineIntsToLong(wayGeometry.getHeader(0), wayGeometry.getHeader(4));
-        return 1;
+        compressedGeometry = wayGeometry.getHeader(2 * 4) == 1;
+        return 3;
     }
 
     protected int setWayGeometryHeader() {
         wayGeometry.setHeader(0, bitUtil.getIntLow(maxGeoRef));
         wayGeometry.setHeader(4, bitUtil.getIntHigh(maxGeoRef));
-        return 1;
+        wayGeometry.setHeader(2 * 4, compressedGeometry ? 1 : 0);
+        return 3;
+    }
+
+    /**
+     * Stores the pillar nodes of newly created graphs delta and zigzag encoded as variable length longs instead of
+     * fixed 4 byte integers. The elevation is then stored in decimeters. Loaded graphs keep the encoding they were
+     * created with.
+     */
+    void setCompressedGeometry(boolean compressedGeometry) {
+        checkNotInitialized();
+        this.compressedGeometry = compressedGeometry;
+    }
+
+    boolean isCompressedGeometry() {
+        return compressedGeometry;
     }
 
     void initStorage() {
@@ -895,6 +913,10 @@ class BaseGraph implements Graph {
                         + "D for graph which is " + nodeAccess.getDimension() + "D");
 
             long existingGeoRef = Helper.toUnsignedLong(edges.getInt(edgePointer + E_GEO));
+            if (compressedGeometry) {
+                setCompressedWayGeometry(pillarNodes, edgePointer, reverse, existingGeoRef);
+                return;
+            }
 
             int len = pillarNodes.getSize();
             int dim = nodeAccess.getDimension();
@@ -924,6 +946,53 @@ class BaseGraph implements Graph {
         edges.setInt(edgePointer + E_GEO, Helper.toSignedInt(geoRef));
     }
 
+    private void setCompressedWayGeometry(PointList pillarNodes, long edgePointer, boolean reverse, long existingGeoRef) {
+        VLongStorage storage = createCompressedWayGeometry(pillarNodes, reverse);
+        int byteLength = (int) storage.getPosition();
+        long geoRef = existingGeoRef;
+        // overwrite in place if the new geometry fits into the existing slot
+        if (geoRef <= 0 || wayGeometry.getInt(geoRef * 4L) < byteLength) {
+            int ints = (byteLength + 3) / 4;
+            geoRef = nextGeoRef(ints);
+            ensureGeometry(geoRef * 4L, ints * 4 + 4);
+            wayGeometry.setInt(geoRef * 4L, ints * 4);
+        }
+        wayGeometry.setBytes(geoRef * 4L + 4, storage.getBytes(), byteLength);
+        edges.setInt(edgePointer + E_GEO, Helper.toSignedInt(geoRef));
+    }
+
+    private VLongStorage createCompressedWayGeometry(PointList pillarNodes, boolean reverse) {
+        int len = pillarNodes.getSize();
+        boolean is3D = nodeAccess.is3D();
+        // 5 bytes are sufficient for every zigzag encoded delta
+        VLongStorage storage = new VLongStorage(5 + len * nodeAccess.getDimension() * 5);
+        storage.writeVLong(len);
+        long prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int j = 0; j < len; j++) {
+            int i = reverse ? len - 1 - j : j;
+            long lat = Helper.degreeToInt(pillarNodes.getLatitude(i));
+            long lon = Helper.degreeToInt(pillarNodes.getLongitude(i));
+            storage.writeVLong(zigZag(lat - prevLat));
+            storage.writeVLong(zigZag(lon - prevLon));
+            prevLat = lat;
+            prevLon = lon;
+            if (is3D) {
+                long ele = Math.round(pillarNodes.getElevation(i) * 10);
+                storage.writeVLong(zigZag(ele - prevEle));
+                prevEle = ele;
+            }
+        }
+        return storage;
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
     private byte[] createWayGeometryBytes(PointList pillarNodes, boolean reverse) {
         int len = pillarNodes.getSize();
         int dim = nodeAccess.getDimension();
@@ -959,6 +1028,9 @@ class BaseGraph implements Graph {
             return pillarNodes;
         }
         long geoRef = Helper.toUnsignedLong(edges.getInt(edgePointer + E_GEO));
+        if (compressedGeometry)
+            return fetchCompressedWayGeometry(geoRef, reverse, mode, baseNode, adjNode);
+
         int count = 0;
         byte[] bytes = null;
         if (geoRef > 0) {
@@ -1003,6 +1075,48 @@ class BaseGraph implements Graph {
         return pillarNodes;
     }
 
+    private PointList fetchCompressedWayGeometry(long geoRef, boolean reverse, FetchMode mode, int baseNode, int adjNode) {
+        int count = 0;
+        VLongStorage storage = null;
+        if (geoRef > 0) {
+            byte[] bytes = new byte[wayGeometry.getInt(geoRef * 4L)];
+            wayGeometry.getBytes(geoRef * 4L + 4, bytes, bytes.length);
+            storage = new VLongStorage(bytes);
+            count = (int) storage.readVLong();
+        } else if (mode == FetchMode.PILLAR_ONLY)
+            return PointList.EMPTY;
+
+        boolean is3D = nodeAccess.is3D();
+        PointList pillarNodes = new PointList(getPointListLength(count, mode), is3D);
+        if (reverse) {
+            if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
+                pillarNodes.add(nodeAccess, adjNode);
+        } else if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
+            pillarNodes.add(nodeAccess, baseNode);
+
+        long lat = 0, lon = 0, ele = 0;
+        for (int i = 0; i < count; i++) {
+            lat += unZigZag(storage.readVLong());
+            lon += unZigZag(storage.readVLong());
+            if (is3D) {
+                ele += unZigZag(storage.readVLong());
+                pillarNodes.add(Helper.intToDegree((int) lat), Helper.intToDegree((int) lon), ele / 10d);
+            } else {
+                pillarNodes.add(Helper.intToDegree((int) lat), Helper.intToDegree((int) lon));
+            }
+        }
+
+        if (reverse) {
+            if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
+                pillarNodes.add(nodeAccess, baseNode);
+
+            pillarNodes.reverse();
+        } else if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
+            pillarNodes.add(nodeAccess, adjNode);
+
+        return pillarNodes;
+    }
+
     static int getPointListLength(int pillarNodes, FetchMode mode) {
         switch (mode) {
             case TOWER_ONLY:
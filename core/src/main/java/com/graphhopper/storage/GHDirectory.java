@@ -133,6 +133,15 @@ public class GHDirectory implements Directory {
         removeBackingFile(da, da.getName());
     }
 
+    @Override
+    public void close(DataAccess da) {
+        DataAccess old = map.remove(da.getName());
+        if (old == null)
+            throw new IllegalStateException("Couldn't close DataAccess: " + da.getName());
+
+        da.close();
+    }
+
     private void removeBackingFile(DataAccess da, String name) {
         if (da.getType().isStoring())
             removeDir(new File(location + name));
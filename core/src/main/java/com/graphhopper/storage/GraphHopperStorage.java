@@ -84,6 +84,20 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         chGraphs = new ArrayList<>();
     }
 
+    /**
+     * Enables the compressed encoding of the pillar nodes for a graph that is created afterwards. This trades smaller
+     * geometry files for the decoding when the geometry is fetched. A loaded graph uses the encoding it was created
+     * with. You need to call this method before calling {@link #create(long)}.
+     */
+    public GraphHopperStorage setCompressedGeometry(boolean compressedGeometry) {
+        baseGraph.setCompressedGeometry(compressedGeometry);
+        return this;
+    }
+
+    public boolean isCompressedGeometry() {
+        return baseGraph.isCompressedGeometry();
+    }
+
     /**
      * Adds a {@link CHGraph} for the given {@link CHProfile}. You need to call this method before calling {@link #create(long)}
      * or {@link #loadExisting()}.
@@ -354,7 +368,10 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
             baseGraph.freeze();
     }
 
-    boolean isFrozen() {
+    /**
+     * @return true if no nodes and edges can be added anymore, see {@link #freeze()}
+     */
+    public boolean isFrozen() {
         return baseGraph.isFrozen();
     }
 
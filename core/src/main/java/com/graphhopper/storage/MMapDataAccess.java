@@ -45,7 +45,9 @@ import java.util.StringTokenizer;
  * <p>
  * Java presents the mapped memory as a ByteBuffer, and ByteBuffer is not
  * thread-safe, which means that access to a ByteBuffer must be externally
- * synchronized.
+ * synchronized. The exception are the absolute get methods used in getInt,
+ * getShort and getByte: they do not modify the state of the buffer and so
+ * concurrent reads do not need to lock.
  * <p>
  * This class itself is intended to be as thread-safe as other DataAccess
  * implementations are.
@@ -347,10 +349,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int index = (int) (bytePos & indexDivisor);
         if (index + 4 > segmentSizeInBytes)
             throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
-        ByteBuffer byteBuffer = segments.get(bufferIndex);
-        synchronized (byteBuffer) {
-            return byteBuffer.getInt(index);
-        }
+        return segments.get(bufferIndex).getInt(index);
     }
 
     @Override
@@ -386,9 +385,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
                 }
             }
         }
-        synchronized (byteBuffer) {
-            return byteBuffer.getShort(index);
-        }
+        return byteBuffer.getShort(index);
     }
 
     @Override
@@ -456,11 +453,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
     public byte getByte(long bytePos) {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
-        final ByteBuffer bb1 = segments.get(bufferIndex);
-        synchronized (bb1) {
-            bb1.position(index);
-            return bb1.get();
-        }
+        return segments.get(bufferIndex).get(index);
     }
 
     @Override
@@ -0,0 +1,222 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the elevation statistics of every edge so that the ascent, descent and grade of a route can be read without
+ * decoding the edge geometries. The values are calculated from the 3D geometry including the tower nodes, in the
+ * direction of the stored edge, and the getters return them for the direction of the specified edge state. Edges that
+ * are not stored, like the virtual edges of a QueryGraph, are calculated from their geometry.
+ * <p>
+ * The grades are the elevation difference divided by the 2D distance in percent. The maximum grades are calculated
+ * per segment and ignore segments shorter than 1m where coarse elevation data leads to arbitrary grades.
+ */
+public class EdgeElevationIndex implements Storable<EdgeElevationIndex> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EdgeElevationIndex.class);
+    private final static int MAGIC_INT = Integer.MAX_VALUE / 112223;
+    // ascent and descent in cm
+    private final static int E_ASCENT = 0, E_DESCENT = 4;
+    // the steepest uphill grade in the lower and the steepest downhill grade in the upper 16 bits, in 0.1%
+    private final static int E_MAX_GRADES = 8;
+    // the elevation difference between the tower nodes divided by the distance, in 0.01%
+    private final static int E_AVERAGE_GRADE = 12;
+    private final static int BYTES_PER_EDGE = 16;
+    private final static double MIN_GRADE_DISTANCE = 1;
+    private final static int MAX_GRADE = 0xFFFF;
+    private final static DistanceCalc DIST_CALC = Helper.DIST_EARTH;
+    private final Graph graph;
+    private final DataAccess index;
+    private int edgeCount;
+
+    public EdgeElevationIndex(Graph graph, Directory dir) {
+        if (graph instanceof CHGraph)
+            throw new IllegalArgumentException("Use base graph for EdgeElevationIndex instead of CHGraph");
+        if (!graph.getNodeAccess().is3D())
+            throw new IllegalArgumentException("EdgeElevationIndex requires a graph with elevation");
+
+        this.graph = graph;
+        this.index = dir.find("edge_elevation_index", DAType.getPreferredInt(dir.getDefaultType()));
+    }
+
+    /**
+     * Calculates the statistics of all edges.
+     */
+    public EdgeElevationIndex prepareIndex() {
+        StopWatch sw = new StopWatch().start();
+        edgeCount = graph.getEdges();
+        index.create((long) edgeCount * BYTES_PER_EDGE);
+        AllEdgesIterator iter = graph.getAllEdges();
+        double[] stats = new double[5];
+        while (iter.next()) {
+            setStats(iter.getEdge(), calcStats(iter.fetchWayGeometry(FetchMode.ALL), stats));
+        }
+        flush();
+        LOGGER.info("calculated elevation statistics of " + Helper.nf(edgeCount) + " edges in " + sw.stop().getSeconds() + "s");
+        return this;
+    }
+
+    /**
+     * Calculates the statistics of an edge again after its geometry changed or after it was added to the graph.
+     */
+    public void update(EdgeIteratorState edge) {
+        int edgeId = edge.getEdge();
+        if (edgeId >= edgeCount) {
+            edgeCount = edgeId + 1;
+            index.ensureCapacity((long) edgeCount * BYTES_PER_EDGE);
+        }
+        EdgeIteratorState storedEdge = graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+        setStats(edgeId, calcStats(storedEdge.fetchWayGeometry(FetchMode.ALL), new double[5]));
+    }
+
+    /**
+     * @return the sum of all elevation increases along the edge in meters
+     */
+    public double getAscent(EdgeIteratorState edge) {
+        if (!isStored(edge))
+            return calcStats(edge)[0];
+        return getInt(edge, edge.get(EdgeIteratorState.REVERSE_STATE) ? E_DESCENT : E_ASCENT) / 100d;
+    }
+
+    /**
+     * @return the sum of all elevation decreases along the edge in meters
+     */
+    public double getDescent(EdgeIteratorState edge) {
+        if (!isStored(edge))
+            return calcStats(edge)[1];
+        return getInt(edge, edge.get(EdgeIteratorState.REVERSE_STATE) ? E_ASCENT : E_DESCENT) / 100d;
+    }
+
+    /**
+     * @return the steepest uphill grade of the edge in percent
+     */
+    public double getMaxGrade(EdgeIteratorState edge) {
+        if (!isStored(edge))
+            return calcStats(edge)[2];
+        int maxGrades = getInt(edge, E_MAX_GRADES);
+        return (edge.get(EdgeIteratorState.REVERSE_STATE) ? maxGrades >>> 16 : maxGrades & MAX_GRADE) / 10d;
+    }
+
+    /**
+     * @return the elevation difference between the end and the start of the edge divided by its 2D distance in
+     * percent, negative if the edge goes downhill
+     */
+    public double getAverageGrade(EdgeIteratorState edge) {
+        if (!isStored(edge))
+            return calcStats(edge)[4];
+        int averageGrade = getInt(edge, E_AVERAGE_GRADE);
+        return (edge.get(EdgeIteratorState.REVERSE_STATE) ? -averageGrade : averageGrade) / 100d;
+    }
+
+    private boolean isStored(EdgeIteratorState edge) {
+        return edge.getEdge() < edgeCount;
+    }
+
+    private int getInt(EdgeIteratorState edge, int offset) {
+        return index.getInt((long) edge.getEdge() * BYTES_PER_EDGE + offset);
+    }
+
+    private void setStats(int edgeId, double[] stats) {
+        long pointer = (long) edgeId * BYTES_PER_EDGE;
+        index.setInt(pointer + E_ASCENT, (int) Math.min(Integer.MAX_VALUE, Math.round(stats[0] * 100)));
+        index.setInt(pointer + E_DESCENT, (int) Math.min(Integer.MAX_VALUE, Math.round(stats[1] * 100)));
+        int maxUp = (int) Math.min(MAX_GRADE, Math.round(stats[2] * 10));
+        int maxDown = (int) Math.min(MAX_GRADE, Math.round(stats[3] * 10));
+        index.setInt(pointer + E_MAX_GRADES, maxDown << 16 | maxUp);
+        index.setInt(pointer + E_AVERAGE_GRADE, (int) Math.round(stats[4] * 100));
+    }
+
+    private static double[] calcStats(EdgeIteratorState edge) {
+        // the geometry of an edge state is already in its direction
+        return calcStats(edge.fetchWayGeometry(FetchMode.ALL), new double[5]);
+    }
+
+    /**
+     * Fills stats with the ascent, descent, steepest uphill grade, steepest downhill grade and average grade of the
+     * specified 3D geometry.
+     */
+    static double[] calcStats(PointList geometry, double[] stats) {
+        double ascent = 0, descent = 0, maxUp = 0, maxDown = 0, distance = 0;
+        for (int i = 1; i < geometry.size(); i++) {
+            double eleDelta = geometry.getEle(i) - geometry.getEle(i - 1);
+            double segmentDistance = DIST_CALC.calcDist(geometry.getLat(i - 1), geometry.getLon(i - 1),
+                    geometry.getLat(i), geometry.getLon(i));
+            distance += segmentDistance;
+            if (eleDelta > 0)
+                ascent += eleDelta;
+            else
+                descent -= eleDelta;
+
+            if (segmentDistance >= MIN_GRADE_DISTANCE) {
+                double grade = 100 * eleDelta / segmentDistance;
+                maxUp = Math.max(maxUp, grade);
+                maxDown = Math.max(maxDown, -grade);
+            }
+        }
+        stats[0] = ascent;
+        stats[1] = descent;
+        stats[2] = maxUp;
+        stats[3] = maxDown;
+        stats[4] = distance < MIN_GRADE_DISTANCE ? 0 : 100 * (ascent - descent) / distance;
+        return stats;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!index.loadExisting())
+            return false;
+
+        if (index.getHeader(0) != MAGIC_INT)
+            throw new IllegalStateException("incorrect edge elevation index version");
+
+        edgeCount = index.getHeader(4);
+        return true;
+    }
+
+    @Override
+    public EdgeElevationIndex create(long byteCount) {
+        throw new UnsupportedOperationException("Not supported. Use prepareIndex");
+    }
+
+    @Override
+    public void flush() {
+        index.setHeader(0, MAGIC_INT);
+        index.setHeader(4, edgeCount);
+        index.flush();
+    }
+
+    @Override
+    public void close() {
+        index.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return index.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return index.getCapacity();
+    }
+}
@@ -19,10 +19,13 @@ package com.graphhopper.storage.index;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntIndexedContainer;
+import com.carrotsearch.hppc.cursors.LongObjectCursor;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.predicates.IntPredicate;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.coll.GHLongObjectHashMap;
 import com.graphhopper.coll.GHTBitSet;
 import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -54,6 +57,8 @@ import java.util.*;
  * E.g. in case of 4 cells, the offset is 0,1,2 or 3. Except when the leaf-depth is reached, then the value
  * is the number of node IDs stored in the cell or, if negative, just a single node ID.</li>
  * </ol>
+ * Edges appended to the graph later can be added via {@link #addEdges} without creating the tree again. Their
+ * network entries are stored per spatial key after the tree.
  *
  * @author Peter Karich
  */
@@ -78,6 +83,11 @@ public class LocationIndexTree implements LocationIndex {
     private double deltaLon;
     private int initSizeLeafEntries = 4;
     private boolean initialized = false;
+    // the spatial keys depend on the graph bounds, so edges can only be added as long as they do not change
+    private BBox treeBounds;
+    // the int pointer after the tree, where the entries of the added edges are stored or 0 for an older index
+    private int treeEndPointer;
+    private final GHLongObjectHashMap<SortedIntSet> addedEntries = new GHLongObjectHashMap<>();
     private static final Comparator<QueryResult> QR_COMPARATOR = new Comparator<QueryResult>() {
         @Override
         public int compare(QueryResult o1, QueryResult o2) {
@@ -179,6 +189,7 @@ public class LocationIndexTree implements LocationIndex {
         if (shiftSum > 64)
             throw new IllegalStateException("sum of all shifts does not fit into a long variable");
 
+        treeBounds = bounds.clone();
         keyAlgo = new SpatialKeyAlgo(shiftSum).bounds(bounds);
         parts = Math.round(Math.sqrt(parts));
         deltaLat = (bounds.maxLat - bounds.minLat) / parts;
@@ -269,15 +280,31 @@ public class LocationIndexTree implements LocationIndex {
 
         setMinResolutionInMeter(dataAccess.getHeader(2 * 4));
         prepareAlgo();
+        treeEndPointer = dataAccess.getHeader(3 * 4);
+        if (treeEndPointer > 0)
+            loadAddedEntries();
         initialized = true;
         return true;
     }
 
+    private void loadAddedEntries() {
+        long pointer = (long) treeEndPointer * 4;
+        int count = dataAccess.getInt(pointer);
+        for (int i = 0; i < count; i++) {
+            pointer += 12;
+            long key = (dataAccess.getInt(pointer - 8) & 0xFFFFFFFFL) | ((long) dataAccess.getInt(pointer - 4) << 32);
+            addEntry(key, dataAccess.getInt(pointer));
+        }
+    }
+
     @Override
     public void flush() {
         dataAccess.setHeader(0, MAGIC_INT);
         dataAccess.setHeader(1 * 4, calcChecksum());
         dataAccess.setHeader(2 * 4, minResolutionInMeter);
+        dataAccess.setHeader(3 * 4, treeEndPointer);
+        if (treeEndPointer > 0)
+            storeAddedEntries();
 
         // saving space not necessary: dataAccess.trimTo((lastPointer + 1) * 4);
         dataAccess.flush();
@@ -296,7 +323,7 @@ public class LocationIndexTree implements LocationIndex {
         // compact & store to dataAccess
         dataAccess.create(64 * 1024);
         try {
-            inMem.store(inMem.root, START_POINTER);
+            treeEndPointer = inMem.store(inMem.root, START_POINTER);
             flush();
         } catch (Exception ex) {
             throw new IllegalStateException("Problem while storing location index. " + Helper.getMemInfo(), ex);
@@ -315,6 +342,82 @@ public class LocationIndexTree implements LocationIndex {
         return this;
     }
 
+    /**
+     * Adds the specified edges, e.g. edges that were appended to the graph or whose geometry changed, to this index
+     * without creating the tree again. The entries of the old geometry are kept, which is only a bit slower for the
+     * queries as they check the real distance to the edges. This index has to be flushed afterwards to keep the
+     * added edges.
+     *
+     * @return false if the edges cannot be added as the bounds of the graph changed or the index was created by an
+     * older version. The index has to be created again then.
+     */
+    public boolean addEdges(IntIndexedContainer edges) {
+        if (!initialized)
+            throw new IllegalStateException("Call prepareIndex or loadExisting before adding edges");
+
+        BBox bounds = graph.getBounds();
+        if (treeEndPointer <= 0 || bounds.minLat != treeBounds.minLat || bounds.maxLat != treeBounds.maxLat
+                || bounds.minLon != treeBounds.minLon || bounds.maxLon != treeBounds.maxLon)
+            return false;
+
+        for (int i = 0; i < edges.size(); i++) {
+            final EdgeIteratorState edge = graph.getEdgeIteratorState(edges.get(i), Integer.MIN_VALUE);
+            forEachTile(edge, new PointEmitter() {
+                @Override
+                public void set(double lat, double lon) {
+                    addEntry(keyAlgo.encode(lat, lon), edge.getBaseNode());
+                }
+            });
+        }
+        return true;
+    }
+
+    private void addEntry(long key, int node) {
+        SortedIntSet nodes = addedEntries.get(key);
+        if (nodes == null) {
+            nodes = new SortedIntSet(1);
+            addedEntries.put(key, nodes);
+        }
+        nodes.addOnce(node);
+    }
+
+    private void storeAddedEntries() {
+        int count = 0;
+        for (LongObjectCursor<SortedIntSet> cursor : addedEntries) {
+            count += cursor.value.size();
+        }
+        long pointer = (long) treeEndPointer * 4;
+        dataAccess.ensureCapacity(pointer + 4 + 12L * count);
+        dataAccess.setInt(pointer, count);
+        for (LongObjectCursor<SortedIntSet> cursor : addedEntries) {
+            for (int i = 0; i < cursor.value.size(); i++) {
+                pointer += 12;
+                dataAccess.setInt(pointer - 8, (int) cursor.key);
+                dataAccess.setInt(pointer - 4, (int) (cursor.key >>> 32));
+                dataAccess.setInt(pointer, cursor.value.get(i));
+            }
+        }
+    }
+
+    /**
+     * Calls the emitter for the tiles crossed by the geometry of the specified edge.
+     */
+    void forEachTile(EdgeIteratorState edge, PointEmitter pointEmitter) {
+        BBox bounds = graph.getBounds();
+        double lat1 = nodeAccess.getLatitude(edge.getBaseNode());
+        double lon1 = nodeAccess.getLongitude(edge.getBaseNode());
+        PointList points = edge.fetchWayGeometry(FetchMode.PILLAR_ONLY);
+        int len = points.getSize();
+        for (int i = 0; i <= len; i++) {
+            double lat2 = i < len ? points.getLatitude(i) : nodeAccess.getLatitude(edge.getAdjNode());
+            double lon2 = i < len ? points.getLongitude(i) : nodeAccess.getLongitude(edge.getAdjNode());
+            if (!distCalc.isCrossBoundary(lon1, lon2))
+                BresenhamLine.calcPoints(lat1, lon1, lat2, lon2, pointEmitter, bounds.minLat, bounds.minLon, deltaLat, deltaLon);
+            lat1 = lat2;
+            lon1 = lon2;
+        }
+    }
+
     int calcChecksum() {
         // do not include the edges as we could get problem with CHGraph due to shortcuts
         // ^ graph.getAllEdges().count();
@@ -463,6 +566,18 @@ public class LocationIndexTree implements LocationIndex {
                             function.onNode(nodeId);
                     }
                 }, 0);
+
+        GHPoint center = new GHPoint();
+        for (LongObjectCursor<SortedIntSet> cursor : addedEntries) {
+            keyAlgo.decode(cursor.key, center);
+            BBox tile = new BBox(center.lon - deltaLon / 2, center.lon + deltaLon / 2, center.lat - deltaLat / 2, center.lat + deltaLat / 2);
+            if (!queryShape.intersects(tile))
+                continue;
+            for (int i = 0; i < cursor.value.size(); i++) {
+                if (set.add(cursor.value.get(i)))
+                    function.onNode(cursor.value.get(i));
+            }
+        }
     }
 
     final void query(int intPointer, Shape queryBBox,
@@ -579,8 +694,14 @@ public class LocationIndexTree implements LocationIndex {
     }
 
     final void findNetworkEntriesSingleRegion(GHIntHashSet storedNetworkEntryIds, double queryLat, double queryLon) {
-        long keyPart = createReverseKey(queryLat, queryLon);
-        fillIDs(keyPart, START_POINTER, storedNetworkEntryIds, 0);
+        long key = keyAlgo.encode(queryLat, queryLon);
+        fillIDs(createReverseKey(key), START_POINTER, storedNetworkEntryIds, 0);
+        SortedIntSet added = addedEntries.isEmpty() ? null : addedEntries.get(key);
+        if (added != null) {
+            for (int i = 0; i < added.size(); i++) {
+                storedNetworkEntryIds.add(added.get(i));
+            }
+        }
     }
 
     @Override
@@ -854,24 +975,16 @@ public class LocationIndexTree implements LocationIndex {
             final EdgeIterator allIter = graph.getAllEdges();
             try {
                 while (allIter.next()) {
-                    int nodeA = allIter.getBaseNode();
-                    int nodeB = allIter.getAdjNode();
-                    double lat1 = nodeAccess.getLatitude(nodeA);
-                    double lon1 = nodeAccess.getLongitude(nodeA);
-                    double lat2;
-                    double lon2;
-                    PointList points = allIter.fetchWayGeometry(FetchMode.PILLAR_ONLY);
-                    int len = points.getSize();
-                    for (int i = 0; i < len; i++) {
-                        lat2 = points.getLatitude(i);
-                        lon2 = points.getLongitude(i);
-                        addNode(nodeA, nodeB, lat1, lon1, lat2, lon2);
-                        lat1 = lat2;
-                        lon1 = lon2;
-                    }
-                    lat2 = nodeAccess.getLatitude(nodeB);
-                    lon2 = nodeAccess.getLongitude(nodeB);
-                    addNode(nodeA, nodeB, lat1, lon1, lat2, lon2);
+                    final int nodeA = allIter.getBaseNode();
+                    forEachTile(allIter, new PointEmitter() {
+                        @Override
+                        public void set(double lat, double lon) {
+                            long key = keyAlgo.encode(lat, lon);
+                            long keyPart = createReverseKey(key);
+                            // no need to feed both nodes as we search neighbors in fillIDs
+                            addNode(root, nodeA, 0, keyPart, key);
+                        }
+                    });
                 }
             } catch (Exception ex) {
                 logger.error("Problem! base:" + allIter.getBaseNode() + ", adj:" + allIter.getAdjNode()
@@ -879,26 +992,6 @@ public class LocationIndexTree implements LocationIndex {
             }
         }
 
-        void addNode(final int nodeA, final int nodeB,
-                     final double lat1, final double lon1,
-                     final double lat2, final double lon2) {
-            PointEmitter pointEmitter = new PointEmitter() {
-                @Override
-                public void set(double lat, double lon) {
-                    long key = keyAlgo.encode(lat, lon);
-                    long keyPart = createReverseKey(key);
-                    // no need to feed both nodes as we search neighbors in fillIDs
-                    addNode(root, nodeA, 0, keyPart, key);
-                }
-            };
-
-            if (!distCalc.isCrossBoundary(lon1, lon2)) {
-                BresenhamLine.calcPoints(lat1, lon1, lat2, lon2, pointEmitter,
-                        graph.getBounds().minLat, graph.getBounds().minLon,
-                        deltaLat, deltaLon);
-            }
-        }
-
         void addNode(InMemEntry entry, int nodeId, int depth, long keyPart, long key) {
             if (entry.isLeaf()) {
                 InMemLeafEntry leafEntry = (InMemLeafEntry) entry;
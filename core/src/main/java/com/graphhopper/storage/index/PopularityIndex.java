@@ -95,6 +95,20 @@ public class PopularityIndex implements Storable<PopularityIndex> {
         return this.index.getInt(edgeId * 4);
     }
 
+    /**
+     * Makes sure that the popularity of edges added after the import can be stored and read.
+     */
+    public void ensureCapacity(int edges) {
+        index.ensureCapacity((long) edges * 4 * 4);
+    }
+
+    /**
+     * Copies the popularity to an edge that replaces the specified edge, e.g. for a way with changed nodes.
+     */
+    public void copyPopularity(int fromEdge, int toEdge) {
+        setRawPopularity(toEdge, getRawPopularity(fromEdge));
+    }
+
     public int getPopularity(EdgeIteratorState edge) {
         long edgeId = edge.getEdge();
         int raw = getRawPopularity(edgeId);
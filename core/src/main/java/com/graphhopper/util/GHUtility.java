@@ -449,6 +449,7 @@ public class GHUtility {
         return new GraphBuilder(store.getEncodingManager())
                 .withTurnCosts(store.getTurnCostStorage() != null)
                 .set3D(is3D)
+                .setCompressedGeometry(store.isCompressedGeometry())
                 .setDir(outdir)
                 .setCHProfiles(store.getCHProfiles())
                 .setBytes(store.getNodes())
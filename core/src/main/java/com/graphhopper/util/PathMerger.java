@@ -17,6 +17,7 @@
  */
 package com.graphhopper.util;
 
+import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.PathWrapper;
 import com.graphhopper.routing.InstructionsFromEdges;
 import com.graphhopper.routing.Path;
@@ -26,6 +27,7 @@ import com.graphhopper.routing.profiles.Roundabout;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.index.EdgeElevationIndex;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.details.PathDetailsFromEdges;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
@@ -56,9 +58,11 @@ public class PathMerger {
     private boolean simplifyResponse = true;
     private DouglasPeucker douglasPeucker = DP;
     private boolean calcPoints = true;
+    private boolean calcEdges = false;
     private PathDetailsBuilderFactory pathBuilderFactory;
     private List<String> requestedPathDetails = Collections.emptyList();
     private double favoredHeading = Double.NaN;
+    private EdgeElevationIndex edgeElevationIndex;
 
     public PathMerger(Graph graph, Weighting weighting) {
         this.graph = graph;
@@ -70,6 +74,11 @@ public class PathMerger {
         return this;
     }
 
+    public PathMerger setCalcEdges(boolean calcEdges) {
+        this.calcEdges = calcEdges;
+        return this;
+    }
+
     public PathMerger setDouglasPeucker(DouglasPeucker douglasPeucker) {
         this.douglasPeucker = douglasPeucker;
         return this;
@@ -81,6 +90,14 @@ public class PathMerger {
         return this;
     }
 
+    /**
+     * Reads the ascend and descend of the edges from the specified index instead of calculating it from the points.
+     */
+    public PathMerger setEdgeElevationIndex(EdgeElevationIndex edgeElevationIndex) {
+        this.edgeElevationIndex = edgeElevationIndex;
+        return this;
+    }
+
     public PathMerger setSimplifyResponse(boolean simplifyRes) {
         this.simplifyResponse = simplifyRes;
         return this;
@@ -111,10 +128,36 @@ public class PathMerger {
             fullTimeInMillis += path.getTime();
             fullDistance += path.getDistance();
             fullWeight += path.getWeight();
-            if (enableInstructions) {
-                InstructionList il = InstructionsFromEdges.calcInstructions(path, graph, weighting, evLookup, tr);
+            if (calcEdges) {
+                List<Integer> edges = new ArrayList<>(path.getEdgeCount());
+                for (IntCursor edge : path.getEdges()) {
+                    edges.add(edge.value);
+                }
+                altRsp.getEdges().add(edges);
+            }
+            if (calcPoints || enableInstructions) {
+                InstructionList il = null;
+                PointList tmpPoints;
+                PathDetailsFromEdges pathDetailsFromEdges = PathDetailsFromEdges.create(evLookup, weighting, requestedPathDetails, pathBuilderFactory, origPoints);
+                if (path.getSize() == 0) {
+                    tmpPoints = path.calcPoints();
+                    if (enableInstructions)
+                        il = InstructionsFromEdges.calcInstructions(path, graph, weighting, evLookup, tr);
+                    if (pathDetailsFromEdges != null)
+                        path.forEveryEdge(pathDetailsFromEdges);
+                } else {
+                    // calculate points, instructions and details in a single iteration over the edges
+                    List<Path.EdgeVisitor> visitors = new ArrayList<>(2);
+                    if (enableInstructions) {
+                        il = new InstructionList(tr);
+                        visitors.add(new InstructionsFromEdges(graph, weighting, evLookup, tr, il));
+                    }
+                    if (pathDetailsFromEdges != null)
+                        visitors.add(pathDetailsFromEdges);
+                    tmpPoints = path.calcPoints(visitors);
+                }
 
-                if (!il.isEmpty()) {
+                if (il != null && !il.isEmpty()) {
                     fullInstructions.addAll(il);
 
                     // for all paths except the last replace the FinishInstruction with a ViaInstruction
@@ -125,9 +168,6 @@ public class PathMerger {
                     }
                 }
 
-            }
-            if (calcPoints || enableInstructions) {
-                PointList tmpPoints = path.calcPoints();
                 if (fullPoints.isEmpty())
                     fullPoints = new PointList(tmpPoints.size(), tmpPoints.is3D());
 
@@ -137,7 +177,8 @@ public class PathMerger {
                 }
 
                 fullPoints.add(tmpPoints);
-                altRsp.addPathDetails(PathDetailsFromEdges.calcDetails(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, origPoints));
+                if (pathDetailsFromEdges != null)
+                    altRsp.addPathDetails(pathDetailsFromEdges.build());
                 origPoints = fullPoints.size();
             }
 
@@ -147,9 +188,11 @@ public class PathMerger {
         if (!fullPoints.isEmpty()) {
             String debug = altRsp.getDebugInfo() + ", simplify (" + origPoints + "->" + fullPoints.getSize() + ")";
             altRsp.addDebugInfo(debug);
-            if (fullPoints.is3D)
+            if (fullPoints.is3D && edgeElevationIndex == null)
                 calcAscendDescend(altRsp, fullPoints);
         }
+        if (edgeElevationIndex != null)
+            calcAscendDescend(altRsp, paths);
 
         if (enableInstructions) {
             fullInstructions = updateInstructionsWithContext(fullInstructions);
@@ -216,6 +259,21 @@ public class PathMerger {
         return instructions;
     }
 
+    private void calcAscendDescend(final PathWrapper rsp, final List<Path> paths) {
+        double ascendMeters = 0;
+        double descendMeters = 0;
+        for (Path path : paths) {
+            if (!path.isFound())
+                continue;
+            for (EdgeIteratorState edge : path.calcEdges()) {
+                ascendMeters += edgeElevationIndex.getAscent(edge);
+                descendMeters += edgeElevationIndex.getDescent(edge);
+            }
+        }
+        rsp.setAscend(ascendMeters);
+        rsp.setDescend(descendMeters);
+    }
+
     private void calcAscendDescend(final PathWrapper rsp, final PointList pointList) {
         double ascendMeters = 0;
         double descendMeters = 0;
@@ -0,0 +1,63 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util.details;
+
+import com.graphhopper.storage.index.EdgeElevationIndex;
+import com.graphhopper.util.EdgeIteratorState;
+
+import static com.graphhopper.util.Parameters.Details.GRADE;
+
+/**
+ * Creates the average grade of the edges in percent, i.e. the elevation difference divided by the distance, which is
+ * negative for downhill edges. The values are read from the {@link EdgeElevationIndex}.
+ */
+public class GradeDetails extends AbstractPathDetailsBuilder {
+
+    private final EdgeElevationIndex edgeElevationIndex;
+    private final double precision;
+    private Double grade;
+
+    public GradeDetails(EdgeElevationIndex edgeElevationIndex) {
+        this(edgeElevationIndex, 1);
+    }
+
+    /**
+     * @param precision e.g. 1 to avoid creating too many path details, i.e. round the grade to the specified precision
+     *                  before detecting a change.
+     */
+    public GradeDetails(EdgeElevationIndex edgeElevationIndex, double precision) {
+        super(GRADE);
+        this.edgeElevationIndex = edgeElevationIndex;
+        this.precision = precision;
+    }
+
+    @Override
+    protected Object getCurrentValue() {
+        return grade;
+    }
+
+    @Override
+    public boolean isEdgeDifferentToLastEdge(EdgeIteratorState edge) {
+        double tmpVal = Math.round(edgeElevationIndex.getAverageGrade(edge) / precision) * precision;
+        if (grade == null || Math.abs(tmpVal - grade) >= precision / 2) {
+            grade = tmpVal;
+            return true;
+        }
+        return false;
+    }
+}
@@ -21,6 +21,7 @@ import com.graphhopper.coll.MapEntry;
 import com.graphhopper.routing.profiles.*;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.index.EdgeElevationIndex;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -36,6 +37,18 @@ import static com.graphhopper.util.Parameters.Details.*;
  * @author Robin Boldt
  */
 public class PathDetailsBuilderFactory {
+    private final EdgeElevationIndex edgeElevationIndex;
+
+    public PathDetailsBuilderFactory() {
+        this(null);
+    }
+
+    /**
+     * Enables the grade details, which are read from the specified index.
+     */
+    public PathDetailsBuilderFactory(EdgeElevationIndex edgeElevationIndex) {
+        this.edgeElevationIndex = edgeElevationIndex;
+    }
 
     public List<PathDetailsBuilder> createPathDetailsBuilders(List<String> requestedPathDetails, EncodedValueLookup evl, Weighting weighting) {
         List<PathDetailsBuilder> builders = new ArrayList<>();
@@ -58,6 +71,9 @@ public class PathDetailsBuilderFactory {
         if (requestedPathDetails.contains(DISTANCE))
             builders.add(new DistanceDetails());
 
+        if (requestedPathDetails.contains(GRADE) && edgeElevationIndex != null)
+            builders.add(new GradeDetails(edgeElevationIndex));
+
         for (String checkSuffix : requestedPathDetails) {
             if (checkSuffix.contains(getKey("", "priority")) && evl.hasEncodedValue(checkSuffix))
                 builders.add(new DecimalDetails(checkSuffix, evl.getDecimalEncodedValue(checkSuffix)));
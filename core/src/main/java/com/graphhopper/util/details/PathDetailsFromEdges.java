@@ -22,6 +22,7 @@ import com.graphhopper.routing.profiles.EncodedValueLookup;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.PointList;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -38,7 +39,7 @@ import java.util.Map;
  * @author Robin Boldt
  * @see PathDetail
  */
-public class PathDetailsFromEdges implements Path.EdgeVisitor {
+public class PathDetailsFromEdges implements Path.GeometryEdgeVisitor {
 
     private final List<PathDetailsBuilder> calculators;
     private int lastIndex = 0;
@@ -58,16 +59,36 @@ public class PathDetailsFromEdges implements Path.EdgeVisitor {
      */
     public static Map<String, List<PathDetail>> calcDetails(Path path, EncodedValueLookup evLookup, Weighting weighting,
                                                             List<String> requestedPathDetails, PathDetailsBuilderFactory pathBuilderFactory, int previousIndex) {
-        if (!path.isFound() || requestedPathDetails.isEmpty())
+        if (!path.isFound())
             return Collections.emptyMap();
-        List<PathDetailsBuilder> pathBuilders = pathBuilderFactory.createPathDetailsBuilders(requestedPathDetails, evLookup, weighting);
-        if (pathBuilders.isEmpty())
+        PathDetailsFromEdges pathDetailsFromEdges = create(evLookup, weighting, requestedPathDetails, pathBuilderFactory, previousIndex);
+        if (pathDetailsFromEdges == null)
             return Collections.emptyMap();
 
-        path.forEveryEdge(new PathDetailsFromEdges(pathBuilders, previousIndex));
+        path.forEveryEdge(pathDetailsFromEdges);
+        return pathDetailsFromEdges.build();
+    }
+
+    /**
+     * @return the visitor that calculates the requested PathDetails or null if no PathDetails were requested
+     * @see #build()
+     */
+    public static PathDetailsFromEdges create(EncodedValueLookup evLookup, Weighting weighting, List<String> requestedPathDetails,
+                                              PathDetailsBuilderFactory pathBuilderFactory, int previousIndex) {
+        if (requestedPathDetails.isEmpty())
+            return null;
+        List<PathDetailsBuilder> pathBuilders = pathBuilderFactory.createPathDetailsBuilders(requestedPathDetails, evLookup, weighting);
+        if (pathBuilders.isEmpty())
+            return null;
+        return new PathDetailsFromEdges(pathBuilders, previousIndex);
+    }
 
-        Map<String, List<PathDetail>> pathDetails = new HashMap<>(pathBuilders.size());
-        for (PathDetailsBuilder builder : pathBuilders) {
+    /**
+     * @return the PathDetails of all visited edges, call this after the path was visited
+     */
+    public Map<String, List<PathDetail>> build() {
+        Map<String, List<PathDetail>> pathDetails = new HashMap<>(calculators.size());
+        for (PathDetailsBuilder builder : calculators) {
             Map.Entry<String, List<PathDetail>> entry = builder.build();
             List<PathDetail> existing = pathDetails.put(entry.getKey(), entry.getValue());
             if (existing != null)
@@ -79,13 +100,19 @@ public class PathDetailsFromEdges implements Path.EdgeVisitor {
 
     @Override
     public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+        next(edge, edge.fetchWayGeometry(FetchMode.ALL), index, prevEdgeId);
+    }
+
+    @Override
+    public void next(EdgeIteratorState edge, PointList wayGeometry, int index, int prevEdgeId) {
         for (PathDetailsBuilder calc : calculators) {
             if (calc.isEdgeDifferentToLastEdge(edge)) {
                 calc.endInterval(lastIndex);
                 calc.startInterval(lastIndex);
             }
         }
-        lastIndex += edge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ).size();
+        // the geometry includes the base node which is the last point of the previous edge
+        lastIndex += wayGeometry.size() - 1;
     }
 
     @Override
@@ -0,0 +1,113 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class DenseLongIntMapTest {
+    private final String location = "./target/tmp/dense-long-int-map";
+
+    @After
+    public void tearDown() {
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void testPutAndGet() {
+        DenseLongIntMap map = new DenseLongIntMap(new RAMDirectory(), DAType.RAM);
+        assertEquals(-1, map.get(0));
+        assertEquals(-1, map.get(1_000_000_000L));
+
+        assertEquals(-1, map.put(3, 0));
+        assertEquals(-1, map.put(10, -50));
+        assertEquals(-1, map.put(2_000_000L, 7));
+        assertEquals(-1, map.put(-Long.MAX_VALUE, 5));
+        assertEquals(4, map.getSize());
+
+        assertEquals(0, map.get(3));
+        assertEquals(-50, map.get(10));
+        assertEquals(7, map.get(2_000_000L));
+        assertEquals(5, map.get(-Long.MAX_VALUE));
+        assertEquals(-1, map.get(4));
+        assertEquals(-1, map.get(-3));
+
+        assertEquals(-50, map.put(10, 2));
+        assertEquals(5, map.put(-Long.MAX_VALUE, -3));
+        assertEquals(4, map.getSize());
+        assertEquals(2, map.get(10));
+        assertEquals(-3, map.get(-Long.MAX_VALUE));
+
+        assertEquals(2, map.put(10, -1));
+        assertEquals(-1, map.get(10));
+        assertEquals(3, map.getSize());
+    }
+
+    @Test
+    public void testNoEntryValue() {
+        DenseLongIntMap map = new DenseLongIntMap(new RAMDirectory(), DAType.RAM, 0);
+        assertEquals(0, map.get(5));
+        assertEquals(0, map.put(5, -1));
+        assertEquals(-1, map.get(5));
+        assertEquals(1, map.getSize());
+    }
+
+    @Test
+    public void testMMap() {
+        RAMDirectory dir = new RAMDirectory(location, false);
+        DenseLongIntMap map = new DenseLongIntMap(dir, DAType.MMAP);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 1000L, i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, map.get(i * 1000L));
+            assertEquals(-1, map.get(i * 1000L + 1));
+        }
+        assertEquals(1000, map.getSize());
+
+        map.clear();
+        assertFalse(new File(location, "tmp_dense_long_int_map").exists());
+    }
+
+    @Test
+    public void testSeveralMapsInOneDirectory() {
+        RAMDirectory dir = new RAMDirectory(location, false);
+        DenseLongIntMap first = new DenseLongIntMap(dir, "tmp_first", DAType.MMAP, Integer.MIN_VALUE);
+        DenseLongIntMap second = new DenseLongIntMap(dir, "tmp_second", DAType.MMAP, Integer.MIN_VALUE);
+        first.put(12, 3);
+        second.put(12, -4);
+        second.put(-12, 5);
+        assertEquals(3, first.get(12));
+        assertEquals(-4, second.get(12));
+        assertEquals(Integer.MIN_VALUE, first.get(-12));
+        assertEquals(5, second.get(-12));
+
+        first.clear();
+        assertFalse(new File(location, "tmp_first").exists());
+        assertEquals(-4, second.get(12));
+        second.clear();
+    }
+}
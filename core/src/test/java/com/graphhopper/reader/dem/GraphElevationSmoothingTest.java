@@ -17,9 +17,16 @@
  */
 package com.graphhopper.reader.dem;
 
-import com.graphhopper.util.PointList;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.*;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -53,4 +60,132 @@ public class GraphElevationSmoothingTest {
         assertEquals(50, pl2.getEle(0), .1);
     }
 
+    @Test
+    public void sameAsQuadraticSearchOnStraightLine() {
+        Random rand = new Random(1);
+        PointList pl = new PointList(1000, true);
+        double lat = 49;
+        for (int i = 0; i < 1000; i++) {
+            // mostly dense points with a few gaps that are larger than the search distance
+            lat += i % 200 == 199 ? 0.002 : rand.nextDouble() * 0.0002;
+            pl.add(lat, 11, rand.nextInt(500));
+        }
+        PointList expected = smoothQuadratic(pl.clone(false));
+        GraphElevationSmoothing.smoothElevation(pl);
+        for (int i = 0; i < pl.size(); i++) {
+            assertEquals("point " + i, expected.getEle(i), pl.getEle(i), 1e-6);
+        }
+    }
+
+    @Test
+    public void smoothesPillarNodesOfAllEdges() {
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(new CarFlagEncoder())).set3D(true).create();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 0, 0, 0);
+        na.setNode(1, 0.001, 0.001, 50);
+        na.setNode(2, 0.002, 0.002, 20);
+        PointList pillars = new PointList(1, true);
+        pillars.add(0.0005, 0.0005, 100);
+        DistanceCalc distCalc = Helper.DIST_EARTH;
+        EdgeIteratorState edge1 = graph.edge(0, 1).setWayGeometry(pillars);
+        edge1.setDistance(edge1.fetchWayGeometry(FetchMode.ALL).calcDistance(distCalc));
+        pillars = new PointList(3, true);
+        pillars.add(0.0015, 0.0015, 160);
+        pillars.add(0.0016, 0.0015, 150);
+        pillars.add(0.0017, 0.0015, 220);
+        // store the edge in the opposite direction
+        EdgeIteratorState edge2 = graph.edge(2, 1).setWayGeometry(pillars.clone(true));
+        edge2.setDistance(edge2.fetchWayGeometry(FetchMode.ALL).calcDistance(distCalc));
+        graph.edge(0, 2).setDistance(500);
+
+        assertEquals(2, new GraphElevationSmoothing(graph, distCalc).setThreads(2).execute());
+
+        PointList geometry = graph.getEdgeIteratorState(edge1.getEdge(), 1).fetchWayGeometry(FetchMode.ALL);
+        assertEquals(50, geometry.getEle(1), .1);
+        assertEquals(geometry.calcDistance(distCalc), graph.getEdgeIteratorState(edge1.getEdge(), 1).getDistance(), .01);
+        geometry = graph.getEdgeIteratorState(edge2.getEdge(), 1).fetchWayGeometry(FetchMode.ALL);
+        assertEquals(5, geometry.size());
+        assertEquals(20, geometry.getEle(0), .1);
+        assertEquals(50, geometry.getEle(4), .1);
+        assertEquals(500, graph.getEdgeIteratorState(2, Integer.MIN_VALUE).getDistance(), .01);
+    }
+
+    @Test
+    public void smoothesCompressedGeometryWithThreads() {
+        long seed = 42;
+        // the smoothed elevation of most edges needs more bytes than the original
+        GraphHopperStorage compressed = createRandomGraph(new Random(seed), 1_000, true);
+        GraphHopperStorage expected = createRandomGraph(new Random(seed), 1_000, false);
+        DistanceCalc distCalc = Helper.DIST_EARTH;
+        assertEquals(1_000, new GraphElevationSmoothing(compressed, distCalc).setThreads(4).execute());
+        assertEquals(1_000, new GraphElevationSmoothing(expected, distCalc).execute());
+        for (int edge = 0; edge < expected.getEdges(); edge++) {
+            EdgeIteratorState expectedState = expected.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            EdgeIteratorState state = compressed.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            PointList expectedGeometry = expectedState.fetchWayGeometry(FetchMode.ALL);
+            PointList geometry = state.fetchWayGeometry(FetchMode.ALL);
+            assertEquals("seed: " + seed + ", edge " + edge, expectedGeometry.size(), geometry.size());
+            for (int i = 0; i < geometry.size(); i++) {
+                assertEquals("seed: " + seed + ", edge " + edge, expectedGeometry.getLat(i), geometry.getLat(i), 1e-6);
+                assertEquals("seed: " + seed + ", edge " + edge, expectedGeometry.getEle(i), geometry.getEle(i), .1);
+            }
+            assertEquals("seed: " + seed + ", edge " + edge, expectedState.getDistance(), state.getDistance(), .1);
+        }
+    }
+
+    private static GraphHopperStorage createRandomGraph(Random rnd, int edges, boolean compressedGeometry) {
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(new CarFlagEncoder())).set3D(true).
+                setCompressedGeometry(compressedGeometry).create();
+        NodeAccess na = graph.getNodeAccess();
+        int nodes = edges / 10;
+        for (int node = 0; node < nodes; node++) {
+            na.setNode(node, 0.01 * rnd.nextDouble(), 0.01 * rnd.nextDouble(), rnd.nextInt(50));
+        }
+        DistanceCalc distCalc = Helper.DIST_EARTH;
+        for (int edge = 0; edge < edges; edge++) {
+            int from = rnd.nextInt(nodes);
+            int to = rnd.nextInt(nodes);
+            PointList pillars = new PointList(3, true);
+            for (int i = 1; i <= 3; i++) {
+                double lat = na.getLat(from) + (na.getLat(to) - na.getLat(from)) * i / 4 + 0.0001 * rnd.nextDouble();
+                double lon = na.getLon(from) + (na.getLon(to) - na.getLon(from)) * i / 4 + 0.0001 * rnd.nextDouble();
+                // the same elevation for all pillar nodes is stored with the smallest possible deltas
+                pillars.add(lat, lon, 1000);
+            }
+            EdgeIteratorState edgeState = graph.edge(from, to).setWayGeometry(pillars);
+            edgeState.setDistance(edgeState.fetchWayGeometry(FetchMode.ALL).calcDistance(distCalc));
+        }
+        return graph;
+    }
+
+    /**
+     * The previous implementation that searches the window of every point from scratch.
+     */
+    private static PointList smoothQuadratic(PointList geometry) {
+        for (int i = 1; i < geometry.size() - 1; i++) {
+            int start = i;
+            for (int j = i - 1; j >= 0; j--) {
+                if (150 > Helper.DIST_PLANE.calcDist(geometry.getLat(i), geometry.getLon(i), geometry.getLat(j), geometry.getLon(j)))
+                    start = j;
+                else
+                    break;
+            }
+            int end = i;
+            for (int j = i + 1; j < geometry.size(); j++) {
+                if (150 > Helper.DIST_PLANE.calcDist(geometry.getLat(i), geometry.getLon(i), geometry.getLat(j), geometry.getLon(j)))
+                    end = j + 1;
+                else
+                    break;
+            }
+            if (start == end)
+                continue;
+
+            double sum = 0;
+            for (int j = start; j < end; j++) {
+                sum += geometry.getEle(j);
+            }
+            geometry.setElevation(i, sum / (end - start));
+        }
+        return geometry;
+    }
 }
@@ -17,14 +17,17 @@
  */
 package com.graphhopper.reader.dem;
 
+import com.graphhopper.util.Helper;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * @author Peter Karich
@@ -99,6 +102,60 @@ public class SRTMProviderTest {
         assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
     }
 
+    @Test
+    public void testGetEleBatch() {
+        instance = new SRTMProvider("./files/");
+        instance.setMaxCachedTiles(1);
+        // the points alternate between the tiles, so each lookup would load another tile without sorting
+        double[] lat = {49.968651, 55.8943144, 49.958233, -28.88316, 55.4711873, -28.671311};
+        double[] lon = {11.574869, -3, 11.558647, -71.070557, 19.2501641, -71.38916};
+        double[] ele = new double[lat.length];
+        instance.getEle(lat, lon, ele);
+        assertEquals(466, ele[0], 1e-1);
+        assertEquals(161, ele[1], 1e-1);
+        assertEquals(330, ele[2], 1e-1);
+        assertEquals(1678, ele[3], 1e-1);
+        assertEquals(0, ele[4], 1e-1);
+        assertEquals(0, ele[5], 1e-1);
+        assertEquals(1, instance.getCachedTiles());
+
+        // single lookups still work after the tiles were evicted
+        assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+        assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+        assertEquals(330, instance.getEle(49.958233, 11.558647), 1e-1);
+    }
+
+    @Test
+    public void testReuseDecodedTiles() throws IOException {
+        File cacheDir = new File("./target/tmp/srtm-cache");
+        Helper.removeDir(cacheDir);
+        cacheDir.mkdirs();
+        Files.copy(new File("./files/N49E011.hgt.zip").toPath(), new File(cacheDir, "N49E011.hgt.zip").toPath());
+        Files.copy(new File("./files/N55W003.hgt.zip").toPath(), new File(cacheDir, "N55W003.hgt.zip").toPath());
+        try {
+            instance = new SRTMProvider(cacheDir.getPath());
+            instance.setAutoRemoveTemporaryFiles(false);
+            instance.setMaxCachedTiles(1);
+            assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+            assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+            // the evicted tile is closed but its decoded heights are kept
+            assertEquals(1, instance.getCachedTiles());
+            File demFile = new File(cacheDir, "dem" + instance.calcIntKey(49.968651, 11.574869));
+            assertTrue(demFile.exists());
+            assertEquals(330, instance.getEle(49.958233, 11.558647), 1e-1);
+            instance.release();
+
+            // a later import loads the decoded tiles without the downloaded files
+            assertTrue(new File(cacheDir, "N49E011.hgt.zip").delete());
+            instance = new SRTMProvider(cacheDir.getPath());
+            instance.setAutoRemoveTemporaryFiles(false);
+            assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+        } finally {
+            instance.release();
+            Helper.removeDir(cacheDir);
+        }
+    }
+
     @Ignore
     public void testGetEle() {
         instance = new SRTMProvider();
@@ -18,24 +18,25 @@
 package com.graphhopper.routing;
 
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.ch.PrepareEncoder;
 import com.graphhopper.routing.profiles.DecimalEncodedValue;
+import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
 import com.graphhopper.routing.weighting.FastestWeighting;
 import com.graphhopper.routing.weighting.ShortestWeighting;
 import com.graphhopper.routing.weighting.Weighting;
-import com.graphhopper.storage.CHGraph;
-import com.graphhopper.storage.CHProfile;
-import com.graphhopper.storage.GraphBuilder;
-import com.graphhopper.storage.GraphHopperStorage;
-import com.graphhopper.util.EdgeIteratorState;
-import com.graphhopper.util.GHUtility;
-import com.graphhopper.util.Parameters;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.*;
 import org.junit.Test;
 
+import java.util.Random;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -225,6 +226,87 @@ public class DijkstraBidirectionCHTest {
         runTestWithDirectionDependentEdgeSpeed(20, 10, 2, 0, IntArrayList.from(2, 1, 0), bike2Encoder);
     }
 
+    @Test
+    public void testQueriesSharingCompletedSearch() {
+        FastestWeighting weighting = new FastestWeighting(carEncoder);
+        CHProfile chProfile = CHProfile.nodeBased(weighting);
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).setCHProfiles(chProfile).create();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 50, 2.5, true, true, carEncoder.getAverageSpeedEnc(), 0.7, 0.9, 0);
+        prepareCH(graph, chProfile);
+        RoutingCHGraph chGraph = new RoutingCHGraphImpl(graph.getCHGraph(), weighting);
+
+        int source = rnd.nextInt(50);
+        int target = rnd.nextInt(50);
+        DijkstraBidirectionCHNoSOD sharedAlgo = new DijkstraBidirectionCHNoSOD(chGraph);
+        sharedAlgo.calcPath(source, target);
+        sharedAlgo.completeSearches();
+        for (int i = 0; i < 50; i++) {
+            Path expected = new DijkstraBidirectionCH(chGraph).calcPath(source, i);
+            DijkstraBidirectionCH fwdShared = new DijkstraBidirectionCH(chGraph);
+            fwdShared.setFromDataStructures(sharedAlgo);
+            Path path = fwdShared.calcPathFromCompletedFwdSearch(i, ANY_EDGE);
+            assertEquals("seed: " + seed, expected.isFound(), path.isFound());
+            assertEquals("seed: " + seed, expected.getWeight(), path.getWeight(), 1.e-3);
+
+            expected = new DijkstraBidirectionCH(chGraph).calcPath(i, target);
+            DijkstraBidirectionCH bwdShared = new DijkstraBidirectionCH(chGraph);
+            bwdShared.setToDataStructures(sharedAlgo);
+            path = bwdShared.calcPathToCompletedBwdSearch(i, ANY_EDGE);
+            assertEquals("seed: " + seed, expected.isFound(), path.isFound());
+            assertEquals("seed: " + seed, expected.getWeight(), path.getWeight(), 1.e-3);
+        }
+    }
+
+    @Test
+    public void testQueriesSharingCompletedSearch_edgeBased() {
+        FlagEncoder encoder = new CarFlagEncoder(5, 5, 10);
+        EncodingManager em = EncodingManager.create(encoder);
+        GraphHopperStorage graph = new GraphHopperStorage(new RAMDirectory(), em, false, true);
+        FastestWeighting weighting = new FastestWeighting(encoder, new DefaultTurnCostProvider(encoder, graph.getTurnCostStorage()));
+        CHProfile chProfile = CHProfile.edgeBased(weighting);
+        graph.addCHGraph(chProfile).create(1000);
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 50, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0);
+        GHUtility.addRandomTurnCosts(graph, seed, em, encoder, 10, graph.getTurnCostStorage());
+        prepareCH(graph, chProfile);
+        RoutingCHGraph chGraph = new RoutingCHGraphImpl(graph.getCHGraph(), weighting);
+
+        int source = rnd.nextInt(50);
+        int target = rnd.nextInt(50);
+        // the alternative route search shares its completed searches with the s->v and v->t queries
+        AlternativeRouteEdgeCH sharedAlgo = new AlternativeRouteEdgeCH(chGraph, new PMap());
+        sharedAlgo.calcPath(source, target);
+        sharedAlgo.completeSearches();
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (int i = 0; i < 50; i++) {
+            IntArrayList edges = IntArrayList.from(ANY_EDGE);
+            EdgeIterator iter = explorer.setBaseNode(i);
+            while (iter.next()) {
+                edges.add(iter.getEdge());
+            }
+            for (IntCursor edge : edges) {
+                Path expected = new DijkstraBidirectionEdgeCHNoSOD(chGraph).calcPath(source, i, ANY_EDGE, edge.value);
+                DijkstraBidirectionEdgeCHNoSOD fwdShared = new DijkstraBidirectionEdgeCHNoSOD(chGraph);
+                fwdShared.setFromDataStructures(sharedAlgo);
+                Path path = fwdShared.calcPathFromCompletedFwdSearch(i, edge.value);
+                String msg = "seed: " + seed + ", " + source + "->" + i + ", in edge: " + edge.value;
+                assertEquals(msg, expected.isFound(), path.isFound());
+                assertEquals(msg, expected.getWeight(), path.getWeight(), 1.e-3);
+
+                expected = new DijkstraBidirectionEdgeCHNoSOD(chGraph).calcPath(i, target, edge.value, ANY_EDGE);
+                DijkstraBidirectionEdgeCHNoSOD bwdShared = new DijkstraBidirectionEdgeCHNoSOD(chGraph);
+                bwdShared.setToDataStructures(sharedAlgo);
+                path = bwdShared.calcPathToCompletedBwdSearch(i, edge.value);
+                msg = "seed: " + seed + ", " + i + "->" + target + ", out edge: " + edge.value;
+                assertEquals(msg, expected.isFound(), path.isFound());
+                assertEquals(msg, expected.getWeight(), path.getWeight(), 1.e-3);
+            }
+        }
+    }
+
     private void runTestWithDirectionDependentEdgeSpeed(double speed, double revSpeed, int from, int to, IntArrayList expectedPath, FlagEncoder encoder) {
         FastestWeighting weighting = new FastestWeighting(encoder);
         GraphHopperStorage graph = createGHStorage(weighting);
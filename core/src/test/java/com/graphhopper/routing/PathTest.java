@@ -422,6 +422,26 @@ public class PathTest {
         assertEquals(5D, distanceDetails.get(3).getValue());
     }
 
+    @Test
+    public void testCalcPointsWithVisitors() {
+        ShortestWeighting weighting = new ShortestWeighting(encoder);
+        Path p = new Dijkstra(pathDetailGraph, weighting, TraversalMode.NODE_BASED).calcPath(1, 5);
+        assertTrue(p.isFound());
+        List<String> requestedDetails = Arrays.asList(AVERAGE_SPEED, STREET_NAME, EDGE_ID, TIME, DISTANCE);
+
+        InstructionList instructions = new InstructionList(tr);
+        PathDetailsFromEdges detailsVisitor = PathDetailsFromEdges.create(carManager, weighting, requestedDetails, new PathDetailsBuilderFactory(), 0);
+        PointList points = p.calcPoints(Arrays.asList(new InstructionsFromEdges(p.graph, weighting, carManager, tr, instructions), detailsVisitor));
+
+        // the single iteration has to create the same result as the separate ones
+        assertEquals(p.calcPoints(), points);
+        assertEquals(InstructionsFromEdges.calcInstructions(p, p.graph, weighting, carManager, tr).toString(), instructions.toString());
+        Map<String, List<PathDetail>> details = detailsVisitor.build();
+        assertEquals(5, details.size());
+        assertEquals(PathDetailsFromEdges.calcDetails(p, carManager, weighting, requestedDetails, new PathDetailsBuilderFactory(), 0).toString(),
+                details.toString());
+    }
+
     /**
      * case with one edge being not an exit
      */
@@ -298,6 +298,52 @@ public class PrepareRoutingSubnetworksTest {
         assertEquals(IntArrayList.from(15, 9), components.get(3));
     }
 
+    @Test
+    public void testTarjanComponentIds() {
+        GraphHopperStorage g = createSubnetworkTestStorage();
+        TarjansSCCAlgorithm tarjan = new TarjansSCCAlgorithm(g, DefaultEdgeFilter.outEdges(carFlagEncoder), false).findComponentIds();
+
+        assertEquals(4, tarjan.getComponentCount());
+        assertEquals(6, tarjan.getComponentSize(1));
+        assertEquals(2, tarjan.getComponentNode(1, 0));
+        assertEquals(1, tarjan.getComponentNode(1, 5));
+        assertEquals(0, tarjan.getComponentId(13));
+        assertEquals(1, tarjan.getComponentId(8));
+        assertEquals(2, tarjan.getComponentId(14));
+        assertEquals(3, tarjan.getComponentId(9));
+
+        // node 16 has no edges and is ignored
+        g.getNodeAccess().setNode(16, 0, 0);
+        tarjan = new TarjansSCCAlgorithm(g, DefaultEdgeFilter.outEdges(carFlagEncoder), true).findComponentIds();
+        assertEquals(4, tarjan.getComponentCount());
+        assertEquals(-1, tarjan.getComponentId(16));
+    }
+
+    @Test
+    public void testThreads() {
+        FlagEncoder carEncoder = new CarFlagEncoder();
+        FlagEncoder bikeEncoder = new BikeFlagEncoder();
+        FlagEncoder footEncoder = new FootFlagEncoder();
+        EncodingManager em = EncodingManager.create(carEncoder, bikeEncoder, footEncoder);
+        List<String> edgesPerThreads = new ArrayList<>();
+        for (int threads = 1; threads <= 3; threads++) {
+            GraphHopperStorage g = createSubnetworkTestStorage2(em);
+            GHUtility.getEdge(g, 3, 4).set(bikeEncoder.getAccessEnc(), true).setReverse(bikeEncoder.getAccessEnc(), true).
+                    set(footEncoder.getAccessEnc(), true);
+            new PrepareRoutingSubnetworks(g, em.fetchEdgeEncoders()).setMinNetworkSize(4).setMinOneWayNetworkSize(2).
+                    setThreads(threads).doWork();
+
+            StringBuilder sb = new StringBuilder().append(g.getNodes());
+            AllEdgesIterator iter = g.getAllEdges();
+            while (iter.next()) {
+                sb.append(", ").append(iter.getEdge()).append(":").append(iter.getFlags());
+            }
+            edgesPerThreads.add(sb.toString());
+        }
+        assertEquals(edgesPerThreads.get(0), edgesPerThreads.get(1));
+        assertEquals(edgesPerThreads.get(0), edgesPerThreads.get(2));
+    }
+
     // Previous two-pass implementation failed on 1 -> 2 -> 0
     @Test
     public void testNodeOrderingRegression() {
@@ -2,12 +2,17 @@ package com.graphhopper.search;
 
 import com.carrotsearch.hppc.LongArrayList;
 import com.graphhopper.Repeat;
+import com.graphhopper.storage.MMapDirectory;
 import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.util.Helper;
 import org.junit.Test;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.graphhopper.search.StringIndex.MAX_UNIQUE_KEYS;
 import static junit.framework.TestCase.assertTrue;
@@ -123,6 +128,84 @@ public class StringIndexTest {
         assertEquals("{a=longer name, b=longer name}", index.getAll(cPointer).toString());
     }
 
+    @Test
+    public void putDuplicateOfOldValue() {
+        StringIndex index = create();
+        long aPointer = index.add(createMap("a", "first name"));
+        for (int i = 0; i < 5000; i++) {
+            index.add(createMap("a", "name " + i));
+        }
+        // the value is found although thousands of other values were added in between
+        long bPointer = index.add(createMap("b", "other name", "a", "first name"));
+        long cPointer = index.add(createMap("a", "last"));
+        assertEquals(bPointer + 1 + 3 + "other name".getBytes(Helper.UTF_CS).length + 2 + 4, cPointer);
+        assertEquals("first name", index.get(aPointer, "a"));
+        assertEquals("first name", index.get(bPointer, "a"));
+        assertEquals("other name", index.get(bPointer, "b"));
+        // the same String instance is returned for duplicates
+        assertSame(index.get(aPointer, "a"), index.get(bPointer, "a"));
+    }
+
+    @Test
+    public void getKeyAfterDuplicateMarker() {
+        StringIndex index = create();
+        index.add(createMap("a", "same name"));
+        long pointer = index.add(createMap("a", "same name", "b", "b name"));
+        assertEquals("same name", index.get(pointer, "a"));
+        assertEquals("b name", index.get(pointer, "b"));
+        assertNull(index.get(pointer, "c"));
+    }
+
+    @Test
+    public void testAddAfterFlush() {
+        StringIndex index = create();
+        long pointer = index.add(createMap("a", "same name"));
+        index.flush();
+        long pointerAfterFlush = index.add(createMap("a", "same name", "b", "b name"));
+        assertEquals("same name", index.get(pointer, "a"));
+        assertEquals("same name", index.get(pointerAfterFlush, "a"));
+        assertEquals("b name", index.get(pointerAfterFlush, "b"));
+    }
+
+    @Test
+    public void testGetFromManyThreads() throws Exception {
+        String location = "./target/stringindex-store";
+        Helper.removeDir(new File(location));
+        StringIndex index = new StringIndex(new MMapDirectory(location).create()).create(1000);
+        final int size = 10000;
+        final LongArrayList pointers = new LongArrayList(size);
+        for (int i = 0; i < size; i++) {
+            pointers.add(index.add(createMap("name", "street " + i % 1000, "ref", "B " + i)));
+        }
+        index.flush();
+        index.close();
+
+        final StringIndex loadedIndex = new StringIndex(new MMapDirectory(location));
+        assertTrue(loadedIndex.loadExisting());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    int errors = 0;
+                    for (int i = 0; i < size; i++) {
+                        if (!loadedIndex.get(pointers.get(i), "name").equals("street " + i % 1000)
+                                || !loadedIndex.get(pointers.get(i), "ref").equals("B " + i))
+                            errors++;
+                    }
+                    return errors;
+                }
+            }));
+        }
+        for (Future<Integer> future : futures) {
+            assertEquals(0, (int) future.get());
+        }
+        executor.shutdown();
+        loadedIndex.close();
+        Helper.removeDir(new File(location));
+    }
+
     @Test
     public void testNoErrorOnLargeName() {
         StringIndex index = create();
@@ -0,0 +1,119 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs all graph storage tests with the compressed encoding of the pillar nodes.
+ */
+public class GraphHopperStorageCompressedGeometryTest extends GraphHopperStorageTest {
+    @Override
+    protected GraphHopperStorage newGHStorage(Directory dir, boolean enabled3D, int segmentSize) {
+        return GraphBuilder.start(encodingManager).setDir(dir).set3D(enabled3D).setSegmentSize(segmentSize).
+                setCompressedGeometry(true).build();
+    }
+
+    @Override
+    @Test
+    public void testDontGrowOnUpdate() {
+        graph = createGHStorage(defaultGraphLoc, true);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 10, 10, 0);
+        na.setNode(1, 11, 20, 1);
+
+        EdgeIteratorState iter = graph.edge(0, 1, 100, true);
+        final BaseGraph baseGraph = (BaseGraph) graph.getBaseGraph();
+        assertEquals(4, baseGraph.getMaxGeoRef());
+        iter.setWayGeometry(Helper.createPointList3D(1, 2, 3, 3, 4, 5, 5, 6, 7, 7, 8, 9));
+        long maxGeoRef = baseGraph.getMaxGeoRef();
+        assertTrue(maxGeoRef > 4);
+        iter.setWayGeometry(Helper.createPointList3D(1, 2, 3, 3, 4, 5, 5, 6, 7));
+        assertEquals(maxGeoRef, baseGraph.getMaxGeoRef());
+        iter.setWayGeometry(Helper.createPointList3D(1, 2, 3));
+        assertEquals(maxGeoRef, baseGraph.getMaxGeoRef());
+        assertEquals(Helper.createPointList3D(1, 2, 3), iter.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+        iter.setWayGeometry(Helper.createPointList3D(1, 2, 3, 3, 4, 5, 5, 6, 7, 7, 8, 9, 9, 10, 11));
+        assertTrue(baseGraph.getMaxGeoRef() > maxGeoRef);
+    }
+
+    @Test
+    public void testZigZag() {
+        for (long value : new long[]{0, 1, -1, 2, -2, Integer.MAX_VALUE, Integer.MIN_VALUE, 3_600_000_000L, -3_600_000_000L}) {
+            assertEquals(value, BaseGraph.unZigZag(BaseGraph.zigZag(value)));
+        }
+        assertEquals(1, BaseGraph.zigZag(-1));
+        assertEquals(2, BaseGraph.zigZag(1));
+    }
+
+    @Test
+    public void testSmallerThanUncompressed() {
+        PointList pillars = new PointList(100, true);
+        for (int i = 0; i < 100; i++) {
+            pillars.add(49.9 + i * 1e-4, 11.1 + i * 2e-4, 300 + i * 0.5);
+        }
+
+        long[] geoRefs = new long[2];
+        for (int i = 0; i < 2; i++) {
+            GraphHopperStorage storage = GraphBuilder.start(encodingManager).set3D(true).setCompressedGeometry(i == 1).create();
+            storage.getNodeAccess().setNode(0, 49.8, 11, 290);
+            storage.getNodeAccess().setNode(1, 50.0, 11.2, 360);
+            storage.edge(0, 1, 20_000, true).setWayGeometry(pillars);
+            geoRefs[i] = ((BaseGraph) storage.getBaseGraph()).getMaxGeoRef();
+            storage.close();
+        }
+        // 12 bytes per point vs. 5 bytes per point for deltas of roughly 10m
+        assertTrue("geometry should be compressed, " + geoRefs[1] + " vs. " + geoRefs[0], geoRefs[1] * 2 < geoRefs[0]);
+    }
+
+    @Test
+    public void testOverwriteInPlaceAndTowerOnly() {
+        graph = createGHStorage();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50, 10);
+        na.setNode(1, 50.1, 10.1);
+        EdgeIteratorState edge = graph.edge(0, 1, 20_000, true);
+        PointList pillars = new PointList(3, false);
+        pillars.add(50.01, 10.01);
+        pillars.add(50.02, 10.03);
+        pillars.add(50.05, 10.04);
+        edge.setWayGeometry(pillars);
+        long maxGeoRef = ((BaseGraph) graph.getBaseGraph()).getMaxGeoRef();
+
+        PointList shorter = new PointList(2, false);
+        shorter.add(50.03, 10.02);
+        shorter.add(50.04, 10.05);
+        graph.getEdgeIteratorState(edge.getEdge(), 1).setWayGeometry(shorter);
+        assertEquals(maxGeoRef, ((BaseGraph) graph.getBaseGraph()).getMaxGeoRef());
+
+        assertEquals(shorter, edge.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+        PointList reversed = graph.getEdgeIteratorState(edge.getEdge(), 0).fetchWayGeometry(FetchMode.ALL);
+        assertEquals(4, reversed.size());
+        assertEquals(50.1, reversed.getLat(0), 1e-6);
+        assertEquals(50.04, reversed.getLat(1), 1e-6);
+        assertEquals(10.02, reversed.getLon(2), 1e-6);
+        assertEquals(Helper.createPointList(50, 10, 50.1, 10.1), edge.fetchWayGeometry(FetchMode.TOWER_ONLY));
+    }
+
+}
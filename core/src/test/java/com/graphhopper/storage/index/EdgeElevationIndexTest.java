@@ -0,0 +1,122 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class EdgeElevationIndexTest {
+    private final String location = "./target/tmp/edge-elevation-index";
+    private final EncodingManager encodingManager = EncodingManager.create(new CarFlagEncoder());
+
+    @Before
+    @After
+    public void cleanUp() {
+        Helper.removeDir(new File(location));
+    }
+
+    private GraphHopperStorage createGraph(Directory dir) {
+        GraphHopperStorage graph = new GraphHopperStorage(dir, encodingManager, true).create(100);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 49.0, 11.0, 100);
+        na.setNode(1, 49.01, 11.0, 120);
+        na.setNode(2, 49.01, 11.01, 120);
+        // 1112m long, up 50m and down 30m
+        PointList pillars = new PointList(2, true);
+        pillars.add(49.003, 11.0, 150);
+        pillars.add(49.006, 11.0, 130);
+        graph.edge(0, 1).setDistance(1112).setWayGeometry(pillars);
+        graph.edge(1, 2).setDistance(730);
+        return graph;
+    }
+
+    @Test
+    public void testStatsInBothDirections() {
+        GraphHopperStorage graph = createGraph(new RAMDirectory());
+        EdgeElevationIndex index = new EdgeElevationIndex(graph, graph.getDirectory()).prepareIndex();
+
+        EdgeIteratorState edge = graph.getEdgeIteratorState(0, 1);
+        assertEquals(50, index.getAscent(edge), 1e-2);
+        assertEquals(30, index.getDescent(edge), 1e-2);
+        // 50m on 333.6m
+        assertEquals(15, index.getMaxGrade(edge), .1);
+        assertEquals(1.8, index.getAverageGrade(edge), .1);
+
+        edge = graph.getEdgeIteratorState(0, 0);
+        assertEquals(30, index.getAscent(edge), 1e-2);
+        assertEquals(50, index.getDescent(edge), 1e-2);
+        // 20m on 333.6m
+        assertEquals(6, index.getMaxGrade(edge), .1);
+        assertEquals(-1.8, index.getAverageGrade(edge), .1);
+
+        edge = graph.getEdgeIteratorState(1, 2);
+        assertEquals(0, index.getAscent(edge), 1e-2);
+        assertEquals(0, index.getDescent(edge), 1e-2);
+        assertEquals(0, index.getAverageGrade(edge), 1e-2);
+    }
+
+    @Test
+    public void testUnstoredAndUpdatedEdges() {
+        GraphHopperStorage graph = createGraph(new RAMDirectory());
+        EdgeElevationIndex index = new EdgeElevationIndex(graph, graph.getDirectory()).prepareIndex();
+
+        // edges that are added later are calculated from their geometry, like virtual edges
+        EdgeIteratorState edge = graph.edge(2, 0).setDistance(1330);
+        assertEquals(0, index.getAscent(edge), 1e-2);
+        assertEquals(20, index.getDescent(edge), 1e-2);
+        assertEquals(20, index.getAscent(graph.getEdgeIteratorState(edge.getEdge(), 2)), 1e-2);
+
+        index.update(edge);
+        assertEquals(20, index.getDescent(edge), 1e-2);
+        graph.getNodeAccess().setNode(2, 49.01, 11.01, 80);
+        assertEquals(20, index.getDescent(edge), 1e-2);
+        // the direction of the updated edge state does not matter
+        index.update(graph.getEdgeIteratorState(edge.getEdge(), 2));
+        assertEquals(20, index.getAscent(graph.getEdgeIteratorState(edge.getEdge(), 0)), 1e-2);
+        assertEquals(0, index.getAscent(graph.getEdgeIteratorState(edge.getEdge(), 2)), 1e-2);
+        assertEquals(20, index.getDescent(graph.getEdgeIteratorState(edge.getEdge(), 2)), 1e-2);
+    }
+
+    @Test
+    public void testLoadExisting() {
+        GraphHopperStorage graph = createGraph(new RAMDirectory(location, true));
+        EdgeElevationIndex index = new EdgeElevationIndex(graph, graph.getDirectory()).prepareIndex();
+        graph.flush();
+        index.close();
+        graph.close();
+
+        graph = new GraphHopperStorage(new RAMDirectory(location, true), encodingManager, true);
+        assertTrue(graph.loadExisting());
+        index = new EdgeElevationIndex(graph, graph.getDirectory());
+        assertTrue(index.loadExisting());
+        assertEquals(50, index.getAscent(graph.getEdgeIteratorState(0, 1)), 1e-2);
+        assertEquals(15, index.getMaxGrade(graph.getEdgeIteratorState(0, 1)), .1);
+        graph.close();
+    }
+}
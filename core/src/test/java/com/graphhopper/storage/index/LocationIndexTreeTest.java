@@ -307,6 +307,46 @@ public class LocationIndexTreeTest extends AbstractLocationIndexTester {
         assertEquals(20, findID(index, 51.25, 9.43));
     }
 
+    @Test
+    public void testAddEdges() {
+        Graph graph = createGHStorage(new RAMDirectory(location, true), encodingManager, false);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 0, 0);
+        na.setNode(1, 1, 1);
+        na.setNode(2, 0, 1);
+        na.setNode(3, 1, 0);
+        graph.edge(0, 1, 150_000, true);
+        Directory dir = new RAMDirectory(location, true);
+        LocationIndexTree index = new LocationIndexTree(graph, dir);
+        index.setResolution(10000);
+        index.prepareIndex();
+        assertFalse(index.findClosest(0.99, 0.01, EdgeFilter.ALL_EDGES).isValid());
+
+        int edge = graph.edge(3, 2, 150_000, true).setWayGeometry(Helper.createPointList(0.9, 0.1)).getEdge();
+        assertTrue(index.addEdges(IntArrayList.from(edge)));
+        assertEquals(3, index.findClosest(0.99, 0.01, EdgeFilter.ALL_EDGES).getClosestNode());
+        assertEquals(edge, index.findClosest(0.9, 0.11, EdgeFilter.ALL_EDGES).getClosestEdge().getEdge());
+        final List<Integer> nodes = new ArrayList<>();
+        index.query(new BBox(0, 0.05, 0.95, 1), new LocationIndex.Visitor() {
+            @Override
+            public void onNode(int nodeId) {
+                nodes.add(nodeId);
+            }
+        });
+        assertEquals(Collections.singletonList(3), nodes);
+
+        // the added edges are stored
+        index.flush();
+        index.close();
+        index = new LocationIndexTree(graph, new RAMDirectory(location, true));
+        assertTrue(index.loadExisting());
+        assertEquals(3, index.findClosest(0.99, 0.01, EdgeFilter.ALL_EDGES).getClosestNode());
+
+        // the spatial keys depend on the bounds of the graph
+        na.setNode(4, 2, 2);
+        assertFalse(index.addEdges(IntArrayList.from(graph.edge(1, 4, 150_000, true).getEdge())));
+    }
+
     @Test
     public void testEdgeFilter() {
         Graph graph = createTestGraph(encodingManager);
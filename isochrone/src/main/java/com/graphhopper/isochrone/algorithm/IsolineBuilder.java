@@ -0,0 +1,43 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import org.locationtech.jts.geom.MultiPolygon;
+
+import java.util.List;
+
+/**
+ * Collects the points reached by a {@link ShortestPathTree}, each with the time or distance it was reached at, and
+ * computes the isolines around them.
+ */
+public interface IsolineBuilder {
+
+    void addPoint(double lat, double lon, double z);
+
+    /**
+     * Adds an edge of the shortest path tree, from the point where it was entered to the point where it was left.
+     */
+    void addEdge(double fromLat, double fromLon, double fromZ, double toLat, double toLon, double toZ);
+
+    /**
+     * @return one MultiPolygon for every z value, in the same order
+     * @throws IllegalArgumentException if there are too few points
+     */
+    List<MultiPolygon> computeIsolines(List<Double> zs);
+
+}
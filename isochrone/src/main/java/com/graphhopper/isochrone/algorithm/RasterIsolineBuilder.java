@@ -0,0 +1,317 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.LongDoubleHashMap;
+import com.carrotsearch.hppc.cursors.IntIntCursor;
+import com.carrotsearch.hppc.cursors.LongDoubleCursor;
+import com.graphhopper.util.DistanceCalcEarth;
+import org.locationtech.jts.algorithm.Orientation;
+import org.locationtech.jts.geom.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes isolines on a grid instead of a triangulation. The reached points are splatted onto the cells of a grid
+ * with a fixed cell size as they arrive, keeping the smallest z per cell, and the isolines are traced with marching
+ * squares. Edges are sampled every half cell, so the roads between the reached nodes are part of the isochrone as well.
+ * <p>
+ * The time and memory needed depend on the area of the isochrone divided by the cell size, not on the number of
+ * reached points or the length of the sampled edges, and all z values are traced in a single pass over the grid. Larger cells are faster and close the
+ * gaps between roads; smaller cells follow the road network more closely.
+ */
+public class RasterIsolineBuilder implements IsolineBuilder {
+
+    private static final int MAX_GRID_NODES = 10_000_000;
+    // the corners of a cell, as bits of the marching squares case
+    private static final int BOTTOM_LEFT = 1, BOTTOM_RIGHT = 2, TOP_RIGHT = 4, TOP_LEFT = 8;
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+    private final double cellSizeInMeter;
+    // the smallest z of every reached cell, the cells are counted from the first point
+    private final LongDoubleHashMap cells = new LongDoubleHashMap();
+    private double firstLat, firstLon, cellLat, cellLon;
+
+    private double originLat, originLon;
+    private int rows, cols;
+    private double[] grid;
+
+    public RasterIsolineBuilder(double cellSizeInMeter) {
+        if (cellSizeInMeter <= 0)
+            throw new IllegalArgumentException("Cell size has to be positive but was " + cellSizeInMeter);
+        this.cellSizeInMeter = cellSizeInMeter;
+    }
+
+    @Override
+    public void addPoint(double lat, double lon, double z) {
+        if (cells.isEmpty()) {
+            firstLat = lat;
+            firstLon = lon;
+            cellLat = cellSizeInMeter / DistanceCalcEarth.METERS_PER_DEGREE;
+            cellLon = cellLat / Math.cos(Math.toRadians(lat));
+        }
+        int r = (int) Math.floor((lat - firstLat) / cellLat);
+        int c = (int) Math.floor((lon - firstLon) / cellLon);
+        long cell = ((long) r << 32) | (c & 0xFFFFFFFFL);
+        int index = cells.indexOf(cell);
+        if (index < 0) {
+            if (cells.size() >= MAX_GRID_NODES)
+                throw tooManyCells(cells.size() + 1);
+            cells.indexInsert(index, cell, z);
+        } else if (z < cells.indexGet(index)) {
+            cells.indexReplace(index, z);
+        }
+    }
+
+    @Override
+    public void addEdge(double fromLat, double fromLon, double fromZ, double toLat, double toLon, double toZ) {
+        double dLat = (toLat - fromLat) * DistanceCalcEarth.METERS_PER_DEGREE;
+        double dLon = (toLon - fromLon) * DistanceCalcEarth.METERS_PER_DEGREE * Math.cos(Math.toRadians(fromLat));
+        int steps = Math.max(1, (int) Math.ceil(Math.sqrt(dLat * dLat + dLon * dLon) / (cellSizeInMeter / 2)));
+        for (int i = 0; i <= steps; i++) {
+            double t = (double) i / steps;
+            addPoint(fromLat + t * (toLat - fromLat), fromLon + t * (toLon - fromLon), fromZ + t * (toZ - fromZ));
+        }
+    }
+
+    @Override
+    public List<MultiPolygon> computeIsolines(List<Double> zs) {
+        if (cells.isEmpty())
+            throw new IllegalArgumentException("Too few points found. "
+                    + "Please try a different 'point' or a larger 'time_limit'.");
+        createGrid();
+        // per z value: the directed segments of the isoline, from grid edge to grid edge
+        List<IntIntHashMap> segments = new ArrayList<>(zs.size());
+        for (int k = 0; k < zs.size(); k++) {
+            segments.add(new IntIntHashMap());
+        }
+        for (int r = 0; r < rows - 1; r++) {
+            for (int c = 0; c < cols - 1; c++) {
+                double bottomLeft = grid[r * cols + c], bottomRight = grid[r * cols + c + 1];
+                double topRight = grid[(r + 1) * cols + c + 1], topLeft = grid[(r + 1) * cols + c];
+                if (bottomLeft == Double.POSITIVE_INFINITY && bottomRight == Double.POSITIVE_INFINITY
+                        && topRight == Double.POSITIVE_INFINITY && topLeft == Double.POSITIVE_INFINITY)
+                    continue;
+                int bottom = horizontalEdge(r, c), top = horizontalEdge(r + 1, c);
+                int left = verticalEdge(r, c), right = verticalEdge(r, c + 1);
+                for (int k = 0; k < zs.size(); k++) {
+                    double z = zs.get(k);
+                    int square = (bottomLeft <= z ? BOTTOM_LEFT : 0) | (bottomRight <= z ? BOTTOM_RIGHT : 0)
+                            | (topRight <= z ? TOP_RIGHT : 0) | (topLeft <= z ? TOP_LEFT : 0);
+                    if (square == 0 || square == 15)
+                        continue;
+                    boolean centerInside = (bottomLeft + bottomRight + topRight + topLeft) / 4 <= z;
+                    addSegments(segments.get(k), square, centerInside, bottom, right, top, left);
+                }
+            }
+        }
+        List<MultiPolygon> isolines = new ArrayList<>(zs.size());
+        for (int k = 0; k < zs.size(); k++) {
+            isolines.add(createMultiPolygon(traceRings(segments.get(k), zs.get(k))));
+        }
+        grid = null;
+        return isolines;
+    }
+
+    private void createGrid() {
+        int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE, minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
+        for (LongDoubleCursor cursor : cells) {
+            int r = (int) (cursor.key >> 32), c = (int) cursor.key;
+            minRow = Math.min(minRow, r);
+            maxRow = Math.max(maxRow, r);
+            minCol = Math.min(minCol, c);
+            maxCol = Math.max(maxCol, c);
+        }
+        // at least one row and column of nodes around the cells which are never reached, so all isolines are closed
+        int originRow = minRow - 1;
+        int originCol = minCol - 1;
+        originLat = firstLat + originRow * cellLat;
+        originLon = firstLon + originCol * cellLon;
+        rows = maxRow - minRow + 4;
+        cols = maxCol - minCol + 4;
+        if ((long) rows * cols > MAX_GRID_NODES)
+            throw tooManyCells((long) rows * cols);
+        grid = new double[rows * cols];
+        Arrays.fill(grid, Double.POSITIVE_INFINITY);
+        for (LongDoubleCursor cursor : cells) {
+            int r = (int) (cursor.key >> 32) - originRow, c = (int) cursor.key - originCol;
+            // every corner of the cell
+            splat(r, c, cursor.value);
+            splat(r, c + 1, cursor.value);
+            splat(r + 1, c, cursor.value);
+            splat(r + 1, c + 1, cursor.value);
+        }
+    }
+
+    private static IllegalArgumentException tooManyCells(long count) {
+        return new IllegalArgumentException("The isochrone would need " + count + " raster cells, "
+                + "but only " + MAX_GRID_NODES + " are allowed. Please use a larger cell size.");
+    }
+
+    private void splat(int r, int c, double z) {
+        int node = r * cols + c;
+        if (z < grid[node])
+            grid[node] = z;
+    }
+
+    private int horizontalEdge(int r, int c) {
+        return 2 * (r * cols + c);
+    }
+
+    private int verticalEdge(int r, int c) {
+        return 2 * (r * cols + c) + 1;
+    }
+
+    /**
+     * Adds the segments of one cell, directed so that the inside is on their left. This makes shells counter
+     * clockwise and holes clockwise.
+     */
+    private static void addSegments(IntIntHashMap segments, int square, boolean centerInside, int bottom, int right, int top, int left) {
+        switch (square) {
+            case BOTTOM_LEFT:
+                segments.put(bottom, left);
+                break;
+            case BOTTOM_RIGHT:
+                segments.put(right, bottom);
+                break;
+            case BOTTOM_LEFT | BOTTOM_RIGHT:
+                segments.put(right, left);
+                break;
+            case TOP_RIGHT:
+                segments.put(top, right);
+                break;
+            case BOTTOM_LEFT | TOP_RIGHT:
+                if (centerInside) {
+                    segments.put(bottom, right);
+                    segments.put(top, left);
+                } else {
+                    segments.put(bottom, left);
+                    segments.put(top, right);
+                }
+                break;
+            case BOTTOM_RIGHT | TOP_RIGHT:
+                segments.put(top, bottom);
+                break;
+            case BOTTOM_LEFT | BOTTOM_RIGHT | TOP_RIGHT:
+                segments.put(top, left);
+                break;
+            case TOP_LEFT:
+                segments.put(left, top);
+                break;
+            case BOTTOM_LEFT | TOP_LEFT:
+                segments.put(bottom, top);
+                break;
+            case BOTTOM_RIGHT | TOP_LEFT:
+                if (centerInside) {
+                    segments.put(left, bottom);
+                    segments.put(right, top);
+                } else {
+                    segments.put(right, bottom);
+                    segments.put(left, top);
+                }
+                break;
+            case BOTTOM_LEFT | BOTTOM_RIGHT | TOP_LEFT:
+                segments.put(right, top);
+                break;
+            case TOP_RIGHT | TOP_LEFT:
+                segments.put(left, right);
+                break;
+            case BOTTOM_LEFT | TOP_RIGHT | TOP_LEFT:
+                segments.put(bottom, right);
+                break;
+            case BOTTOM_RIGHT | TOP_RIGHT | TOP_LEFT:
+                segments.put(left, bottom);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected square " + square);
+        }
+    }
+
+    private List<LinearRing> traceRings(IntIntHashMap segments, double z) {
+        List<LinearRing> rings = new ArrayList<>();
+        IntHashSet visited = new IntHashSet(segments.size());
+        for (IntIntCursor cursor : segments) {
+            if (visited.contains(cursor.key))
+                continue;
+            List<Coordinate> coordinates = new ArrayList<>();
+            int edge = cursor.key;
+            while (visited.add(edge)) {
+                coordinates.add(crossing(edge, z));
+                edge = segments.get(edge);
+            }
+            coordinates.add(coordinates.get(0));
+            if (coordinates.size() >= 4)
+                rings.add(geometryFactory.createLinearRing(coordinates.toArray(new Coordinate[0])));
+        }
+        return rings;
+    }
+
+    /**
+     * @return where the isoline crosses the specified grid edge, interpolated linearly between its nodes
+     */
+    private Coordinate crossing(int edge, double z) {
+        int node = edge / 2;
+        int r = node / cols, c = node % cols;
+        int otherNode = (edge & 1) == 0 ? node + 1 : node + cols;
+        double za = grid[node], zb = grid[otherNode];
+        double t = Double.isInfinite(za) || Double.isInfinite(zb) ? 0.5 : Math.max(0, Math.min(1, (z - za) / (zb - za)));
+        double lat = originLat + r * cellLat, lon = originLon + c * cellLon;
+        if ((edge & 1) == 0)
+            lon += t * cellLon;
+        else
+            lat += t * cellLat;
+        return new Coordinate(lon, lat);
+    }
+
+    private MultiPolygon createMultiPolygon(List<LinearRing> rings) {
+        List<Polygon> shells = new ArrayList<>();
+        List<LinearRing> holes = new ArrayList<>();
+        for (LinearRing ring : rings) {
+            if (Orientation.isCCW(ring.getCoordinates()))
+                shells.add(geometryFactory.createPolygon(ring));
+            else
+                holes.add(ring);
+        }
+        // a hole belongs to the smallest shell around it, as shells can be nested in the holes of other shells
+        List<List<LinearRing>> holesByShell = new ArrayList<>(shells.size());
+        for (int i = 0; i < shells.size(); i++) {
+            holesByShell.add(new ArrayList<>());
+        }
+        for (LinearRing hole : holes) {
+            int smallestShell = -1;
+            for (int i = 0; i < shells.size(); i++) {
+                if ((smallestShell < 0 || shells.get(i).getArea() < shells.get(smallestShell).getArea()) && shells.get(i).contains(hole))
+                    smallestShell = i;
+            }
+            if (smallestShell < 0)
+                throw new IllegalStateException("Found a hole without a shell.");
+            holesByShell.get(smallestShell).add(hole);
+        }
+        Polygon[] polygons = new Polygon[shells.size()];
+        for (int i = 0; i < shells.size(); i++) {
+            polygons[i] = geometryFactory.createPolygon((LinearRing) shells.get(i).getExteriorRing(),
+                    holesByShell.get(i).toArray(new LinearRing[0]));
+        }
+        return geometryFactory.createMultiPolygon(polygons);
+    }
+
+}
@@ -60,10 +60,14 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
 
         public long time;
         public double distance;
+        /**
+         * The index of the start node this label was reached from, see {@link #search(int[], long[], Consumer)}
+         */
+        public int origin;
 
         @Override
         public String toString() {
-            return super.toString() + ", time:" + time + ", distance:" + distance;
+            return super.toString() + ", time:" + time + ", distance:" + distance + ", origin:" + origin;
         }
     }
 
@@ -107,11 +111,43 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
     }
 
     public void search(int from, final Consumer<IsoLabel> consumer) {
+        search(new int[]{from}, new long[1], consumer);
+    }
+
+    /**
+     * Searches from all given nodes in one pass, as if they were connected to a common virtual start. Every node is
+     * reached from the start node it can be reached from with the smallest weight, which is available as
+     * {@link IsoLabel#origin}.
+     *
+     * @param timeOffsets per start node the time in milliseconds that has already passed when it is left. As the search
+     *                    is ordered by weight it is added to the weight as well, in seconds. So offsets other than 0
+     *                    must only be used with a weighting that returns the time in seconds like fastest.
+     */
+    public void search(int[] fromNodes, long[] timeOffsets, final Consumer<IsoLabel> consumer) {
+        if (fromNodes.length != timeOffsets.length)
+            throw new IllegalArgumentException("There has to be one time offset per start node, "
+                    + fromNodes.length + " vs. " + timeOffsets.length);
+        for (long timeOffset : timeOffsets) {
+            if (timeOffset < 0)
+                throw new IllegalArgumentException("Time offsets cannot be negative but was " + timeOffset);
+        }
         checkAlreadyRun();
-        IsoLabel currEdge = new IsoLabel(-1, from, 0, 0, 0);
-        queueByWeighting.add(currEdge);
-        queueByZ.add(currEdge);
-        fromMap.put(from, currEdge);
+        IsoLabel currEdge;
+        for (int i = 0; i < fromNodes.length; i++) {
+            double weight = timeOffsets[i] / 1000.0;
+            currEdge = fromMap.get(fromNodes[i]);
+            if (currEdge != null) {
+                if (currEdge.weight <= weight)
+                    continue;
+                queueByWeighting.remove(currEdge);
+                queueByZ.remove(currEdge);
+            }
+            currEdge = new IsoLabel(-1, fromNodes[i], weight, timeOffsets[i], 0);
+            currEdge.origin = i;
+            queueByWeighting.add(currEdge);
+            queueByZ.add(currEdge);
+            fromMap.put(fromNodes[i], currEdge);
+        }
         EdgeFilter filter = reverseFlow ? inEdgeFilter : outEdgeFilter;
         while (!finished()) {
             currEdge = queueByWeighting.poll();
@@ -140,6 +176,7 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
                 if (nEdge == null) {
                     nEdge = new IsoLabel(iter.getEdge(), tmpNode, tmpWeight, tmpTime, tmpDistance);
                     nEdge.parent = currEdge;
+                    nEdge.origin = currEdge.origin;
                     fromMap.put(tmpNode, nEdge);
                     queueByWeighting.add(nEdge);
                     queueByZ.add(nEdge);
@@ -151,6 +188,7 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
                     nEdge.distance = tmpDistance;
                     nEdge.time = tmpTime;
                     nEdge.parent = currEdge;
+                    nEdge.origin = currEdge.origin;
                     queueByWeighting.add(nEdge);
                     queueByZ.add(nEdge);
                 }
@@ -0,0 +1,92 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.triangulate.ConformingDelaunayTriangulator;
+import org.locationtech.jts.triangulate.ConstraintVertex;
+import org.locationtech.jts.triangulate.quadedge.QuadEdgeSubdivision;
+import org.locationtech.jts.triangulate.quadedge.Vertex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Computes isolines on a Delaunay triangulation of all reached points, with {@link ContourBuilder}. This is exact at
+ * the reached points, but the triangulation gets expensive for large isochrones. See {@link RasterIsolineBuilder}.
+ */
+public class TriangulationIsolineBuilder implements IsolineBuilder {
+
+    private final Collection<ConstraintVertex> sites = new ArrayList<>();
+
+    @Override
+    public void addPoint(double lat, double lon, double z) {
+        ConstraintVertex site = new ConstraintVertex(new Coordinate(lon, lat));
+        site.setZ(z);
+        sites.add(site);
+    }
+
+    @Override
+    public void addEdge(double fromLat, double fromLon, double fromZ, double toLat, double toLon, double toZ) {
+        addPoint(toLat, toLon, toZ);
+        // guess center of road to increase precision a bit for longer roads
+        addPoint((fromLat + toLat) / 2, (fromLon + toLon) / 2, toZ);
+    }
+
+    @Override
+    public List<MultiPolygon> computeIsolines(List<Double> zs) {
+        ConformingDelaunayTriangulator conformingDelaunayTriangulator = new ConformingDelaunayTriangulator(sites, 0.0);
+        conformingDelaunayTriangulator.setConstraints(new ArrayList<>(), new ArrayList<>());
+        conformingDelaunayTriangulator.formInitialDelaunay();
+        conformingDelaunayTriangulator.enforceConstraints();
+        Geometry convexHull = conformingDelaunayTriangulator.getConvexHull();
+
+        // If there's only one site (and presumably also if the convex hull is otherwise degenerated),
+        // the triangulation only contains the frame, and not the site within the frame. Not sure if I agree with that.
+        // See ConformingDelaunayTriangulator, it does include a buffer for the frame, but that buffer is zero
+        // in these cases.
+        // It leads to the following follow-up defect:
+        // computeIsoline fails (returns an empty Multipolygon). This is clearly wrong, since
+        // the idea is that every real (non-frame) vertex has positive-length-edges around it that can be traversed
+        // to get a non-empty polygon.
+        // So we exclude this case for now (it is indeed only a corner-case).
+
+        if (!(convexHull instanceof Polygon)) {
+            throw new IllegalArgumentException("Too few points found. "
+                    + "Please try a different 'point' or a larger 'time_limit'.");
+        }
+
+        QuadEdgeSubdivision tin = conformingDelaunayTriangulator.getSubdivision();
+        for (Vertex vertex : (Collection<Vertex>) tin.getVertices(true)) {
+            if (tin.isFrameVertex(vertex)) {
+                vertex.setZ(Double.MAX_VALUE);
+            }
+        }
+        ContourBuilder contourBuilder = new ContourBuilder(tin.getEdges());
+        List<MultiPolygon> isolines = new ArrayList<>(zs.size());
+        for (Double z : zs) {
+            isolines.add(contourBuilder.computeIsoline(z));
+        }
+        return isolines;
+    }
+
+}
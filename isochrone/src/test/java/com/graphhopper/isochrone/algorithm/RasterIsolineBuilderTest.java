@@ -0,0 +1,124 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RasterIsolineBuilderTest {
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    @Test
+    public void testSinglePoint() {
+        RasterIsolineBuilder builder = new RasterIsolineBuilder(10);
+        builder.addPoint(52.5, 13.4, 0);
+        MultiPolygon isoline = builder.computeIsolines(Collections.singletonList(10.0)).get(0);
+        assertEquals(1, isoline.getNumGeometries());
+        assertTrue(isoline.contains(point(52.5, 13.4)));
+    }
+
+    @Test
+    public void testNoPoints() {
+        assertThrows(IllegalArgumentException.class, () -> new RasterIsolineBuilder(10).computeIsolines(Collections.singletonList(10.0)));
+    }
+
+    @Test
+    public void testEdgeIsInterpolated() {
+        RasterIsolineBuilder builder = new RasterIsolineBuilder(10);
+        // about 1.1km to the north, reached after 100 seconds
+        builder.addEdge(52.5, 13.4, 0, 52.51, 13.4, 100);
+        List<MultiPolygon> isolines = builder.computeIsolines(Arrays.asList(50.0, 100.0));
+        MultiPolygon half = isolines.get(0);
+        assertEquals(1, half.getNumGeometries());
+        assertTrue(half.contains(point(52.504, 13.4)));
+        assertFalse(half.contains(point(52.506, 13.4)));
+        MultiPolygon all = isolines.get(1);
+        assertTrue(all.contains(point(52.5095, 13.4)));
+        assertTrue(all.contains(half));
+    }
+
+    @Test
+    public void testHole() {
+        RasterIsolineBuilder builder = new RasterIsolineBuilder(10);
+        // a square block of roads, about 500m wide, around an area that is not reached
+        builder.addEdge(52.5, 13.4, 0, 52.5, 13.4075, 0);
+        builder.addEdge(52.5, 13.4075, 0, 52.505, 13.4075, 0);
+        builder.addEdge(52.505, 13.4075, 0, 52.505, 13.4, 0);
+        builder.addEdge(52.505, 13.4, 0, 52.5, 13.4, 0);
+        MultiPolygon isoline = builder.computeIsolines(Collections.singletonList(10.0)).get(0);
+        assertEquals(1, isoline.getNumGeometries());
+        Polygon polygon = (Polygon) isoline.getGeometryN(0);
+        assertEquals(1, polygon.getNumInteriorRing());
+        assertFalse(polygon.contains(point(52.5025, 13.40375)));
+        assertTrue(polygon.getExteriorRing().getEnvelopeInternal().contains(13.40375, 52.5025));
+
+        // larger cells close the gap between the roads
+        builder = new RasterIsolineBuilder(300);
+        builder.addEdge(52.5, 13.4, 0, 52.5, 13.4075, 0);
+        builder.addEdge(52.5, 13.4075, 0, 52.505, 13.4075, 0);
+        builder.addEdge(52.505, 13.4075, 0, 52.505, 13.4, 0);
+        builder.addEdge(52.505, 13.4, 0, 52.5, 13.4, 0);
+        assertEquals(0, ((Polygon) builder.computeIsolines(Collections.singletonList(10.0)).get(0).getGeometryN(0)).getNumInteriorRing());
+    }
+
+    @Test
+    public void testSimilarToTriangulation() {
+        IsolineBuilder raster = new RasterIsolineBuilder(20);
+        IsolineBuilder triangulation = new TriangulationIsolineBuilder();
+        // a dense grid of roads, z is the distance from the center
+        for (int i = -20; i <= 20; i++) {
+            for (int j = -20; j <= 20; j++) {
+                double lat = 52.5 + i * 0.0005, lon = 13.4 + j * 0.0008;
+                double z = Math.sqrt(i * i + j * j);
+                raster.addPoint(lat, lon, z);
+                triangulation.addPoint(lat, lon, z);
+                if (j < 20)
+                    raster.addEdge(lat, lon, z, lat, 13.4 + (j + 1) * 0.0008, Math.sqrt(i * i + (j + 1) * (j + 1)));
+                if (i < 20)
+                    raster.addEdge(lat, lon, z, 52.5 + (i + 1) * 0.0005, lon, Math.sqrt((i + 1) * (i + 1) + j * j));
+            }
+        }
+        List<Double> zs = Arrays.asList(5.0, 10.0, 15.0);
+        List<MultiPolygon> rasterIsolines = raster.computeIsolines(zs);
+        List<MultiPolygon> triangulationIsolines = triangulation.computeIsolines(zs);
+        for (int k = 0; k < zs.size(); k++) {
+            // like the isochrone response, compare the outline of the polygon
+            Geometry expected = outline(triangulationIsolines.get(k));
+            Geometry actual = outline(rasterIsolines.get(k));
+            double deviation = expected.symDifference(actual).getArea() / expected.getArea();
+            assertTrue(deviation < 0.2, "Raster isoline " + zs.get(k) + " deviates by " + deviation);
+        }
+    }
+
+    private Polygon outline(MultiPolygon multiPolygon) {
+        assertEquals(1, multiPolygon.getNumGeometries());
+        return geometryFactory.createPolygon(((Polygon) multiPolygon.getGeometryN(0)).getExteriorRing().getCoordinates());
+    }
+
+    private Point point(double lat, double lon) {
+        return geometryFactory.createPoint(new Coordinate(lon, lat));
+    }
+
+}
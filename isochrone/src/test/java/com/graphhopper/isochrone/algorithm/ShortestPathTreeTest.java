@@ -17,6 +17,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * @author Peter Karich
@@ -124,4 +125,48 @@ public class ShortestPathTreeTest {
         );
     }
 
+    @Test
+    public void testSearchFromMultipleNodes() {
+        fillTestGraph(graph);
+        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false);
+        instance.setTimeLimit(26_000);
+        instance.search(new int[]{0, 3}, new long[2], result::add);
+        assertEquals(6, result.size());
+        assertAll(
+                () -> assertEquals(0, result.get(0).time),
+                () -> assertEquals(0, result.get(1).time),
+                () -> assertEquals(9000, result.get(2).time),
+                () -> assertEquals(18000, result.get(3).time),
+                () -> assertEquals(25200, result.get(4).time),
+                () -> assertEquals(25200, result.get(5).time)
+        );
+        for (ShortestPathTree.IsoLabel label : result) {
+            assertEquals(label.adjNode == 3 || label.adjNode == 7 ? 1 : 0, label.origin, label.toString());
+        }
+    }
+
+    @Test
+    public void testSearchWithTimeOffset() {
+        fillTestGraph(graph);
+        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false);
+        instance.setTimeLimit(26_000);
+        // the second start node is left 20 seconds later and does not get far
+        instance.search(new int[]{0, 3}, new long[]{0, 20_000}, result::add);
+        assertEquals(5, result.size());
+        assertAll(
+                () -> assertEquals(0, result.get(0).time),
+                () -> assertEquals(9000, result.get(1).time),
+                () -> assertEquals(18000, result.get(2).time),
+                () -> assertEquals(20000, result.get(3).time),
+                () -> assertEquals(25200, result.get(4).time)
+        );
+        assertEquals(3, result.get(3).adjNode);
+        assertEquals(1, result.get(3).origin);
+
+        ShortestPathTree negativeOffset = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false);
+        assertThrows(IllegalArgumentException.class, () -> negativeOffset.search(new int[]{0, 3}, new long[]{0, -20_000}, result::add));
+    }
+
 }
@@ -18,6 +18,7 @@
 
 package com.graphhopper.gtfs.dropwizard;
 
+import com.codahale.metrics.MetricRegistry;
 import com.graphhopper.reader.gtfs.RealtimeFeed;
 import io.dropwizard.ConfiguredBundle;
 import io.dropwizard.client.HttpClientBuilder;
@@ -44,6 +45,7 @@ public class RealtimeBundle implements ConfiguredBundle<RealtimeBundleConfigurat
             protected void configure() {
                 bind(httpClient).to(HttpClient.class);
                 bind(configuration).to(RealtimeBundleConfiguration.class);
+                bind(environment.metrics()).to(MetricRegistry.class);
                 bindFactory(RealtimeFeedLoadingCache.class, Singleton.class).to(RealtimeFeed.class);
             }
         });
@@ -18,6 +18,7 @@
 
 package com.graphhopper.gtfs.dropwizard;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -25,8 +26,8 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.transit.realtime.GtfsRealtime;
 import com.graphhopper.reader.gtfs.GtfsStorage;
-import com.graphhopper.reader.gtfs.PtEncodedValues;
 import com.graphhopper.reader.gtfs.RealtimeFeed;
+import com.graphhopper.reader.gtfs.RealtimeFeedUpdater;
 import com.graphhopper.storage.GraphHopperStorage;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
@@ -45,16 +46,18 @@ import java.util.concurrent.TimeUnit;
 public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed> {
 
     private final HttpClient httpClient;
-    private final GraphHopperStorage graphHopperStorage;
     private final GtfsStorage gtfsStorage;
     private final RealtimeBundleConfiguration bundleConfiguration;
+    private final RealtimeFeedUpdater updater;
+    private final MetricRegistry metrics;
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final LoadingCache<String, RealtimeFeed> cache;
 
     @Inject
-    RealtimeFeedLoadingCache(GraphHopperStorage graphHopperStorage, GtfsStorage gtfsStorage, HttpClient httpClient, RealtimeBundleConfiguration bundleConfiguration) {
-        this.graphHopperStorage = graphHopperStorage;
+    RealtimeFeedLoadingCache(GraphHopperStorage graphHopperStorage, GtfsStorage gtfsStorage, HttpClient httpClient, RealtimeBundleConfiguration bundleConfiguration, MetricRegistry metrics) {
         this.gtfsStorage = gtfsStorage;
+        this.updater = new RealtimeFeedUpdater(graphHopperStorage, gtfsStorage);
+        this.metrics = metrics;
         this.bundleConfiguration = bundleConfiguration;
         this.httpClient = httpClient;
         this.cache = CacheBuilder.newBuilder()
@@ -99,7 +102,14 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed> {
                 throw new RuntimeException(e);
             }
         }
-        return RealtimeFeed.fromProtobuf(graphHopperStorage, gtfsStorage, PtEncodedValues.fromEncodingManager(graphHopperStorage.getEncodingManager()), feedMessageMap);
+        RealtimeFeed realtimeFeed = updater.update(feedMessageMap);
+        metrics.timer("gtfs_realtime.update").update(updater.getLastUpdateNanos(), TimeUnit.NANOSECONDS);
+        if (updater.getLastUpdateAllocatedBytes() >= 0)
+            metrics.histogram("gtfs_realtime.update.allocated_bytes").update(updater.getLastUpdateAllocatedBytes());
+        metrics.histogram("gtfs_realtime.update.changed_trip_updates").update(updater.getLastChangedTripUpdates());
+        if (updater.isLastUpdateRebuilt())
+            metrics.counter("gtfs_realtime.update.rebuilds").inc();
+        return realtimeFeed;
     }
 
 }
@@ -0,0 +1,220 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.gtfs;
+
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.Transfer;
+import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Graph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Walking transfers between nearby stops, precomputed at import time by a foot search on the street network which
+ * is bounded by a maximum walking distance. Every stop gets a row in an adjacency table: the offset of its first
+ * foot path, and for every foot path the stop it leads to and the walking time in seconds. Stops are identified
+ * by their position in the sorted list of all stop ids.
+ * <p>
+ * {@link Transfers} turns the foot paths into transfers, so they end up in the time-expanded graph and in the
+ * RAPTOR timetable, and no street search between stops has to run during a query. Access and egress are still
+ * computed for every request.
+ */
+final class FootPathTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FootPathTable.class);
+    static final int NO_FOOT_PATH = -1;
+    // offset of the first foot path, one more entry than there are stops
+    private static final int STOP_BYTES = 4;
+    // stop, walking time in seconds
+    private static final int FOOT_PATH_BYTES = 8;
+
+    private final DataAccess stops;
+    private final DataAccess footPaths;
+    private int stopCount;
+    private int footPathCount;
+    private List<String> stopIds;
+    private final Map<String, Integer> stopIndex = new HashMap<>();
+
+    FootPathTable(Directory dir) {
+        stops = dir.find("gtfs_foot_path_stops");
+        footPaths = dir.find("gtfs_foot_paths");
+    }
+
+    /**
+     * @param stopIds the ids of all stops which have a station node, in any order
+     */
+    boolean loadExisting(Collection<String> stopIds) {
+        if (!stops.loadExisting())
+            return false;
+        if (!footPaths.loadExisting())
+            throw new IllegalStateException("Loaded foot path stops but cannot load the foot paths");
+        stopCount = stops.getHeader(0);
+        footPathCount = footPaths.getHeader(0);
+        init(stopIds);
+        if (this.stopIds.size() != stopCount)
+            throw new IllegalStateException("Foot path table has " + stopCount + " stops, but there are " + this.stopIds.size());
+        return true;
+    }
+
+    /**
+     * Searches the foot paths from every station node. Must be called when all stops are connected to the street
+     * network, and before the transit edges are added to the graph.
+     *
+     * @param maxDistance the maximum walking distance in meters. With 0, the table is created empty.
+     */
+    void create(Graph graph, Weighting footWeighting, Map<String, Integer> stationNodes, double maxDistance) {
+        stops.create(1000);
+        footPaths.create(1000);
+        init(stationNodes.keySet());
+        stopCount = stopIds.size();
+        Map<Integer, List<Integer>> stopsByNode = new HashMap<>();
+        for (int stop = 0; stop < stopCount; stop++) {
+            stopsByNode.computeIfAbsent(stationNodes.get(stopIds.get(stop)), n -> new ArrayList<>()).add(stop);
+        }
+        int[][] footPathsByStop = new int[stopCount][];
+        IntStream.range(0, stopCount).parallel().forEach(stop -> footPathsByStop[stop] = maxDistance > 0
+                ? searchFootPaths(graph, footWeighting, stationNodes.get(stopIds.get(stop)), stop, stopsByNode, maxDistance)
+                : new int[0]);
+        stops.ensureCapacity((long) (stopCount + 1) * STOP_BYTES);
+        for (int stop = 0; stop < stopCount; stop++) {
+            stops.setInt((long) stop * STOP_BYTES, footPathCount);
+            int[] result = footPathsByStop[stop];
+            footPaths.ensureCapacity((long) (footPathCount + result.length / 2) * FOOT_PATH_BYTES);
+            for (int i = 0; i < result.length; i += 2) {
+                footPaths.setInt((long) footPathCount * FOOT_PATH_BYTES, result[i]);
+                footPaths.setInt((long) footPathCount * FOOT_PATH_BYTES + 4, result[i + 1]);
+                footPathCount++;
+            }
+        }
+        stops.setInt((long) stopCount * STOP_BYTES, footPathCount);
+        flush();
+        logger.info("Created foot path table: {} foot paths of at most {}m between {} stops", footPathCount, maxDistance, stopCount);
+    }
+
+    private int[] searchFootPaths(Graph graph, Weighting footWeighting, int fromNode, int fromStop, Map<Integer, List<Integer>> stopsByNode, double maxDistance) {
+        ShortestPathTree shortestPathTree = new ShortestPathTree(graph, footWeighting, false);
+        shortestPathTree.setDistanceLimit(maxDistance);
+        List<int[]> result = new ArrayList<>();
+        shortestPathTree.search(fromNode, label -> {
+            if (label.distance > maxDistance)
+                return;
+            for (int toStop : stopsByNode.getOrDefault(label.adjNode, Collections.emptyList())) {
+                if (toStop != fromStop)
+                    result.add(new int[]{toStop, (int) (label.time / 1000L)});
+            }
+        });
+        result.sort(Comparator.comparingInt(footPath -> footPath[0]));
+        int[] flat = new int[result.size() * 2];
+        for (int i = 0; i < result.size(); i++) {
+            flat[2 * i] = result.get(i)[0];
+            flat[2 * i + 1] = result.get(i)[1];
+        }
+        return flat;
+    }
+
+    private void init(Collection<String> stopIds) {
+        this.stopIds = new ArrayList<>(stopIds);
+        Collections.sort(this.stopIds);
+        stopIndex.clear();
+        for (int stop = 0; stop < this.stopIds.size(); stop++) {
+            stopIndex.put(this.stopIds.get(stop), stop);
+        }
+    }
+
+    /**
+     * @return the walking time in seconds from one stop to another, or NO_FOOT_PATH if they are not within
+     * walking distance
+     */
+    int getWalkSeconds(String fromStopId, String toStopId) {
+        Integer from = stopIndex.get(fromStopId);
+        Integer to = stopIndex.get(toStopId);
+        if (from == null || to == null)
+            return NO_FOOT_PATH;
+        int low = stops.getInt((long) from * STOP_BYTES);
+        int high = stops.getInt((long) (from + 1) * STOP_BYTES) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midStop = footPaths.getInt((long) mid * FOOT_PATH_BYTES);
+            if (midStop < to)
+                low = mid + 1;
+            else if (midStop > to)
+                high = mid - 1;
+            else
+                return footPaths.getInt((long) mid * FOOT_PATH_BYTES + 4);
+        }
+        return NO_FOOT_PATH;
+    }
+
+    /**
+     * @return the walking time in seconds to every stop within walking distance of the specified stop, by stop id
+     */
+    Map<String, Integer> getFootPaths(String fromStopId) {
+        Integer from = stopIndex.get(fromStopId);
+        if (from == null)
+            return Collections.emptyMap();
+        Map<String, Integer> result = new LinkedHashMap<>();
+        int end = stops.getInt((long) (from + 1) * STOP_BYTES);
+        for (int footPath = stops.getInt((long) from * STOP_BYTES); footPath < end; footPath++) {
+            result.put(stopIds.get(footPaths.getInt((long) footPath * FOOT_PATH_BYTES)), footPaths.getInt((long) footPath * FOOT_PATH_BYTES + 4));
+        }
+        return result;
+    }
+
+    /**
+     * @return the foot paths between the stops of the specified feed as transfers with a minimum transfer time
+     */
+    List<Transfer> getTransfers(GTFSFeed feed) {
+        List<Transfer> result = new ArrayList<>();
+        for (String fromStopId : feed.stops.keySet()) {
+            getFootPaths(fromStopId).forEach((toStopId, seconds) -> {
+                if (feed.stops.containsKey(toStopId)) {
+                    Transfer transfer = new Transfer();
+                    transfer.from_stop_id = fromStopId;
+                    transfer.to_stop_id = toStopId;
+                    transfer.transfer_type = 2;
+                    transfer.min_transfer_time = seconds;
+                    result.add(transfer);
+                }
+            });
+        }
+        return result;
+    }
+
+    int getFootPathCount() {
+        return footPathCount;
+    }
+
+    void flush() {
+        stops.setHeader(0, stopCount);
+        footPaths.setHeader(0, footPathCount);
+        stops.flush();
+        footPaths.flush();
+    }
+
+    void close() {
+        stops.close();
+        footPaths.close();
+    }
+
+}
@@ -34,16 +34,25 @@ import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.PointList;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 import java.util.zip.ZipFile;
 
 public class GraphHopperGtfs extends GraphHopperOSM {
 
+    private static final Logger logger = LoggerFactory.getLogger(GraphHopperGtfs.class);
+
     private final GraphHopperConfig ghConfig;
     private GtfsStorage gtfsStorage;
 
@@ -122,19 +131,18 @@ public class GraphHopperGtfs extends GraphHopperOSM {
         if (!getGtfsStorage().loadExisting()) {
             getGtfsStorage().create();
             GraphHopperStorage graphHopperStorage = getGraphHopperStorage();
-            int idx = 0;
             List<String> gtfsFiles = ghConfig.has("gtfs.file") ? Arrays.asList(ghConfig.getString("gtfs.file", "").split(",")) : Collections.emptyList();
-            for (String gtfsFile : gtfsFiles) {
-                try {
-                    getGtfsStorage().loadGtfsFromZipFile("gtfs_" + idx++, new ZipFile(gtfsFile));
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            }
+            loadGtfsFeeds(gtfsFiles);
+            // Everything from here on writes to the graph, so the feeds are processed one by one.
             LocationIndex streetNetworkIndex = getLocationIndex();
+            getGtfsStorage().getGtfsFeeds().forEach((id, gtfsFeed) ->
+                    new GtfsReader(id, graphHopperStorage, graphHopperStorage.getEncodingManager(), getGtfsStorage(), streetNetworkIndex).connectStopsToStreetNetwork());
+            // Before the transit edges exist, the graph is just the street network.
+            FastestWeighting footWeighting = new FastestWeighting(graphHopperStorage.getEncodingManager().getEncoder("foot"));
+            getGtfsStorage().createFootPathTable(graphHopperStorage, footWeighting, ghConfig.getDouble("gtfs.max_transfer_distance", 0));
             getGtfsStorage().getGtfsFeeds().forEach((id, gtfsFeed) -> {
+                StopWatch stopWatch = new StopWatch().start();
                 GtfsReader gtfsReader = new GtfsReader(id, graphHopperStorage, graphHopperStorage.getEncodingManager(), getGtfsStorage(), streetNetworkIndex);
-                gtfsReader.connectStopsToStreetNetwork();
                 getType0TransferWithTimes(gtfsFeed)
                         .forEach(t -> {
                             t.transfer.transfer_type = 2;
@@ -142,17 +150,59 @@ public class GraphHopperGtfs extends GraphHopperOSM {
                             gtfsFeed.transfers.put(t.id, t.transfer);
                         });
                 try {
-                    gtfsReader.buildPtNetwork();
+                    gtfsReader.buildPtNetwork(getGtfsStorage().getFootPathTable().getTransfers(gtfsFeed));
                 } catch (Exception e) {
                     throw new RuntimeException("Error while constructing transit network. Is your GTFS file valid? Please check log for possible causes.", e);
                 }
+                logger.info("Built transit network of GTFS feed {} in {}s", id, stopWatch.stop().getSeconds());
             });
+            getGtfsStorage().createColumns();
             streetNetworkIndex.close();
             LocationIndex locationIndex = createLocationIndex(graphHopperStorage.getDirectory());
             setLocationIndex(locationIndex);
         }
     }
 
+    /**
+     * Parses and validates the feeds on a pool of gtfs.import_threads threads. Every feed has its own MapDB file, so
+     * this doesn't touch the graph or any other shared state.
+     */
+    private void loadGtfsFeeds(List<String> gtfsFiles) {
+        if (gtfsFiles.isEmpty())
+            return;
+        int threads = Math.max(1, Math.min(gtfsFiles.size(), ghConfig.getInt("gtfs.import_threads", Runtime.getRuntime().availableProcessors())));
+        logger.info("Loading {} GTFS feeds with {} threads", gtfsFiles.size(), threads);
+        ExecutorService threadPool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>(gtfsFiles.size());
+            for (int idx = 0; idx < gtfsFiles.size(); idx++) {
+                final String id = "gtfs_" + idx;
+                final String gtfsFile = gtfsFiles.get(idx);
+                results.add(threadPool.submit(() -> {
+                    StopWatch stopWatch = new StopWatch().start();
+                    GTFSFeed feed;
+                    try {
+                        feed = getGtfsStorage().loadGtfsFromZipFile(id, new ZipFile(gtfsFile));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    logger.info("Loaded GTFS feed {} from {} in {}s: {} stops, {} trips, {} stop times", id, gtfsFile,
+                            stopWatch.stop().getSeconds(), feed.stops.size(), feed.trips.size(), feed.stop_times.size());
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
     private Stream<TransferWithTime> getType0TransferWithTimes(GTFSFeed gtfsFeed) {
         GraphHopperStorage graphHopperStorage = getGraphHopperStorage();
         RealtimeFeed realtimeFeed = RealtimeFeed.empty(getGtfsStorage());
@@ -162,6 +212,14 @@ public class GraphHopperGtfs extends GraphHopperOSM {
                 .parallelStream()
                 .filter(e -> e.getValue().transfer_type == 0)
                 .map(e -> {
+                    int walkSeconds = getGtfsStorage().getFootPathTable().getWalkSeconds(e.getValue().from_stop_id, e.getValue().to_stop_id);
+                    if (walkSeconds != FootPathTable.NO_FOOT_PATH) {
+                        TransferWithTime transferWithTime = new TransferWithTime();
+                        transferWithTime.id = e.getKey();
+                        transferWithTime.transfer = e.getValue();
+                        transferWithTime.time = walkSeconds * 1000L;
+                        return transferWithTime;
+                    }
                     PointList points = new PointList(2, false);
                     final int fromnode = getGtfsStorage().getStationNodes().get(e.getValue().from_stop_id);
                     final QueryResult fromstation = new QueryResult(graphHopperStorage.getNodeAccess().getLat(fromnode), graphHopperStorage.getNodeAccess().getLon(fromnode));
@@ -0,0 +1,397 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.Stop;
+import com.conveyal.gtfs.model.StopTime;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.transit.realtime.GtfsRealtime;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.BitUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The parts of the GTFS feeds which are needed after the import, converted to flat columns: the stops, the stop
+ * times of every trip ordered by stop_sequence, and the trip descriptor and stop sequence of every transit edge.
+ * They are written once at import time into DataAccess files next to the graph, so loading the graph and building
+ * responses doesn't go through the MapDB tables of the feeds and their Java serialization.
+ * <p>
+ * Strings are stored once in a separate column and referenced by pointer. Trip descriptors are stored once per
+ * distinct descriptor and decoded when loading.
+ */
+final class GtfsColumns {
+
+    private static final Logger logger = LoggerFactory.getLogger(GtfsColumns.class);
+    static final int NO_STOP_SEQUENCE = -1;
+    private static final long NO_STRING = -1;
+    // trip descriptor + 1 (0 if none), stop sequence
+    private static final int EDGE_BYTES = 8;
+    // feed, trip id, route id, first stop time, number of stop times
+    private static final int TRIP_BYTES = 28;
+    // stop sequence, arrival time, departure time, stop
+    private static final int STOP_TIME_BYTES = 16;
+    // feed, stop id, stop name, zone id, lat, lon
+    private static final int STOP_BYTES = 44;
+    // serialized trip descriptor
+    private static final int DESCRIPTOR_BYTES = 8;
+
+    private final DataAccess edges;
+    private final DataAccess trips;
+    private final DataAccess stopTimes;
+    private final DataAccess stops;
+    private final DataAccess descriptors;
+    private final DataAccess strings;
+    private int edgeCount;
+    private int tripCount;
+    private int stopTimeCount;
+    private int stopCount;
+    private int descriptorCount;
+    private long stringPointer;
+    private final Map<String, Long> stringPointers = new HashMap<>();
+
+    private List<String> feedIds;
+    private GtfsRealtime.TripDescriptor[] decodedDescriptors;
+    private final Map<String, Map<String, Integer>> tripsByFeed = new HashMap<>();
+    private final Map<String, Map<String, Integer>> stopsByFeed = new HashMap<>();
+
+    GtfsColumns(Directory dir) {
+        edges = dir.find("gtfs_edges");
+        trips = dir.find("gtfs_trips");
+        stopTimes = dir.find("gtfs_stop_times");
+        stops = dir.find("gtfs_stops");
+        descriptors = dir.find("gtfs_trip_descriptors");
+        strings = dir.find("gtfs_strings");
+    }
+
+    /**
+     * @param feedIds the ids of the feeds in the GtfsStorage, in any order
+     */
+    boolean loadExisting(Collection<String> feedIds) {
+        if (!edges.loadExisting())
+            return false;
+        if (!trips.loadExisting() || !stopTimes.loadExisting() || !stops.loadExisting() || !descriptors.loadExisting() || !strings.loadExisting())
+            throw new IllegalStateException("Loaded GTFS edge columns but cannot load the other columns");
+        edgeCount = edges.getHeader(0);
+        tripCount = trips.getHeader(0);
+        stopTimeCount = stopTimes.getHeader(0);
+        stopCount = stops.getHeader(0);
+        descriptorCount = descriptors.getHeader(0);
+        stringPointer = BitUtil.LITTLE.combineIntsToLong(strings.getHeader(0), strings.getHeader(4));
+        init(feedIds);
+        return true;
+    }
+
+    /**
+     * Converts the feeds and the edge tables of the specified storage, which must be completely imported.
+     */
+    void create(GtfsStorage gtfsStorage) {
+        edges.create(1000);
+        trips.create(1000);
+        stopTimes.create(1000);
+        stops.create(1000);
+        descriptors.create(1000);
+        strings.create(1000);
+        List<String> feedIds = new ArrayList<>(gtfsStorage.getGtfsFeeds().keySet());
+        Collections.sort(feedIds);
+        for (int feed = 0; feed < feedIds.size(); feed++) {
+            addFeed(feed, gtfsStorage.getGtfsFeeds().get(feedIds.get(feed)));
+        }
+        addEdges(gtfsStorage.getTripDescriptors(), gtfsStorage.getStopSequences());
+        stringPointers.clear();
+        flush();
+        init(feedIds);
+        logger.info("Created GTFS columns: {} trips, {} stop times, {} stops, {} trip descriptors for {} edges",
+                tripCount, stopTimeCount, stopCount, descriptorCount, edgeCount);
+    }
+
+    private void addFeed(int feed, GTFSFeed gtfsFeed) {
+        Map<String, Integer> stopIndex = new HashMap<>();
+        for (Stop stop : gtfsFeed.stops.values()) {
+            stopIndex.put(stop.stop_id, addStop(feed, stop.stop_id, stop.stop_name, stop.zone_id, stop.stop_lat, stop.stop_lon));
+        }
+        // stop_times is ordered by trip and stop_sequence, so the stop times of every trip are one range
+        String tripId = null;
+        long tripPointer = -1;
+        for (StopTime stopTime : gtfsFeed.stop_times.values()) {
+            if (!stopTime.trip_id.equals(tripId)) {
+                tripId = stopTime.trip_id;
+                com.conveyal.gtfs.model.Trip trip = gtfsFeed.trips.get(tripId);
+                tripPointer = (long) tripCount * TRIP_BYTES;
+                trips.ensureCapacity(tripPointer + TRIP_BYTES);
+                trips.setInt(tripPointer, feed);
+                setLong(trips, tripPointer + 4, addString(tripId));
+                setLong(trips, tripPointer + 12, addString(trip == null ? null : trip.route_id));
+                trips.setInt(tripPointer + 20, stopTimeCount);
+                trips.setInt(tripPointer + 24, 0);
+                tripCount++;
+            }
+            Integer stop = stopIndex.get(stopTime.stop_id);
+            if (stop == null) {
+                // the feed has already logged an error for this, but we must not lose the stop id
+                stop = addStop(feed, stopTime.stop_id, null, null, Double.NaN, Double.NaN);
+                stopIndex.put(stopTime.stop_id, stop);
+            }
+            long pointer = (long) stopTimeCount * STOP_TIME_BYTES;
+            stopTimes.ensureCapacity(pointer + STOP_TIME_BYTES);
+            stopTimes.setInt(pointer, stopTime.stop_sequence);
+            stopTimes.setInt(pointer + 4, stopTime.arrival_time);
+            stopTimes.setInt(pointer + 8, stopTime.departure_time);
+            stopTimes.setInt(pointer + 12, stop);
+            stopTimeCount++;
+            trips.setInt(tripPointer + 24, trips.getInt(tripPointer + 24) + 1);
+        }
+    }
+
+    private int addStop(int feed, String stopId, String stopName, String zoneId, double lat, double lon) {
+        long pointer = (long) stopCount * STOP_BYTES;
+        stops.ensureCapacity(pointer + STOP_BYTES);
+        stops.setInt(pointer, feed);
+        setLong(stops, pointer + 4, addString(stopId));
+        setLong(stops, pointer + 12, addString(stopName));
+        setLong(stops, pointer + 20, addString(zoneId));
+        setLong(stops, pointer + 28, Double.doubleToLongBits(lat));
+        setLong(stops, pointer + 36, Double.doubleToLongBits(lon));
+        return stopCount++;
+    }
+
+    private void addEdges(Map<Integer, byte[]> tripDescriptors, Map<Integer, Integer> stopSequences) {
+        int maxEdge = -1;
+        for (int edge : tripDescriptors.keySet()) {
+            maxEdge = Math.max(maxEdge, edge);
+        }
+        for (int edge : stopSequences.keySet()) {
+            maxEdge = Math.max(maxEdge, edge);
+        }
+        edgeCount = maxEdge + 1;
+        edges.ensureCapacity((long) edgeCount * EDGE_BYTES);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            edges.setInt((long) edge * EDGE_BYTES, 0);
+            edges.setInt((long) edge * EDGE_BYTES + 4, NO_STOP_SEQUENCE);
+        }
+        Map<ByteBuffer, Integer> descriptorIndex = new HashMap<>();
+        tripDescriptors.forEach((edge, bytes) -> {
+            int descriptor = descriptorIndex.computeIfAbsent(ByteBuffer.wrap(bytes), b -> {
+                long pointer = (long) descriptorCount * DESCRIPTOR_BYTES;
+                descriptors.ensureCapacity(pointer + DESCRIPTOR_BYTES);
+                setLong(descriptors, pointer, addBytes(bytes));
+                return descriptorCount++;
+            });
+            edges.setInt((long) edge * EDGE_BYTES, descriptor + 1);
+        });
+        stopSequences.forEach((edge, stopSequence) -> edges.setInt((long) edge * EDGE_BYTES + 4, stopSequence));
+    }
+
+    private long addString(String value) {
+        if (value == null)
+            return NO_STRING;
+        return stringPointers.computeIfAbsent(value, v -> addBytes(v.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private long addBytes(byte[] bytes) {
+        long pointer = stringPointer;
+        strings.ensureCapacity(pointer + 4 + bytes.length);
+        strings.setInt(pointer, bytes.length);
+        strings.setBytes(pointer + 4, bytes, bytes.length);
+        stringPointer += 4 + bytes.length;
+        return pointer;
+    }
+
+    private void init(Collection<String> feedIds) {
+        this.feedIds = new ArrayList<>(feedIds);
+        Collections.sort(this.feedIds);
+        decodedDescriptors = new GtfsRealtime.TripDescriptor[descriptorCount];
+        for (int descriptor = 0; descriptor < descriptorCount; descriptor++) {
+            try {
+                decodedDescriptors[descriptor] = GtfsRealtime.TripDescriptor.parseFrom(getBytes(getLong(descriptors, (long) descriptor * DESCRIPTOR_BYTES)));
+            } catch (InvalidProtocolBufferException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        tripsByFeed.clear();
+        for (int trip = 0; trip < tripCount; trip++) {
+            long pointer = (long) trip * TRIP_BYTES;
+            tripsByFeed.computeIfAbsent(this.feedIds.get(trips.getInt(pointer)), f -> new HashMap<>())
+                    .put(getString(getLong(trips, pointer + 4)), trip);
+        }
+        stopsByFeed.clear();
+        for (int stop = 0; stop < stopCount; stop++) {
+            long pointer = (long) stop * STOP_BYTES;
+            stopsByFeed.computeIfAbsent(this.feedIds.get(stops.getInt(pointer)), f -> new HashMap<>())
+                    .put(getString(getLong(stops, pointer + 4)), stop);
+        }
+    }
+
+    /**
+     * @return the trip descriptor of a board or alight edge, or null
+     */
+    GtfsRealtime.TripDescriptor getTripDescriptor(int edge) {
+        if (edge < 0 || edge >= edgeCount)
+            return null;
+        int descriptor = edges.getInt((long) edge * EDGE_BYTES);
+        return descriptor == 0 ? null : decodedDescriptors[descriptor - 1];
+    }
+
+    /**
+     * @return the stop sequence of a board, alight or hop edge, or NO_STOP_SEQUENCE
+     */
+    int getStopSequence(int edge) {
+        if (edge < 0 || edge >= edgeCount)
+            return NO_STOP_SEQUENCE;
+        return edges.getInt((long) edge * EDGE_BYTES + 4);
+    }
+
+    /**
+     * @return the stop time with the specified stop_sequence as it is in the feed, or null. Only trip_id, stop_id,
+     * stop_sequence, arrival_time and departure_time are set.
+     */
+    StopTime getStopTime(String feedId, String tripId, int stopSequence) {
+        Integer trip = tripsByFeed.getOrDefault(feedId, Collections.emptyMap()).get(tripId);
+        if (trip == null)
+            return null;
+        long tripPointer = (long) trip * TRIP_BYTES;
+        int low = trips.getInt(tripPointer + 20);
+        int high = low + trips.getInt(tripPointer + 24) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midStopSequence = stopTimes.getInt((long) mid * STOP_TIME_BYTES);
+            if (midStopSequence < stopSequence)
+                low = mid + 1;
+            else if (midStopSequence > stopSequence)
+                high = mid - 1;
+            else
+                return createStopTime(tripId, mid);
+        }
+        return null;
+    }
+
+    /**
+     * @return the stop times of a trip ordered by stop_sequence, like GTFSFeed.getOrderedStopTimesForTrip
+     */
+    List<StopTime> getStopTimes(String feedId, String tripId) {
+        Integer trip = tripsByFeed.getOrDefault(feedId, Collections.emptyMap()).get(tripId);
+        if (trip == null)
+            return Collections.emptyList();
+        long tripPointer = (long) trip * TRIP_BYTES;
+        int first = trips.getInt(tripPointer + 20);
+        int count = trips.getInt(tripPointer + 24);
+        List<StopTime> result = new ArrayList<>(count);
+        for (int stopTime = first; stopTime < first + count; stopTime++) {
+            result.add(createStopTime(tripId, stopTime));
+        }
+        return result;
+    }
+
+    private StopTime createStopTime(String tripId, int stopTime) {
+        long pointer = (long) stopTime * STOP_TIME_BYTES;
+        StopTime result = new StopTime();
+        result.trip_id = tripId;
+        result.stop_sequence = stopTimes.getInt(pointer);
+        result.arrival_time = stopTimes.getInt(pointer + 4);
+        result.departure_time = stopTimes.getInt(pointer + 8);
+        result.stop_id = getString(getLong(stops, (long) stopTimes.getInt(pointer + 12) * STOP_BYTES + 4));
+        return result;
+    }
+
+    /**
+     * @return the stop, or null. Only stop_id, stop_name, zone_id, stop_lat and stop_lon are set.
+     */
+    Stop getStop(String feedId, String stopId) {
+        Integer stop = stopsByFeed.getOrDefault(feedId, Collections.emptyMap()).get(stopId);
+        if (stop == null)
+            return null;
+        long pointer = (long) stop * STOP_BYTES;
+        Stop result = new Stop();
+        result.stop_id = stopId;
+        result.stop_name = getString(getLong(stops, pointer + 12));
+        result.zone_id = getString(getLong(stops, pointer + 20));
+        result.stop_lat = Double.longBitsToDouble(getLong(stops, pointer + 28));
+        result.stop_lon = Double.longBitsToDouble(getLong(stops, pointer + 36));
+        return result;
+    }
+
+    /**
+     * @return the ids of the routes of all trips which stop at each stop of the feed
+     */
+    Map<String, Set<String>> getRoutesByStop(String feedId) {
+        Map<String, Set<String>> result = new HashMap<>();
+        for (int trip : tripsByFeed.getOrDefault(feedId, Collections.emptyMap()).values()) {
+            long tripPointer = (long) trip * TRIP_BYTES;
+            String routeId = getString(getLong(trips, tripPointer + 12));
+            int first = trips.getInt(tripPointer + 20);
+            int count = trips.getInt(tripPointer + 24);
+            for (int stopTime = first; stopTime < first + count; stopTime++) {
+                int stop = stopTimes.getInt((long) stopTime * STOP_TIME_BYTES + 12);
+                result.computeIfAbsent(getString(getLong(stops, (long) stop * STOP_BYTES + 4)), s -> new HashSet<>()).add(routeId);
+            }
+        }
+        return result;
+    }
+
+    private String getString(long pointer) {
+        return pointer == NO_STRING ? null : new String(getBytes(pointer), StandardCharsets.UTF_8);
+    }
+
+    private byte[] getBytes(long pointer) {
+        byte[] bytes = new byte[strings.getInt(pointer)];
+        strings.getBytes(pointer + 4, bytes, bytes.length);
+        return bytes;
+    }
+
+    private static long getLong(DataAccess da, long pointer) {
+        return BitUtil.LITTLE.combineIntsToLong(da.getInt(pointer), da.getInt(pointer + 4));
+    }
+
+    private static void setLong(DataAccess da, long pointer, long value) {
+        da.setInt(pointer, BitUtil.LITTLE.getIntLow(value));
+        da.setInt(pointer + 4, BitUtil.LITTLE.getIntHigh(value));
+    }
+
+    void flush() {
+        edges.setHeader(0, edgeCount);
+        trips.setHeader(0, tripCount);
+        stopTimes.setHeader(0, stopTimeCount);
+        stops.setHeader(0, stopCount);
+        descriptors.setHeader(0, descriptorCount);
+        strings.setHeader(0, BitUtil.LITTLE.getIntLow(stringPointer));
+        strings.setHeader(4, BitUtil.LITTLE.getIntHigh(stringPointer));
+        edges.flush();
+        trips.flush();
+        stopTimes.flush();
+        stops.flush();
+        descriptors.flush();
+        strings.flush();
+    }
+
+    void close() {
+        edges.close();
+        trips.close();
+        stopTimes.close();
+        stops.close();
+        descriptors.close();
+        strings.close();
+    }
+
+}
@@ -19,6 +19,7 @@
 package com.graphhopper.reader.gtfs;
 
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
 import com.conveyal.gtfs.GTFSFeed;
 import com.conveyal.gtfs.model.*;
 import com.google.common.collect.HashMultimap;
@@ -71,6 +72,33 @@ class GtfsReader {
         Set<Integer> cancelledDeparture;
     }
 
+    /**
+     * The timeline nodes of realtime departures and arrivals by stop and platform, see
+     * {@link #startAdditionalTimelines(Timelines)}.
+     */
+    static class Timelines {
+        static final Timelines EMPTY = new Timelines(Collections.emptyMap(), Collections.emptyMap());
+
+        final Map<String, Map<GtfsStorageI.PlatformDescriptor, NavigableMap<Integer, Integer>>> departureTimelinesByStop;
+        final Map<String, Map<GtfsStorageI.PlatformDescriptor, NavigableMap<Integer, Integer>>> arrivalTimelinesByStop;
+
+        Timelines(Map<String, Map<GtfsStorageI.PlatformDescriptor, NavigableMap<Integer, Integer>>> departureTimelinesByStop,
+                  Map<String, Map<GtfsStorageI.PlatformDescriptor, NavigableMap<Integer, Integer>>> arrivalTimelinesByStop) {
+            this.departureTimelinesByStop = copy(departureTimelinesByStop);
+            this.arrivalTimelinesByStop = copy(arrivalTimelinesByStop);
+        }
+
+        static Map<String, Map<GtfsStorageI.PlatformDescriptor, NavigableMap<Integer, Integer>>> copy(Map<String, Map<GtfsStorageI.PlatformDescriptor, NavigableMap<Integer, Integer>>> timelinesByStop) {
+            Map<String, Map<GtfsStorageI.PlatformDescriptor, NavigableMap<Integer, Integer>>> result = new HashMap<>();
+            timelinesByStop.forEach((stopId, timelines) -> {
+                Map<GtfsStorageI.PlatformDescriptor, NavigableMap<Integer, Integer>> copy = new HashMap<>();
+                timelines.forEach((platformDescriptor, timeline) -> copy.put(platformDescriptor, new TreeMap<>(timeline)));
+                result.put(stopId, copy);
+            });
+            return result;
+        }
+    }
+
     private static final Logger LOGGER = LoggerFactory.getLogger(GtfsReader.class);
 
     private final Graph graph;
@@ -132,9 +160,12 @@ class GtfsReader {
         }
     }
 
-    void buildPtNetwork() {
+    /**
+     * @param footPaths walking transfers to other stops of this feed, in addition to those from transfers.txt
+     */
+    void buildPtNetwork(List<Transfer> footPaths) {
         gtfsStorage.getFares().putAll(feed.fares);
-        transfers = new Transfers(feed);
+        transfers = new Transfers(feed, footPaths);
         gtfsStorage.getTransfers().put(id, transfers);
         createTrips();
         wireUpStops();
@@ -237,7 +268,36 @@ class GtfsReader {
         });
     }
 
-    void wireUpAdditionalDeparturesAndArrivals(ZoneId zoneId) {
+    /**
+     * Starts adding realtime departures and arrivals to the timelines of a previous realtime overlay, so a
+     * departure or arrival at the same stop, platform and time as before uses the same timeline node.
+     */
+    void startAdditionalTimelines(Timelines timelines) {
+        departureTimelinesByStop.clear();
+        departureTimelinesByStop.putAll(Timelines.copy(timelines.departureTimelinesByStop));
+        arrivalTimelinesByStop.clear();
+        arrivalTimelinesByStop.putAll(Timelines.copy(timelines.arrivalTimelinesByStop));
+        continueAdditionalTimelines();
+    }
+
+    /**
+     * Continues with the node ids after the ones of the graph, which other readers may have added nodes to.
+     */
+    void continueAdditionalTimelines() {
+        i = graph.getNodes();
+    }
+
+    /**
+     * Wires up all timelines of the realtime departures and arrivals at once, so the nodes of a timeline are
+     * connected with each other. Timeline nodes which are not in the specified set are not used by any trip
+     * anymore and are dropped.
+     *
+     * @return the wired up timelines
+     */
+    Timelines wireUpAdditionalDeparturesAndArrivals(ZoneId zoneId, IntHashSet timelineNodes) {
+        retainTimelineNodes(departureTimelinesByStop, timelineNodes);
+        retainTimelineNodes(arrivalTimelinesByStop, timelineNodes);
+        continueAdditionalTimelines();
         departureTimelinesByStop.forEach((stopId, departureTimelines) -> {
             int stationNode = gtfsStorage.getStationNodes().get(stopId);
             Stop stop = feed.stops.get(stopId);
@@ -250,6 +310,15 @@ class GtfsReader {
             arrivalTimelines.forEach(((platformDescriptor, timeline) ->
                     wireUpOrPatchArrivalTimeline(zoneId, stationNode, stop, routeIdOrNull(platformDescriptor), timeline, platformDescriptor)));
         });
+        return new Timelines(departureTimelinesByStop, arrivalTimelinesByStop);
+    }
+
+    private static void retainTimelineNodes(Map<String, Map<GtfsStorageI.PlatformDescriptor, NavigableMap<Integer, Integer>>> timelinesByStop, IntHashSet timelineNodes) {
+        timelinesByStop.values().forEach(timelines -> {
+            timelines.values().forEach(timeline -> timeline.values().removeIf(node -> !timelineNodes.contains(node)));
+            timelines.values().removeIf(Map::isEmpty);
+        });
+        timelinesByStop.values().removeIf(Map::isEmpty);
     }
 
     private void addTrips(ZoneId zoneId, List<TripWithStopTimes> trips, int time, boolean frequencyBased) {
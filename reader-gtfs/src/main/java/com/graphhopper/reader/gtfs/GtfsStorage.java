@@ -21,7 +21,9 @@ package com.graphhopper.reader.gtfs;
 import com.conveyal.gtfs.GTFSFeed;
 import com.conveyal.gtfs.model.Fare;
 import com.google.transit.realtime.GtfsRealtime;
+import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Graph;
 import org.mapdb.Bind;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
@@ -104,6 +106,12 @@ public class GtfsStorage implements GtfsStorageI {
 
 	private Map<String, Integer> stationNodes;
 
+	private GtfsColumns columns;
+
+	private FootPathTable footPathTable;
+
+	private RaptorTimetable raptorTimetable;
+
 	public enum EdgeType {
 		HIGHWAY, ENTER_TIME_EXPANDED_NETWORK, LEAVE_TIME_EXPANDED_NETWORK, ENTER_PT, EXIT_PT, HOP, DWELL, BOARD, ALIGHT, OVERNIGHT, TRANSFER, WAIT, WAIT_ARRIVAL
     }
@@ -124,7 +132,20 @@ public class GtfsStorage implements GtfsStorageI {
 		for (String gtfsFeedId : this.gtfsFeedIds) {
 			GTFSFeed feed = new GTFSFeed(new File(dir.getLocation() + "/" + gtfsFeedId));
 			this.gtfsFeeds.put(gtfsFeedId, feed);
-			this.transfers.put(gtfsFeedId, new Transfers(feed));
+		}
+		this.columns = new GtfsColumns(dir);
+		if (!columns.loadExisting(gtfsFeedIds)) {
+			// graphs imported before the columns existed
+			columns.create(this);
+		}
+		this.footPathTable = new FootPathTable(dir);
+		if (!footPathTable.loadExisting(stationNodes.keySet())) {
+			// graphs imported before the foot path table existed
+			footPathTable.create(null, null, stationNodes, 0);
+		}
+		for (String gtfsFeedId : this.gtfsFeedIds) {
+			GTFSFeed feed = gtfsFeeds.get(gtfsFeedId);
+			this.transfers.put(gtfsFeedId, new Transfers(feed, columns.getRoutesByStop(gtfsFeedId), footPathTable.getTransfers(feed)));
 		}
 		return true;
 	}
@@ -160,23 +181,53 @@ public class GtfsStorage implements GtfsStorageI {
 		this.routes = data.getHashMap("routes");
 	}
 
-	void loadGtfsFromZipFile(String id, ZipFile zipFile) {
+	/**
+	 * Can be called concurrently for different feeds.
+	 */
+	GTFSFeed loadGtfsFromZipFile(String id, ZipFile zipFile) {
 		File dbFile = new File(dir.getLocation() + "/" + id);
+		GTFSFeed feed;
 		try {
 			Files.deleteIfExists(dbFile.toPath());
-			GTFSFeed feed = new GTFSFeed(dbFile);
+			feed = new GTFSFeed(dbFile);
 			feed.loadFromFileAndLogErrors(zipFile);
-			this.gtfsFeeds.put(id, feed);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
-		this.gtfsFeedIds.add(id);
+		synchronized (this) {
+			this.gtfsFeeds.put(id, feed);
+			this.gtfsFeedIds.add(id);
+		}
+		return feed;
+	}
+
+	/**
+	 * Converts what is needed after the import into GtfsColumns. Must be called when all feeds are imported.
+	 */
+	void createColumns() {
+		this.columns = new GtfsColumns(dir);
+		columns.create(this);
+	}
+
+	/**
+	 * Searches the walking transfers between all stops within the specified distance. Must be called when all
+	 * stops are connected to the street network, and before the transit network is built.
+	 */
+	void createFootPathTable(Graph graph, Weighting footWeighting, double maxDistance) {
+		this.footPathTable = new FootPathTable(dir);
+		footPathTable.create(graph, footWeighting, stationNodes, maxDistance);
 	}
 
 	public void close() {
 		if (!isClosed) {
 			isClosed = true;
 			data.close();
+			if (columns != null) {
+				columns.close();
+			}
+			if (footPathTable != null) {
+				footPathTable.close();
+			}
 			for (GTFSFeed feed : gtfsFeeds.values()) {
 				feed.close();
 			}
@@ -242,6 +293,24 @@ public class GtfsStorage implements GtfsStorageI {
 		return stationNodes;
 	}
 
+	GtfsColumns getColumns() {
+		return columns;
+	}
+
+	FootPathTable getFootPathTable() {
+		return footPathTable;
+	}
+
+	/**
+	 * The timetable of all feeds for the RAPTOR engine, created on first use.
+	 */
+	synchronized RaptorTimetable getRaptorTimetable() {
+		if (raptorTimetable == null) {
+			raptorTimetable = RaptorTimetable.build(this);
+		}
+		return raptorTimetable;
+	}
+
 	static String tripKey(GtfsRealtime.TripDescriptor tripDescriptor, boolean isFrequencyBased) {
 		if (isFrequencyBased) {
 			return tripDescriptor.getTripId()+tripDescriptor.getStartTime();
@@ -86,7 +86,10 @@ public final class PtRouteResource {
                             @QueryParam("locale") String localeStr,
                             @QueryParam("pt.ignore_transfers") Boolean ignoreTransfers,
                             @QueryParam("pt.profile") Boolean profileQuery,
-                            @QueryParam("pt.limit_solutions") Integer limitSolutions) {
+                            @QueryParam("pt.limit_solutions") Integer limitSolutions,
+                            @QueryParam("pt.raptor") @DefaultValue("false") boolean raptor,
+                            @QueryParam("pt.max_transfers") Integer maxTransfers,
+                            @QueryParam("pt.max_walk_distance_per_leg") Double maxWalkDistancePerLeg) {
 
         if (departureTimeString == null) {
             throw new BadRequestException(String.format(Locale.ROOT, "Illegal value for required parameter %s: [%s]", "pt.earliest_departure_time", departureTimeString));
@@ -104,6 +107,9 @@ public final class PtRouteResource {
         Optional.ofNullable(ignoreTransfers).ifPresent(request::setIgnoreTransfers);
         Optional.ofNullable(localeStr).ifPresent(s -> request.setLocale(Helper.getLocale(s)));
         Optional.ofNullable(limitSolutions).ifPresent(request::setLimitSolutions);
+        request.setRaptor(raptor);
+        Optional.ofNullable(maxTransfers).ifPresent(request::setMaxTransfers);
+        Optional.ofNullable(maxWalkDistancePerLeg).ifPresent(request::setMaxWalkDistancePerLeg);
 
         GHResponse route = new RequestHandler(request).route();
         return WebHelper.jsonObject(route, true, true, false, false, 0.0f);
@@ -151,6 +157,9 @@ public final class PtRouteResource {
         private final double betaWalkTime;
         private final double walkSpeedKmH;
         private final int blockedRouteTypes;
+        private final boolean raptor;
+        private final int maxTransfers;
+        private final double maxWalkDistancePerLeg;
         private final GHLocation enter;
         private final GHLocation exit;
         private final Translation translation;
@@ -173,6 +182,12 @@ public final class PtRouteResource {
             walkSpeedKmH = request.getWalkSpeedKmH();
             blockedRouteTypes = request.getBlockedRouteTypes();
             translation = translationMap.getWithFallBack(request.getLocale());
+            raptor = request.isRaptor();
+            maxTransfers = request.getMaxTransfers();
+            maxWalkDistancePerLeg = request.getMaxWalkDistancePerLeg();
+            if (raptor && profileQuery) {
+                throw new IllegalArgumentException("Profile queries are not supported by the RAPTOR engine");
+            }
             if (request.getPoints().size() != 2) {
                 throw new IllegalArgumentException("Exactly 2 points have to be specified, but was:" + request.getPoints().size());
             }
@@ -214,6 +229,10 @@ public final class PtRouteResource {
             queryGraph = QueryGraph.lookup(graphWithExtraEdges, pointQueryResults); // modifies queryResults
             response.addDebugInfo("idLookup:" + stopWatch.stop().getSeconds() + "s");
 
+            if (raptor) {
+                routeWithRaptor(allQueryResults.get(0).getClosestNode(), allQueryResults.get(1).getClosestNode(), points);
+                return response;
+            }
             int startNode;
             int destNode;
             if (arriveBy) {
@@ -314,7 +333,7 @@ public final class PtRouteResource {
                     break;
                 }
                 Label reverseLabel = reverseSettledSet.get(label.adjNode);
-                if (reverseLabel != null) {
+                if (reverseLabel != null && label.nTransfers + reverseLabel.nTransfers - 1 <= maxTransfers) {
                     Label combinedSolution = new Label(label.currentTime - reverseLabel.currentTime + initialTime.toEpochMilli(), -1, label.adjNode, label.nTransfers + reverseLabel.nTransfers, label.walkDistanceOnCurrentLeg + reverseLabel.walkDistanceOnCurrentLeg, label.departureTime, label.walkTime + reverseLabel.walkTime, 0, label.impossible, null);
                     if (router.isNotDominatedByAnyOf(combinedSolution, discoveredSolutions)) {
                         router.removeDominated(combinedSolution, discoveredSolutions);
@@ -382,6 +401,97 @@ public final class PtRouteResource {
             return paths;
         }
 
+        private void routeWithRaptor(int originNode, int destinationNode, PointList waypoints) {
+            StopWatch stopWatch = new StopWatch().start();
+            final RaptorTimetable timetable = realtimeFeed.getRaptorTimetable();
+            final Map<Integer, Label> originLabels = walk(originNode, destinationNode, false);
+            final Map<Integer, Label> destinationLabels = walk(destinationNode, originNode, true);
+            final int[] originSeconds = walkSecondsToStops(timetable, originLabels);
+            final int[] destinationSeconds = walkSecondsToStops(timetable, destinationLabels);
+            final Label directWalk = arriveBy ? destinationLabels.get(originNode) : originLabels.get(destinationNode);
+            final int directWalkSeconds = directWalk != null ? walkSeconds(directWalk) : Raptor.UNREACHED;
+
+            final Raptor router = new Raptor(arriveBy ? timetable.reversed() : timetable,
+                    maxTransfers == Integer.MAX_VALUE ? Integer.MAX_VALUE : maxTransfers + 1, blockedRouteTypes);
+            List<Raptor.Journey> journeys = arriveBy ? router.route(initialTime, destinationSeconds, originSeconds, directWalkSeconds)
+                    : router.route(initialTime, originSeconds, destinationSeconds, directWalkSeconds);
+            if (ignoreTransfers && !journeys.isEmpty()) {
+                journeys = journeys.subList(journeys.size() - 1, journeys.size());
+            }
+            if (directWalk != null && (journeys.isEmpty() || !ignoreTransfers)) {
+                List<Label.Transition> transitions = Label.getTransitions(directWalk, arriveBy, ptEncodedValues, queryGraph);
+                final PathWrapper pathWrapper = tripFromLabel.createPathWrapper(translation, waypoints, tripFromLabel.getTrip(translation, queryGraph, accessEgressWeighting, transitions));
+                pathWrapper.setTime(directWalkSeconds * 1000L);
+                response.add(pathWrapper);
+            }
+            for (Raptor.Journey journey : journeys) {
+                final Label originLabel = originLabels.get(timetable.stationNodes[journey.originStop]);
+                final Label destinationLabel = destinationLabels.get(timetable.stationNodes[journey.destinationStop]);
+                final List<Trip.Leg> legs = new ArrayList<>(tripFromLabel.getTrip(translation, queryGraph, accessEgressWeighting,
+                        Label.getTransitions(originLabel, false, ptEncodedValues, queryGraph)));
+                for (Raptor.Ride ride : journey.rides) {
+                    legs.add(tripFromLabel.getPtLeg(timetable, ride));
+                }
+                legs.addAll(tripFromLabel.getTrip(translation, queryGraph, accessEgressWeighting,
+                        Label.getTransitions(destinationLabel, true, ptEncodedValues, queryGraph)));
+                final PathWrapper pathWrapper = tripFromLabel.createPathWrapper(translation, waypoints, legs);
+                if (arriveBy) {
+                    long departureTime = journey.rides.get(0).getDepartureTime() * 1000 - walkMillis(originLabel);
+                    pathWrapper.setTime(initialTime.toEpochMilli() - departureTime);
+                } else {
+                    long arrivalTime = journey.rides.get(journey.rides.size() - 1).getArrivalTime() * 1000 + walkMillis(destinationLabel);
+                    pathWrapper.setTime(arrivalTime - initialTime.toEpochMilli());
+                }
+                response.add(pathWrapper);
+            }
+            response.getAll().sort(Comparator.comparingDouble(PathWrapper::getTime));
+            if (response.getAll().size() > limitSolutions) {
+                response.getAll().subList(limitSolutions, response.getAll().size()).clear();
+            }
+            response.addDebugInfo("routing:" + stopWatch.stop().getSeconds() + "s");
+            response.getHints().putObject("visited_nodes.sum", visitedNodes);
+            response.getHints().putObject("visited_nodes.average", visitedNodes);
+            if (response.getAll().isEmpty()) {
+                response.addError(new RuntimeException("No route found"));
+            }
+        }
+
+        /**
+         * Walks from the given node, forward or backward in time, until the other end of the query is reached,
+         * because no stop further away can be part of a journey faster than walking there directly.
+         * Returns the first label at every node.
+         */
+        private Map<Integer, Label> walk(int from, int to, boolean reverse) {
+            final GraphExplorer explorer = new GraphExplorer(queryGraph, accessEgressWeighting, ptEncodedValues, gtfsStorage, realtimeFeed, reverse, true, walkSpeedKmH, false);
+            final MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(explorer, ptEncodedValues, reverse, false, false, false, maxVisitedNodesForRequest, new ArrayList<>());
+            router.setBetaWalkTime(betaWalkTime);
+            final Map<Integer, Label> labels = new HashMap<>();
+            final int[] visited = new int[1];
+            router.calcLabels(from, initialTime, blockedRouteTypes, label -> labels.putIfAbsent(label.adjNode, label),
+                    label -> !labels.containsKey(to) && label.walkDistanceOnCurrentLeg <= maxWalkDistancePerLeg && visited[0]++ < maxVisitedNodesForRequest);
+            visitedNodes += visited[0];
+            return labels;
+        }
+
+        private int[] walkSecondsToStops(RaptorTimetable timetable, Map<Integer, Label> labels) {
+            final int[] seconds = new int[timetable.stopIds.length];
+            Arrays.fill(seconds, Raptor.UNREACHED);
+            labels.forEach((node, label) -> {
+                for (int stop : timetable.getStopsAtStationNode(node)) {
+                    seconds[stop] = walkSeconds(label);
+                }
+            });
+            return seconds;
+        }
+
+        private long walkMillis(Label label) {
+            return Math.abs(label.currentTime - initialTime.toEpochMilli());
+        }
+
+        private int walkSeconds(Label label) {
+            return (int) ((walkMillis(label) + 999) / 1000);
+        }
+
         private boolean profileFinished(MultiCriteriaLabelSetting router, List<Label> discoveredSolutions, Label walkSolution) {
             return discoveredSolutions.size() >= limitSolutions ||
                     (!discoveredSolutions.isEmpty() && router.timeSinceStartTime(discoveredSolutions.get(discoveredSolutions.size() - 1)) > maxProfileDuration) ||
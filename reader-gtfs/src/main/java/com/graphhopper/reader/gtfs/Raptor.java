@@ -0,0 +1,322 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.carrotsearch.hppc.IntArrayList;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Round based public transit router (RAPTOR, Delling, Pajor and Werneck 2012) on a {@link RaptorTimetable}.
+ * Round k finds the earliest arrival at every stop with k trips. Every round which improves the arrival at the
+ * destination yields one journey, so the result is the Pareto set of arrival time and number of transfers.
+ * <p>
+ * Arrive-by queries run the very same search on {@link RaptorTimetable#reversed()}. Times are handled internally
+ * as seconds relative to the query time, negated for the reversed timetable.
+ * <p>
+ * An instance is meant for a single query.
+ */
+final class Raptor {
+
+    static final int UNREACHED = Integer.MAX_VALUE;
+
+    static final class Ride {
+        final RaptorTimetable.TripRecord trip;
+        final int boardPosition;
+        final int alightPosition;
+        // epoch seconds of the start of the service day of the trip
+        final long serviceDayStart;
+
+        Ride(RaptorTimetable.TripRecord trip, int boardPosition, int alightPosition, long serviceDayStart) {
+            this.trip = trip;
+            this.boardPosition = boardPosition;
+            this.alightPosition = alightPosition;
+            this.serviceDayStart = serviceDayStart;
+        }
+
+        long getDepartureTime() {
+            return serviceDayStart + trip.departures[boardPosition];
+        }
+
+        long getArrivalTime() {
+            return serviceDayStart + trip.arrivals[alightPosition];
+        }
+    }
+
+    static final class Journey {
+        final int originStop;
+        final int destinationStop;
+        final List<Ride> rides;
+
+        Journey(int originStop, int destinationStop, List<Ride> rides) {
+            this.originStop = originStop;
+            this.destinationStop = destinationStop;
+            this.rides = rides;
+        }
+    }
+
+    private static final class Round {
+        final int[] arrivals;
+        final int[] patterns;
+        final int[] trips;
+        final int[] days;
+        final int[] boardPositions;
+        final int[] alightPositions;
+        final int[] from;
+        final IntArrayList marked = new IntArrayList();
+
+        Round(int slots) {
+            arrivals = new int[slots];
+            Arrays.fill(arrivals, UNREACHED);
+            patterns = new int[slots];
+            trips = new int[slots];
+            days = new int[slots];
+            boardPositions = new int[slots];
+            alightPositions = new int[slots];
+            from = new int[slots];
+        }
+    }
+
+    private final RaptorTimetable timetable;
+    private final int maxRounds;
+    private final int blockedRouteTypes;
+    private final List<Round> rounds = new ArrayList<>();
+    private long queryTime;
+    // per zone, the start of the service days before, on and after the query date
+    private long[][] serviceDayStarts;
+    private long[][] epochDays;
+    private int[][] offsets;
+    private int readySource;
+
+    Raptor(RaptorTimetable timetable, int maxRounds, int blockedRouteTypes) {
+        this.timetable = timetable;
+        this.maxRounds = maxRounds;
+        this.blockedRouteTypes = blockedRouteTypes;
+    }
+
+    /**
+     * @param access       seconds to walk from the start of the query to every stop, or {@link #UNREACHED}
+     * @param egress       seconds to walk from every stop to the end of the query, or {@link #UNREACHED}
+     * @param directWalk   seconds to walk without using transit, or {@link #UNREACHED}. Only journeys which are
+     *                     faster are returned.
+     * @return the journeys with an increasing number of rides and a decreasing travel time
+     */
+    List<Journey> route(Instant time, int[] access, int[] egress, int directWalk) {
+        queryTime = time.getEpochSecond();
+        int nZones = timetable.zones.length;
+        serviceDayStarts = new long[nZones][3];
+        epochDays = new long[nZones][3];
+        offsets = new int[nZones][3];
+        for (int zone = 0; zone < nZones; zone++) {
+            ZoneId zoneId = timetable.zones[zone];
+            LocalDate date = time.atZone(zoneId).toLocalDate();
+            for (int d = 0; d < 3; d++) {
+                LocalDate serviceDay = date.plusDays(d - 1);
+                // GTFS times are measured from noon minus 12h, which differs from midnight on days with DST changes
+                serviceDayStarts[zone][d] = serviceDay.atTime(12, 0).atZone(zoneId).minusHours(12).toEpochSecond();
+                epochDays[zone][d] = serviceDay.toEpochDay();
+                offsets[zone][d] = (int) (timetable.isReversed ? queryTime - serviceDayStarts[zone][d] : serviceDayStarts[zone][d] - queryTime);
+            }
+        }
+
+        int nStops = timetable.stopIds.length;
+        int nSlots = timetable.slotStops.length;
+        int[] bestArrivals = new int[nSlots];
+        Arrays.fill(bestArrivals, UNREACHED);
+        int[] scanFrom = new int[timetable.patterns.length];
+        Arrays.fill(scanFrom, Integer.MAX_VALUE);
+        IntArrayList patternsToScan = new IntArrayList();
+        for (int stop = 0; stop < nStops; stop++) {
+            if (access[stop] != UNREACHED)
+                markPatternsAt(stop, scanFrom, patternsToScan);
+        }
+
+        List<Journey> journeys = new ArrayList<>();
+        int bestDestinationArrival = directWalk;
+        for (int k = 1; k <= maxRounds && !patternsToScan.isEmpty(); k++) {
+            Round round = new Round(nSlots);
+            Round previous = k == 1 ? null : rounds.get(k - 2);
+            rounds.add(round);
+            for (int i = 0; i < patternsToScan.size(); i++) {
+                int p = patternsToScan.get(i);
+                int position = scanFrom[p];
+                scanFrom[p] = Integer.MAX_VALUE;
+                RaptorTimetable.Pattern pattern = timetable.patterns[p];
+                if ((blockedRouteTypes & (1 << pattern.routeType)) != 0)
+                    continue;
+                scanPattern(p, pattern, position, access, previous, round, bestArrivals, bestDestinationArrival);
+            }
+            patternsToScan.clear();
+
+            int bestSlot = -1;
+            for (int i = 0; i < round.marked.size(); i++) {
+                int slot = round.marked.get(i);
+                int stop = timetable.slotStops[slot];
+                if (egress[stop] != UNREACHED && round.arrivals[slot] + egress[stop] < bestDestinationArrival) {
+                    bestDestinationArrival = round.arrivals[slot] + egress[stop];
+                    bestSlot = slot;
+                }
+                for (int target : timetable.transferTargets[slot]) {
+                    markPatternsAt(target, scanFrom, patternsToScan);
+                }
+            }
+            if (bestSlot >= 0)
+                journeys.add(createJourney(k, bestSlot));
+        }
+        return journeys;
+    }
+
+    private void markPatternsAt(int stop, int[] scanFrom, IntArrayList patternsToScan) {
+        int[] patternsAtStop = timetable.patternsAtStop[stop];
+        for (int j = 0; j < patternsAtStop.length; j += 2) {
+            int p = patternsAtStop[j];
+            if (scanFrom[p] == Integer.MAX_VALUE)
+                patternsToScan.add(p);
+            scanFrom[p] = Math.min(scanFrom[p], patternsAtStop[j + 1]);
+        }
+    }
+
+    private void scanPattern(int p, RaptorTimetable.Pattern pattern, int position, int[] access, Round previous,
+                             Round round, int[] bestArrivals, int bound) {
+        int n = pattern.stops.length;
+        int trip = -1, day = -1, offset = 0, boardPosition = -1, from = -1;
+        for (int i = position; i < n; i++) {
+            int stop = pattern.stops[i];
+            if (trip >= 0) {
+                int index = trip * n + i;
+                int arrival = pattern.arrivals[index] + offset;
+                int slot = pattern.alightSlots[i];
+                if ((pattern.noAlight == null || !pattern.noAlight[index]) && arrival < bestArrivals[slot] && arrival < bound) {
+                    bestArrivals[slot] = arrival;
+                    if (round.arrivals[slot] == UNREACHED)
+                        round.marked.add(slot);
+                    round.arrivals[slot] = arrival;
+                    round.patterns[slot] = p;
+                    round.trips[slot] = trip;
+                    round.days[slot] = day;
+                    round.boardPositions[slot] = boardPosition;
+                    round.alightPositions[slot] = i;
+                    round.from[slot] = from;
+                }
+            }
+            if (i == n - 1)
+                break;
+            int ready = previous == null ? access[stop] : readyTime(pattern, i, previous);
+            if (ready == UNREACHED || trip >= 0 && ready > pattern.departures[trip * n + i] + offset)
+                continue;
+            int source = previous == null ? stop : readySource;
+            int bestTrip = -1, bestDay = -1, bestDeparture = trip >= 0 ? pattern.departures[trip * n + i] + offset : UNREACHED;
+            for (int d = 0; d < 3; d++) {
+                int dayOffset = offsets[pattern.zone][d];
+                int earliest = ready - dayOffset;
+                int nTrips = pattern.getTripCount();
+                for (int t = pattern.fifo ? firstTripDepartingAt(pattern, i, earliest) : 0; t < nTrips; t++) {
+                    int index = t * n + i;
+                    int departure = pattern.departures[index];
+                    if (departure < earliest)
+                        continue;
+                    if (pattern.fifo && departure + dayOffset >= bestDeparture)
+                        break;
+                    if (pattern.noBoard != null && pattern.noBoard[index] || !isActive(pattern.services[t], pattern.zone, d))
+                        continue;
+                    if (departure + dayOffset < bestDeparture) {
+                        bestDeparture = departure + dayOffset;
+                        bestTrip = t;
+                        bestDay = d;
+                        if (pattern.fifo)
+                            break;
+                    }
+                }
+            }
+            if (bestTrip >= 0) {
+                trip = bestTrip;
+                day = bestDay;
+                offset = offsets[pattern.zone][day];
+                boardPosition = i;
+                from = source;
+            }
+        }
+    }
+
+    /**
+     * The earliest time at which a trip of the pattern can be boarded at position i after the previous round,
+     * considering the transfer rules of the position. The slot we transfer from is left in readySource.
+     */
+    private int readyTime(RaptorTimetable.Pattern pattern, int i, Round previous) {
+        int[] rules = pattern.boardRules[i];
+        int ready = UNREACHED;
+        for (int r = 0; r < rules.length; r += 2) {
+            int arrival = previous.arrivals[rules[r]];
+            if (arrival != UNREACHED && arrival + rules[r + 1] < ready) {
+                ready = arrival + rules[r + 1];
+                readySource = rules[r];
+            }
+        }
+        return ready;
+    }
+
+    private static int firstTripDepartingAt(RaptorTimetable.Pattern pattern, int i, int earliest) {
+        int n = pattern.stops.length;
+        int low = 0, high = pattern.getTripCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (pattern.departures[mid * n + i] < earliest)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private boolean isActive(int service, int zone, int d) {
+        long day = epochDays[zone][d] - timetable.feedStartDays[timetable.serviceFeeds[service]];
+        return day >= 0 && day < Integer.MAX_VALUE && timetable.services.get(service).get((int) day);
+    }
+
+    private Journey createJourney(int k, int lastSlot) {
+        List<Ride> rides = new ArrayList<>();
+        // the slot of the first round is the stop where we board
+        int slot = lastSlot;
+        for (int r = k; r >= 1; r--) {
+            Round round = rounds.get(r - 1);
+            RaptorTimetable.Pattern pattern = timetable.patterns[round.patterns[slot]];
+            RaptorTimetable.TripRecord trip = pattern.trips[round.trips[slot]];
+            long serviceDayStart = serviceDayStarts[pattern.zone][round.days[slot]];
+            int n = pattern.stops.length;
+            if (timetable.isReversed)
+                rides.add(new Ride(trip, n - 1 - round.alightPositions[slot], n - 1 - round.boardPositions[slot], serviceDayStart));
+            else
+                rides.add(new Ride(trip, round.boardPositions[slot], round.alightPositions[slot], serviceDayStart));
+            slot = round.from[slot];
+        }
+        int lastStop = timetable.slotStops[lastSlot];
+        if (timetable.isReversed) {
+            return new Journey(lastStop, slot, rides);
+        } else {
+            Collections.reverse(rides);
+            return new Journey(slot, lastStop, rides);
+        }
+    }
+}
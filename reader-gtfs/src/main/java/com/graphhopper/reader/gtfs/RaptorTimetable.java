@@ -0,0 +1,682 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.*;
+import com.google.transit.realtime.GtfsRealtime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+
+/**
+ * A compact, array based copy of the schedule for the {@link Raptor} engine. Trips of the same route which serve
+ * the same sequence of stops are grouped into patterns, and the stop times of all trips of a pattern are kept in
+ * flat int arrays, in seconds since the start of their service day.
+ * <p>
+ * The static timetable is built once per {@link GtfsStorage}. A realtime feed produces a patched copy with
+ * {@link #withRealtimeFeed(RealtimeFeed, GtfsStorage)}, which is built once per feed snapshot, see
+ * {@link RealtimeFeed#getRaptorTimetable()}. Arrive-by queries run on the time-reversed copy returned by
+ * {@link #reversed()}.
+ */
+final class RaptorTimetable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RaptorTimetable.class);
+
+    static final class TripRecord {
+        final int feed;
+        final int route;
+        final String tripId;
+        // start time of this instance of a frequency based trip, -1 for scheduled trips
+        final int startTime;
+        final String name;
+        final int[] stops;
+        final int[] stopSequences;
+        final int[] arrivals;
+        final int[] departures;
+        final int[] plannedArrivals;
+        final int[] plannedDepartures;
+        final boolean[] noAlight;
+        final boolean[] noBoard;
+        final int service;
+        final boolean realtime;
+
+        TripRecord(int feed, int route, String tripId, int startTime, String name, int[] stops, int[] stopSequences,
+                   int[] arrivals, int[] departures, int[] plannedArrivals, int[] plannedDepartures,
+                   boolean[] noAlight, boolean[] noBoard, int service, boolean realtime) {
+            this.feed = feed;
+            this.route = route;
+            this.tripId = tripId;
+            this.startTime = startTime;
+            this.name = name;
+            this.stops = stops;
+            this.stopSequences = stopSequences;
+            this.arrivals = arrivals;
+            this.departures = departures;
+            this.plannedArrivals = plannedArrivals;
+            this.plannedDepartures = plannedDepartures;
+            this.noAlight = noAlight;
+            this.noBoard = noBoard;
+            this.service = service;
+            this.realtime = realtime;
+        }
+
+        TripRecord withService(int service) {
+            return new TripRecord(feed, route, tripId, startTime, name, stops, stopSequences, arrivals, departures,
+                    plannedArrivals, plannedDepartures, noAlight, noBoard, service, realtime);
+        }
+    }
+
+    /**
+     * A minimum transfer time from arriving at a stop to departing from a stop, as derived from transfers.txt by
+     * {@link Transfers}. A route of -1 matches every route.
+     */
+    static final class TransferRule {
+        final int fromStop;
+        final int fromRoute;
+        final int toStop;
+        final int toRoute;
+        final int seconds;
+
+        TransferRule(int fromStop, int fromRoute, int toStop, int toRoute, int seconds) {
+            this.fromStop = fromStop;
+            this.fromRoute = fromRoute;
+            this.toStop = toStop;
+            this.toRoute = toRoute;
+            this.seconds = seconds;
+        }
+    }
+
+    static final class Pattern {
+        final int route;
+        final int routeType;
+        final int zone;
+        final int[] stops;
+        final TripRecord[] trips;
+        // [trip * stops.length + position], in the direction of this timetable
+        final int[] arrivals;
+        final int[] departures;
+        // same layout, null if every stop time of the pattern can be used
+        final boolean[] noAlight;
+        final boolean[] noBoard;
+        final int[] services;
+        // true if no trip overtakes another one, so the first trip to board can be found by binary search
+        final boolean fifo;
+        // per position: the slot we arrive in
+        final int[] alightSlots;
+        // per position: (slot, seconds) pairs of the transfers which allow boarding here
+        final int[][] boardRules;
+
+        private Pattern(int route, int routeType, int zone, int[] stops, TripRecord[] trips, int[] arrivals, int[] departures,
+                        boolean[] noAlight, boolean[] noBoard, int[] services, boolean fifo, int[] alightSlots, int[][] boardRules) {
+            this.route = route;
+            this.routeType = routeType;
+            this.zone = zone;
+            this.stops = stops;
+            this.trips = trips;
+            this.arrivals = arrivals;
+            this.departures = departures;
+            this.noAlight = noAlight;
+            this.noBoard = noBoard;
+            this.services = services;
+            this.fifo = fifo;
+            this.alightSlots = alightSlots;
+            this.boardRules = boardRules;
+        }
+
+        int getTripCount() {
+            return trips.length;
+        }
+    }
+
+    final String[] feedIds;
+    final long[] feedStartDays;
+    final ZoneId[] zones;
+
+    final String[] stopIds;
+    final String[] stopNames;
+    final double[] stopLats;
+    final double[] stopLons;
+    final int[] stationNodes;
+
+    final String[] routeIds;
+    final int[] routeTypes;
+    final int[] routeZones;
+    final int[] routeFeeds;
+
+    final List<BitSet> services;
+    final int[] serviceFeeds;
+    final List<TripRecord> trips;
+    final List<TransferRule> rules;
+
+    final boolean isReversed;
+    final Pattern[] patterns;
+    // per stop: (pattern, position) pairs
+    final int[][] patternsAtStop;
+    // Arrivals are tracked per slot. Every stop is a slot, but when the transfer rules of a stop depend on the
+    // route we arrive with, arrivals with each route get their own slot.
+    final int[] slotStops;
+    // per slot: the stops at which a trip can be boarded after arriving in it
+    final int[][] transferTargets;
+
+    private final Map<String, Integer> stopIndex = new HashMap<>();
+    private final Map<String, Integer> routeIndex = new HashMap<>();
+    private final Map<Integer, int[]> stopsByStationNode = new HashMap<>();
+    private RaptorTimetable reversed;
+
+    private RaptorTimetable(String[] feedIds, long[] feedStartDays, ZoneId[] zones, String[] stopIds, String[] stopNames,
+                            double[] stopLats, double[] stopLons, int[] stationNodes, String[] routeIds, int[] routeTypes,
+                            int[] routeZones, List<BitSet> services, int[] serviceFeeds, List<TripRecord> trips,
+                            List<TransferRule> rules, boolean isReversed, int[] routeFeeds) {
+        this.feedIds = feedIds;
+        this.feedStartDays = feedStartDays;
+        this.zones = zones;
+        this.stopIds = stopIds;
+        this.stopNames = stopNames;
+        this.stopLats = stopLats;
+        this.stopLons = stopLons;
+        this.stationNodes = stationNodes;
+        this.routeIds = routeIds;
+        this.routeTypes = routeTypes;
+        this.routeZones = routeZones;
+        this.routeFeeds = routeFeeds;
+        this.services = services;
+        this.serviceFeeds = serviceFeeds;
+        this.trips = trips;
+        this.rules = rules;
+        this.isReversed = isReversed;
+
+        Map<Integer, IntArrayList> byNode = new HashMap<>();
+        for (int stop = 0; stop < stopIds.length; stop++) {
+            stopIndex.put(stopIds[stop], stop);
+            byNode.computeIfAbsent(stationNodes[stop], n -> new IntArrayList()).add(stop);
+        }
+        byNode.forEach((node, stops) -> stopsByStationNode.put(node, stops.toArray()));
+        for (int route = 0; route < routeIds.length; route++) {
+            routeIndex.put(routeKey(feedIds[routeFeeds[route]], routeIds[route]), route);
+        }
+
+        Map<String, List<TripRecord>> tripsByPattern = new LinkedHashMap<>();
+        for (TripRecord trip : trips) {
+            tripsByPattern.computeIfAbsent(trip.route + ":" + Arrays.toString(trip.stops), k -> new ArrayList<>()).add(trip);
+        }
+        IntArrayList slotStops = new IntArrayList();
+        for (int stop = 0; stop < stopIds.length; stop++) {
+            slotStops.add(stop);
+        }
+        Map<Long, Integer> routeSlots = new HashMap<>();
+        Map<Integer, int[]> routeSlotsByStop = new HashMap<>();
+        createRouteSlots(tripsByPattern.values(), slotStops, routeSlots, routeSlotsByStop);
+        this.slotStops = slotStops.toArray();
+
+        Map<Long, Map<Integer, Integer>> rulesByBoarding = new HashMap<>();
+        for (TransferRule rule : rules) {
+            long key = isReversed ? boardingKey(rule.fromStop, rule.fromRoute) : boardingKey(rule.toStop, rule.toRoute);
+            Map<Integer, Integer> slotSeconds = rulesByBoarding.computeIfAbsent(key, k -> new LinkedHashMap<>());
+            for (int slot : arrivalSlots(rule, routeSlots, routeSlotsByStop)) {
+                slotSeconds.merge(slot, rule.seconds, Math::min);
+            }
+        }
+        this.patterns = new Pattern[tripsByPattern.size()];
+        int p = 0;
+        for (List<TripRecord> patternTrips : tripsByPattern.values()) {
+            patterns[p++] = createPattern(patternTrips, rulesByBoarding, routeSlots, routeSlotsByStop);
+        }
+
+        this.patternsAtStop = new int[stopIds.length][];
+        IntArrayList[] atStop = new IntArrayList[stopIds.length];
+        List<Set<Integer>> targets = new ArrayList<>(this.slotStops.length);
+        for (int slot = 0; slot < this.slotStops.length; slot++) {
+            targets.add(new LinkedHashSet<>());
+        }
+        for (p = 0; p < patterns.length; p++) {
+            Pattern pattern = patterns[p];
+            for (int i = 0; i < pattern.stops.length; i++) {
+                if (atStop[pattern.stops[i]] == null)
+                    atStop[pattern.stops[i]] = new IntArrayList();
+                atStop[pattern.stops[i]].add(p, i);
+                for (int r = 0; r < pattern.boardRules[i].length; r += 2) {
+                    targets.get(pattern.boardRules[i][r]).add(pattern.stops[i]);
+                }
+            }
+        }
+        for (int stop = 0; stop < stopIds.length; stop++) {
+            patternsAtStop[stop] = atStop[stop] == null ? new int[0] : atStop[stop].toArray();
+        }
+        this.transferTargets = new int[this.slotStops.length][];
+        for (int slot = 0; slot < this.slotStops.length; slot++) {
+            transferTargets[slot] = targets.get(slot).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * A stop gets one slot per arriving route if the transfer rules for leaving it are not the same for all of them.
+     */
+    private void createRouteSlots(Collection<List<TripRecord>> tripsByPattern, IntArrayList slotStops,
+                                  Map<Long, Integer> routeSlots, Map<Integer, int[]> routeSlotsByStop) {
+        Map<Integer, Set<Integer>> arrivingRoutes = new HashMap<>();
+        for (List<TripRecord> patternTrips : tripsByPattern) {
+            TripRecord trip = patternTrips.get(0);
+            int n = trip.stops.length;
+            for (int i = 0; i < n; i++) {
+                // we never arrive at the first stop in the direction of this timetable
+                if (isReversed ? i < n - 1 : i > 0)
+                    arrivingRoutes.computeIfAbsent(trip.stops[i], k -> new LinkedHashSet<>()).add(trip.route);
+            }
+        }
+        Map<Integer, List<TransferRule>> rulesByArrivalStop = new LinkedHashMap<>();
+        for (TransferRule rule : rules) {
+            rulesByArrivalStop.computeIfAbsent(isReversed ? rule.toStop : rule.fromStop, k -> new ArrayList<>()).add(rule);
+        }
+        rulesByArrivalStop.forEach((stop, rulesOfStop) -> {
+            Set<Integer> routes = arrivingRoutes.getOrDefault(stop, Collections.emptySet());
+            Set<Set<String>> distinctRules = new HashSet<>();
+            for (int route : routes) {
+                Set<String> rulesForRoute = new HashSet<>();
+                for (TransferRule rule : rulesOfStop) {
+                    int arrivalRoute = isReversed ? rule.toRoute : rule.fromRoute;
+                    if (arrivalRoute == -1 || arrivalRoute == route)
+                        rulesForRoute.add(isReversed ? rule.fromStop + ":" + rule.fromRoute + ":" + rule.seconds : rule.toStop + ":" + rule.toRoute + ":" + rule.seconds);
+                }
+                distinctRules.add(rulesForRoute);
+            }
+            if (distinctRules.size() > 1) {
+                IntArrayList slots = new IntArrayList();
+                for (int route : routes) {
+                    routeSlots.put(boardingKey(stop, route), slotStops.size());
+                    slots.add(slotStops.size());
+                    slotStops.add(stop);
+                }
+                routeSlotsByStop.put(stop, slots.toArray());
+            }
+        });
+    }
+
+    private int[] arrivalSlots(TransferRule rule, Map<Long, Integer> routeSlots, Map<Integer, int[]> routeSlotsByStop) {
+        int stop = isReversed ? rule.toStop : rule.fromStop;
+        int route = isReversed ? rule.toRoute : rule.fromRoute;
+        int[] slotsOfStop = routeSlotsByStop.get(stop);
+        if (slotsOfStop == null)
+            return new int[]{stop};
+        if (route == -1)
+            return slotsOfStop;
+        Integer slot = routeSlots.get(boardingKey(stop, route));
+        return slot == null ? new int[0] : new int[]{slot};
+    }
+
+    static RaptorTimetable build(GtfsStorage gtfsStorage) {
+        List<String> feedIds = new ArrayList<>(new TreeSet<>(gtfsStorage.getGtfsFeeds().keySet()));
+        List<ZoneId> zones = new ArrayList<>();
+        long[] feedStartDays = new long[feedIds.size()];
+        List<String> stopIds = new ArrayList<>(), stopNames = new ArrayList<>();
+        List<Double> stopLats = new ArrayList<>(), stopLons = new ArrayList<>();
+        IntArrayList stationNodes = new IntArrayList();
+        Map<String, Integer> stopIndex = new HashMap<>();
+        List<String> routeIds = new ArrayList<>();
+        IntArrayList routeTypes = new IntArrayList(), routeZones = new IntArrayList(), routeFeeds = new IntArrayList();
+        Map<String, Integer> routeIndex = new HashMap<>();
+        List<BitSet> services = new ArrayList<>();
+        IntArrayList serviceFeeds = new IntArrayList();
+        List<TripRecord> trips = new ArrayList<>();
+        List<TransferRule> rules = new ArrayList<>();
+
+        for (int f = 0; f < feedIds.size(); f++) {
+            String feedId = feedIds.get(f);
+            GTFSFeed feed = gtfsStorage.getGtfsFeeds().get(feedId);
+            LocalDate startDate = feed.getStartDate();
+            LocalDate endDate = feed.getEndDate();
+            feedStartDays[f] = startDate.toEpochDay();
+            for (Stop stop : feed.stops.values()) {
+                Integer stationNode = gtfsStorage.getStationNodes().get(stop.stop_id);
+                if (stop.location_type == 0 && stationNode != null) {
+                    stopIndex.put(stop.stop_id, stopIds.size());
+                    stopIds.add(stop.stop_id);
+                    stopNames.add(stop.stop_name);
+                    stopLats.add(stop.stop_lat);
+                    stopLons.add(stop.stop_lon);
+                    stationNodes.add(stationNode);
+                }
+            }
+            String defaultTimezone = feed.agency.values().iterator().next().agency_timezone;
+            for (Route route : feed.routes.values()) {
+                Agency agency = route.agency_id != null ? feed.agency.get(route.agency_id) : null;
+                ZoneId zoneId = ZoneId.of(agency != null ? agency.agency_timezone : defaultTimezone);
+                if (!zones.contains(zoneId))
+                    zones.add(zoneId);
+                routeIndex.put(routeKey(feedId, route.route_id), routeIds.size());
+                routeIds.add(route.route_id);
+                routeTypes.add(route.route_type);
+                routeZones.add(zones.indexOf(zoneId));
+                routeFeeds.add(f);
+            }
+            Map<String, Integer> serviceIndex = new HashMap<>();
+            for (Service service : feed.services.values()) {
+                BitSet validOnDay = new BitSet((int) DAYS.between(startDate, endDate));
+                for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                    if (service.activeOn(date)) {
+                        validOnDay.set((int) DAYS.between(startDate, date));
+                    }
+                }
+                serviceIndex.put(service.service_id, services.size());
+                services.add(validOnDay);
+                serviceFeeds.add(f);
+            }
+            Set<Long> boardingRoutes = new LinkedHashSet<>();
+            for (Trip trip : feed.trips.values()) {
+                Integer route = routeIndex.get(routeKey(feedId, trip.route_id));
+                Integer service = serviceIndex.get(trip.service_id);
+                if (route == null || service == null)
+                    continue;
+                List<StopTime> stopTimes = new ArrayList<>();
+                feed.getInterpolatedStopTimesForTrip(trip.trip_id).forEach(stopTimes::add);
+                int n = stopTimes.size();
+                int[] stops = new int[n], stopSequences = new int[n], arrivals = new int[n], departures = new int[n];
+                boolean skip = n < 2;
+                for (int i = 0; i < n && !skip; i++) {
+                    StopTime stopTime = stopTimes.get(i);
+                    Integer stop = stopIndex.get(stopTime.stop_id);
+                    if (stop == null) {
+                        skip = true;
+                    } else {
+                        stops[i] = stop;
+                        stopSequences[i] = stopTime.stop_sequence;
+                        arrivals[i] = stopTime.arrival_time;
+                        departures[i] = stopTime.departure_time;
+                    }
+                }
+                if (skip) {
+                    logger.warn("Trip {} of feed {} is not used by the RAPTOR timetable", trip.trip_id, feedId);
+                    continue;
+                }
+                String name = routeName(feed, trip);
+                Collection<Frequency> frequencies = feed.getFrequencies(trip.trip_id);
+                if (frequencies.isEmpty()) {
+                    trips.add(new TripRecord(f, route, trip.trip_id, -1, name, stops, stopSequences, arrivals, departures,
+                            arrivals, departures, null, null, service, false));
+                } else {
+                    for (Frequency frequency : frequencies) {
+                        for (int time = frequency.start_time; time < frequency.end_time; time += frequency.headway_secs) {
+                            int[] shiftedArrivals = shift(arrivals, time), shiftedDepartures = shift(departures, time);
+                            trips.add(new TripRecord(f, route, trip.trip_id, time, name, stops, stopSequences, shiftedArrivals,
+                                    shiftedDepartures, shiftedArrivals, shiftedDepartures, null, null, service, false));
+                        }
+                    }
+                }
+                for (int i = 0; i < n - 1; i++) {
+                    boardingRoutes.add(((long) stops[i] << 32) | route);
+                }
+            }
+            Transfers transfers = gtfsStorage.getTransfers().get(feedId);
+            for (long boardingRoute : boardingRoutes) {
+                int toStop = (int) (boardingRoute >>> 32);
+                int toRoute = (int) boardingRoute;
+                for (Transfer transfer : transfers.getTransfersToStop(stopIds.get(toStop), routeIds.get(toRoute))) {
+                    Integer fromStop = stopIndex.get(transfer.from_stop_id);
+                    Integer fromRoute = transfer.from_route_id == null ? Integer.valueOf(-1) : routeIndex.get(routeKey(feedId, transfer.from_route_id));
+                    if (fromStop != null && fromRoute != null)
+                        rules.add(new TransferRule(fromStop, fromRoute, toStop, toRoute, transfer.min_transfer_time));
+                }
+            }
+        }
+
+        RaptorTimetable timetable = new RaptorTimetable(feedIds.toArray(new String[0]), feedStartDays,
+                zones.toArray(new ZoneId[0]), stopIds.toArray(new String[0]), stopNames.toArray(new String[0]),
+                stopLats.stream().mapToDouble(Double::doubleValue).toArray(), stopLons.stream().mapToDouble(Double::doubleValue).toArray(),
+                stationNodes.toArray(), routeIds.toArray(new String[0]), routeTypes.toArray(), routeZones.toArray(),
+                services, serviceFeeds.toArray(), trips, rules, false, routeFeeds.toArray());
+        logger.info("Created RAPTOR timetable with " + timetable.patterns.length + " patterns, " + trips.size() + " trips, "
+                + stopIds.size() + " stops and " + rules.size() + " transfer rules");
+        return timetable;
+    }
+
+    /**
+     * Returns a copy of this timetable in which the trips of the realtime feed replace their scheduled
+     * counterparts on the day of the feed, and added trips are included. Skipped stops can neither be boarded
+     * nor alighted at.
+     */
+    RaptorTimetable withRealtimeFeed(RealtimeFeed realtimeFeed, GtfsStorage gtfsStorage) {
+        if (isReversed)
+            throw new IllegalStateException("Apply realtime updates to the forward timetable");
+        if (realtimeFeed.feedMessages.isEmpty())
+            return this;
+        List<BitSet> services = new ArrayList<>(this.services);
+        IntArrayList serviceFeeds = new IntArrayList();
+        serviceFeeds.add(this.serviceFeeds);
+        List<TripRecord> trips = new ArrayList<>(this.trips);
+        Map<String, Integer> tripIndex = new HashMap<>();
+        for (int i = 0; i < trips.size(); i++) {
+            TripRecord trip = trips.get(i);
+            tripIndex.put(trip.feed + ":" + trip.tripId + ":" + trip.startTime, i);
+        }
+        realtimeFeed.feedMessages.forEach((feedKey, feedMessage) -> {
+            int f = Arrays.asList(feedIds).indexOf(feedKey);
+            if (f < 0) {
+                logger.warn("Realtime feed {} has no static feed", feedKey);
+                return;
+            }
+            GTFSFeed feed = gtfsStorage.getGtfsFeeds().get(feedKey);
+            ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
+            LocalDate dateToChange = Instant.ofEpochSecond(feedMessage.getHeader().getTimestamp()).atZone(timezone).toLocalDate();
+            int day = (int) (dateToChange.toEpochDay() - feedStartDays[f]);
+            if (day < 0)
+                return;
+            BitSet onlyOnDay = new BitSet();
+            onlyOnDay.set(day);
+            int serviceOnDay = services.size();
+            services.add(onlyOnDay);
+            serviceFeeds.add(f);
+            for (GtfsRealtime.FeedEntity entity : feedMessage.getEntityList()) {
+                if (!entity.hasTripUpdate())
+                    continue;
+                GtfsRealtime.TripUpdate tripUpdate = entity.getTripUpdate();
+                GtfsRealtime.TripDescriptor.ScheduleRelationship relationship = tripUpdate.getTrip().getScheduleRelationship();
+                if (relationship == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED) {
+                    boolean frequencyBased = !feed.getFrequencies(tripUpdate.getTrip().getTripId()).isEmpty();
+                    int startTime = frequencyBased && tripUpdate.getTrip().hasStartTime() ? LocalTime.parse(tripUpdate.getTrip().getStartTime()).toSecondOfDay() : -1;
+                    Integer i = tripIndex.get(f + ":" + tripUpdate.getTrip().getTripId() + ":" + startTime);
+                    if (i == null) {
+                        logger.warn("Trip not found: {}", tripUpdate.getTrip());
+                        continue;
+                    }
+                    TripRecord scheduled = trips.get(i);
+                    if (!services.get(scheduled.service).get(day))
+                        continue;
+                    BitSet otherDays = (BitSet) services.get(scheduled.service).clone();
+                    otherDays.clear(day);
+                    trips.set(i, scheduled.withService(services.size()));
+                    services.add(otherDays);
+                    serviceFeeds.add(f);
+                    trips.add(updatedTrip(scheduled, RealtimeFeed.toTripWithStopTimes(feed, tripUpdate), serviceOnDay));
+                } else if (relationship == GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED) {
+                    TripRecord added = addedTrip(feed, f, tripUpdate, timezone, serviceOnDay);
+                    if (added != null)
+                        trips.add(added);
+                }
+            }
+        });
+        return new RaptorTimetable(feedIds, feedStartDays, zones, stopIds, stopNames, stopLats, stopLons, stationNodes,
+                routeIds, routeTypes, routeZones, services, serviceFeeds.toArray(), trips, rules, false, routeFeeds);
+    }
+
+    private static TripRecord updatedTrip(TripRecord scheduled, GtfsReader.TripWithStopTimes update, int service) {
+        Map<Integer, StopTime> updatedStopTimes = new HashMap<>();
+        for (StopTime stopTime : update.stopTimes) {
+            updatedStopTimes.put(stopTime.stop_sequence, stopTime);
+        }
+        int offset = Math.max(scheduled.startTime, 0);
+        int n = scheduled.stops.length;
+        int[] arrivals = scheduled.arrivals.clone(), departures = scheduled.departures.clone();
+        boolean[] noAlight = new boolean[n], noBoard = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            int stopSequence = scheduled.stopSequences[i];
+            StopTime stopTime = updatedStopTimes.get(stopSequence);
+            if (stopTime != null) {
+                arrivals[i] = stopTime.arrival_time + offset;
+                departures[i] = stopTime.departure_time + offset;
+            }
+            noAlight[i] = update.cancelledArrivals.contains(stopSequence);
+            noBoard[i] = update.cancelledDeparture.contains(stopSequence);
+        }
+        return new TripRecord(scheduled.feed, scheduled.route, scheduled.tripId, scheduled.startTime, scheduled.name,
+                scheduled.stops, scheduled.stopSequences, arrivals, departures, scheduled.arrivals, scheduled.departures,
+                noAlight, noBoard, service, true);
+    }
+
+    // Stop times of added trips are read the same way as the realtime overlay graph reads them.
+    private TripRecord addedTrip(GTFSFeed feed, int f, GtfsRealtime.TripUpdate tripUpdate, ZoneId timezone, int service) {
+        Integer route = routeIndex.get(routeKey(feedIds[f], tripUpdate.getTrip().getRouteId()));
+        int n = tripUpdate.getStopTimeUpdateCount();
+        if (route == null || n < 2) {
+            logger.warn("Cannot add trip: {}", tripUpdate.getTrip());
+            return null;
+        }
+        int[] stops = new int[n], stopSequences = new int[n], times = new int[n];
+        for (int i = 0; i < n; i++) {
+            GtfsRealtime.TripUpdate.StopTimeUpdate stopTimeUpdate = tripUpdate.getStopTimeUpdate(i);
+            Integer stop = stopIndex.get(stopTimeUpdate.getStopId());
+            if (stop == null) {
+                logger.warn("Cannot add trip: {}", tripUpdate.getTrip());
+                return null;
+            }
+            stops[i] = stop;
+            stopSequences[i] = stopTimeUpdate.getStopSequence();
+            ZonedDateTime time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
+            times[i] = (int) Duration.between(time.truncatedTo(ChronoUnit.DAYS), time).getSeconds();
+        }
+        Trip trip = new Trip();
+        trip.trip_id = tripUpdate.getTrip().getTripId();
+        trip.route_id = tripUpdate.getTrip().getRouteId();
+        return new TripRecord(f, route, trip.trip_id, -1, routeName(feed, trip), stops, stopSequences, times, times,
+                times, times, null, null, service, true);
+    }
+
+    /**
+     * Returns this timetable with the direction of time reversed: stop sequences are reversed, and every time t
+     * becomes -t, so that arrivals become departures. An earliest arrival search on the reversed timetable is a
+     * latest departure search on the original one.
+     */
+    synchronized RaptorTimetable reversed() {
+        if (reversed == null) {
+            reversed = new RaptorTimetable(feedIds, feedStartDays, zones, stopIds, stopNames, stopLats, stopLons, stationNodes,
+                    routeIds, routeTypes, routeZones, services, serviceFeeds, trips, rules, !isReversed, routeFeeds);
+            reversed.reversed = this;
+        }
+        return reversed;
+    }
+
+    int getStop(String stopId) {
+        return stopIndex.getOrDefault(stopId, -1);
+    }
+
+    int[] getStopsAtStationNode(int node) {
+        return stopsByStationNode.getOrDefault(node, new int[0]);
+    }
+
+    private Pattern createPattern(List<TripRecord> patternTrips, Map<Long, Map<Integer, Integer>> rulesByBoarding,
+                                  Map<Long, Integer> routeSlots, Map<Integer, int[]> routeSlotsByStop) {
+        TripRecord first = patternTrips.get(0);
+        int n = first.stops.length;
+        int[] stops = new int[n];
+        for (int i = 0; i < n; i++) {
+            stops[i] = first.stops[isReversed ? n - 1 - i : i];
+        }
+        // in the reversed timetable, the departure at the first position is minus the arrival at the last stop
+        TripRecord[] sorted = patternTrips.toArray(new TripRecord[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(t -> isReversed ? -t.arrivals[n - 1] : t.departures[0]));
+        int[] arrivals = new int[sorted.length * n], departures = new int[sorted.length * n], services = new int[sorted.length];
+        boolean[] noAlight = null, noBoard = null;
+        for (int t = 0; t < sorted.length; t++) {
+            TripRecord trip = sorted[t];
+            services[t] = trip.service;
+            if (trip.noAlight != null && noAlight == null) {
+                noAlight = new boolean[arrivals.length];
+                noBoard = new boolean[arrivals.length];
+            }
+            for (int i = 0; i < n; i++) {
+                int j = isReversed ? n - 1 - i : i;
+                arrivals[t * n + i] = isReversed ? -trip.departures[j] : trip.arrivals[j];
+                departures[t * n + i] = isReversed ? -trip.arrivals[j] : trip.departures[j];
+                if (trip.noAlight != null) {
+                    noAlight[t * n + i] = isReversed ? trip.noBoard[j] : trip.noAlight[j];
+                    noBoard[t * n + i] = isReversed ? trip.noAlight[j] : trip.noBoard[j];
+                }
+            }
+        }
+        boolean fifo = true;
+        for (int t = 1; t < sorted.length && fifo; t++) {
+            for (int i = 0; i < n; i++) {
+                if (arrivals[t * n + i] < arrivals[(t - 1) * n + i] || departures[t * n + i] < departures[(t - 1) * n + i]) {
+                    fifo = false;
+                    break;
+                }
+            }
+        }
+        int[] alightSlots = new int[n];
+        int[][] boardRules = new int[n][];
+        for (int i = 0; i < n; i++) {
+            alightSlots[i] = routeSlots.getOrDefault(boardingKey(stops[i], first.route), stops[i]);
+            Map<Integer, Integer> slotSeconds = new LinkedHashMap<>(rulesByBoarding.getOrDefault(boardingKey(stops[i], first.route), Collections.emptyMap()));
+            if (isReversed)
+                rulesByBoarding.getOrDefault(boardingKey(stops[i], -1), Collections.emptyMap()).forEach((slot, seconds) -> slotSeconds.merge(slot, seconds, Math::min));
+            if (slotSeconds.isEmpty()) {
+                // like Transfers, we can always stay at the same stop
+                for (int slot : routeSlotsByStop.getOrDefault(stops[i], new int[]{stops[i]})) {
+                    slotSeconds.put(slot, 0);
+                }
+            }
+            boardRules[i] = new int[slotSeconds.size() * 2];
+            int r = 0;
+            for (Map.Entry<Integer, Integer> entry : slotSeconds.entrySet()) {
+                boardRules[i][r++] = entry.getKey();
+                boardRules[i][r++] = entry.getValue();
+            }
+        }
+        return new Pattern(first.route, routeTypes[first.route], routeZones[first.route], stops, sorted, arrivals, departures,
+                noAlight, noBoard, services, fifo, alightSlots, boardRules);
+    }
+
+    private static long boardingKey(int stop, int route) {
+        return ((long) stop << 32) | (route & 0xFFFFFFFFL);
+    }
+
+    private static String routeKey(String feedId, String routeId) {
+        return feedId + ":" + routeId;
+    }
+
+    // the same name the graph uses for its board edges
+    private static String routeName(GTFSFeed feed, Trip trip) {
+        Route route = feed.routes.get(trip.route_id);
+        String routePart = route != null ? (route.route_long_name != null ? route.route_long_name : route.route_short_name) : "extra";
+        return routePart + " " + trip.trip_headsign;
+    }
+
+    private static int[] shift(int[] times, int offset) {
+        int[] result = new int[times.length];
+        for (int i = 0; i < times.length; i++) {
+            result[i] = times[i] + offset;
+        }
+        return result;
+    }
+}
@@ -26,6 +26,7 @@ import com.conveyal.gtfs.model.Fare;
 import com.conveyal.gtfs.model.Frequency;
 import com.conveyal.gtfs.model.StopTime;
 import com.conveyal.gtfs.model.Trip;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.transit.realtime.GtfsRealtime;
 import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
 import com.graphhopper.routing.util.AllEdgesIterator;
@@ -51,7 +52,6 @@ import java.time.*;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
 import static com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate.ScheduleRelationship.NO_DATA;
@@ -68,12 +68,59 @@ public class RealtimeFeed {
     private final GtfsStorage staticGtfs;
     private final Map<Integer, byte[]> additionalTripDescriptors;
     private final Map<Integer, Integer> stopSequences;
+    private final Map<GtfsStorage.Validity, Integer> operatingDayPatterns;
+    private final Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones;
     private final Map<Integer, GtfsStorage.Validity> validities;
     private final Map<Integer, GtfsStorage.FeedIdWithTimezone> feedIdWithTimezones;
+    // normalized trip descriptor -> converted trip update of the first trip update for it, empty if it can't be converted
+    private final Map<GtfsRealtime.TripDescriptor, Optional<GtfsReader.TripWithStopTimes>> tripUpdates;
+    // per feed: normalized trip descriptor -> the part of the overlay made from the trip update for it
+    private final Map<String, Map<GtfsRealtime.TripDescriptor, TripOverlay>> tripOverlays;
+    // the part of the overlay which wires up the timelines of all trip updates
+    private final TripOverlay timelineWiring;
+    // per feed: the timeline nodes used by the trip updates
+    private final Map<String, GtfsReader.Timelines> timelines;
+    // the first node and edge id not used by the overlay
+    private final int nextNode;
+    private final int nextEdge;
+    private RaptorTimetable raptorTimetable;
+
+    /**
+     * The part of the realtime overlay made from a single trip update. It is not changed after it was built, so
+     * snapshots share the parts of the trip updates which did not change. The edges which connect the timeline
+     * nodes of all trip updates with each other and with the stations are a separate part, which is built again
+     * for every snapshot.
+     */
+    static class TripOverlay {
+        // the trip update without its timestamp, null for the timeline wiring
+        final GtfsRealtime.TripUpdate tripUpdate;
+        final Optional<GtfsReader.TripWithStopTimes> tripWithStopTimes;
+        // the departure and arrival timeline nodes the trip update uses, which can be shared with other ones
+        final IntHashSet timelineNodes = new IntHashSet();
+        final IntHashSet blockedEdges = new IntHashSet();
+        final IntLongHashMap delaysForBoardEdges = new IntLongHashMap();
+        final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
+        final List<VirtualEdgeIteratorState> additionalEdges = new ArrayList<>();
+        final Map<Integer, byte[]> tripDescriptors = new HashMap<>();
+        final Map<Integer, Integer> stopSequences = new HashMap<>();
+
+        TripOverlay(GtfsRealtime.TripUpdate tripUpdate, Optional<GtfsReader.TripWithStopTimes> tripWithStopTimes) {
+            this.tripUpdate = tripUpdate;
+            this.tripWithStopTimes = tripWithStopTimes;
+        }
+    }
 
     private RealtimeFeed(GtfsStorage staticGtfs, Map<String, GtfsRealtime.FeedMessage> feedMessages, IntHashSet blockedEdges,
-                         IntLongHashMap delaysForBoardEdges, IntLongHashMap delaysForAlightEdges, List<VirtualEdgeIteratorState> additionalEdges, Map<Integer, byte[]> tripDescriptors, Map<Integer, Integer> stopSequences, Map<GtfsStorage.Validity, Integer> operatingDayPatterns, Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones) {
+                         IntLongHashMap delaysForBoardEdges, IntLongHashMap delaysForAlightEdges, List<VirtualEdgeIteratorState> additionalEdges, Map<Integer, byte[]> tripDescriptors, Map<Integer, Integer> stopSequences, Map<GtfsStorage.Validity, Integer> operatingDayPatterns, Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones,
+                         Map<GtfsRealtime.TripDescriptor, Optional<GtfsReader.TripWithStopTimes>> tripUpdates, Map<String, Map<GtfsRealtime.TripDescriptor, TripOverlay>> tripOverlays,
+                         TripOverlay timelineWiring, Map<String, GtfsReader.Timelines> timelines, int nextNode, int nextEdge) {
         this.staticGtfs = staticGtfs;
+        this.tripUpdates = tripUpdates;
+        this.tripOverlays = tripOverlays;
+        this.timelineWiring = timelineWiring;
+        this.timelines = timelines;
+        this.nextNode = nextNode;
+        this.nextEdge = nextEdge;
         this.feedMessages = feedMessages;
         this.blockedEdges = blockedEdges;
         this.delaysForBoardEdges = delaysForBoardEdges;
@@ -81,6 +128,8 @@ public class RealtimeFeed {
         this.additionalEdges = additionalEdges;
         this.additionalTripDescriptors = tripDescriptors;
         this.stopSequences = stopSequences;
+        this.operatingDayPatterns = operatingDayPatterns;
+        this.writableTimeZones = writableTimeZones;
         Map<Integer, GtfsStorage.Validity> reverseOperatingDayPatterns = new HashMap<>();
         for (Map.Entry<GtfsStorage.Validity, Integer> entry : operatingDayPatterns.entrySet()) {
             reverseOperatingDayPatterns.put(entry.getValue(), entry.getKey());
@@ -93,326 +142,610 @@ public class RealtimeFeed {
         this.feedIdWithTimezones = Collections.unmodifiableMap(feedIdWithTimezoneMap);
     }
 
+    private RealtimeFeed(RealtimeFeed other, Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        this.staticGtfs = other.staticGtfs;
+        this.feedMessages = feedMessages;
+        this.blockedEdges = other.blockedEdges;
+        this.delaysForBoardEdges = other.delaysForBoardEdges;
+        this.delaysForAlightEdges = other.delaysForAlightEdges;
+        this.additionalEdges = other.additionalEdges;
+        this.additionalTripDescriptors = other.additionalTripDescriptors;
+        this.stopSequences = other.stopSequences;
+        this.operatingDayPatterns = other.operatingDayPatterns;
+        this.writableTimeZones = other.writableTimeZones;
+        this.validities = other.validities;
+        this.feedIdWithTimezones = other.feedIdWithTimezones;
+        this.tripUpdates = other.tripUpdates;
+        this.tripOverlays = other.tripOverlays;
+        this.timelineWiring = other.timelineWiring;
+        this.timelines = other.timelines;
+        this.nextNode = other.nextNode;
+        this.nextEdge = other.nextEdge;
+        synchronized (other) {
+            this.raptorTimetable = other.raptorTimetable;
+        }
+    }
+
     public static RealtimeFeed empty(GtfsStorage staticGtfs) {
-        return new RealtimeFeed(staticGtfs, Collections.emptyMap(), new IntHashSet(), new IntLongHashMap(), new IntLongHashMap(), Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap(), staticGtfs.getOperatingDayPatterns(), staticGtfs.getWritableTimeZones());
+        return new RealtimeFeed(staticGtfs, Collections.emptyMap(), new IntHashSet(), new IntLongHashMap(), new IntLongHashMap(), Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap(), staticGtfs.getOperatingDayPatterns(), staticGtfs.getWritableTimeZones(), Collections.emptyMap(), Collections.emptyMap(),
+                new TripOverlay(null, Optional.empty()), Collections.emptyMap(), -1, -1);
     }
 
     public static RealtimeFeed fromProtobuf(GraphHopperStorage graphHopperStorage, GtfsStorage staticGtfs, PtEncodedValues encoder, Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        return fromProtobuf(graphHopperStorage, staticGtfs, encoder, feedMessages, empty(staticGtfs));
+    }
+
+    /**
+     * Like {@link #fromProtobuf(GraphHopperStorage, GtfsStorage, PtEncodedValues, Map)}, but trip updates which
+     * are the same as in the previous feed are not converted again. The overlay itself is built again.
+     */
+    static RealtimeFeed fromProtobuf(GraphHopperStorage graphHopperStorage, GtfsStorage staticGtfs, PtEncodedValues encoder, Map<String, GtfsRealtime.FeedMessage> feedMessages,
+                                     RealtimeFeed previous) {
+        TripOverlayBuilder builder = new TripOverlayBuilder(graphHopperStorage, staticGtfs, feedMessages, staticGtfs.getOperatingDayPatterns(), staticGtfs.getWritableTimeZones(), Collections.emptyMap(), -1, -1);
         final IntHashSet blockedEdges = new IntHashSet();
         final IntLongHashMap delaysForBoardEdges = new IntLongHashMap();
         final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
-        final LinkedList<VirtualEdgeIteratorState> additionalEdges = new LinkedList<>();
-        final Graph overlayGraph = new Graph() {
-            int firstEdge = graphHopperStorage.getEdges();
-            EncodingManager encodingManager = graphHopperStorage.getEncodingManager();
-            final NodeAccess nodeAccess = new NodeAccess() {
-                IntIntHashMap turnCostIndices = new IntIntHashMap();
+        final List<VirtualEdgeIteratorState> additionalEdges = new ArrayList<>();
+        final Map<Integer, byte[]> tripDescriptors = new HashMap<>();
+        final Map<Integer, Integer> stopSequences = new HashMap<>();
+        final Map<GtfsRealtime.TripDescriptor, Optional<GtfsReader.TripWithStopTimes>> tripUpdates = new HashMap<>();
+        final Map<String, Map<GtfsRealtime.TripDescriptor, TripOverlay>> tripOverlays = new HashMap<>();
+        // further trip updates for the same trip, which are applied as well
+        final List<TripOverlay> duplicates = new ArrayList<>();
+        feedMessages.forEach((feedKey, feedMessage) -> {
+            Map<GtfsRealtime.TripDescriptor, TripOverlay> previousOverlays = previous.tripOverlays.getOrDefault(feedKey, Collections.emptyMap());
+            Map<GtfsRealtime.TripDescriptor, TripOverlay> overlays = new HashMap<>();
+            LocalDate serviceDay = serviceDay(staticGtfs.getGtfsFeeds().get(feedKey), feedMessage);
+            // scheduled trips first, so their delayed departures get the lower ids, as they always did
+            for (GtfsRealtime.TripDescriptor.ScheduleRelationship relationship : Arrays.asList(GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED, GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED)) {
+                for (GtfsRealtime.TripUpdate tripUpdate : tripUpdates(feedMessage)) {
+                    if (tripUpdate.getTrip().getScheduleRelationship() != relationship)
+                        continue;
+                    GtfsRealtime.TripDescriptor tripDescriptor = normalize(tripUpdate.getTrip());
+                    TripOverlay tripOverlay = builder.build(feedKey, tripUpdate, serviceDay, previousOverlays.get(tripDescriptor));
+                    if (overlays.putIfAbsent(tripDescriptor, tripOverlay) != null)
+                        duplicates.add(tripOverlay);
+                    add(tripOverlay, blockedEdges, delaysForBoardEdges, delaysForAlightEdges, additionalEdges, tripDescriptors, stopSequences);
+                }
+            }
+            tripOverlays.put(feedKey, overlays);
+        });
+        TripOverlay timelineWiring = builder.wireUpTimelines(tripOverlays, duplicates);
+        add(timelineWiring, blockedEdges, delaysForBoardEdges, delaysForAlightEdges, additionalEdges, tripDescriptors, stopSequences);
+        tripOverlays.values().forEach(overlays -> overlays.forEach((tripDescriptor, tripOverlay) -> tripUpdates.putIfAbsent(tripDescriptor, tripOverlay.tripWithStopTimes)));
+        return new RealtimeFeed(staticGtfs, feedMessages, blockedEdges, delaysForBoardEdges, delaysForAlightEdges, additionalEdges, tripDescriptors, stopSequences, builder.operatingDayPatterns, builder.writableTimeZones,
+                tripUpdates, tripOverlays, timelineWiring, builder.timelines, builder.nextNode, builder.nextEdge);
+    }
 
-                @Override
-                public int getTurnCostIndex(int nodeId) {
-                    return 0;
+    /**
+     * @return a feed for the feed messages, which replace the ones of this feed. The parts of the overlay which come
+     * from trip updates that are not in the feed messages anymore, or that changed, are removed from a copy of the
+     * overlay of this feed, and only the trip updates which are new or changed are added to it. The rest of the
+     * overlay is shared with this feed, except for the wiring of the timelines, which is built again.
+     * Only valid if the feed messages are for the same service day as the ones of this feed, and neither contain
+     * more than one trip update for a trip.
+     */
+    RealtimeFeed withChangedTripUpdates(GraphHopperStorage graphHopperStorage, Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        TripOverlayBuilder builder = new TripOverlayBuilder(graphHopperStorage, staticGtfs, feedMessages, operatingDayPatterns, writableTimeZones, timelines, nextNode, nextEdge);
+        List<TripOverlay> removed = new ArrayList<>();
+        removed.add(timelineWiring);
+        List<TripOverlay> added = new ArrayList<>();
+        Map<String, Map<GtfsRealtime.TripDescriptor, TripOverlay>> newTripOverlays = new HashMap<>();
+        Map<GtfsRealtime.TripDescriptor, Optional<GtfsReader.TripWithStopTimes>> newTripUpdates = new HashMap<>(tripUpdates);
+        tripOverlays.forEach((feedKey, overlays) -> {
+            if (!feedMessages.containsKey(feedKey)) {
+                overlays.forEach((tripDescriptor, tripOverlay) -> {
+                    removed.add(tripOverlay);
+                    newTripUpdates.remove(tripDescriptor);
+                });
+            }
+        });
+        feedMessages.forEach((feedKey, feedMessage) -> {
+            Map<GtfsRealtime.TripDescriptor, TripOverlay> previousOverlays = tripOverlays.getOrDefault(feedKey, Collections.emptyMap());
+            Map<GtfsRealtime.TripDescriptor, TripOverlay> overlays = new HashMap<>();
+            LocalDate serviceDay = serviceDay(staticGtfs.getGtfsFeeds().get(feedKey), feedMessage);
+            for (GtfsRealtime.TripUpdate tripUpdate : tripUpdates(feedMessage)) {
+                GtfsRealtime.TripDescriptor tripDescriptor = normalize(tripUpdate.getTrip());
+                TripOverlay previous = previousOverlays.get(tripDescriptor);
+                if (previous != null && previous.tripUpdate.equals(withoutTimestamp(tripUpdate))) {
+                    overlays.put(tripDescriptor, previous);
+                } else {
+                    TripOverlay tripOverlay = builder.build(feedKey, tripUpdate, serviceDay, previous);
+                    overlays.put(tripDescriptor, tripOverlay);
+                    added.add(tripOverlay);
+                    newTripUpdates.put(tripDescriptor, tripOverlay.tripWithStopTimes);
+                    if (previous != null)
+                        removed.add(previous);
+                }
+            }
+            previousOverlays.forEach((tripDescriptor, tripOverlay) -> {
+                if (!overlays.containsKey(tripDescriptor)) {
+                    removed.add(tripOverlay);
+                    newTripUpdates.remove(tripDescriptor);
                 }
+            });
+            newTripOverlays.put(feedKey, overlays);
+        });
+        TripOverlay newTimelineWiring = builder.wireUpTimelines(newTripOverlays, Collections.emptyList());
+        added.add(newTimelineWiring);
+
+        IntHashSet blockedEdges = new IntHashSet(this.blockedEdges);
+        IntLongHashMap delaysForBoardEdges = new IntLongHashMap(this.delaysForBoardEdges);
+        IntLongHashMap delaysForAlightEdges = new IntLongHashMap(this.delaysForAlightEdges);
+        Map<Integer, byte[]> tripDescriptors = new HashMap<>(additionalTripDescriptors);
+        Map<Integer, Integer> stopSequences = new HashMap<>(this.stopSequences);
+        IntHashSet removedEdges = new IntHashSet();
+        for (TripOverlay tripOverlay : removed) {
+            blockedEdges.removeAll(tripOverlay.blockedEdges);
+            delaysForBoardEdges.removeAll(tripOverlay.delaysForBoardEdges.keys());
+            delaysForAlightEdges.removeAll(tripOverlay.delaysForAlightEdges.keys());
+            tripDescriptors.keySet().removeAll(tripOverlay.tripDescriptors.keySet());
+            stopSequences.keySet().removeAll(tripOverlay.stopSequences.keySet());
+            for (VirtualEdgeIteratorState edge : tripOverlay.additionalEdges) {
+                removedEdges.add(edge.getEdge());
+            }
+        }
+        List<VirtualEdgeIteratorState> additionalEdges = new ArrayList<>(this.additionalEdges.size());
+        for (VirtualEdgeIteratorState edge : this.additionalEdges) {
+            if (!removedEdges.contains(edge.getEdge()))
+                additionalEdges.add(edge);
+        }
+        for (TripOverlay tripOverlay : added) {
+            add(tripOverlay, blockedEdges, delaysForBoardEdges, delaysForAlightEdges, additionalEdges, tripDescriptors, stopSequences);
+        }
+        return new RealtimeFeed(staticGtfs, feedMessages, blockedEdges, delaysForBoardEdges, delaysForAlightEdges, additionalEdges, tripDescriptors, stopSequences, builder.operatingDayPatterns, builder.writableTimeZones,
+                newTripUpdates, newTripOverlays, newTimelineWiring, builder.timelines, builder.nextNode, builder.nextEdge);
+    }
 
-                @Override
-                public void setTurnCostIndex(int nodeId, int additionalValue) {
-                    turnCostIndices.put(nodeId, additionalValue);
+    /**
+     * The ids of the nodes and edges of replaced trip updates are not used again, so they pile up with every update
+     * which only applies the changed trip updates.
+     *
+     * @return true if most of the ids after the ones of the graph are not used anymore, so the overlay should be
+     * built again from scratch
+     */
+    boolean hasManyUnusedIds(GraphHopperStorage graphHopperStorage) {
+        return nextEdge - graphHopperStorage.getEdges() > 2 * additionalEdges.size() + 100_000;
+    }
+
+    private static void add(TripOverlay tripOverlay, IntHashSet blockedEdges, IntLongHashMap delaysForBoardEdges, IntLongHashMap delaysForAlightEdges,
+                            List<VirtualEdgeIteratorState> additionalEdges, Map<Integer, byte[]> tripDescriptors, Map<Integer, Integer> stopSequences) {
+        blockedEdges.addAll(tripOverlay.blockedEdges);
+        delaysForBoardEdges.putAll(tripOverlay.delaysForBoardEdges);
+        delaysForAlightEdges.putAll(tripOverlay.delaysForAlightEdges);
+        additionalEdges.addAll(tripOverlay.additionalEdges);
+        tripDescriptors.putAll(tripOverlay.tripDescriptors);
+        stopSequences.putAll(tripOverlay.stopSequences);
+    }
+
+    private static List<GtfsRealtime.TripUpdate> tripUpdates(GtfsRealtime.FeedMessage feedMessage) {
+        return feedMessage.getEntityList().stream()
+                .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
+                .map(GtfsRealtime.FeedEntity::getTripUpdate)
+                .collect(Collectors.toList());
+    }
+
+    static LocalDate serviceDay(GTFSFeed feed, GtfsRealtime.FeedMessage feedMessage) {
+        ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
+        return Instant.ofEpochSecond(feedMessage.getHeader().getTimestamp()).atZone(timezone).toLocalDate(); //FIXME
+    }
+
+    /**
+     * Builds the parts of the overlay made from single trip updates and the wiring of their timelines, with node
+     * and edge ids after the ones of the graph and of the overlay they are added to. Validities and time zones are
+     * added to copies of the ones of that overlay.
+     */
+    private static class TripOverlayBuilder {
+        private final GraphHopperStorage graphHopperStorage;
+        private final GtfsStorage staticGtfs;
+        private final Map<String, GtfsRealtime.FeedMessage> feedMessages;
+        private final Map<GtfsStorage.Validity, Integer> operatingDayPatterns;
+        private final Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones;
+        private final Map<String, GtfsReader> gtfsReaders = new HashMap<>();
+        private final Map<String, BitSet> validOnDays = new HashMap<>();
+        private final Map<String, GtfsReader.Timelines> previousTimelines;
+        private final Map<String, GtfsReader.Timelines> timelines = new HashMap<>();
+        private final PtEncodedValues ptEncodedValues;
+        private final Graph overlayGraph;
+        private int nextNode;
+        private int nextEdge;
+        private TripOverlay current;
+
+        TripOverlayBuilder(GraphHopperStorage graphHopperStorage, GtfsStorage staticGtfs, Map<String, GtfsRealtime.FeedMessage> feedMessages,
+                           Map<GtfsStorage.Validity, Integer> operatingDayPatterns, Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones,
+                           Map<String, GtfsReader.Timelines> previousTimelines, int nextNode, int nextEdge) {
+            this.graphHopperStorage = graphHopperStorage;
+            this.previousTimelines = previousTimelines;
+            this.ptEncodedValues = PtEncodedValues.fromEncodingManager(graphHopperStorage.getEncodingManager());
+            this.staticGtfs = staticGtfs;
+            this.feedMessages = feedMessages;
+            this.operatingDayPatterns = new HashMap<>(operatingDayPatterns);
+            this.writableTimeZones = new HashMap<>(writableTimeZones);
+            this.nextNode = Math.max(graphHopperStorage.getNodes(), nextNode);
+            this.nextEdge = Math.max(graphHopperStorage.getEdges(), nextEdge);
+            this.overlayGraph = createOverlayGraph();
+        }
+
+        TripOverlay build(String feedKey, GtfsRealtime.TripUpdate tripUpdate, LocalDate serviceDay, TripOverlay previous) {
+            GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
+            ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
+            GtfsRealtime.TripUpdate key = withoutTimestamp(tripUpdate);
+            Optional<GtfsReader.TripWithStopTimes> converted;
+            if (previous != null && previous.tripUpdate.equals(key)) {
+                converted = previous.tripWithStopTimes;
+            } else {
+                try {
+                    converted = Optional.of(toTripWithStopTimes(feed, tripUpdate));
+                } catch (RuntimeException e) {
+                    logger.warn("Cannot convert trip update for {}", tripUpdate.getTrip(), e);
+                    dump(feedMessages);
+                    converted = Optional.empty();
                 }
+            }
+            current = new TripOverlay(key, converted);
+            final GtfsReader gtfsReader = gtfsReader(feedKey);
+            gtfsReader.continueAdditionalTimelines();
+            BitSet validOnDay = validOnDays.computeIfAbsent(feedKey, k -> {
+                BitSet bitSet = new BitSet();
+                bitSet.set((int) DAYS.between(feed.getStartDate(), serviceDay));
+                return bitSet;
+            });
+            if (tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED) {
+                Collection<Frequency> frequencies = feed.getFrequencies(tripUpdate.getTrip().getTripId());
+                int timeOffset = (tripUpdate.getTrip().hasStartTime() && !frequencies.isEmpty()) ? LocalTime.parse(tripUpdate.getTrip().getStartTime()).toSecondOfDay() : 0;
+                String tripKey = GtfsStorage.tripKey(tripUpdate.getTrip(), !frequencies.isEmpty());
+                final int[] boardEdges = staticGtfs.getBoardEdgesForTrip().get(tripKey);
+                final int[] leaveEdges = staticGtfs.getAlightEdgesForTrip().get(tripKey);
+                if (boardEdges == null || leaveEdges == null) {
+                    logger.warn("Trip not found: {}", tripUpdate.getTrip());
+                } else {
+                    tripUpdate.getStopTimeUpdateList().stream()
+                            .filter(stopTimeUpdate -> stopTimeUpdate.getScheduleRelationship() == SKIPPED)
+                            .mapToInt(GtfsRealtime.TripUpdate.StopTimeUpdate::getStopSequence)
+                            .forEach(skippedStopSequenceNumber -> {
+                                current.blockedEdges.add(boardEdges[skippedStopSequenceNumber]);
+                                current.blockedEdges.add(leaveEdges[skippedStopSequenceNumber]);
+                            });
+                    converted.ifPresent(tripWithStopTimes -> tripWithStopTimes.stopTimes.forEach(stopTime -> {
+                        if (stopTime.stop_sequence > leaveEdges.length - 1) {
+                            logger.warn("Stop sequence number too high {} vs {}", stopTime.stop_sequence, leaveEdges.length);
+                            return;
+                        }
+                        final StopTime originalStopTime = feed.stop_times.get(new Fun.Tuple2(tripUpdate.getTrip().getTripId(), stopTime.stop_sequence));
+                        int arrivalDelay = stopTime.arrival_time - originalStopTime.arrival_time;
+                        current.delaysForAlightEdges.put(leaveEdges[stopTime.stop_sequence], arrivalDelay * 1000);
+                        int departureDelay = stopTime.departure_time - originalStopTime.departure_time;
+                        if (departureDelay > 0) {
+                            int boardEdge = boardEdges[stopTime.stop_sequence];
+                            int departureNode = graphHopperStorage.getEdgeIteratorState(boardEdge, Integer.MIN_VALUE).getAdjNode();
+                            int delayedBoardEdge = gtfsReader.addDelayedBoardEdge(timezone, tripUpdate.getTrip(), stopTime.stop_sequence, stopTime.departure_time + timeOffset, departureNode, validOnDay);
+                            current.delaysForBoardEdges.put(delayedBoardEdge, departureDelay * 1000);
+                        }
+                    }));
+                }
+            } else if (tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED) {
+                Trip trip = new Trip();
+                trip.trip_id = tripUpdate.getTrip().getTripId();
+                trip.route_id = tripUpdate.getTrip().getRouteId();
+                final List<StopTime> stopTimes = tripUpdate.getStopTimeUpdateList().stream()
+                        .map(stopTimeUpdate -> {
+                            final StopTime stopTime = new StopTime();
+                            stopTime.stop_sequence = stopTimeUpdate.getStopSequence();
+                            stopTime.stop_id = stopTimeUpdate.getStopId();
+                            stopTime.trip_id = trip.trip_id;
+                            final ZonedDateTime arrival_time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
+                            stopTime.arrival_time = (int) Duration.between(arrival_time.truncatedTo(ChronoUnit.DAYS), arrival_time).getSeconds();
+                            final ZonedDateTime departure_time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
+                            stopTime.departure_time = (int) Duration.between(departure_time.truncatedTo(ChronoUnit.DAYS), departure_time).getSeconds();
+                            return stopTime;
+                        })
+                        .collect(Collectors.toList());
+                GtfsReader.TripWithStopTimes tripWithStopTimes = new GtfsReader.TripWithStopTimes(trip, stopTimes, validOnDay, Collections.emptySet(), Collections.emptySet());
+                gtfsReader.addTrip(timezone, 0, new ArrayList<>(), tripWithStopTimes, tripUpdate.getTrip(), false);
+            }
+            TripOverlay result = current;
+            for (VirtualEdgeIteratorState edge : result.additionalEdges) {
+                GtfsStorage.EdgeType edgeType = edge.get(ptEncodedValues.getTypeEnc());
+                if (edgeType == GtfsStorage.EdgeType.BOARD)
+                    result.timelineNodes.add(edge.getBaseNode());
+                else if (edgeType == GtfsStorage.EdgeType.ALIGHT)
+                    result.timelineNodes.add(edge.getAdjNode());
+            }
+            current = null;
+            return result;
+        }
+
+        /**
+         * Wires up the timelines of the specified trip updates at once, so the departures and arrivals at the same
+         * platform are connected with each other like in the static timetable.
+         */
+        TripOverlay wireUpTimelines(Map<String, Map<GtfsRealtime.TripDescriptor, TripOverlay>> tripOverlays, List<TripOverlay> duplicates) {
+            IntHashSet timelineNodes = new IntHashSet();
+            tripOverlays.values().forEach(overlays -> overlays.values().forEach(tripOverlay -> timelineNodes.addAll(tripOverlay.timelineNodes)));
+            duplicates.forEach(tripOverlay -> timelineNodes.addAll(tripOverlay.timelineNodes));
+            current = new TripOverlay(null, Optional.empty());
+            for (String feedKey : feedMessages.keySet()) {
+                GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
+                ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
+                timelines.put(feedKey, gtfsReader(feedKey).wireUpAdditionalDeparturesAndArrivals(timezone, timelineNodes));
+            }
+            TripOverlay result = current;
+            current = null;
+            return result;
+        }
 
+        private GtfsReader gtfsReader(String feedKey) {
+            return gtfsReaders.computeIfAbsent(feedKey, k -> {
+                GtfsReader gtfsReader = new GtfsReader(k, overlayGraph, graphHopperStorage.getEncodingManager(), createGtfsStorage(k, staticGtfs.getGtfsFeeds().get(k)), null);
+                gtfsReader.startAdditionalTimelines(previousTimelines.getOrDefault(k, GtfsReader.Timelines.EMPTY));
+                return gtfsReader;
+            });
+        }
+
+        private GtfsStorageI createGtfsStorage(String feedKey, GTFSFeed feed) {
+            return new GtfsStorageI() {
                 @Override
-                public boolean is3D() {
-                    return false;
+                public Map<String, Fare> getFares() {
+                    return null;
                 }
 
                 @Override
-                public int getDimension() {
-                    return 0;
+                public Map<GtfsStorage.Validity, Integer> getOperatingDayPatterns() {
+                    return operatingDayPatterns;
                 }
 
                 @Override
-                public void ensureNode(int nodeId) {
-
+                public Map<GtfsStorage.FeedIdWithTimezone, Integer> getWritableTimeZones() {
+                    return writableTimeZones;
                 }
 
                 @Override
-                public void setNode(int nodeId, double lat, double lon) {
-
+                public Map<Integer, GtfsStorage.FeedIdWithTimezone> getTimeZones() {
+                    return staticGtfs.getTimeZones();
                 }
 
                 @Override
-                public void setNode(int nodeId, double lat, double lon, double ele) {
+                public Map<Integer, byte[]> getTripDescriptors() {
+                    return current.tripDescriptors;
+                }
 
+                @Override
+                public Map<Integer, Integer> getStopSequences() {
+                    return current.stopSequences;
                 }
 
                 @Override
-                public double getLatitude(int nodeId) {
-                    return 0;
+                public Map<String, int[]> getBoardEdgesForTrip() {
+                    return new HashMap<>();
                 }
 
                 @Override
-                public double getLat(int nodeId) {
-                    return 0;
+                public Map<String, int[]> getAlightEdgesForTrip() {
+                    return new HashMap<>();
                 }
 
                 @Override
-                public double getLongitude(int nodeId) {
-                    return 0;
+                public Map<String, GTFSFeed> getGtfsFeeds() {
+                    HashMap<String, GTFSFeed> stringGTFSFeedHashMap = new HashMap<>();
+                    stringGTFSFeedHashMap.put(feedKey, feed);
+                    return stringGTFSFeedHashMap;
                 }
 
                 @Override
-                public double getLon(int nodeId) {
-                    return 0;
+                public Map<String, Transfers> getTransfers() {
+                    return staticGtfs.getTransfers();
                 }
 
                 @Override
-                public double getElevation(int nodeId) {
-                    return 0;
+                public Map<String, Integer> getStationNodes() {
+                    return staticGtfs.getStationNodes();
                 }
 
                 @Override
-                public double getEle(int nodeId) {
-                    return 0;
+                public Map<Integer, PlatformDescriptor> getPlatformDescriptorByEdge() {
+                    return staticGtfs.getPlatformDescriptorByEdge();
                 }
             };
+        }
 
-            @Override
-            public Graph getBaseGraph() {
-                return graphHopperStorage;
-            }
-
-            @Override
-            public int getNodes() {
-                return IntStream.concat(
-                        IntStream.of(graphHopperStorage.getNodes() - 1),
-                        additionalEdges.stream().flatMapToInt(edge -> IntStream.of(edge.getBaseNode(), edge.getAdjNode())))
-                        .max().getAsInt() + 1;
-            }
-
-            @Override
-            public int getEdges() {
-                return getAllEdges().length();
-            }
-
-            @Override
-            public NodeAccess getNodeAccess() {
-                return nodeAccess;
-            }
-
-            @Override
-            public BBox getBounds() {
-                return null;
-            }
-
-            @Override
-            public EdgeIteratorState edge(int a, int b) {
-                int edge = firstEdge++;
-                final VirtualEdgeIteratorState newEdge = new VirtualEdgeIteratorState(-1,
-                        edge, a, b, 0.0, encodingManager.createEdgeFlags(), "", new PointList(), false);
-                final VirtualEdgeIteratorState reverseNewEdge = new VirtualEdgeIteratorState(-1,
-                        edge, b, a, 0.0, encodingManager.createEdgeFlags(), "", new PointList(), true);
-                newEdge.setReverseEdge(reverseNewEdge);
-                reverseNewEdge.setReverseEdge(newEdge);
-                additionalEdges.push(newEdge);
-                return newEdge;
-            }
-
-            @Override
-            public EdgeIteratorState edge(int a, int b, double distance, boolean bothDirections) {
-                return null;
-            }
-
-            @Override
-            public EdgeIteratorState getEdgeIteratorState(int edgeId, int adjNode) {
-                return null;
-            }
-
-            @Override
-            public AllEdgesIterator getAllEdges() {
-                return null;
-            }
-
-            @Override
-            public EdgeExplorer createEdgeExplorer(EdgeFilter filter) {
-                return null;
-            }
-
-            @Override
-            public EdgeExplorer createEdgeExplorer() {
-                return graphHopperStorage.createEdgeExplorer();
-            }
-
-            @Override
-            public Graph copyTo(Graph g) {
-                return null;
-            }
-
-            @Override
-            public TurnCostStorage getTurnCostStorage() {
-                throw new RuntimeException();
-            }
-
-            @Override
-            public Weighting wrapWeighting(Weighting weighting) {
-                throw new RuntimeException();
-            }
+        private Graph createOverlayGraph() {
+            EncodingManager encodingManager = graphHopperStorage.getEncodingManager();
+            return new Graph() {
+                final NodeAccess nodeAccess = new NodeAccess() {
+                    IntIntHashMap turnCostIndices = new IntIntHashMap();
+
+                    @Override
+                    public int getTurnCostIndex(int nodeId) {
+                        return 0;
+                    }
+
+                    @Override
+                    public void setTurnCostIndex(int nodeId, int additionalValue) {
+                        turnCostIndices.put(nodeId, additionalValue);
+                    }
+
+                    @Override
+                    public boolean is3D() {
+                        return false;
+                    }
+
+                    @Override
+                    public int getDimension() {
+                        return 0;
+                    }
+
+                    @Override
+                    public void ensureNode(int nodeId) {
+
+                    }
+
+                    @Override
+                    public void setNode(int nodeId, double lat, double lon) {
+                        nextNode = Math.max(nextNode, nodeId + 1);
+                    }
+
+                    @Override
+                    public void setNode(int nodeId, double lat, double lon, double ele) {
+                        nextNode = Math.max(nextNode, nodeId + 1);
+                    }
+
+                    @Override
+                    public double getLatitude(int nodeId) {
+                        return 0;
+                    }
+
+                    @Override
+                    public double getLat(int nodeId) {
+                        return 0;
+                    }
+
+                    @Override
+                    public double getLongitude(int nodeId) {
+                        return 0;
+                    }
+
+                    @Override
+                    public double getLon(int nodeId) {
+                        return 0;
+                    }
+
+                    @Override
+                    public double getElevation(int nodeId) {
+                        return 0;
+                    }
+
+                    @Override
+                    public double getEle(int nodeId) {
+                        return 0;
+                    }
+                };
 
-            @Override
-            public int getOtherNode(int edge, int node) {
-                throw new UnsupportedOperationException();
-            }
+                @Override
+                public Graph getBaseGraph() {
+                    return graphHopperStorage;
+                }
 
-            @Override
-            public boolean isAdjacentToNode(int edge, int node) {
-                throw new UnsupportedOperationException();
-            }
-        };
+                @Override
+                public int getNodes() {
+                    return nextNode;
+                }
 
-        Map<GtfsStorage.Validity, Integer> operatingDayPatterns = new HashMap<>(staticGtfs.getOperatingDayPatterns());
-        Map<Integer, byte[]> tripDescriptors = new HashMap<>();
-        Map<Integer, Integer> stopSequences = new HashMap<>();
-        Map<String, int[]> boardEdgesForTrip = new HashMap<>();
-        Map<String, int[]> alightEdgesForTrip = new HashMap<>();
-        Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones = new HashMap<>(staticGtfs.getWritableTimeZones());
+                @Override
+                public int getEdges() {
+                    return getAllEdges().length();
+                }
 
+                @Override
+                public NodeAccess getNodeAccess() {
+                    return nodeAccess;
+                }
 
-        feedMessages.forEach((feedKey, feedMessage) -> {
-            GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
-            ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
-            GtfsStorageI gtfsStorage = new GtfsStorageI() {
                 @Override
-                public Map<String, Fare> getFares() {
+                public BBox getBounds() {
                     return null;
                 }
 
                 @Override
-                public Map<GtfsStorage.Validity, Integer> getOperatingDayPatterns() {
-                    return operatingDayPatterns;
+                public EdgeIteratorState edge(int a, int b) {
+                    int edge = nextEdge++;
+                    final VirtualEdgeIteratorState newEdge = new VirtualEdgeIteratorState(-1,
+                            edge, a, b, 0.0, encodingManager.createEdgeFlags(), "", new PointList(), false);
+                    final VirtualEdgeIteratorState reverseNewEdge = new VirtualEdgeIteratorState(-1,
+                            edge, b, a, 0.0, encodingManager.createEdgeFlags(), "", new PointList(), true);
+                    newEdge.setReverseEdge(reverseNewEdge);
+                    reverseNewEdge.setReverseEdge(newEdge);
+                    current.additionalEdges.add(newEdge);
+                    return newEdge;
                 }
 
                 @Override
-                public Map<GtfsStorage.FeedIdWithTimezone, Integer> getWritableTimeZones() {
-                    return writableTimeZones;
+                public EdgeIteratorState edge(int a, int b, double distance, boolean bothDirections) {
+                    return null;
                 }
 
                 @Override
-                public Map<Integer, GtfsStorage.FeedIdWithTimezone> getTimeZones() {
-                    return staticGtfs.getTimeZones();
+                public EdgeIteratorState getEdgeIteratorState(int edgeId, int adjNode) {
+                    return null;
                 }
 
                 @Override
-                public Map<Integer, byte[]> getTripDescriptors() {
-                    return tripDescriptors;
+                public AllEdgesIterator getAllEdges() {
+                    return null;
                 }
 
                 @Override
-                public Map<Integer, Integer> getStopSequences() {
-                    return stopSequences;
+                public EdgeExplorer createEdgeExplorer(EdgeFilter filter) {
+                    return null;
                 }
 
                 @Override
-                public Map<String, int[]> getBoardEdgesForTrip() {
-                    return boardEdgesForTrip;
+                public EdgeExplorer createEdgeExplorer() {
+                    return graphHopperStorage.createEdgeExplorer();
                 }
 
                 @Override
-                public Map<String, int[]> getAlightEdgesForTrip() {
-                    return alightEdgesForTrip;
+                public Graph copyTo(Graph g) {
+                    return null;
                 }
 
                 @Override
-                public Map<String, GTFSFeed> getGtfsFeeds() {
-                    HashMap<String, GTFSFeed> stringGTFSFeedHashMap = new HashMap<>();
-                    stringGTFSFeedHashMap.put(feedKey, feed);
-                    return stringGTFSFeedHashMap;
+                public TurnCostStorage getTurnCostStorage() {
+                    throw new RuntimeException();
                 }
 
                 @Override
-                public Map<String, Transfers> getTransfers() {
-                    return staticGtfs.getTransfers();
+                public Weighting wrapWeighting(Weighting weighting) {
+                    throw new RuntimeException();
                 }
 
                 @Override
-                public Map<String, Integer> getStationNodes() {
-                    return staticGtfs.getStationNodes();
+                public int getOtherNode(int edge, int node) {
+                    throw new UnsupportedOperationException();
                 }
 
                 @Override
-                public Map<Integer, PlatformDescriptor> getPlatformDescriptorByEdge() {
-                    return staticGtfs.getPlatformDescriptorByEdge();
+                public boolean isAdjacentToNode(int edge, int node) {
+                    throw new UnsupportedOperationException();
                 }
             };
-            final GtfsReader gtfsReader = new GtfsReader(feedKey, overlayGraph, graphHopperStorage.getEncodingManager(), gtfsStorage, null);
-            Instant timestamp = Instant.ofEpochSecond(feedMessage.getHeader().getTimestamp());
-            LocalDate dateToChange = timestamp.atZone(timezone).toLocalDate(); //FIXME
-            BitSet validOnDay = new BitSet();
-            LocalDate startDate = feed.getStartDate();
-            validOnDay.set((int) DAYS.between(startDate, dateToChange));
-            feedMessage.getEntityList().stream()
-                    .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
-                    .map(GtfsRealtime.FeedEntity::getTripUpdate)
-                    .filter(tripUpdate -> tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED)
-                    .forEach(tripUpdate -> {
-                        Collection<Frequency> frequencies = feed.getFrequencies(tripUpdate.getTrip().getTripId());
-                        int timeOffset = (tripUpdate.getTrip().hasStartTime() && !frequencies.isEmpty()) ? LocalTime.parse(tripUpdate.getTrip().getStartTime()).toSecondOfDay() : 0;
-                        String key = GtfsStorage.tripKey(tripUpdate.getTrip(), !frequencies.isEmpty());
-                        final int[] boardEdges = staticGtfs.getBoardEdgesForTrip().get(key);
-                        final int[] leaveEdges = staticGtfs.getAlightEdgesForTrip().get(key);
-                        if (boardEdges == null || leaveEdges == null) {
-                            logger.warn("Trip not found: {}", tripUpdate.getTrip());
-                            return;
-                        }
-                        tripUpdate.getStopTimeUpdateList().stream()
-                                .filter(stopTimeUpdate -> stopTimeUpdate.getScheduleRelationship() == SKIPPED)
-                                .mapToInt(GtfsRealtime.TripUpdate.StopTimeUpdate::getStopSequence)
-                                .forEach(skippedStopSequenceNumber -> {
-                                    blockedEdges.add(boardEdges[skippedStopSequenceNumber]);
-                                    blockedEdges.add(leaveEdges[skippedStopSequenceNumber]);
-                                });
-                        GtfsReader.TripWithStopTimes tripWithStopTimes = toTripWithStopTimes(feed, tripUpdate);
-                        tripWithStopTimes.stopTimes.forEach(stopTime -> {
-                            if (stopTime.stop_sequence > leaveEdges.length - 1) {
-                                logger.warn("Stop sequence number too high {} vs {}", stopTime.stop_sequence, leaveEdges.length);
-                                return;
-                            }
-                            final StopTime originalStopTime = feed.stop_times.get(new Fun.Tuple2(tripUpdate.getTrip().getTripId(), stopTime.stop_sequence));
-                            int arrivalDelay = stopTime.arrival_time - originalStopTime.arrival_time;
-                            delaysForAlightEdges.put(leaveEdges[stopTime.stop_sequence], arrivalDelay * 1000);
-                            int departureDelay = stopTime.departure_time - originalStopTime.departure_time;
-                            if (departureDelay > 0) {
-                                int boardEdge = boardEdges[stopTime.stop_sequence];
-                                int departureNode = graphHopperStorage.getEdgeIteratorState(boardEdge, Integer.MIN_VALUE).getAdjNode();
-                                int delayedBoardEdge = gtfsReader.addDelayedBoardEdge(timezone, tripUpdate.getTrip(), stopTime.stop_sequence, stopTime.departure_time + timeOffset, departureNode, validOnDay);
-                                delaysForBoardEdges.put(delayedBoardEdge, departureDelay * 1000);
-                            }
-                        });
-                    });
-            feedMessage.getEntityList().stream()
-                    .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
-                    .map(GtfsRealtime.FeedEntity::getTripUpdate)
-                    .filter(tripUpdate -> tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED)
-                    .forEach(tripUpdate -> {
-                        Trip trip = new Trip();
-                        trip.trip_id = tripUpdate.getTrip().getTripId();
-                        trip.route_id = tripUpdate.getTrip().getRouteId();
-                        final List<StopTime> stopTimes = tripUpdate.getStopTimeUpdateList().stream()
-                                .map(stopTimeUpdate -> {
-                                    final StopTime stopTime = new StopTime();
-                                    stopTime.stop_sequence = stopTimeUpdate.getStopSequence();
-                                    stopTime.stop_id = stopTimeUpdate.getStopId();
-                                    stopTime.trip_id = trip.trip_id;
-                                    final ZonedDateTime arrival_time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
-                                    stopTime.arrival_time = (int) Duration.between(arrival_time.truncatedTo(ChronoUnit.DAYS), arrival_time).getSeconds();
-                                    final ZonedDateTime departure_time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
-                                    stopTime.departure_time = (int) Duration.between(departure_time.truncatedTo(ChronoUnit.DAYS), departure_time).getSeconds();
-                                    return stopTime;
-                                })
-                                .collect(Collectors.toList());
-                        GtfsReader.TripWithStopTimes tripWithStopTimes = new GtfsReader.TripWithStopTimes(trip, stopTimes, validOnDay, Collections.emptySet(), Collections.emptySet());
-                        gtfsReader.addTrip(timezone, 0, new ArrayList<>(), tripWithStopTimes, tripUpdate.getTrip(), false);
-                    });
-            gtfsReader.wireUpAdditionalDeparturesAndArrivals(timezone);
-        });
+        }
+    }
+
+    /**
+     * @return a feed with the same realtime overlay and RAPTOR timetable as this one, but with other feed messages.
+     * Only valid if the feed messages contain the same trip updates and are for the same service day as the ones of
+     * this feed.
+     */
+    RealtimeFeed withFeedMessages(Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        return new RealtimeFeed(this, feedMessages);
+    }
+
+    /**
+     * @return the RAPTOR timetable of the static feeds with the trip updates of this feed applied. It is created on
+     * first use and shared by all requests using this feed, including its time-reversed copy.
+     */
+    synchronized RaptorTimetable getRaptorTimetable() {
+        if (raptorTimetable == null) {
+            raptorTimetable = staticGtfs.getRaptorTimetable().withRealtimeFeed(this, staticGtfs);
+        }
+        return raptorTimetable;
+    }
 
-        return new RealtimeFeed(staticGtfs, feedMessages, blockedEdges, delaysForBoardEdges, delaysForAlightEdges, additionalEdges, tripDescriptors, stopSequences, operatingDayPatterns, writableTimeZones);
+    /**
+     * The timestamp of a trip update changes with every feed, even if its content doesn't.
+     */
+    static GtfsRealtime.TripUpdate withoutTimestamp(GtfsRealtime.TripUpdate tripUpdate) {
+        return tripUpdate.hasTimestamp() ? tripUpdate.toBuilder().clearTimestamp().build() : tripUpdate;
+    }
+
+    private static void dump(Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        feedMessages.forEach((name, feed) -> {
+            try (OutputStream s = new FileOutputStream(name + ".gtfsdump")) {
+                feed.writeTo(s);
+            } catch (IOException e1) {
+                throw new RuntimeException();
+            }
+        });
     }
 
     boolean isBlocked(int edgeId) {
@@ -423,33 +756,16 @@ public class RealtimeFeed {
         return additionalEdges;
     }
 
-    public Optional<GtfsReader.TripWithStopTimes> getTripUpdate(GTFSFeed staticFeed, GtfsRealtime.TripDescriptor tripDescriptor, Label.Transition boardEdge, Instant boardTime) {
-        try {
-            logger.trace("getTripUpdate {}", tripDescriptor);
-            if (!isThisRealtimeUpdateAboutThisLineRun(boardEdge.edge.edgeIteratorState, boardTime)) {
-                return Optional.empty();
-            } else {
-                GtfsRealtime.TripDescriptor normalizedTripDescriptor = normalize(tripDescriptor);
-                return feedMessages.values().stream().flatMap(feedMessage -> feedMessage.getEntityList().stream()
-                        .filter(e -> e.hasTripUpdate())
-                        .map(e -> e.getTripUpdate())
-                        .filter(tu -> normalize(tu.getTrip()).equals(normalizedTripDescriptor))
-                        .map(tu -> toTripWithStopTimes(staticFeed, tu)))
-                        .findFirst();
-            }
-        } catch (RuntimeException e) {
-            feedMessages.forEach((name, feed) -> {
-                try (OutputStream s = new FileOutputStream(name+".gtfsdump")) {
-                    feed.writeTo(s);
-                } catch (IOException e1) {
-                    throw new RuntimeException();
-                }
-            });
+    public Optional<GtfsReader.TripWithStopTimes> getTripUpdate(GtfsRealtime.TripDescriptor tripDescriptor, Label.Transition boardEdge, Instant boardTime) {
+        logger.trace("getTripUpdate {}", tripDescriptor);
+        if (!isThisRealtimeUpdateAboutThisLineRun(boardEdge.edge.edgeIteratorState, boardTime)) {
             return Optional.empty();
+        } else {
+            return tripUpdates.getOrDefault(normalize(tripDescriptor), Optional.empty());
         }
     }
 
-    public GtfsRealtime.TripDescriptor normalize(GtfsRealtime.TripDescriptor tripDescriptor) {
+    public static GtfsRealtime.TripDescriptor normalize(GtfsRealtime.TripDescriptor tripDescriptor) {
         return GtfsRealtime.TripDescriptor.newBuilder(tripDescriptor).clearRouteId().build();
     }
 
@@ -582,18 +898,27 @@ public class RealtimeFeed {
         }).findFirst().orElse(Instant.now());
     }
 
-    public byte[] getTripDescriptor(int edge) {
-        return staticGtfs.getTripDescriptors().getOrDefault(edge, additionalTripDescriptors.get(edge));
+    public GtfsRealtime.TripDescriptor getTripDescriptor(int edge) {
+        GtfsRealtime.TripDescriptor tripDescriptor = staticGtfs.getColumns().getTripDescriptor(edge);
+        if (tripDescriptor != null) {
+            return tripDescriptor;
+        }
+        try {
+            return GtfsRealtime.TripDescriptor.parseFrom(additionalTripDescriptors.get(edge));
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public int getStopSequence(int edge) {
-        return staticGtfs.getStopSequences().getOrDefault(edge, stopSequences.get(edge));
+        int stopSequence = staticGtfs.getColumns().getStopSequence(edge);
+        return stopSequence != GtfsColumns.NO_STOP_SEQUENCE ? stopSequence : stopSequences.get(edge);
     }
 
-    public StopTime getStopTime(GTFSFeed staticFeed, GtfsRealtime.TripDescriptor tripDescriptor, Label.Transition t, Instant boardTime, int stopSequence) {
-        StopTime stopTime = staticFeed.stop_times.get(new Fun.Tuple2<>(tripDescriptor.getTripId(), stopSequence));
+    public StopTime getStopTime(String feedId, GtfsRealtime.TripDescriptor tripDescriptor, Label.Transition t, Instant boardTime, int stopSequence) {
+        StopTime stopTime = staticGtfs.getColumns().getStopTime(feedId, tripDescriptor.getTripId(), stopSequence);
         if (stopTime == null) {
-            return getTripUpdate(staticFeed, tripDescriptor, t, boardTime).get().stopTimes.get(stopSequence - 1);
+            return getTripUpdate(tripDescriptor, t, boardTime).get().stopTimes.get(stopSequence - 1);
         } else {
             return stopTime;
         }
@@ -0,0 +1,174 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.conveyal.gtfs.GTFSFeed;
+import com.google.transit.realtime.GtfsRealtime;
+import com.graphhopper.storage.GraphHopperStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Applies successive GTFS-realtime feed messages. Every RealtimeFeed is an immutable snapshot, so readers use the one
+ * they got without locking while the updater publishes the next one.
+ * <p>
+ * The trip updates of a feed message are compared with the ones applied before. If none was added, changed or
+ * removed and the service day of the feeds is the same, the new snapshot shares the realtime overlay of the
+ * previous one. Otherwise only the trip updates which were added or changed are applied to a copy of the overlay,
+ * from which the ones which were changed or removed are taken out first, see
+ * {@link RealtimeFeed#withChangedTripUpdates(GraphHopperStorage, Map)}. The overlay is only built again from all
+ * trip updates for a new service day, when there is more than one trip update for a trip, so we cannot tell
+ * which part of the overlay belongs to which of them, or when most of the ids of the overlay are unused.
+ */
+public class RealtimeFeedUpdater {
+
+    private static final Logger logger = LoggerFactory.getLogger(RealtimeFeedUpdater.class);
+    private final GraphHopperStorage graphHopperStorage;
+    private final GtfsStorage gtfsStorage;
+    private final PtEncodedValues ptEncodedValues;
+    private volatile RealtimeFeed realtimeFeed;
+    // per feed: normalized trip descriptor -> trip update without timestamp, of the last applied feed messages
+    private Map<String, Map<GtfsRealtime.TripDescriptor, GtfsRealtime.TripUpdate>> tripUpdates = Collections.emptyMap();
+    private Map<String, LocalDate> serviceDays = Collections.emptyMap();
+    private boolean lastDuplicates;
+    private long lastUpdateNanos;
+    private long lastUpdateAllocatedBytes = -1;
+    private int lastChangedTripUpdates;
+    private boolean lastUpdateRebuilt;
+
+    public RealtimeFeedUpdater(GraphHopperStorage graphHopperStorage, GtfsStorage gtfsStorage) {
+        this.graphHopperStorage = graphHopperStorage;
+        this.gtfsStorage = gtfsStorage;
+        this.ptEncodedValues = PtEncodedValues.fromEncodingManager(graphHopperStorage.getEncodingManager());
+        this.realtimeFeed = RealtimeFeed.empty(gtfsStorage);
+    }
+
+    /**
+     * @return the snapshot of the last applied feed messages
+     */
+    public RealtimeFeed getRealtimeFeed() {
+        return realtimeFeed;
+    }
+
+    /**
+     * Applies the feed messages, which replace the ones applied before, and publishes the resulting snapshot.
+     */
+    public synchronized RealtimeFeed update(Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        long start = System.nanoTime();
+        long allocatedBefore = allocatedBytes();
+        Map<String, Map<GtfsRealtime.TripDescriptor, GtfsRealtime.TripUpdate>> newTripUpdates = new HashMap<>();
+        Map<String, LocalDate> newServiceDays = new HashMap<>();
+        int changed = 0;
+        boolean duplicates = false;
+        for (Map.Entry<String, GtfsRealtime.FeedMessage> entry : feedMessages.entrySet()) {
+            GTFSFeed feed = gtfsStorage.getGtfsFeeds().get(entry.getKey());
+            newServiceDays.put(entry.getKey(), RealtimeFeed.serviceDay(feed, entry.getValue()));
+            Map<GtfsRealtime.TripDescriptor, GtfsRealtime.TripUpdate> tripUpdatesOfFeed = new HashMap<>();
+            Set<String> scheduledTrips = new HashSet<>();
+            for (GtfsRealtime.FeedEntity entity : entry.getValue().getEntityList()) {
+                if (entity.hasTripUpdate()) {
+                    GtfsRealtime.TripUpdate tripUpdate = RealtimeFeed.withoutTimestamp(entity.getTripUpdate());
+                    duplicates |= tripUpdatesOfFeed.putIfAbsent(RealtimeFeed.normalize(tripUpdate.getTrip()), tripUpdate) != null;
+                    // trip updates for the same scheduled trip delay and block the same edges
+                    if (tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED) {
+                        boolean frequencyBased = !feed.getFrequencies(tripUpdate.getTrip().getTripId()).isEmpty();
+                        duplicates |= !scheduledTrips.add(GtfsStorage.tripKey(tripUpdate.getTrip(), frequencyBased));
+                    }
+                }
+            }
+            Map<GtfsRealtime.TripDescriptor, GtfsRealtime.TripUpdate> previous = tripUpdates.getOrDefault(entry.getKey(), Collections.emptyMap());
+            for (Map.Entry<GtfsRealtime.TripDescriptor, GtfsRealtime.TripUpdate> tripUpdate : tripUpdatesOfFeed.entrySet()) {
+                if (!tripUpdate.getValue().equals(previous.get(tripUpdate.getKey())))
+                    changed++;
+            }
+            for (GtfsRealtime.TripDescriptor tripDescriptor : previous.keySet()) {
+                if (!tripUpdatesOfFeed.containsKey(tripDescriptor))
+                    changed++;
+            }
+            newTripUpdates.put(entry.getKey(), tripUpdatesOfFeed);
+        }
+        for (String feedKey : tripUpdates.keySet()) {
+            if (!newTripUpdates.containsKey(feedKey))
+                changed += tripUpdates.get(feedKey).size();
+        }
+        boolean rebuild = duplicates || lastDuplicates || !newServiceDays.equals(serviceDays) || realtimeFeed.hasManyUnusedIds(graphHopperStorage);
+        if (rebuild) {
+            realtimeFeed = RealtimeFeed.fromProtobuf(graphHopperStorage, gtfsStorage, ptEncodedValues, feedMessages, realtimeFeed);
+        } else if (changed > 0) {
+            realtimeFeed = realtimeFeed.withChangedTripUpdates(graphHopperStorage, feedMessages);
+        } else {
+            realtimeFeed = realtimeFeed.withFeedMessages(feedMessages);
+        }
+        tripUpdates = newTripUpdates;
+        serviceDays = newServiceDays;
+        lastDuplicates = duplicates;
+        lastUpdateNanos = System.nanoTime() - start;
+        lastUpdateAllocatedBytes = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+        lastChangedTripUpdates = changed;
+        lastUpdateRebuilt = rebuild;
+        logger.debug("Applied realtime feeds with {} changed trip updates, rebuilt: {}, took: {}ms, allocated: {} bytes",
+                changed, rebuild, lastUpdateNanos / 1_000_000, lastUpdateAllocatedBytes);
+        return realtimeFeed;
+    }
+
+    /**
+     * @return the bytes allocated by the current thread, or -1 if the JVM can't tell
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled())
+                return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    public synchronized long getLastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+
+    /**
+     * @return the bytes allocated by the last update, or -1 if the JVM can't tell
+     */
+    public synchronized long getLastUpdateAllocatedBytes() {
+        return lastUpdateAllocatedBytes;
+    }
+
+    /**
+     * @return the number of trip updates which were added, changed or removed by the last update
+     */
+    public synchronized int getLastChangedTripUpdates() {
+        return lastChangedTripUpdates;
+    }
+
+    /**
+     * @return true if the last update built the realtime overlay from all trip updates, false if it shared the
+     * overlay of the update before or only applied the changed trip updates to it
+     */
+    public synchronized boolean isLastUpdateRebuilt() {
+        return lastUpdateRebuilt;
+    }
+
+}
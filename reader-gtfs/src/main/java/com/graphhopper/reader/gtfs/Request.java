@@ -39,6 +39,9 @@ public class Request {
     private double walkSpeedKmH = 5.0;
     private int blockedRouteTypes;
     private Locale locale = Helper.getLocale("en");
+    private boolean raptor;
+    private int maxTransfers = Integer.MAX_VALUE;
+    private double maxWalkDistancePerLeg = Double.MAX_VALUE;
 
     public Request(List<GHLocation> points, Instant departureTime) {
         this.points = points;
@@ -137,6 +140,37 @@ public class Request {
         this.locale = locale;
     }
 
+    public boolean isRaptor() {
+        return raptor;
+    }
+
+    /**
+     * Route with the round based RAPTOR engine instead of the multi-criteria label setting on the time-expanded
+     * graph. Profile queries are not supported by RAPTOR.
+     */
+    public void setRaptor(boolean raptor) {
+        this.raptor = raptor;
+    }
+
+    public int getMaxTransfers() {
+        return maxTransfers;
+    }
+
+    public void setMaxTransfers(int maxTransfers) {
+        this.maxTransfers = maxTransfers;
+    }
+
+    public double getMaxWalkDistancePerLeg() {
+        return maxWalkDistancePerLeg;
+    }
+
+    /**
+     * Limits the distance walked to the first and from the last stop. Only used by the RAPTOR engine.
+     */
+    public void setMaxWalkDistancePerLeg(double maxWalkDistancePerLeg) {
+        this.maxWalkDistancePerLeg = maxWalkDistancePerLeg;
+    }
+
     public List<GHLocation> getPoints() {
         return points;
     }
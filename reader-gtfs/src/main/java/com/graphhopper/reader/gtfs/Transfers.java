@@ -31,11 +31,30 @@ class Transfers {
     private final Map<String, Set<String>> routesByStop;
 
     Transfers(GTFSFeed feed) {
-        this.transfersToStop = feed.transfers.values().stream().collect(Collectors.groupingBy(t -> t.to_stop_id));
-        this.transfersFromStop = feed.transfers.values().stream().collect(Collectors.groupingBy(t -> t.from_stop_id));
-        this.routesByStop = feed.stop_times.values().stream()
+        this(feed, Collections.emptyList());
+    }
+
+    Transfers(GTFSFeed feed, List<Transfer> footPaths) {
+        this(feed, feed.stop_times.values().stream()
                 .collect(Collectors.groupingBy(stopTime -> stopTime.stop_id,
-                        Collectors.mapping(stopTime -> feed.trips.get(stopTime.trip_id).route_id, Collectors.toSet())));
+                        Collectors.mapping(stopTime -> feed.trips.get(stopTime.trip_id).route_id, Collectors.toSet()))), footPaths);
+    }
+
+    /**
+     * @param footPaths walking transfers between stops, as from {@link FootPathTable}. They are only used between
+     *                  stops which have no rule in transfers.txt.
+     */
+    Transfers(GTFSFeed feed, Map<String, Set<String>> routesByStop, List<Transfer> footPaths) {
+        final List<Transfer> allTransfers = new ArrayList<>(feed.transfers.values());
+        final Set<List<String>> stopPairsWithRules = allTransfers.stream()
+                .map(t -> Arrays.asList(t.from_stop_id, t.to_stop_id))
+                .collect(Collectors.toSet());
+        footPaths.stream()
+                .filter(t -> !stopPairsWithRules.contains(Arrays.asList(t.from_stop_id, t.to_stop_id)))
+                .forEach(allTransfers::add);
+        this.transfersToStop = allTransfers.stream().collect(Collectors.groupingBy(t -> t.to_stop_id));
+        this.transfersFromStop = allTransfers.stream().collect(Collectors.groupingBy(t -> t.from_stop_id));
+        this.routesByStop = routesByStop;
     }
 
     // Starts implementing the proposed GTFS extension for route and trip specific transfer rules.
@@ -52,6 +71,7 @@ class Transfers {
                 Transfer myRule = new Transfer();
                 myRule.from_stop_id = fromStop;
                 myRule.to_stop_id = toStopId;
+                myRule.min_transfer_time = findMostSpecificRule(transfers, null, toRouteId).min_transfer_time;
                 result.add(myRule);
             } else {
                 routesByStop.getOrDefault(fromStop, Collections.emptySet()).forEach(fromRoute -> {
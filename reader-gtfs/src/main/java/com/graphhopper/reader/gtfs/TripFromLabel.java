@@ -21,7 +21,6 @@ package com.graphhopper.reader.gtfs;
 import com.conveyal.gtfs.GTFSFeed;
 import com.conveyal.gtfs.model.Stop;
 import com.conveyal.gtfs.model.StopTime;
-import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.transit.realtime.GtfsRealtime;
 import com.graphhopper.PathWrapper;
 import com.graphhopper.Trip;
@@ -101,11 +100,11 @@ class TripFromLabel {
                             .filter(leg -> leg instanceof Trip.PtLeg)
                             .map(leg -> (Trip.PtLeg) leg)
                             .map(ptLeg -> {
-                                final GTFSFeed gtfsFeed = gtfsStorage.getGtfsFeeds().get(ptLeg.feed_id);
+                                final GtfsColumns columns = gtfsStorage.getColumns();
                                 return new com.graphhopper.gtfs.fare.Trip.Segment(ptLeg.route_id,
                                         Duration.between(firstPtDepartureTime, GtfsHelper.localDateTimeFromDate(ptLeg.getDepartureTime())).getSeconds(),
-                                        gtfsFeed.stops.get(ptLeg.stops.get(0).stop_id).zone_id, gtfsFeed.stops.get(ptLeg.stops.get(ptLeg.stops.size() - 1).stop_id).zone_id,
-                                        ptLeg.stops.stream().map(s -> gtfsFeed.stops.get(s.stop_id).zone_id).collect(Collectors.toSet()));
+                                        columns.getStop(ptLeg.feed_id, ptLeg.stops.get(0).stop_id).zone_id, columns.getStop(ptLeg.feed_id, ptLeg.stops.get(ptLeg.stops.size() - 1).stop_id).zone_id,
+                                        ptLeg.stops.stream().map(s -> columns.getStop(ptLeg.feed_id, s.stop_id).zone_id).collect(Collectors.toSet()));
                             })
                             .forEach(faresTrip.segments::add);
                     Fares.cheapestFare(gtfsStorage.getFares(), faresTrip)
@@ -114,6 +113,32 @@ class TripFromLabel {
         return path;
     }
 
+    Trip.PtLeg getPtLeg(RaptorTimetable timetable, Raptor.Ride ride) {
+        final RaptorTimetable.TripRecord trip = ride.trip;
+        final List<Trip.Stop> stops = new ArrayList<>();
+        final List<Coordinate> coordinates = new ArrayList<>();
+        double distance = 0.0;
+        for (int i = ride.boardPosition; i <= ride.alightPosition; i++) {
+            final int stop = trip.stops[i];
+            if (i > ride.boardPosition) {
+                final int previousStop = trip.stops[i - 1];
+                distance += Helper.DIST_EARTH.calcDist(timetable.stopLats[previousStop], timetable.stopLons[previousStop], timetable.stopLats[stop], timetable.stopLons[stop]);
+            }
+            final Date arrival = i > ride.boardPosition ? Date.from(Instant.ofEpochSecond(ride.serviceDayStart + trip.arrivals[i])) : null;
+            final Date plannedArrival = i > ride.boardPosition ? Date.from(Instant.ofEpochSecond(ride.serviceDayStart + trip.plannedArrivals[i])) : null;
+            final Date departure = i < ride.alightPosition ? Date.from(Instant.ofEpochSecond(ride.serviceDayStart + trip.departures[i])) : null;
+            final Date plannedDeparture = i < ride.alightPosition ? Date.from(Instant.ofEpochSecond(ride.serviceDayStart + trip.plannedDepartures[i])) : null;
+            final Coordinate coordinate = new Coordinate(timetable.stopLons[stop], timetable.stopLats[stop]);
+            coordinates.add(coordinate);
+            stops.add(new Trip.Stop(timetable.stopIds[stop], timetable.stopNames[stop], geometryFactory.createPoint(coordinate),
+                    arrival, plannedArrival, trip.realtime ? arrival : null, trip.noAlight != null && trip.noAlight[i],
+                    departure, plannedDeparture, trip.realtime ? departure : null, trip.noBoard != null && trip.noBoard[i]));
+        }
+        return new Trip.PtLeg(timetable.feedIds[trip.feed], false, trip.tripId, timetable.routeIds[trip.route], trip.name, stops, distance,
+                (ride.getArrivalTime() - ride.getDepartureTime()) * 1000,
+                geometryFactory.createLineString(coordinates.toArray(new Coordinate[coordinates.size()])));
+    }
+
     List<Trip.Leg> getTrip(Translation tr, Graph queryGraph, Weighting weighting, List<Label.Transition> transitions) {
         final List<List<Label.Transition>> partitions = getPartitions(transitions);
         final List<Trip.Leg> legs = getLegs(tr, queryGraph, weighting, partitions);
@@ -183,6 +208,7 @@ class TripFromLabel {
 
         private final GtfsRealtime.TripDescriptor tripDescriptor;
         private final List<Trip.Stop> stops = new ArrayList<>();
+        private final String feedId;
         private final GTFSFeed gtfsFeed;
         private Instant boardTime;
         private Instant arrivalTimeFromHopEdge;
@@ -193,6 +219,7 @@ class TripFromLabel {
 
         StopsFromBoardHopDwellEdges(String feedId, GtfsRealtime.TripDescriptor tripDescriptor) {
             this.tripDescriptor = tripDescriptor;
+            this.feedId = feedId;
             this.gtfsFeed = gtfsStorage.getGtfsFeeds().get(feedId);
             if (this.tripUpdate != null) {
                 validateTripUpdate(this.tripUpdate);
@@ -204,11 +231,11 @@ class TripFromLabel {
                 case BOARD: {
                     boardTime = Instant.ofEpochMilli(t.label.currentTime);
                     stopSequence = realtimeFeed.getStopSequence(t.edge.edgeIteratorState.getEdge());
-                    stopTime = realtimeFeed.getStopTime(gtfsFeed, tripDescriptor, t, boardTime, stopSequence);
-                    tripUpdate = realtimeFeed.getTripUpdate(gtfsFeed, tripDescriptor, t, boardTime).orElse(null);
+                    stopTime = realtimeFeed.getStopTime(feedId, tripDescriptor, t, boardTime, stopSequence);
+                    tripUpdate = realtimeFeed.getTripUpdate(tripDescriptor, t, boardTime).orElse(null);
                     Instant plannedDeparture = Instant.ofEpochMilli(t.label.currentTime);
                     Optional<Instant> updatedDeparture = getDepartureDelay(stopSequence).map(delay -> plannedDeparture.plus(delay, SECONDS));
-                    Stop stop = gtfsFeed.stops.get(stopTime.stop_id);
+                    Stop stop = gtfsStorage.getColumns().getStop(feedId, stopTime.stop_id);
                     stops.add(new Trip.Stop(stop.stop_id, stop.stop_name, geometryFactory.createPoint(new Coordinate(stop.stop_lon, stop.stop_lat)),
                             null, null, null, isArrivalCancelled(stopSequence),
                             updatedDeparture.map(Date::from).orElse(Date.from(plannedDeparture)), Date.from(plannedDeparture),
@@ -217,7 +244,7 @@ class TripFromLabel {
                 }
                 case HOP: {
                     stopSequence = realtimeFeed.getStopSequence(t.edge.edgeIteratorState.getEdge());
-                    stopTime = realtimeFeed.getStopTime(gtfsFeed, tripDescriptor, t, boardTime, stopSequence);
+                    stopTime = realtimeFeed.getStopTime(feedId, tripDescriptor, t, boardTime, stopSequence);
                     arrivalTimeFromHopEdge = Instant.ofEpochMilli(t.label.currentTime);
                     updatedArrival = getArrivalDelay(stopSequence).map(delay -> arrivalTimeFromHopEdge.plus(delay, SECONDS));
                     break;
@@ -225,7 +252,7 @@ class TripFromLabel {
                 case DWELL: {
                     Instant plannedDeparture = Instant.ofEpochMilli(t.label.currentTime);
                     Optional<Instant> updatedDeparture = getDepartureDelay(stopTime.stop_sequence).map(delay -> plannedDeparture.plus(delay, SECONDS));
-                    Stop stop = gtfsFeed.stops.get(stopTime.stop_id);
+                    Stop stop = gtfsStorage.getColumns().getStop(feedId, stopTime.stop_id);
                     stops.add(new Trip.Stop(stop.stop_id, stop.stop_name, geometryFactory.createPoint(new Coordinate(stop.stop_lon, stop.stop_lat)),
                             updatedArrival.map(Date::from).orElse(Date.from(arrivalTimeFromHopEdge)), Date.from(arrivalTimeFromHopEdge),
                             updatedArrival.map(Date::from).orElse(null), isArrivalCancelled(stopSequence),
@@ -276,7 +303,7 @@ class TripFromLabel {
         }
 
         void finish() {
-            Stop stop = gtfsFeed.stops.get(stopTime.stop_id);
+            Stop stop = gtfsStorage.getColumns().getStop(feedId, stopTime.stop_id);
             stops.add(new Trip.Stop(stop.stop_id, stop.stop_name, geometryFactory.createPoint(new Coordinate(stop.stop_lon, stop.stop_lat)),
                     updatedArrival.map(Date::from).orElse(Date.from(arrivalTimeFromHopEdge)), Date.from(arrivalTimeFromHopEdge),
                     updatedArrival.map(Date::from).orElse(null), isArrivalCancelled(stopSequence), null,
@@ -327,12 +354,7 @@ class TripFromLabel {
                 }
                 if (EnumSet.of(GtfsStorage.EdgeType.TRANSFER, GtfsStorage.EdgeType.LEAVE_TIME_EXPANDED_NETWORK).contains(edge.edgeType)) {
                     Geometry lineString = lineStringFromEdges(partition);
-                    GtfsRealtime.TripDescriptor tripDescriptor;
-                    try {
-                        tripDescriptor = GtfsRealtime.TripDescriptor.parseFrom(realtimeFeed.getTripDescriptor(partition.get(0).edge.edgeIteratorState.getEdge()));
-                    } catch (InvalidProtocolBufferException e) {
-                        throw new RuntimeException(e);
-                    }
+                    GtfsRealtime.TripDescriptor tripDescriptor = realtimeFeed.getTripDescriptor(partition.get(0).edge.edgeIteratorState.getEdge());
                     final StopsFromBoardHopDwellEdges stopsFromBoardHopDwellEdges = new StopsFromBoardHopDwellEdges(feedIdWithTimezone.feedId, tripDescriptor);
                     partition.stream()
                             .filter(e -> EnumSet.of(GtfsStorage.EdgeType.HOP, GtfsStorage.EdgeType.BOARD, GtfsStorage.EdgeType.DWELL).contains(e.edge.edgeType))
@@ -0,0 +1,218 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper;
+
+import com.google.transit.realtime.GtfsRealtime;
+import com.graphhopper.reader.gtfs.GraphHopperGtfs;
+import com.graphhopper.reader.gtfs.PtRouteResource;
+import com.graphhopper.reader.gtfs.Request;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.TranslationMap;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.time.*;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate.ScheduleRelationship.SCHEDULED;
+import static com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate.ScheduleRelationship.SKIPPED;
+import static com.graphhopper.reader.gtfs.GtfsHelper.time;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the RAPTOR engine with the default router on the same requests.
+ */
+public class RaptorIT {
+
+    private static final String GRAPH_LOC = "target/RaptorIT";
+    private static final ZoneId zoneId = ZoneId.of("America/Los_Angeles");
+    private static final List<double[]> STOPS = Arrays.asList(
+            new double[]{36.425288, -117.133162}, // FUR_CREEK_RES
+            new double[]{36.868446, -116.784582}, // BEATTY_AIRPORT
+            new double[]{36.88108, -116.81797}, // BULLFROG
+            new double[]{36.915682, -116.751677}, // STAGECOACH
+            new double[]{36.914893, -116.76821}, // NADAV
+            new double[]{36.914944, -116.761472}, // NANAA
+            new double[]{36.909489, -116.768242}, // DADAN
+            new double[]{36.905697, -116.76218}, // EMSI
+            new double[]{36.641496, -116.40094}); // AMV
+    private static PtRouteResource.Factory factory;
+    private static PtRouteResource ptRouteResource;
+    private static GraphHopperGtfs graphHopperGtfs;
+
+    @BeforeClass
+    public static void init() {
+        GraphHopperConfig ghConfig = new GraphHopperConfig();
+        ghConfig.putObject("graph.flag_encoders", "car,foot");
+        ghConfig.putObject("graph.location", GRAPH_LOC);
+        ghConfig.putObject("gtfs.file", "files/sample-feed.zip");
+        Helper.removeDir(new File(GRAPH_LOC));
+        graphHopperGtfs = new GraphHopperGtfs(ghConfig);
+        graphHopperGtfs.init(ghConfig);
+        graphHopperGtfs.importOrLoad();
+        factory = PtRouteResource.createFactory(new TranslationMap().doImport(), graphHopperGtfs, graphHopperGtfs.getLocationIndex(), graphHopperGtfs.getGtfsStorage());
+        ptRouteResource = factory.createWithoutRealtimeFeed();
+    }
+
+    @AfterClass
+    public static void close() {
+        graphHopperGtfs.close();
+    }
+
+    @Test
+    public void testSameEarliestArrivalAsLabelSetting() {
+        for (LocalDateTime time : Arrays.asList(LocalDateTime.of(2007, 1, 1, 0, 0), LocalDateTime.of(2007, 1, 1, 6, 44),
+                LocalDateTime.of(2007, 1, 1, 13, 0), LocalDateTime.of(2007, 1, 6, 8, 0), LocalDateTime.of(2007, 1, 6, 23, 30))) {
+            for (double[] from : STOPS) {
+                for (double[] to : STOPS) {
+                    if (from == to)
+                        continue;
+                    Request request = new Request(from[0], from[1], to[0], to[1]);
+                    request.setEarliestDepartureTime(time.atZone(zoneId).toInstant());
+                    request.setIgnoreTransfers(true);
+                    assertSameBestTime(ptRouteResource, request);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSameLatestDepartureAsLabelSetting() {
+        for (LocalDateTime time : Arrays.asList(LocalDateTime.of(2007, 1, 1, 10, 0), LocalDateTime.of(2007, 1, 6, 18, 0))) {
+            for (double[] from : STOPS) {
+                for (double[] to : STOPS) {
+                    if (from == to)
+                        continue;
+                    Request request = new Request(from[0], from[1], to[0], to[1]);
+                    request.setEarliestDepartureTime(time.atZone(zoneId).toInstant());
+                    request.setArriveBy(true);
+                    request.setIgnoreTransfers(true);
+                    assertSameBestTime(ptRouteResource, request);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRoute1() {
+        Request request = new Request(36.914893, -116.76821, 36.914944, -116.761472); // NADAV to NANAA
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 0, 0).atZone(zoneId).toInstant());
+        request.setRaptor(true);
+        GHResponse response = ptRouteResource.route(request);
+        assertFalse(response.hasErrors());
+        assertEquals(1, response.getAll().size());
+        assertEquals("Expected travel time == scheduled arrival time", time(6, 49), response.getBest().getTime());
+        Trip.PtLeg ptLeg = (Trip.PtLeg) response.getBest().getLegs().get(0);
+        assertEquals("CITY2", ptLeg.trip_id);
+        assertEquals("NADAV", ptLeg.stops.get(0).stop_id);
+        assertEquals("NANAA", ptLeg.stops.get(ptLeg.stops.size() - 1).stop_id);
+    }
+
+    @Test
+    public void testMaxTransfers() {
+        Request request = new Request(36.914893, -116.76821, 36.641496, -116.40094); // NADAV to AMV
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 6, 8, 0).atZone(zoneId).toInstant());
+        request.setRaptor(true);
+        GHResponse response = ptRouteResource.route(request);
+        assertFalse(response.hasErrors());
+        assertTrue(response.getBest().getNumChanges() > 0);
+
+        request.setMaxTransfers(response.getBest().getNumChanges() - 1);
+        GHResponse withFewerTransfers = ptRouteResource.route(request);
+        for (PathWrapper path : withFewerTransfers.getAll()) {
+            assertTrue(path.getNumChanges() < response.getBest().getNumChanges());
+            assertTrue(path.getTime() > response.getBest().getTime());
+        }
+    }
+
+    @Test
+    public void testBlockedRouteTypes() {
+        Request request = new Request(36.914893, -116.76821, 36.914944, -116.761472); // NADAV to NANAA
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 7, 44).atZone(zoneId).toInstant());
+        request.setRaptor(true);
+        request.setBlockedRouteTypes(8);
+        assertTrue("When I block busses, there is no solution", ptRouteResource.route(request).getAll().isEmpty());
+    }
+
+    @Test
+    public void testRealtimeDelay() {
+        Request request = new Request(36.914893, -116.76821, 36.914944, -116.761472); // NADAV to NANAA
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 6, 44).atZone(zoneId).toInstant());
+
+        // The 6:00 departure of my line is going to be super-late, so I take the next one
+        final GtfsRealtime.FeedMessage.Builder feedMessageBuilder = GtfsRealtime.FeedMessage.newBuilder();
+        feedMessageBuilder.setHeader(GtfsRealtime.FeedHeader.newBuilder()
+                .setGtfsRealtimeVersion("1")
+                .setTimestamp(ZonedDateTime.of(LocalDate.of(2007, 1, 1), LocalTime.of(0, 0), zoneId).toEpochSecond()));
+        feedMessageBuilder.addEntityBuilder()
+                .setId("1")
+                .getTripUpdateBuilder()
+                .setTrip(GtfsRealtime.TripDescriptor.newBuilder().setTripId("CITY2").setStartTime("06:00:00"))
+                .addStopTimeUpdateBuilder()
+                .setScheduleRelationship(SCHEDULED)
+                .setStopSequence(3)
+                .setArrival(GtfsRealtime.TripUpdate.StopTimeEvent.newBuilder().setDelay(3600).build());
+        PtRouteResource withDelay = factory.createWith(feedMessageBuilder.build());
+        assertSameBestTime(withDelay, request);
+
+        request.setRaptor(true);
+        GHResponse response = withDelay.route(request);
+        assertEquals(time(0, 35), response.getBest().getTime());
+    }
+
+    @Test
+    public void testRealtimeSkippedStop() {
+        Request request = new Request(36.914893, -116.76821, 36.914944, -116.761472); // NADAV to NANAA
+        request.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 6, 44).atZone(zoneId).toInstant());
+        request.setRaptor(true);
+
+        // The 6:00 departure of my line is going to skip my departure stop
+        final GtfsRealtime.FeedMessage.Builder feedMessageBuilder = GtfsRealtime.FeedMessage.newBuilder();
+        feedMessageBuilder.setHeader(GtfsRealtime.FeedHeader.newBuilder()
+                .setGtfsRealtimeVersion("1")
+                .setTimestamp(ZonedDateTime.of(LocalDate.of(2007, 1, 1), LocalTime.of(0, 0), zoneId).toEpochSecond()));
+        feedMessageBuilder.addEntityBuilder()
+                .setId("1")
+                .getTripUpdateBuilder()
+                .setTrip(GtfsRealtime.TripDescriptor.newBuilder().setTripId("CITY2").setStartTime("06:00:00"))
+                .addStopTimeUpdateBuilder()
+                .setStopSequence(3)
+                .setScheduleRelationship(SKIPPED);
+
+        GHResponse response = factory.createWith(feedMessageBuilder.build()).route(request);
+        assertEquals("I have to wait half an hour for the next one (and ride 5 minutes)", time(0, 35), response.getBest().getTime());
+        assertFalse(((Trip.PtLeg) response.getBest().getLegs().get(0)).stops.get(0).departureCancelled);
+    }
+
+    private void assertSameBestTime(PtRouteResource resource, Request request) {
+        request.setRaptor(false);
+        GHResponse expected = resource.route(request);
+        request.setRaptor(true);
+        GHResponse actual = resource.route(request);
+        String message = request.getPoints() + " " + request.getEarliestDepartureTime() + (request.isArriveBy() ? " arrive by" : "");
+        assertEquals(message, bestPossibleTime(expected), bestPossibleTime(actual));
+    }
+
+    private static long bestPossibleTime(GHResponse response) {
+        return response.getAll().stream().filter(path -> !path.isImpossible()).mapToLong(PathWrapper::getTime).min().orElse(-1);
+    }
+}
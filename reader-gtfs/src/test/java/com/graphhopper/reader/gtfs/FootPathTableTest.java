@@ -0,0 +1,96 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.gtfs;
+
+import com.conveyal.gtfs.model.Transfer;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FootPathTableTest {
+
+    private static final String GRAPH_LOC = "target/FootPathTableTest";
+    private GraphHopperGtfs graphHopperGtfs;
+
+    @BeforeEach
+    public void init() {
+        Helper.removeDir(new File(GRAPH_LOC));
+        graphHopperGtfs = createGraphHopperGtfs();
+    }
+
+    @AfterEach
+    public void close() {
+        graphHopperGtfs.close();
+        Helper.removeDir(new File(GRAPH_LOC));
+    }
+
+    private static GraphHopperGtfs createGraphHopperGtfs() {
+        GraphHopperConfig ghConfig = new GraphHopperConfig();
+        ghConfig.putObject("graph.flag_encoders", "car,foot");
+        ghConfig.putObject("datareader.file", "files/beatty.osm");
+        ghConfig.putObject("gtfs.file", "files/sample-feed.zip");
+        ghConfig.putObject("gtfs.max_transfer_distance", 1000);
+        ghConfig.putObject("graph.location", GRAPH_LOC);
+        GraphHopperGtfs graphHopperGtfs = new GraphHopperGtfs(ghConfig);
+        graphHopperGtfs.init(ghConfig);
+        graphHopperGtfs.importOrLoad();
+        return graphHopperGtfs;
+    }
+
+    @Test
+    public void testFootPaths() {
+        assertFootPaths(graphHopperGtfs.getGtfsStorage().getFootPathTable());
+    }
+
+    @Test
+    public void testFootPathsAfterLoading() {
+        graphHopperGtfs.close();
+        graphHopperGtfs = createGraphHopperGtfs();
+        assertFootPaths(graphHopperGtfs.getGtfsStorage().getFootPathTable());
+    }
+
+    private static void assertFootPaths(FootPathTable footPathTable) {
+        int walkSeconds = footPathTable.getWalkSeconds("NADAV", "NANAA");
+        assertTrue(walkSeconds > 0);
+        assertEquals(walkSeconds, footPathTable.getWalkSeconds("NANAA", "NADAV"), "Walking is the same in both directions");
+        assertEquals(walkSeconds, footPathTable.getFootPaths("NADAV").get("NANAA").intValue());
+        assertEquals(FootPathTable.NO_FOOT_PATH, footPathTable.getWalkSeconds("NADAV", "AMV"), "Too far to walk");
+        assertEquals(FootPathTable.NO_FOOT_PATH, footPathTable.getWalkSeconds("NADAV", "NADAV"));
+        assertEquals(FootPathTable.NO_FOOT_PATH, footPathTable.getWalkSeconds("NADAV", "NOT_A_STOP"));
+        assertTrue(footPathTable.getFootPaths("AMV").isEmpty());
+    }
+
+    @Test
+    public void testFootPathsAreTransfers() {
+        GtfsStorage gtfsStorage = graphHopperGtfs.getGtfsStorage();
+        int walkSeconds = gtfsStorage.getFootPathTable().getWalkSeconds("NADAV", "NANAA");
+        Transfers transfers = gtfsStorage.getTransfers().get("gtfs_0");
+        Transfer transfer = transfers.getTransfersToStop("NANAA", "CITY").stream()
+                .filter(t -> t.from_stop_id.equals("NADAV"))
+                .findFirst().get();
+        assertEquals(walkSeconds, transfer.min_transfer_time, "Minimum transfer time is the walking time");
+        assertTrue(transfers.getTransfersToStop("NANAA", "CITY").stream().noneMatch(t -> t.from_stop_id.equals("AMV")));
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.Stop;
+import com.conveyal.gtfs.model.StopTime;
+import com.google.common.collect.Lists;
+import com.google.transit.realtime.GtfsRealtime;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GtfsColumnsTest {
+
+    private static final String GRAPH_LOC = "target/GtfsColumnsTest";
+    private GraphHopperGtfs graphHopperGtfs;
+
+    @BeforeEach
+    public void init() {
+        Helper.removeDir(new File(GRAPH_LOC));
+        graphHopperGtfs = createGraphHopperGtfs();
+    }
+
+    @AfterEach
+    public void close() {
+        graphHopperGtfs.close();
+        Helper.removeDir(new File(GRAPH_LOC));
+    }
+
+    private static GraphHopperGtfs createGraphHopperGtfs() {
+        GraphHopperConfig ghConfig = new GraphHopperConfig();
+        ghConfig.putObject("graph.flag_encoders", "car,foot");
+        ghConfig.putObject("graph.location", GRAPH_LOC);
+        ghConfig.putObject("gtfs.file", "files/sample-feed.zip,files/another-sample-feed.zip");
+        GraphHopperGtfs graphHopperGtfs = new GraphHopperGtfs(ghConfig);
+        graphHopperGtfs.init(ghConfig);
+        graphHopperGtfs.importOrLoad();
+        return graphHopperGtfs;
+    }
+
+    @Test
+    public void testSameAsFeeds() throws Exception {
+        assertSameAsFeeds(graphHopperGtfs.getGtfsStorage());
+    }
+
+    @Test
+    public void testSameAsFeedsAfterLoading() throws Exception {
+        graphHopperGtfs.close();
+        graphHopperGtfs = createGraphHopperGtfs();
+        assertSameAsFeeds(graphHopperGtfs.getGtfsStorage());
+    }
+
+    private static void assertSameAsFeeds(GtfsStorage gtfsStorage) throws Exception {
+        GtfsColumns columns = gtfsStorage.getColumns();
+        assertFalse(gtfsStorage.getTripDescriptors().isEmpty());
+        for (Map.Entry<Integer, byte[]> entry : gtfsStorage.getTripDescriptors().entrySet()) {
+            assertEquals(GtfsRealtime.TripDescriptor.parseFrom(entry.getValue()), columns.getTripDescriptor(entry.getKey()));
+        }
+        for (Map.Entry<Integer, Integer> entry : gtfsStorage.getStopSequences().entrySet()) {
+            assertEquals(entry.getValue().intValue(), columns.getStopSequence(entry.getKey()));
+        }
+        assertNull(columns.getTripDescriptor(Integer.MAX_VALUE));
+        assertEquals(GtfsColumns.NO_STOP_SEQUENCE, columns.getStopSequence(Integer.MAX_VALUE));
+
+        for (Map.Entry<String, GTFSFeed> entry : gtfsStorage.getGtfsFeeds().entrySet()) {
+            String feedId = entry.getKey();
+            GTFSFeed feed = entry.getValue();
+            for (Stop stop : feed.stops.values()) {
+                Stop columnStop = columns.getStop(feedId, stop.stop_id);
+                assertEquals(stop.stop_name, columnStop.stop_name);
+                assertEquals(stop.zone_id, columnStop.zone_id);
+                assertEquals(stop.stop_lat, columnStop.stop_lat);
+                assertEquals(stop.stop_lon, columnStop.stop_lon);
+            }
+            for (String tripId : feed.trips.keySet()) {
+                List<StopTime> stopTimes = columns.getStopTimes(feedId, tripId);
+                List<StopTime> expectedStopTimes = Lists.newArrayList(feed.getOrderedStopTimesForTrip(tripId));
+                assertEquals(expectedStopTimes.size(), stopTimes.size());
+                for (int i = 0; i < stopTimes.size(); i++) {
+                    StopTime expected = expectedStopTimes.get(i);
+                    assertSameStopTime(expected, stopTimes.get(i));
+                    assertSameStopTime(expected, columns.getStopTime(feedId, tripId, expected.stop_sequence));
+                }
+                assertNull(columns.getStopTime(feedId, tripId, 1000));
+            }
+            assertEquals(feed.stop_times.values().stream()
+                            .collect(Collectors.groupingBy(stopTime -> stopTime.stop_id,
+                                    Collectors.mapping(stopTime -> feed.trips.get(stopTime.trip_id).route_id, Collectors.toSet()))),
+                    columns.getRoutesByStop(feedId));
+        }
+    }
+
+    private static void assertSameStopTime(StopTime expected, StopTime actual) {
+        assertEquals(expected.trip_id, actual.trip_id);
+        assertEquals(expected.stop_id, actual.stop_id);
+        assertEquals(expected.stop_sequence, actual.stop_sequence);
+        assertEquals(expected.arrival_time, actual.arrival_time);
+        assertEquals(expected.departure_time, actual.departure_time);
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.reader.gtfs;
+
+import com.google.transit.realtime.GtfsRealtime;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.File;
+import java.time.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate.ScheduleRelationship.SCHEDULED;
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RealtimeFeedUpdaterTest {
+
+    private static final String GRAPH_LOC = "target/RealtimeFeedUpdaterTest";
+    private static final ZoneId zoneId = ZoneId.of("America/Los_Angeles");
+    private GraphHopperGtfs graphHopperGtfs;
+
+    @BeforeAll
+    public void init() {
+        GraphHopperConfig ghConfig = new GraphHopperConfig();
+        ghConfig.putObject("graph.flag_encoders", "car,foot");
+        ghConfig.putObject("graph.location", GRAPH_LOC);
+        ghConfig.putObject("gtfs.file", "files/sample-feed.zip");
+        Helper.removeDir(new File(GRAPH_LOC));
+        graphHopperGtfs = new GraphHopperGtfs(ghConfig);
+        graphHopperGtfs.init(ghConfig);
+        graphHopperGtfs.importOrLoad();
+    }
+
+    @AfterAll
+    public void close() {
+        graphHopperGtfs.close();
+    }
+
+    @Test
+    public void testOnlyRebuildWhenTripUpdatesChange() {
+        RealtimeFeedUpdater updater = new RealtimeFeedUpdater(graphHopperGtfs.getGraphHopperStorage(), graphHopperGtfs.getGtfsStorage());
+        RealtimeFeed first = updater.update(feed(0, 3600, 0));
+        assertTrue(updater.isLastUpdateRebuilt());
+        assertEquals(1, updater.getLastChangedTripUpdates());
+        assertFalse(first.getAdditionalEdges().isEmpty());
+        // the RAPTOR timetable with the realtime overlay is created once per snapshot
+        RaptorTimetable timetable = first.getRaptorTimetable();
+        assertNotSame(graphHopperGtfs.getGtfsStorage().getRaptorTimetable(), timetable);
+        assertSame(timetable, first.getRaptorTimetable());
+
+        // only the timestamps are new
+        RealtimeFeed second = updater.update(feed(1, 3600, 60));
+        assertFalse(updater.isLastUpdateRebuilt());
+        assertEquals(0, updater.getLastChangedTripUpdates());
+        assertNotSame(first, second);
+        assertSame(first.getAdditionalEdges(), second.getAdditionalEdges());
+        assertSame(timetable, second.getRaptorTimetable());
+        assertSame(second, updater.getRealtimeFeed());
+        assertEquals(ZonedDateTime.of(LocalDate.of(2007, 1, 1), LocalTime.of(0, 1), zoneId).toEpochSecond(),
+                second.feedMessages.get("gtfs_0").getHeader().getTimestamp());
+
+        // only the changed trip update is applied
+        RealtimeFeed third = updater.update(feed(2, 1800, 120));
+        assertFalse(updater.isLastUpdateRebuilt());
+        assertEquals(1, updater.getLastChangedTripUpdates());
+        assertOverlayEquals(fromProtobuf(feed(2, 1800, 120)), third);
+        assertNotSame(timetable, third.getRaptorTimetable());
+
+        updater.update(Collections.emptyMap());
+        assertTrue(updater.isLastUpdateRebuilt());
+        assertEquals(1, updater.getLastChangedTripUpdates());
+        assertTrue(updater.getRealtimeFeed().getAdditionalEdges().isEmpty());
+    }
+
+    @Test
+    public void testRebuildOnNewServiceDay() {
+        RealtimeFeedUpdater updater = new RealtimeFeedUpdater(graphHopperGtfs.getGraphHopperStorage(), graphHopperGtfs.getGtfsStorage());
+        updater.update(feed(23 * 60 + 59, 3600, 0));
+        assertTrue(updater.isLastUpdateRebuilt());
+        updater.update(feed(25 * 60, 3600, 0));
+        assertTrue(updater.isLastUpdateRebuilt());
+        assertEquals(0, updater.getLastChangedTripUpdates());
+    }
+
+    @Test
+    public void testOnlyApplyChangedTripUpdates() {
+        RealtimeFeedUpdater updater = new RealtimeFeedUpdater(graphHopperGtfs.getGraphHopperStorage(), graphHopperGtfs.getGtfsStorage());
+        RealtimeFeed first = updater.update(feed(0, 0, tripUpdate("CITY1", 600), tripUpdate("CITY2", 1200)));
+        assertTrue(updater.isLastUpdateRebuilt());
+        Set<VirtualEdgeIteratorState> firstEdges = Collections.newSetFromMap(new IdentityHashMap<>());
+        firstEdges.addAll(first.getAdditionalEdges());
+        int maxFirstEdge = first.getAdditionalEdges().stream().mapToInt(EdgeIteratorState::getEdge).max().getAsInt();
+
+        RealtimeFeed second = updater.update(feed(1, 60, tripUpdate("CITY1", 600), tripUpdate("CITY2", 1800)));
+        assertFalse(updater.isLastUpdateRebuilt());
+        assertEquals(1, updater.getLastChangedTripUpdates());
+        assertOverlayEquals(fromProtobuf(feed(1, 60, tripUpdate("CITY1", 600), tripUpdate("CITY2", 1800))), second);
+        // the edges of the unchanged trip update are shared, the ones of the changed trip update are new
+        List<VirtualEdgeIteratorState> newEdges = tripEdges(second).stream().filter(e -> !firstEdges.contains(e)).collect(Collectors.toList());
+        assertFalse(newEdges.isEmpty());
+        assertTrue(newEdges.size() < tripEdges(second).size());
+        assertTrue(newEdges.stream().allMatch(e -> e.getEdge() > maxFirstEdge));
+
+        RealtimeFeed third = updater.update(feed(2, 120, tripUpdate("CITY1", 600)));
+        assertFalse(updater.isLastUpdateRebuilt());
+        assertEquals(1, updater.getLastChangedTripUpdates());
+        assertOverlayEquals(fromProtobuf(feed(2, 120, tripUpdate("CITY1", 600))), third);
+        assertTrue(firstEdges.containsAll(tripEdges(third)));
+    }
+
+    @Test
+    public void testWireUpTimelinesOfAllTripUpdates() {
+        // the delayed departures of both trips at the same stop are on one timeline, connected by a wait edge
+        long waitEdges = waitEdges(fromProtobuf(feed(0, 0, tripUpdate("CITY1", 600), tripUpdate("CITY2", 600))));
+        assertTrue(waitEdges > waitEdges(fromProtobuf(feed(0, 0, tripUpdate("CITY1", 600)))) + waitEdges(fromProtobuf(feed(0, 0, tripUpdate("CITY2", 600)))));
+
+        RealtimeFeedUpdater updater = new RealtimeFeedUpdater(graphHopperGtfs.getGraphHopperStorage(), graphHopperGtfs.getGtfsStorage());
+        updater.update(feed(0, 0, tripUpdate("CITY1", 600)));
+        RealtimeFeed second = updater.update(feed(1, 60, tripUpdate("CITY1", 600), tripUpdate("CITY2", 600)));
+        assertFalse(updater.isLastUpdateRebuilt());
+        assertEquals(waitEdges, waitEdges(second));
+    }
+
+    @Test
+    public void testRebuildWithMoreThanOneTripUpdateForATrip() {
+        RealtimeFeedUpdater updater = new RealtimeFeedUpdater(graphHopperGtfs.getGraphHopperStorage(), graphHopperGtfs.getGtfsStorage());
+        updater.update(feed(0, 0, tripUpdate("CITY1", 600)));
+        RealtimeFeed second = updater.update(feed(1, 0, tripUpdate("CITY1", 600), tripUpdate("CITY1", 1200)));
+        assertTrue(updater.isLastUpdateRebuilt());
+        // both trip updates are applied
+        assertTrue(boardDelays(second).containsAll(Arrays.asList(600_000L, 1_200_000L)));
+        // the overlay of the update before does not tell which trip update was applied
+        updater.update(feed(2, 0, tripUpdate("CITY1", 1200)));
+        assertTrue(updater.isLastUpdateRebuilt());
+        updater.update(feed(3, 0, tripUpdate("CITY1", 600)));
+        assertFalse(updater.isLastUpdateRebuilt());
+    }
+
+    private RealtimeFeed fromProtobuf(Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        return RealtimeFeed.fromProtobuf(graphHopperGtfs.getGraphHopperStorage(), graphHopperGtfs.getGtfsStorage(),
+                PtEncodedValues.fromEncodingManager(graphHopperGtfs.getGraphHopperStorage().getEncodingManager()), feedMessages);
+    }
+
+    private void assertOverlayEquals(RealtimeFeed expected, RealtimeFeed actual) {
+        assertEquals(expected.getAdditionalEdges().size(), actual.getAdditionalEdges().size());
+        assertEquals(edgeTypesAndTimes(expected), edgeTypesAndTimes(actual));
+        assertEquals(boardDelays(expected), boardDelays(actual));
+    }
+
+    private List<VirtualEdgeIteratorState> tripEdges(RealtimeFeed realtimeFeed) {
+        PtEncodedValues ptEncodedValues = PtEncodedValues.fromEncodingManager(graphHopperGtfs.getGraphHopperStorage().getEncodingManager());
+        EnumSet<GtfsStorage.EdgeType> tripEdgeTypes = EnumSet.of(GtfsStorage.EdgeType.HOP, GtfsStorage.EdgeType.DWELL, GtfsStorage.EdgeType.BOARD, GtfsStorage.EdgeType.ALIGHT);
+        return realtimeFeed.getAdditionalEdges().stream()
+                .filter(e -> tripEdgeTypes.contains(e.get(ptEncodedValues.getTypeEnc())))
+                .collect(Collectors.toList());
+    }
+
+    private long waitEdges(RealtimeFeed realtimeFeed) {
+        PtEncodedValues ptEncodedValues = PtEncodedValues.fromEncodingManager(graphHopperGtfs.getGraphHopperStorage().getEncodingManager());
+        return realtimeFeed.getAdditionalEdges().stream()
+                .filter(e -> e.get(ptEncodedValues.getTypeEnc()) == GtfsStorage.EdgeType.WAIT)
+                .count();
+    }
+
+    private Map<String, Long> edgeTypesAndTimes(RealtimeFeed realtimeFeed) {
+        PtEncodedValues ptEncodedValues = PtEncodedValues.fromEncodingManager(graphHopperGtfs.getGraphHopperStorage().getEncodingManager());
+        return realtimeFeed.getAdditionalEdges().stream()
+                .collect(Collectors.groupingBy(e -> e.get(ptEncodedValues.getTypeEnc()) + ":" + e.get(ptEncodedValues.getTimeEnc()), TreeMap::new, Collectors.counting()));
+    }
+
+    private static List<Long> boardDelays(RealtimeFeed realtimeFeed) {
+        Instant now = Instant.ofEpochSecond(realtimeFeed.feedMessages.get("gtfs_0").getHeader().getTimestamp());
+        return realtimeFeed.getAdditionalEdges().stream()
+                .map(e -> realtimeFeed.getDelayForBoardEdge(e, now))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static Map<String, GtfsRealtime.FeedMessage> feed(int minutesAfterMidnight, int delay, long tripUpdateTimestamp) {
+        return feed(minutesAfterMidnight, tripUpdateTimestamp, tripUpdate("CITY2", delay));
+    }
+
+    private static Map<String, GtfsRealtime.FeedMessage> feed(int minutesAfterMidnight, long tripUpdateTimestamp, GtfsRealtime.TripUpdate.Builder... tripUpdates) {
+        GtfsRealtime.FeedMessage.Builder feedMessageBuilder = GtfsRealtime.FeedMessage.newBuilder();
+        feedMessageBuilder.setHeader(GtfsRealtime.FeedHeader.newBuilder()
+                .setGtfsRealtimeVersion("1")
+                .setTimestamp(ZonedDateTime.of(LocalDate.of(2007, 1, 1), LocalTime.of(0, 0), zoneId).plusMinutes(minutesAfterMidnight).toEpochSecond()));
+        for (GtfsRealtime.TripUpdate.Builder tripUpdate : tripUpdates) {
+            feedMessageBuilder.addEntityBuilder()
+                    .setId(Integer.toString(feedMessageBuilder.getEntityCount() + 1))
+                    .setTripUpdate(tripUpdate.setTimestamp(tripUpdateTimestamp));
+        }
+        return Collections.singletonMap("gtfs_0", feedMessageBuilder.build());
+    }
+
+    // the 6:00 run of the trip, delayed at its third stop
+    private static GtfsRealtime.TripUpdate.Builder tripUpdate(String tripId, int delay) {
+        GtfsRealtime.TripUpdate.Builder tripUpdate = GtfsRealtime.TripUpdate.newBuilder()
+                .setTrip(GtfsRealtime.TripDescriptor.newBuilder().setTripId(tripId).setStartTime("06:00:00"));
+        tripUpdate.addStopTimeUpdateBuilder()
+                .setScheduleRelationship(SCHEDULED)
+                .setStopSequence(3)
+                .setArrival(GtfsRealtime.TripUpdate.StopTimeEvent.newBuilder().setDelay(delay).build());
+        return tripUpdate;
+    }
+
+}
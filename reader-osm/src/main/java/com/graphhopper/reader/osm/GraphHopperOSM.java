@@ -17,7 +17,10 @@
  */
 package com.graphhopper.reader.osm;
 
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
 import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
 import com.graphhopper.json.geo.JsonFeatureCollection;
 import com.graphhopper.reader.DataReader;
 import com.graphhopper.routing.lm.PrepareLandmarks;
@@ -25,10 +28,17 @@ import com.graphhopper.routing.util.spatialrules.AbstractSpatialRule;
 import com.graphhopper.routing.util.spatialrules.SpatialRule;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookup;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookupBuilder;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.index.EdgeIndex;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.EdgeIteratorState;
 import org.locationtech.jts.geom.Polygon;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
@@ -39,7 +49,10 @@ import java.util.List;
  */
 public class GraphHopperOSM extends GraphHopper {
     private final EdgeIndex edgeIndex = new EdgeIndex();
-
+    private boolean singlePassImport = false;
+    private String nodeMapType = "btree";
+    private boolean storeOSMIds = false;
+    private OSMIdIndex osmIdIndex;
 
     private final JsonFeatureCollection landmarkSplittingFeatureCollection;
 
@@ -53,19 +66,165 @@ public class GraphHopperOSM extends GraphHopper {
     }
 
     @Override
-    protected DataReader createReader(GraphHopperStorage ghStorage) {
+    public GraphHopper init(GraphHopperConfig ghConfig) {
+        super.init(ghConfig);
+        singlePassImport = ghConfig.getBool("datareader.single_pass", singlePassImport);
+        nodeMapType = ghConfig.getString("datareader.node_map", nodeMapType);
+        storeOSMIds = ghConfig.getBool("datareader.osm_ids", storeOSMIds);
+        checkStoreOSMIds();
+        return this;
+    }
+
+    private void checkStoreOSMIds() {
+        // sorting the graph renumbers the edges after the OSM ids were stored for the original edge ids
+        if (storeOSMIds && isSortGraph())
+            throw new IllegalArgumentException("datareader.osm_ids cannot be used together with graph.do_sort");
+    }
+
+    /**
+     * Reads the nodes of the OSM file only once, see {@link OSMReader#setSinglePass(boolean)}.
+     */
+    public GraphHopperOSM setSinglePassImport(boolean singlePassImport) {
+        this.singlePassImport = singlePassImport;
+        return this;
+    }
+
+    /**
+     * @see OSMReader#setNodeMapType(String)
+     */
+    public GraphHopperOSM setNodeMapType(String nodeMapType) {
+        this.nodeMapType = nodeMapType;
+        return this;
+    }
+
+    /**
+     * Stores the OSM ids of every edge which is necessary to apply OSM change files later, see
+     * {@link #applyOSMChanges(String)}. This needs 32 bytes per edge and 8 bytes per pillar node and cannot be
+     * combined with a sorted graph.
+     */
+    public GraphHopperOSM setStoreOSMIds(boolean storeOSMIds) {
+        this.storeOSMIds = storeOSMIds;
+        return this;
+    }
+
+    @Override
+    protected DataReader createReader(final GraphHopperStorage ghStorage) {
+        checkStoreOSMIds();
+        if (storeOSMIds) {
+            Directory dir = ghStorage.getDirectory();
+            if (dir.getDefaultType().isMMap())
+                new File(dir.getLocation()).mkdirs();
+            osmIdIndex = new OSMIdIndex(dir).create(1000);
+        }
+        // the OSM ids of the tower nodes are only known while reading
+        final LongArrayList towerNodeOSMIds = new LongArrayList();
         return initDataReader(new OSMReader(ghStorage) {
+                @Override
+                int addTowerNode(long osmId, double lat, double lon, double ele) {
+                    int id = super.addTowerNode(osmId, lat, lon, ele);
+                    if (osmIdIndex != null) {
+                        int towerNode = -id - 3;
+                        if (towerNode >= towerNodeOSMIds.size())
+                            towerNodeOSMIds.resize(towerNode + 1);
+                        towerNodeOSMIds.set(towerNode, osmId);
+                    }
+                    return id;
+                }
+
                 @Override
                 protected void storeOsmWayID(int edgeId, long osmWayId) {
                     super.storeOsmWayID(edgeId, osmWayId);
                     edgeIndex.put(edgeId, osmWayId);
+                    if (osmIdIndex != null) {
+                        EdgeIteratorState edge = ghStorage.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+                        osmIdIndex.setIds(edgeId, osmWayId, towerNodeOSMIds.get(edge.getBaseNode()),
+                                towerNodeOSMIds.get(edge.getAdjNode()));
+                    }
+                }
+
+                @Override
+                protected void storeOsmPillarNodeIDs(int edgeId, LongArrayList osmNodeIds) {
+                    osmIdIndex.setPillarIds(edgeId, osmNodeIds);
                 }
 
                 @Override
                 protected void finishedReading() {
                     super.finishedReading();
+                    towerNodeOSMIds.release();
                 }
-            });
+            }.setSinglePass(singlePassImport).setNodeMapType(nodeMapType).setStorePillarNodeIds(osmIdIndex != null));
+    }
+
+    @Override
+    public boolean load(String graphHopperFolder) {
+        if (!super.load(graphHopperFolder))
+            return false;
+
+        if (storeOSMIds) {
+            osmIdIndex = new OSMIdIndex(getGraphHopperStorage().getDirectory());
+            if (!osmIdIndex.loadExisting())
+                throw new IllegalStateException("The graph in " + graphHopperFolder + " was imported without datareader.osm_ids");
+        }
+        return true;
+    }
+
+    /**
+     * Applies the specified OSM change file (.osc or .osc.gz) to the imported graph, stores the result and notifies
+     * the graph change listeners.
+     * <p>
+     * The graph and the location index are changed in place and this is not thread safe: no routing request must
+     * run while the changes are applied. Either hold an exclusive lock that also the requests acquire or apply the
+     * changes to a copy of the graph folder and swap the GraphHopper instance afterwards.
+     *
+     * @return the updater with the statistics and the CH and LM profiles that have to be prepared again
+     */
+    public OSMChangeUpdater applyOSMChanges(String oscFile) throws IOException {
+        ensureWriteAccess();
+        OSMChangeUpdater updater = new OSMChangeUpdater(this).apply(new File(oscFile));
+        flush();
+        getPopularityIndex().flush();
+        if (getEdgeElevationIndex() != null)
+            getEdgeElevationIndex().flush();
+        fireGraphChanged();
+        return updater;
+    }
+
+    /**
+     * Adds the specified new or moved edges to the location index. The location index is created again if this is
+     * not possible, e.g. because the graph bounds changed.
+     */
+    void updateLocationIndex(IntArrayList edges) {
+        if (getLocationIndex() instanceof LocationIndexTree && ((LocationIndexTree) getLocationIndex()).addEdges(edges)) {
+            getLocationIndex().flush();
+            return;
+        }
+
+        Directory dir = getGraphHopperStorage().getDirectory();
+        DataAccess locationIndexData = dir.find("location_index", DAType.getPreferredInt(dir.getDefaultType()));
+        getLocationIndex().close();
+        dir.remove(locationIndexData);
+        setLocationIndex(createLocationIndex(dir));
+    }
+
+    /**
+     * @return the OSM ids of the edges or null if they are not stored, see {@link #setStoreOSMIds(boolean)}
+     */
+    public OSMIdIndex getOSMIdIndex() {
+        return osmIdIndex;
+    }
+
+    @Override
+    protected void flush() {
+        super.flush();
+        if (osmIdIndex != null)
+            osmIdIndex.flush();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (osmIdIndex != null)
+            osmIdIndex.close();
     }
 
     public EdgeIndex getEdgeIndex() {
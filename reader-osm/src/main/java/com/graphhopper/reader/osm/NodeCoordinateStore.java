@@ -0,0 +1,86 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.coll.DenseLongIntMap;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+/**
+ * Stores the coordinates of all OSM nodes for the single pass import, see {@link OSMReader#setSinglePass(boolean)}.
+ * The latitudes and longitudes are stored in two memory mapped {@link DenseLongIntMap}s, which costs 8 bytes of
+ * temporary disk space for every id up to the highest node id but no lookup structure.
+ */
+class NodeCoordinateStore {
+    // Helper.degreeToInt never returns this value, so it marks a missing node
+    private static final int NO_NODE = Integer.MIN_VALUE;
+    private final DenseLongIntMap latitudes;
+    private final DenseLongIntMap longitudes;
+
+    NodeCoordinateStore(Directory dir) {
+        latitudes = new DenseLongIntMap(dir, "tmp_node_latitudes", DAType.MMAP, NO_NODE);
+        longitudes = new DenseLongIntMap(dir, "tmp_node_longitudes", DAType.MMAP, NO_NODE);
+    }
+
+    void setNode(long osmId, double lat, double lon) {
+        latitudes.put(osmId, Helper.degreeToInt(lat));
+        longitudes.put(osmId, Helper.degreeToInt(lon));
+    }
+
+    /**
+     * @return true if the coordinates of the specified node were stored
+     */
+    boolean contains(long osmId) {
+        return latitudes.get(osmId) != NO_NODE;
+    }
+
+    double getLatitude(long osmId) {
+        int latInt = latitudes.get(osmId);
+        return latInt == NO_NODE ? Double.NaN : toDegree(latInt);
+    }
+
+    double getLongitude(long osmId) {
+        int lonInt = longitudes.get(osmId);
+        return lonInt == NO_NODE ? Double.NaN : toDegree(lonInt);
+    }
+
+    /**
+     * Helper.degreeToInt truncates, so we return the middle of the interval of the stored value. Otherwise the
+     * coordinate could end up one unit off when it is stored in the graph again.
+     */
+    private static double toDegree(int intValue) {
+        return Helper.intToDegree(intValue) + Math.signum(intValue) * Helper.intToDegree(1) / 2;
+    }
+
+    long getNodes() {
+        return latitudes.getSize();
+    }
+
+    /**
+     * @return the size of the temporary files in MB
+     */
+    long getCapacityInMB() {
+        return latitudes.getMemoryUsage() + longitudes.getMemoryUsage();
+    }
+
+    void clear() {
+        latitudes.clear();
+        longitudes.clear();
+    }
+}
@@ -0,0 +1,645 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.graphhopper.config.CHProfileConfig;
+import com.graphhopper.config.LMProfileConfig;
+import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.PopularityIndex;
+import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Applies an OSM change file (.osc or .osc.gz) to the graph of an existing import, which avoids a full re-import
+ * for small data updates. It needs the {@link OSMIdIndex} of the import, see {@link GraphHopperOSM#setStoreOSMIds}.
+ * <p>
+ * Modified ways get new flags, deleted ways are made inaccessible for all vehicles and created ways are appended
+ * as new edges. Created ways can only be connected to tower nodes of the existing graph. A modified way whose nodes
+ * changed is replaced by new edges if possible, otherwise only its flags are updated. Moved tower and pillar nodes
+ * change the geometry of their edges, except for pillar nodes that were removed by the way simplification of the
+ * import. Relations and barriers of the change file are ignored. The CH and LM profiles of the vehicles with changed
+ * edges have to be prepared again, see {@link #getChangedCHProfiles()}.
+ * <p>
+ * New edges cannot be added to a frozen graph, i.e. if CH or LM is prepared. A change file that needs new edges is
+ * rejected for such a graph before anything is changed.
+ * <p>
+ * The graph is changed in place and no queries must run at the same time, see
+ * {@link GraphHopperOSM#applyOSMChanges(String)}.
+ */
+public class OSMChangeUpdater {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OSMChangeUpdater.class);
+    private final GraphHopperOSM hopper;
+    private final GraphHopperStorage graph;
+    private final NodeAccess nodeAccess;
+    private final EncodingManager encodingManager;
+    private final OSMIdIndex osmIdIndex;
+    private final DistanceCalc distCalc = Helper.DIST_EARTH;
+    // created and modified elements of the change file
+    private final LongObjectHashMap<ReaderNode> changedNodes = new LongObjectHashMap<>();
+    private final List<ReaderWay> createdWays = new ArrayList<>();
+    private final List<ReaderWay> modifiedWays = new ArrayList<>();
+    private final LongHashSet deletedWays = new LongHashSet();
+    // the OSM ids of the existing graph
+    private final LongObjectHashMap<IntArrayList> wayEdges = new LongObjectHashMap<>();
+    private final LongIntHashMap towerNodes = new LongIntHashMap();
+    private final LongObjectHashMap<IntArrayList> pillarNodeEdges = new LongObjectHashMap<>();
+    // the new edges and the edges with a changed geometry that have to be added to the location index
+    private final IntArrayList changedGeometryEdges = new IntArrayList();
+    private final LongIntHashMap wayNodeCounts = new LongIntHashMap();
+    private final Set<FlagEncoder> changedEncoders = new LinkedHashSet<>();
+    private int modifiedEdges;
+    private int deletedEdges;
+    private int createdEdges;
+    private int movedNodes;
+    private int skippedWays;
+
+    public OSMChangeUpdater(GraphHopperOSM hopper) {
+        if (hopper.getOSMIdIndex() == null)
+            throw new IllegalStateException("Applying OSM changes requires the OSM ids of the import, enable datareader.osm_ids");
+
+        this.hopper = hopper;
+        this.graph = hopper.getGraphHopperStorage();
+        this.nodeAccess = graph.getNodeAccess();
+        this.encodingManager = hopper.getEncodingManager();
+        this.osmIdIndex = hopper.getOSMIdIndex();
+    }
+
+    public OSMChangeUpdater apply(File oscFile) throws IOException {
+        StopWatch sw = new StopWatch().start();
+        try (InputStream is = openInputStream(oscFile)) {
+            readChanges(is);
+        } catch (XMLStreamException ex) {
+            throw new IOException("Cannot read OSM change file " + oscFile, ex);
+        }
+        readGraphIds();
+
+        for (ReaderWay way : createdWays) {
+            countWayNodes(way);
+        }
+        for (ReaderWay way : modifiedWays) {
+            countWayNodes(way);
+        }
+        if (graph.isFrozen())
+            checkNoEdgesNeeded();
+
+        for (ReaderNode node : changedNodes.values().toArray(ReaderNode.class)) {
+            moveNode(node);
+        }
+        for (long wayId : deletedWays.toArray()) {
+            deleteWay(wayId);
+        }
+        for (ReaderWay way : modifiedWays) {
+            modifyWay(way);
+        }
+        for (ReaderWay way : createdWays) {
+            createWay(way, null);
+        }
+
+        PopularityIndex popularityIndex = hopper.getPopularityIndex();
+        popularityIndex.ensureCapacity(graph.getEdges());
+        if (!changedGeometryEdges.isEmpty())
+            hopper.updateLocationIndex(changedGeometryEdges);
+
+        LOGGER.info("applied " + oscFile + " in " + sw.stop().getSeconds() + "s, modified edges: " + modifiedEdges
+                + ", deleted edges: " + deletedEdges + ", created edges: " + createdEdges + ", moved nodes: " + movedNodes
+                + ", skipped ways: " + skippedWays + ", prepare again CH: " + getChangedCHProfiles()
+                + ", LM: " + getChangedLMProfiles());
+        return this;
+    }
+
+    private static InputStream openInputStream(File file) throws IOException {
+        InputStream is = new BufferedInputStream(new FileInputStream(file), 50000);
+        if (file.getName().endsWith(".gz"))
+            return new GZIPInputStream(is);
+        return is;
+    }
+
+    private void readChanges(InputStream is) throws XMLStreamException {
+        XMLStreamReader parser = XMLInputFactory.newInstance().createXMLStreamReader(is, "UTF-8");
+        try {
+            String action = null;
+            int event = parser.next();
+            while (event != XMLStreamConstants.END_DOCUMENT) {
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = parser.getLocalName();
+                    String idStr = parser.getAttributeValue(null, "id");
+                    if ("create".equals(name) || "modify".equals(name) || "delete".equals(name)) {
+                        action = name;
+                    } else if (idStr != null && action != null) {
+                        long id = Long.parseLong(idStr);
+                        if ("delete".equals(action)) {
+                            if ("way".equals(name))
+                                deletedWays.add(id);
+                        } else if ("node".equals(name)) {
+                            changedNodes.put(id, OSMXMLHelper.createNode(id, parser));
+                        } else if ("way".equals(name)) {
+                            ReaderWay way = OSMXMLHelper.createWay(id, parser);
+                            if ("create".equals(action))
+                                createdWays.add(way);
+                            else
+                                modifiedWays.add(way);
+                        }
+                    }
+                }
+                event = parser.next();
+            }
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Collects the edges of every way and the graph node of every OSM tower node from the {@link OSMIdIndex}.
+     */
+    private void readGraphIds() {
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            int edge = iter.getEdge();
+            long wayId = osmIdIndex.getWayId(edge);
+            if (wayId == OSMIdIndex.NO_ID)
+                continue;
+
+            IntArrayList edges = wayEdges.get(wayId);
+            if (edges == null) {
+                edges = new IntArrayList(2);
+                wayEdges.put(wayId, edges);
+            }
+            edges.add(edge);
+            towerNodes.put(osmIdIndex.getBaseNodeId(edge), iter.getBaseNode());
+            towerNodes.put(osmIdIndex.getAdjNodeId(edge), iter.getAdjNode());
+            LongArrayList pillarIds = osmIdIndex.getPillarIds(edge);
+            for (int i = 0; i < pillarIds.size(); i++) {
+                IntArrayList pillarEdges = pillarNodeEdges.get(pillarIds.get(i));
+                if (pillarEdges == null) {
+                    pillarEdges = new IntArrayList(1);
+                    pillarNodeEdges.put(pillarIds.get(i), pillarEdges);
+                }
+                pillarEdges.add(edge);
+            }
+        }
+    }
+
+    /**
+     * Throws an exception if a created or modified way needs new edges, which a frozen graph does not allow.
+     */
+    private void checkNoEdgesNeeded() {
+        List<Long> wayIds = new ArrayList<>();
+        for (ReaderWay way : createdWays) {
+            if (canCreateEdges(way) && parseWay(way) != null)
+                wayIds.add(way.getId());
+        }
+        for (ReaderWay way : modifiedWays) {
+            IntArrayList edges = wayEdges.get(way.getId());
+            if (edges == null ? canCreateEdges(way) && parseWay(way) != null
+                    : !hasSameTowerNodes(way, edges) && canCreateEdges(way))
+                wayIds.add(way.getId());
+        }
+        if (!wayIds.isEmpty())
+            throw new IllegalStateException("Cannot apply the OSM changes as the ways " + wayIds + " need new edges, "
+                    + "which is not possible for a graph with a CH or LM preparation. Apply the changes before the "
+                    + "preparation or import the data again");
+    }
+
+    private void countWayNodes(ReaderWay way) {
+        LongHashSet nodes = new LongHashSet(way.getNodes());
+        for (long osmNodeId : nodes.toArray()) {
+            wayNodeCounts.addTo(osmNodeId, 1);
+        }
+    }
+
+    private void moveNode(ReaderNode node) {
+        if (!towerNodes.containsKey(node.getId())) {
+            movePillarNode(node);
+            return;
+        }
+
+        int graphNode = towerNodes.get(node.getId());
+        if (nodeAccess.getLat(graphNode) == node.getLat() && nodeAccess.getLon(graphNode) == node.getLon())
+            return;
+
+        if (nodeAccess.is3D())
+            nodeAccess.setNode(graphNode, node.getLat(), node.getLon(), getElevation(node.getLat(), node.getLon()));
+        else
+            nodeAccess.setNode(graphNode, node.getLat(), node.getLon());
+        EdgeIterator iter = graph.createEdgeExplorer().setBaseNode(graphNode);
+        while (iter.next()) {
+            IntsRef oldFlags = IntsRef.deepCopyOf(iter.getFlags());
+            iter.setDistance(Math.max(0.001, iter.fetchWayGeometry(FetchMode.ALL).calcDistance(distCalc)));
+            if (hopper.getEdgeElevationIndex() != null)
+                hopper.getEdgeElevationIndex().update(iter);
+            recordChange(oldFlags, iter.getFlags(), true);
+            changedGeometryEdges.add(iter.getEdge());
+        }
+        movedNodes++;
+    }
+
+    private void movePillarNode(ReaderNode node) {
+        IntArrayList edges = pillarNodeEdges.get(node.getId());
+        if (edges == null)
+            return;
+
+        boolean moved = false;
+        for (int i = 0; i < edges.size(); i++) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(edges.get(i), Integer.MIN_VALUE);
+            PointList pillarNodes = edge.fetchWayGeometry(FetchMode.PILLAR_ONLY).clone(false);
+            LongArrayList pillarIds = osmIdIndex.getPillarIds(edge.getEdge());
+            boolean changed = false;
+            for (int index = 0; index < pillarIds.size() && index < pillarNodes.size(); index++) {
+                if (pillarIds.get(index) != node.getId()
+                        || pillarNodes.getLat(index) == node.getLat() && pillarNodes.getLon(index) == node.getLon())
+                    continue;
+                double ele = pillarNodes.is3D() ? getElevation(node.getLat(), node.getLon()) : Double.NaN;
+                pillarNodes.set(index, node.getLat(), node.getLon(), ele);
+                changed = true;
+            }
+            if (!changed)
+                continue;
+
+            IntsRef oldFlags = IntsRef.deepCopyOf(edge.getFlags());
+            edge.setWayGeometry(pillarNodes);
+            edge.setDistance(Math.max(0.001, edge.fetchWayGeometry(FetchMode.ALL).calcDistance(distCalc)));
+            if (hopper.getEdgeElevationIndex() != null)
+                hopper.getEdgeElevationIndex().update(edge);
+            recordChange(oldFlags, edge.getFlags(), true);
+            changedGeometryEdges.add(edge.getEdge());
+            moved = true;
+        }
+        if (moved)
+            movedNodes++;
+    }
+
+    private void deleteWay(long wayId) {
+        IntArrayList edges = wayEdges.remove(wayId);
+        if (edges == null)
+            return;
+
+        for (int i = 0; i < edges.size(); i++) {
+            int edge = edges.get(i);
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            IntsRef oldFlags = IntsRef.deepCopyOf(edgeState.getFlags());
+            for (FlagEncoder encoder : encodingManager.fetchEdgeEncoders()) {
+                edgeState.set(encoder.getAccessEnc(), false).setReverse(encoder.getAccessEnc(), false);
+            }
+            recordChange(oldFlags, edgeState.getFlags(), false);
+            osmIdIndex.setWayId(edge, OSMIdIndex.NO_ID);
+            deletedEdges++;
+        }
+    }
+
+    private void modifyWay(ReaderWay way) {
+        IntArrayList edges = wayEdges.get(way.getId());
+        if (edges == null) {
+            // the way was not part of the graph before, e.g. because it was not accessible
+            createWay(way, null);
+            return;
+        }
+
+        if (!hasSameTowerNodes(way, edges) && canCreateEdges(way)) {
+            deleteWay(way.getId());
+            createWay(way, edges);
+            return;
+        }
+
+        IntsRef edgeFlags = parseWay(way);
+        if (edgeFlags == null) {
+            deleteWay(way.getId());
+            return;
+        }
+
+        for (int i = 0; i < edges.size(); i++) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edges.get(i), Integer.MIN_VALUE);
+            if (isBarrierEdge(edgeState))
+                continue;
+
+            IntsRef oldFlags = IntsRef.deepCopyOf(edgeState.getFlags());
+            edgeState.setFlags(edgeFlags);
+            encodingManager.applyWayTags(way, edgeState);
+            if (recordChange(oldFlags, edgeState.getFlags(), false))
+                modifiedEdges++;
+        }
+    }
+
+    /**
+     * The edges of a way have to be created again if the way does not start or end at one of its tower nodes
+     * anymore or if the tower nodes are not in the order of the edges. This does not detect changed pillar nodes.
+     */
+    private boolean hasSameTowerNodes(ReaderWay way, IntArrayList edges) {
+        LongArrayList osmNodeIds = way.getNodes();
+        boolean first = false, last = false;
+        for (int i = 0; i < edges.size(); i++) {
+            int edge = edges.get(i);
+            long baseNodeId = osmIdIndex.getBaseNodeId(edge);
+            long adjNodeId = osmIdIndex.getAdjNodeId(edge);
+            if (isShadowNode(baseNodeId) || isShadowNode(adjNodeId))
+                continue;
+            int baseIndex = osmNodeIds.indexOf(baseNodeId);
+            int adjIndex = osmNodeIds.lastIndexOf(adjNodeId);
+            if (baseIndex < 0 || adjIndex < 0 || baseIndex >= adjIndex)
+                return false;
+            first |= baseIndex == 0;
+            last |= adjIndex == osmNodeIds.size() - 1;
+        }
+        return first && last;
+    }
+
+    private boolean canCreateEdges(ReaderWay way) {
+        LongArrayList osmNodeIds = way.getNodes();
+        for (int i = 0; i < osmNodeIds.size(); i++) {
+            long osmNodeId = osmNodeIds.get(i);
+            if (!towerNodes.containsKey(osmNodeId) && !changedNodes.containsKey(osmNodeId))
+                return false;
+        }
+        return osmNodeIds.size() > 1;
+    }
+
+    /**
+     * Creates the edges of the specified way. The nodes of the way have to be tower nodes of the graph or need
+     * to be part of the change file.
+     *
+     * @param oldEdges the edges the way had before, used to keep the popularity, or null for a new way
+     */
+    private void createWay(ReaderWay way, IntArrayList oldEdges) {
+        if (!canCreateEdges(way)) {
+            skippedWays++;
+            return;
+        }
+
+        IntsRef edgeFlags = parseWay(way);
+        if (edgeFlags == null)
+            return;
+
+        LongArrayList osmNodeIds = way.getNodes();
+        PointList pointList = new PointList(osmNodeIds.size(), nodeAccess.is3D());
+        LongArrayList pointOsmIds = new LongArrayList(osmNodeIds.size());
+        int lastIndex = osmNodeIds.size() - 1;
+        int firstNode = -1;
+        for (int i = 0; i <= lastIndex; i++) {
+            long osmNodeId = osmNodeIds.get(i);
+            boolean isTower = i == 0 || i == lastIndex || towerNodes.containsKey(osmNodeId)
+                    || wayNodeCounts.get(osmNodeId) > 1;
+            if (!isTower) {
+                addPoint(pointList, pointOsmIds, osmNodeId);
+                continue;
+            }
+
+            int tmpNode = getOrCreateTowerNode(osmNodeId);
+            if (tmpNode == firstNode) {
+                if (pointList.size() < 2)
+                    // duplicate node
+                    continue;
+
+                // loop: convert the last pillar node into a tower node to avoid an edge from a node to itself
+                long lastOsmNodeId = osmNodeIds.get(i - 1);
+                int lastNode = getOrCreateTowerNode(lastOsmNodeId);
+                addEdge(way, firstNode, lastNode, pointList, pointOsmIds, edgeFlags, oldEdges);
+                pointList.clear();
+                pointOsmIds.clear();
+                addPoint(pointList, pointOsmIds, lastOsmNodeId);
+                firstNode = lastNode;
+            }
+
+            addPoint(pointList, pointOsmIds, osmNodeId);
+            if (firstNode >= 0) {
+                addEdge(way, firstNode, tmpNode, pointList, pointOsmIds, edgeFlags, oldEdges);
+                pointList.clear();
+                pointOsmIds.clear();
+                addPoint(pointList, pointOsmIds, osmNodeId);
+            }
+            firstNode = tmpNode;
+        }
+    }
+
+    private void addEdge(ReaderWay way, int fromNode, int toNode, PointList pointList, LongArrayList pointOsmIds,
+                         IntsRef edgeFlags, IntArrayList oldEdges) {
+        double distance = Math.max(0.001, pointList.calcDistance(distCalc));
+        EdgeIteratorState edge = graph.edge(fromNode, toNode).setDistance(distance).setFlags(edgeFlags);
+        if (pointList.size() > 2)
+            edge.setWayGeometry(pointList.shallowCopy(1, pointList.size() - 1, false));
+        encodingManager.applyWayTags(way, edge);
+        if (hopper.getEdgeElevationIndex() != null)
+            hopper.getEdgeElevationIndex().update(edge);
+
+        osmIdIndex.setIds(edge.getEdge(), way.getId(), pointOsmIds.get(0), pointOsmIds.get(pointOsmIds.size() - 1));
+        if (pointList.size() > 2) {
+            LongArrayList pillarIds = new LongArrayList(pointOsmIds.size() - 2);
+            pillarIds.add(pointOsmIds.buffer, 1, pointOsmIds.size() - 2);
+            osmIdIndex.setPillarIds(edge.getEdge(), pillarIds);
+        }
+        hopper.getEdgeIndex().put(edge.getEdge(), way.getId());
+        IntArrayList edges = wayEdges.get(way.getId());
+        if (edges == null) {
+            edges = new IntArrayList(2);
+            wayEdges.put(way.getId(), edges);
+        }
+        edges.add(edge.getEdge());
+        if (oldEdges != null && !oldEdges.isEmpty()) {
+            PopularityIndex popularityIndex = hopper.getPopularityIndex();
+            popularityIndex.ensureCapacity(graph.getEdges());
+            popularityIndex.copyPopularity(oldEdges.get(0), edge.getEdge());
+        }
+
+        recordChange(encodingManager.createEdgeFlags(), edge.getFlags(), false);
+        changedGeometryEdges.add(edge.getEdge());
+        createdEdges++;
+    }
+
+    private int getOrCreateTowerNode(long osmNodeId) {
+        if (towerNodes.containsKey(osmNodeId))
+            return towerNodes.get(osmNodeId);
+
+        ReaderNode node = changedNodes.get(osmNodeId);
+        int graphNode = graph.getNodes();
+        if (nodeAccess.is3D())
+            nodeAccess.setNode(graphNode, node.getLat(), node.getLon(), getElevation(node.getLat(), node.getLon()));
+        else
+            nodeAccess.setNode(graphNode, node.getLat(), node.getLon());
+        towerNodes.put(osmNodeId, graphNode);
+        return graphNode;
+    }
+
+    private void addPoint(PointList pointList, LongArrayList pointOsmIds, long osmNodeId) {
+        pointOsmIds.add(osmNodeId);
+        if (towerNodes.containsKey(osmNodeId)) {
+            pointList.add(nodeAccess, towerNodes.get(osmNodeId));
+        } else {
+            ReaderNode node = changedNodes.get(osmNodeId);
+            if (pointList.is3D())
+                pointList.add(node.getLat(), node.getLon(), getElevation(node.getLat(), node.getLon()));
+            else
+                pointList.add(node.getLat(), node.getLon());
+        }
+    }
+
+    private double getElevation(double lat, double lon) {
+        return hopper.getElevationProvider().getEle(lat, lon);
+    }
+
+    /**
+     * Same as the import without the relation flags, which are not available for an update.
+     *
+     * @return the edge flags or null if the way is not accepted
+     */
+    private IntsRef parseWay(ReaderWay way) {
+        EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
+        if (!encodingManager.acceptWay(way, acceptWay))
+            return null;
+
+        LongArrayList osmNodeIds = way.getNodes();
+        GHPoint first = getCoordinates(osmNodeIds.get(0));
+        GHPoint last = getCoordinates(osmNodeIds.get(osmNodeIds.size() - 1));
+        if (first != null && last != null) {
+            way.setTag("estimated_distance", distCalc.calcDist(first.lat, first.lon, last.lat, last.lon));
+            way.setTag("estimated_center", new GHPoint((first.lat + last.lat) / 2, (first.lon + last.lon) / 2));
+        }
+        if (way.getTag("duration") != null) {
+            try {
+                long dur = OSMReaderUtility.parseDuration(way.getTag("duration"));
+                way.setTag("duration:seconds", Long.toString(dur));
+            } catch (Exception ex) {
+                LOGGER.warn("Parsing error in way with OSMID=" + way.getId() + " : " + ex.getMessage());
+            }
+        }
+
+        IntsRef edgeFlags = encodingManager.handleWayTags(way, acceptWay, encodingManager.createRelationFlags());
+        return edgeFlags.isEmpty() ? null : edgeFlags;
+    }
+
+    private GHPoint getCoordinates(long osmNodeId) {
+        ReaderNode node = changedNodes.get(osmNodeId);
+        if (node != null)
+            return new GHPoint(node.getLat(), node.getLon());
+        if (towerNodes.containsKey(osmNodeId)) {
+            int graphNode = towerNodes.get(osmNodeId);
+            return new GHPoint(nodeAccess.getLat(graphNode), nodeAccess.getLon(graphNode));
+        }
+        return null;
+    }
+
+    /**
+     * The zero length edge at a barrier has special access flags that are kept.
+     */
+    private boolean isBarrierEdge(EdgeIteratorState edge) {
+        return edge.getDistance() < 0.01
+                && (isShadowNode(osmIdIndex.getBaseNodeId(edge.getEdge())) || isShadowNode(osmIdIndex.getAdjNodeId(edge.getEdge())));
+    }
+
+    /**
+     * The import creates a copy of barrier nodes with an artificial id starting at -Long.MAX_VALUE.
+     */
+    private static boolean isShadowNode(long osmNodeId) {
+        return osmNodeId < Long.MIN_VALUE / 2;
+    }
+
+    /**
+     * Remembers the vehicles that can access the changed edge before or after the change.
+     *
+     * @param force true if the edge changed even if the flags are the same, e.g. for a changed distance
+     * @return true if the flags changed
+     */
+    private boolean recordChange(IntsRef oldFlags, IntsRef newFlags, boolean force) {
+        boolean changed = !oldFlags.equals(newFlags);
+        if (!changed && !force)
+            return false;
+
+        for (FlagEncoder encoder : encodingManager.fetchEdgeEncoders()) {
+            if (isAccessible(encoder, oldFlags) || isAccessible(encoder, newFlags))
+                changedEncoders.add(encoder);
+        }
+        return changed;
+    }
+
+    private static boolean isAccessible(FlagEncoder encoder, IntsRef edgeFlags) {
+        return encoder.getAccessEnc().getBool(false, edgeFlags) || encoder.getAccessEnc().getBool(true, edgeFlags);
+    }
+
+    /**
+     * @return the CH profiles that have to be prepared again as the edges of their vehicle changed
+     */
+    public List<String> getChangedCHProfiles() {
+        List<String> profiles = new ArrayList<>();
+        for (CHProfileConfig chConfig : hopper.getCHPreparationHandler().getCHProfileConfigs()) {
+            if (isChanged(chConfig.getProfile()))
+                profiles.add(chConfig.getProfile());
+        }
+        return profiles;
+    }
+
+    /**
+     * @return the LM profiles that have to be prepared again as the edges of their vehicle changed
+     */
+    public List<String> getChangedLMProfiles() {
+        List<String> profiles = new ArrayList<>();
+        for (LMProfileConfig lmConfig : hopper.getLMPreparationHandler().getLMProfileConfigs()) {
+            if (isChanged(lmConfig.getProfile()))
+                profiles.add(lmConfig.getProfile());
+        }
+        return profiles;
+    }
+
+    private boolean isChanged(String profileName) {
+        ProfileConfig profile = hopper.getProfile(profileName);
+        return profile != null && changedEncoders.contains(encodingManager.getEncoder(profile.getVehicle()));
+    }
+
+    public int getModifiedEdges() {
+        return modifiedEdges;
+    }
+
+    public int getDeletedEdges() {
+        return deletedEdges;
+    }
+
+    public int getCreatedEdges() {
+        return createdEdges;
+    }
+
+    public int getMovedNodes() {
+        return movedNodes;
+    }
+
+    /**
+     * @return the number of created or modified ways that could not be added to the graph, e.g. because a node is
+     * not known
+     */
+    public int getSkippedWays() {
+        return skippedWays;
+    }
+}
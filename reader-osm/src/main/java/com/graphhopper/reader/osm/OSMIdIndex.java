@@ -0,0 +1,177 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongIndexedContainer;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Storable;
+
+/**
+ * Stores the OSM way id and the OSM ids of the two tower nodes for every edge. Unlike the node map of the
+ * {@link OSMReader} this survives the import and the node renumbering of the subnetwork removal as the edge ids do
+ * not change, which makes it possible to apply OSM change files later, see {@link OSMChangeUpdater}.
+ * <p>
+ * The node ids are stored in the order of the edge, i.e. the first one belongs to the base node of
+ * graph.getEdgeIteratorState(edge, Integer.MIN_VALUE). This does not hold if the graph is sorted. The ids of the
+ * pillar nodes are stored in a separate area in the order of the way geometry. Pillar nodes removed by the way
+ * simplification are not part of the geometry and so they have no id.
+ */
+public class OSMIdIndex implements Storable<OSMIdIndex> {
+    public static final long NO_ID = 0;
+    private final static int MAGIC_INT = Integer.MAX_VALUE / 119412;
+    private static final int BYTES_PER_EDGE = 4 * 8;
+    private final DataAccess ids;
+    private final DataAccess pillarIds;
+    // do not start with 0 as this means 'no pillar nodes'
+    private long nextPillarPointer = 4;
+
+    public OSMIdIndex(Directory dir) {
+        this.ids = dir.find("osm_ids", DAType.getPreferredInt(dir.getDefaultType()));
+        this.pillarIds = dir.find("osm_pillar_ids", DAType.getPreferredInt(dir.getDefaultType()));
+    }
+
+    public void setIds(int edge, long wayId, long baseNodeId, long adjNodeId) {
+        long pointer = (long) edge * BYTES_PER_EDGE;
+        ids.ensureCapacity(pointer + BYTES_PER_EDGE);
+        setLong(pointer, wayId);
+        setLong(pointer + 8, baseNodeId);
+        setLong(pointer + 16, adjNodeId);
+    }
+
+    /**
+     * Stores the OSM ids of the pillar nodes of the specified edge in the order of its way geometry. Changing the
+     * ids of an edge does not reuse the old space.
+     */
+    public void setPillarIds(int edge, LongIndexedContainer osmNodeIds) {
+        if (osmNodeIds.isEmpty()) {
+            setLong((long) edge * BYTES_PER_EDGE + 24, 0);
+            return;
+        }
+
+        long pointer = nextPillarPointer;
+        pillarIds.ensureCapacity(pointer + 4 + 8L * osmNodeIds.size());
+        pillarIds.setInt(pointer, osmNodeIds.size());
+        for (int i = 0; i < osmNodeIds.size(); i++) {
+            long value = osmNodeIds.get(i);
+            pillarIds.setInt(pointer + 4 + 8L * i, (int) value);
+            pillarIds.setInt(pointer + 8 + 8L * i, (int) (value >>> 32));
+        }
+        nextPillarPointer = pointer + 4 + 8L * osmNodeIds.size();
+        setLong((long) edge * BYTES_PER_EDGE + 24, pointer);
+    }
+
+    /**
+     * @return the OSM ids of the pillar nodes of the specified edge in the order of its way geometry, empty if the
+     * edge has no pillar nodes or if they are not known
+     */
+    public LongArrayList getPillarIds(int edge) {
+        long pointer = getLong((long) edge * BYTES_PER_EDGE + 24);
+        if (pointer == 0)
+            return new LongArrayList(0);
+
+        int count = pillarIds.getInt(pointer);
+        LongArrayList result = new LongArrayList(count);
+        for (int i = 0; i < count; i++) {
+            result.add((pillarIds.getInt(pointer + 4 + 8L * i) & 0xFFFFFFFFL)
+                    | ((long) pillarIds.getInt(pointer + 8 + 8L * i) << 32));
+        }
+        return result;
+    }
+
+    public void setWayId(int edge, long wayId) {
+        setLong((long) edge * BYTES_PER_EDGE, wayId);
+    }
+
+    /**
+     * @return the OSM way id of the specified edge or {@link #NO_ID}
+     */
+    public long getWayId(int edge) {
+        return getLong((long) edge * BYTES_PER_EDGE);
+    }
+
+    /**
+     * @return the OSM node id of the base node of the specified edge or {@link #NO_ID}
+     */
+    public long getBaseNodeId(int edge) {
+        return getLong((long) edge * BYTES_PER_EDGE + 8);
+    }
+
+    /**
+     * @return the OSM node id of the adjacent node of the specified edge or {@link #NO_ID}
+     */
+    public long getAdjNodeId(int edge) {
+        return getLong((long) edge * BYTES_PER_EDGE + 16);
+    }
+
+    private void setLong(long pointer, long value) {
+        ids.setInt(pointer, (int) value);
+        ids.setInt(pointer + 4, (int) (value >>> 32));
+    }
+
+    private long getLong(long pointer) {
+        if (pointer + 8 > ids.getCapacity())
+            return NO_ID;
+        return (ids.getInt(pointer) & 0xFFFFFFFFL) | ((long) ids.getInt(pointer + 4) << 32);
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!ids.loadExisting() || !pillarIds.loadExisting())
+            return false;
+
+        if (ids.getHeader(0) != MAGIC_INT)
+            throw new IllegalStateException("incorrect osm id index version");
+        nextPillarPointer = (pillarIds.getHeader(0) & 0xFFFFFFFFL) | ((long) pillarIds.getHeader(4) << 32);
+        return true;
+    }
+
+    @Override
+    public OSMIdIndex create(long byteCount) {
+        ids.create(byteCount);
+        pillarIds.create(byteCount);
+        return this;
+    }
+
+    @Override
+    public void flush() {
+        ids.setHeader(0, MAGIC_INT);
+        ids.flush();
+        pillarIds.setHeader(0, (int) nextPillarPointer);
+        pillarIds.setHeader(4, (int) (nextPillarPointer >>> 32));
+        pillarIds.flush();
+    }
+
+    @Override
+    public void close() {
+        ids.close();
+        pillarIds.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return ids.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return ids.getCapacity() + pillarIds.getCapacity();
+    }
+}
@@ -50,6 +50,8 @@ public class OSMInputFile implements Sink, OSMInput {
     private boolean binary = false;
     private boolean hasIncomingData;
     private int workerThreads = -1;
+    private long startOffset;
+    private PbfReader pbfReader;
     private OSMFileHeader fileheader;
 
     public OSMInputFile(File file) throws IOException {
@@ -74,6 +76,22 @@ public class OSMInputFile implements Sink, OSMInput {
         return this;
     }
 
+    /**
+     * Starts reading at the specified offset, see {@link #getWayBlobOffset()}. Currently only for pbf format.
+     */
+    public OSMInputFile setStartOffset(long startOffset) {
+        this.startOffset = startOffset;
+        return this;
+    }
+
+    /**
+     * @return the offset of the first pbf block containing ways or relations, or -1 if the file is not in pbf
+     * format. This is only valid after the file was read completely.
+     */
+    public long getWayBlobOffset() {
+        return pbfReader == null ? -1 : pbfReader.getWayBlobOffset();
+    }
+
     @SuppressWarnings("unchecked")
     private InputStream decode(File file) throws IOException {
         final String name = file.getName();
@@ -239,8 +257,8 @@ public class OSMInputFile implements Sink, OSMInput {
         if (workerThreads <= 0)
             workerThreads = 1;
 
-        PbfReader reader = new PbfReader(stream, this, workerThreads);
-        pbfReaderThread = new Thread(reader, "PBF Reader");
+        pbfReader = new PbfReader(stream, this, workerThreads).setStartOffset(startOffset);
+        pbfReaderThread = new Thread(pbfReader, "PBF Reader");
         pbfReaderThread.start();
     }
 
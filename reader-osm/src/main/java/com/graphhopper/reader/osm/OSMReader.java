@@ -21,6 +21,7 @@ import com.carrotsearch.hppc.*;
 import com.graphhopper.coll.LongIntMap;
 import com.graphhopper.coll.*;
 import com.graphhopper.reader.*;
+import com.graphhopper.reader.dem.AbstractElevationProvider;
 import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.reader.dem.GraphElevationSmoothing;
 import com.graphhopper.routing.profiles.BooleanEncodedValue;
@@ -36,6 +37,11 @@ import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.graphhopper.util.Helper.nf;
 
@@ -58,7 +64,12 @@ import static com.graphhopper.util.Helper.nf;
  * <p>
  * 2.b) Reads ways from OSM file and creates edges while calculating the speed etc from the OSM tags.
  * When creating an edge the pillar node information from the intermediate data structure will be
- * stored in the way geometry of that edge.
+ * stored in the way geometry of that edge. The tags of the ways are parsed by a pool of worker threads while
+ * the edges are still created in file order by the reading thread.
+ * <p>
+ * With {@link #setSinglePass(boolean)} the coordinates of all nodes are stored in 1. already, see
+ * {@link NodeCoordinateStore}, and the nodes are added when a way references them in 2.b). For pbf files the
+ * second pass then starts at the first block with ways and does not decode the nodes again.
  * <p>
  *
  * @author Peter Karich
@@ -70,6 +81,8 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     // tower node is <= -3
     protected static final int TOWER_NODE = -2;
     private static final Logger LOGGER = LoggerFactory.getLogger(OSMReader.class);
+    // the number of ways per worker thread that can be parsed ahead of the graph writing
+    private static final int PARSED_WAYS_PER_WORKER = 1000;
     private final GraphStorage ghStorage;
     private final Graph graph;
     private final NodeAccess nodeAccess;
@@ -86,6 +99,10 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     private long skippedLocations;
     private final EncodingManager encodingManager;
     private int workerThreads = 2;
+    private boolean singlePass = false;
+    private NodeCoordinateStore nodeCoordinates;
+    // the offset of the first pbf block that is needed in the second pass of the single pass import
+    private long wayBlobOffset = -1;
     // Using the correct Map<Long, Integer> is hard. We need a memory efficient and fast solution for big data sets!
     //
     // very slow: new SparseLongLongArray
@@ -95,6 +112,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     //        nodeOsmIdToIndexMap = new BigLongIntMap(expectedNodes, EMPTY);
     // smaller memory overhead for bigger data sets because of avoiding a "rehash"
     // remember how many times a node was used to identify tower nodes
+    // for the planet an array indexed by the OSM id is smaller and faster, see setNodeMapType
     private LongIntMap osmNodeIdToInternalNodeMap;
     private GHLongLongHashMap osmNodeIdToNodeFlagsMap;
     private GHLongLongHashMap osmWayIdToRouteWeightMap;
@@ -102,14 +120,22 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     private GHLongHashSet osmWayIdSet = new GHLongHashSet();
     private IntLongMap edgeIdToOsmWayIdMap;
     private boolean doSimplify = true;
+    private boolean storePillarNodeIds = false;
     private int nextTowerId = 0;
     private int nextPillarId = 0;
     // negative but increasing to avoid clash with custom created OSM files
     private long newUniqueOsmId = -Long.MAX_VALUE;
     private ElevationProvider eleProvider = ElevationProvider.NOOP;
+    // the nodes whose elevation is looked up in one batch, identified by their value in the node map
+    private int elevationBatchSize = 100_000;
+    // a subclass which overrides getElevation(ReaderNode) needs to be asked for every node
+    private final boolean customElevation = overridesGetElevation(getClass());
+    private int[] eleNodeIds;
+    private double[] eleLats;
+    private double[] eleLons;
+    private int eleCount;
     private File osmFile;
     private Date osmDataDate;
-    private final IntsRef tempRelFlags;
     private final TurnCostStorage tcs;
 
     public OSMReader(GraphHopperStorage ghStorage) {
@@ -122,8 +148,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         osmNodeIdToNodeFlagsMap = new GHLongLongHashMap(200, .5f);
         osmWayIdToRouteWeightMap = new GHLongLongHashMap(200, .5f);
         pillarInfo = new PillarInfo(nodeAccess.is3D(), ghStorage.getDirectory());
-        tempRelFlags = encodingManager.createRelationFlags();
-        if (tempRelFlags.length != 2)
+        if (encodingManager.createRelationFlags().length != 2)
             throw new IllegalArgumentException("Cannot use relation flags with != 2 integers");
 
         tcs = graph.getTurnCostStorage();
@@ -140,6 +165,9 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         if (!osmFile.exists())
             throw new IllegalStateException("Your specified OSM file does not exist:" + osmFile.getAbsolutePath());
 
+        if (singlePass)
+            nodeCoordinates = new NodeCoordinateStore(ghStorage.getDirectory());
+
         StopWatch sw1 = new StopWatch().start();
         preProcess(osmFile);
         sw1.stop();
@@ -163,7 +191,10 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
             long tmpRelationCounter = 1;
             ReaderElement item;
             while ((item = in.getNext()) != null) {
-                if (item.isType(ReaderElement.WAY)) {
+                if (item.isType(ReaderElement.NODE)) {
+                    if (nodeCoordinates != null)
+                        storeNode((ReaderNode) item);
+                } else if (item.isType(ReaderElement.WAY)) {
                     final ReaderWay way = (ReaderWay) item;
                     boolean valid = filterWay(way);
                     if (valid) {
@@ -197,11 +228,35 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                 }
 
             }
+            if (nodeCoordinates != null && in instanceof OSMInputFile)
+                wayBlobOffset = ((OSMInputFile) in).getWayBlobOffset();
         } catch (Exception ex) {
             throw new RuntimeException("Problem while parsing file", ex);
         }
     }
 
+    /**
+     * Stores the coordinates and the barrier flags of the node for the single pass import. As the ways come after
+     * the nodes this is done for all nodes and not only for those used by a way.
+     */
+    private void storeNode(ReaderNode node) {
+        if (!isInBounds(node)) {
+            skippedLocations++;
+            return;
+        }
+
+        nodeCoordinates.setNode(node.getId(), node.getLat(), node.getLon());
+        if (node.hasTags()) {
+            long nodeFlags = encodingManager.handleNodeTags(node);
+            if (nodeFlags != 0)
+                getNodeFlagsMap().put(node.getId(), nodeFlags);
+        }
+
+        if (nodeCoordinates.getNodes() % 100_000_000 == 0)
+            LOGGER.info(nf(nodeCoordinates.getNodes()) + " (preprocess), node coordinates:"
+                    + nodeCoordinates.getCapacityInMB() + "MB " + Helper.getMemInfo());
+    }
+
     private void prepareRestrictionRelation(ReaderRelation relation) {
         List<OSMTurnRelation> turnRelations = createTurnRelations(relation);
         for (OSMTurnRelation turnRelation : turnRelations) {
@@ -252,14 +307,26 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         long wayStart = -1;
         long relationStart = -1;
         long counter = 1;
-        try (OSMInput in = openOsmInputFile(osmFile)) {
+        ExecutorService wayParser = workerThreads > 1 ? Executors.newFixedThreadPool(workerThreads) : null;
+        Deque<ReaderWay> pendingWays = new ArrayDeque<>();
+        Deque<Future<IntsRef>> pendingFlags = new ArrayDeque<>();
+        if (wayBlobOffset > 0)
+            LOGGER.info("skipping nodes, start reading at byte " + nf(wayBlobOffset));
+        try (OSMInput in = openOsmInputFile(osmFile, Math.max(0, wayBlobOffset))) {
             LongIntMap nodeFilter = getNodeMap();
 
             ReaderElement item;
             while ((item = in.getNext()) != null) {
+                if (item.getType() != ReaderElement.WAY)
+                    addPendingWays(pendingWays, pendingFlags, 0);
+
+                if (item.getType() != ReaderElement.NODE)
+                    flushElevations();
+
                 switch (item.getType()) {
                     case ReaderElement.NODE:
-                        if (nodeFilter.get(item.getId()) != EMPTY_NODE) {
+                        // for the single pass import the nodes are added from the coordinate store instead
+                        if (nodeCoordinates == null && nodeFilter.get(item.getId()) != EMPTY_NODE) {
                             processNode((ReaderNode) item);
                         }
                         break;
@@ -269,7 +336,19 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                             LOGGER.info(nf(counter) + ", now parsing ways");
                             wayStart = counter;
                         }
-                        processWay((ReaderWay) item);
+                        final ReaderWay way = (ReaderWay) item;
+                        if (wayParser == null) {
+                            processWay(way);
+                        } else if (prepareWay(way)) {
+                            pendingWays.add(way);
+                            pendingFlags.add(wayParser.submit(new Callable<IntsRef>() {
+                                @Override
+                                public IntsRef call() {
+                                    return parseWay(way);
+                                }
+                            }));
+                            addPendingWays(pendingWays, pendingFlags, workerThreads * PARSED_WAYS_PER_WORKER);
+                        }
                         break;
                     case ReaderElement.RELATION:
                         if (relationStart < 0) {
@@ -287,6 +366,8 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                     LOGGER.info(nf(counter) + ", locs:" + nf(locations) + " (" + skippedLocations + ") " + Helper.getMemInfo());
                 }
             }
+            addPendingWays(pendingWays, pendingFlags, 0);
+            flushElevations();
 
             if (in.getUnprocessedElements() > 0)
                 throw new IllegalStateException("Still unprocessed elements in reader queue " + in.getUnprocessedElements());
@@ -294,35 +375,69 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
             // logger.info("storage nodes:" + storage.nodes() + " vs. graph nodes:" + storage.getGraph().nodes());
         } catch (Exception ex) {
             throw new RuntimeException("Couldn't process file " + osmFile + ", error: " + ex.getMessage(), ex);
+        } finally {
+            if (wayParser != null)
+                wayParser.shutdownNow();
         }
 
+        // smooth after all edges are created, so that it can run in parallel on the stored geometries
+        if (smoothElevation && nodeAccess.is3D())
+            new GraphElevationSmoothing(graph, distCalc).setThreads(workerThreads).execute();
+
         finishedReading();
         if (graph.getNodes() == 0)
             throw new RuntimeException("Graph after reading OSM must not be empty. Read " + counter + " items and " + locations + " locations");
     }
 
     protected OSMInput openOsmInputFile(File osmFile) throws XMLStreamException, IOException {
-        return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).open();
+        return openOsmInputFile(osmFile, 0);
+    }
+
+    protected OSMInput openOsmInputFile(File osmFile, long startOffset) throws XMLStreamException, IOException {
+        return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).setStartOffset(startOffset).open();
+    }
+
+    /**
+     * Writes the parsed ways to the graph in the order they were read until at most maxPending ways are left.
+     */
+    private void addPendingWays(Deque<ReaderWay> pendingWays, Deque<Future<IntsRef>> pendingFlags, int maxPending)
+            throws InterruptedException, ExecutionException {
+        while (pendingWays.size() > maxPending) {
+            ReaderWay way = pendingWays.poll();
+            IntsRef edgeFlags = pendingFlags.poll().get();
+            if (edgeFlags != null)
+                addWay(way, edgeFlags);
+        }
     }
 
     /**
      * Process properties, encode flags and create edges for the way.
      */
     void processWay(ReaderWay way) {
-        if (way.getNodes().size() < 2)
+        if (!prepareWay(way))
             return;
 
-        // ignore multipolygon geometry
-        if (!way.hasTags())
-            return;
+        IntsRef edgeFlags = parseWay(way);
+        if (edgeFlags != null)
+            addWay(way, edgeFlags);
+    }
 
-        long wayOsmId = way.getId();
+    /**
+     * Adds the artificial tags that need the node coordinates. The node maps are not thread-safe so this has to
+     * be called from the thread that writes the graph.
+     *
+     * @return false if the way is ignored
+     */
+    private boolean prepareWay(ReaderWay way) {
+        if (way.getNodes().size() < 2)
+            return false;
 
-        EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
-        if (!encodingManager.acceptWay(way, acceptWay))
-            return;
+        // ignore multipolygon geometry
+        if (!way.hasTags())
+            return false;
 
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
+        if (nodeCoordinates != null && filterWay(way))
+            addWayNodes(way.getNodes());
 
         // TODO move this after we have created the edge and know the coordinates => encodingManager.applyWayTags
         LongArrayList osmNodeIds = way.getNodes();
@@ -337,7 +452,36 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
             way.setTag("estimated_distance", estimatedDist);
             way.setTag("estimated_center", new GHPoint((firstLat + lastLat) / 2, (firstLon + lastLon) / 2));
         }
+        return true;
+    }
 
+    /**
+     * Adds the nodes of the way from the coordinate store that were not added before. This replaces
+     * {@link #processNode} for the single pass import.
+     */
+    private void addWayNodes(LongIndexedContainer osmNodeIds) {
+        for (int i = 0; i < osmNodeIds.size(); i++) {
+            long osmNodeId = osmNodeIds.get(i);
+            int nodeType = getNodeMap().get(osmNodeId);
+            if ((nodeType == TOWER_NODE || nodeType == PILLAR_NODE) && nodeCoordinates.contains(osmNodeId)) {
+                addNode(new ReaderNode(osmNodeId, nodeCoordinates.getLatitude(osmNodeId), nodeCoordinates.getLongitude(osmNodeId)));
+                locations++;
+            }
+        }
+    }
+
+    /**
+     * Parses the tags of the way into the edge flags. This neither reads the node maps nor writes the graph and can
+     * be called concurrently for different ways.
+     *
+     * @return the edge flags or null if the way is not accepted
+     */
+    private IntsRef parseWay(ReaderWay way) {
+        EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
+        if (!encodingManager.acceptWay(way, acceptWay))
+            return null;
+
+        IntsRef relationFlags = getRelFlagsMap(way.getId());
         if (way.getTag("duration") != null) {
             try {
                 long dur = OSMReaderUtility.parseDuration(way.getTag("duration"));
@@ -349,9 +493,15 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         }
 
         IntsRef edgeFlags = encodingManager.handleWayTags(way, acceptWay, relationFlags);
-        if (edgeFlags.isEmpty())
-            return;
+        return edgeFlags.isEmpty() ? null : edgeFlags;
+    }
 
+    /**
+     * Creates the edges for the way, split at passable barriers.
+     */
+    private void addWay(ReaderWay way, IntsRef edgeFlags) {
+        long wayOsmId = way.getId();
+        LongArrayList osmNodeIds = way.getNodes();
         List<EdgeIteratorState> createdEdges = new ArrayList<>();
         // look for barriers along the way
         final int size = osmNodeIds.size();
@@ -500,17 +650,81 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
 
         double lat = node.getLat();
         double lon = node.getLon();
-        double ele = getElevation(node);
+        boolean batchElevation = isBatchingElevation();
+        double ele = batchElevation ? 0 : getElevation(node);
+        int id;
         if (nodeType == TOWER_NODE) {
-            addTowerNode(node.getId(), lat, lon, ele);
+            id = addTowerNode(node.getId(), lat, lon, ele);
         } else if (nodeType == PILLAR_NODE) {
             pillarInfo.setNode(nextPillarId, lat, lon, ele);
-            getNodeMap().put(node.getId(), nextPillarId + 3);
+            id = nextPillarId + 3;
+            getNodeMap().put(node.getId(), id);
             nextPillarId++;
+        } else {
+            return true;
         }
+
+        if (batchElevation)
+            addElevationLookup(id, lat, lon);
         return true;
     }
 
+    /**
+     * The nodes of the single pass import are added while the ways are processed and need their elevation right
+     * away, so batching is only possible if the nodes are read before the ways.
+     */
+    private boolean isBatchingElevation() {
+        return elevationBatchSize > 0 && eleProvider != ElevationProvider.NOOP && nodeCoordinates == null && !customElevation;
+    }
+
+    private static boolean overridesGetElevation(Class<?> clazz) {
+        for (; clazz != OSMReader.class; clazz = clazz.getSuperclass()) {
+            try {
+                clazz.getDeclaredMethod("getElevation", ReaderNode.class);
+                return true;
+            } catch (NoSuchMethodException ex) {
+                // not overridden by this class
+            }
+        }
+        return false;
+    }
+
+    private void addElevationLookup(int id, double lat, double lon) {
+        if (eleNodeIds == null) {
+            eleNodeIds = new int[elevationBatchSize];
+            eleLats = new double[elevationBatchSize];
+            eleLons = new double[elevationBatchSize];
+        }
+        eleNodeIds[eleCount] = id;
+        eleLats[eleCount] = lat;
+        eleLons[eleCount] = lon;
+        eleCount++;
+        if (eleCount == elevationBatchSize)
+            flushElevations();
+    }
+
+    /**
+     * Looks up the elevation of the buffered nodes at once, which lets the provider sort them by tile, and writes it
+     * to the tower and pillar nodes that were stored without elevation.
+     */
+    private void flushElevations() {
+        if (eleCount == 0)
+            return;
+
+        double[] lats = eleCount == eleLats.length ? eleLats : Arrays.copyOf(eleLats, eleCount);
+        double[] lons = eleCount == eleLons.length ? eleLons : Arrays.copyOf(eleLons, eleCount);
+        double[] eles = new double[eleCount];
+        AbstractElevationProvider.getEle(eleProvider, lats, lons, eles);
+        for (int i = 0; i < eleCount; i++) {
+            int id = eleNodeIds[i];
+            if (id <= -3)
+                nodeAccess.setNode(-id - 3, lats[i], lons[i], eles[i]);
+            else
+                pillarInfo.setNode(id - 3, lats[i], lons[i], eles[i]);
+        }
+        eleCount = 0;
+    }
+
     /**
      * The nodeFlags store the encoders to check for accessibility in edgeFlags. E.g. if nodeFlags==3, then the
      * accessibility of the first two encoders will be check in edgeFlags
@@ -523,6 +737,10 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         return false;
     }
 
+    /**
+     * Returns the elevation of a single node. If a subclass overrides this method it is called for every node and
+     * the elevation is not looked up in batches, see {@link #setElevationBatchSize(int)}.
+     */
     protected double getElevation(ReaderNode node) {
         return eleProvider.getEle(node.getLat(), node.getLon());
     }
@@ -571,6 +789,8 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
      */
     Collection<EdgeIteratorState> addOSMWay(final LongIndexedContainer osmNodeIds, final IntsRef flags, final long wayOsmId) {
         PointList pointList = new PointList(osmNodeIds.size(), nodeAccess.is3D());
+        // the OSM ids of the points in pointList
+        LongArrayList pointOsmIds = new LongArrayList(osmNodeIds.size());
         List<EdgeIteratorState> newEdges = new ArrayList<>(5);
         int firstNode = -1;
         int lastIndex = osmNodeIds.size() - 1;
@@ -597,9 +817,12 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                         tmpNode = -tmpNode - 3;
                         if (pointList.getSize() > 1 && firstNode >= 0) {
                             // TOWER node
-                            newEdges.add(addEdge(firstNode, tmpNode, pointList, flags, wayOsmId));
+                            newEdges.add(addEdge(firstNode, tmpNode, pointList, pointOsmIds, flags, wayOsmId));
+                            long towerOsmId = pointOsmIds.get(pointOsmIds.size() - 1);
                             pointList.clear();
+                            pointOsmIds.clear();
                             pointList.add(nodeAccess, tmpNode);
+                            pointOsmIds.add(towerOsmId);
                         }
                         firstNode = tmpNode;
                         lastInBoundsPillarNode = -1;
@@ -618,6 +841,8 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
 
                     // PILLAR node, but convert to towerNode if end-standing
                     tmpNode = handlePillarNode(tmpNode, osmNodeId, pointList, convertToTowerNode);
+                    if (!convertToTowerNode)
+                        pointOsmIds.add(osmNodeId);
                 }
 
                 if (tmpNode < TOWER_NODE) {
@@ -635,17 +860,22 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                         }
 
                         int newEndNode = -handlePillarNode(lastGHNodeId, lastOsmNodeId, pointList, true) - 3;
-                        newEdges.add(addEdge(firstNode, newEndNode, pointList, flags, wayOsmId));
+                        newEdges.add(addEdge(firstNode, newEndNode, pointList, pointOsmIds, flags, wayOsmId));
                         pointList.clear();
+                        pointOsmIds.clear();
                         pointList.add(nodeAccess, newEndNode);
+                        pointOsmIds.add(lastOsmNodeId);
                         firstNode = newEndNode;
                     }
 
                     pointList.add(nodeAccess, tmpNode);
+                    pointOsmIds.add(osmNodeId);
                     if (firstNode >= 0) {
-                        newEdges.add(addEdge(firstNode, tmpNode, pointList, flags, wayOsmId));
+                        newEdges.add(addEdge(firstNode, tmpNode, pointList, pointOsmIds, flags, wayOsmId));
                         pointList.clear();
+                        pointOsmIds.clear();
                         pointList.add(nodeAccess, tmpNode);
+                        pointOsmIds.add(osmNodeId);
                     }
                     firstNode = tmpNode;
                 }
@@ -658,17 +888,13 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         return newEdges;
     }
 
-    EdgeIteratorState addEdge(int fromIndex, int toIndex, PointList pointList, IntsRef flags, long wayOsmId) {
+    EdgeIteratorState addEdge(int fromIndex, int toIndex, PointList pointList, LongArrayList pointOsmIds, IntsRef flags, long wayOsmId) {
         // sanity checks
         if (fromIndex < 0 || toIndex < 0)
             throw new AssertionError("to or from index is invalid for this edge " + fromIndex + "->" + toIndex + ", points:" + pointList);
         if (pointList.getDimension() != nodeAccess.getDimension())
             throw new AssertionError("Dimension does not match for pointList vs. nodeAccess " + pointList.getDimension() + " <-> " + nodeAccess.getDimension());
 
-        // Smooth the elevation before calculating the distance because the distance will be incorrect if calculated afterwards
-        if (this.smoothElevation)
-            pointList = GraphElevationSmoothing.smoothElevation(pointList);
-
         double towerNodeDistance = pointList.calcDistance(distCalc);
 
         if (towerNodeDistance < 0.001) {
@@ -693,17 +919,54 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
 
         EdgeIteratorState iter = graph.edge(fromIndex, toIndex).setDistance(towerNodeDistance).setFlags(flags);
 
-        if (doSimplify && pointList.size() > 2)
+        PointList unsimplifiedPointList = null;
+        if (doSimplify && pointList.size() > 2) {
+            if (storePillarNodeIds)
+                unsimplifiedPointList = pointList.clone(false);
             simplifyAlgo.simplify(pointList);
+        }
 
         // If the entire way is just the first and last point, do not waste space storing an empty way geometry
         if (pointList.size() > 2)
             iter.setWayGeometry(pointList.shallowCopy(1, pointList.size() - 1, false));
 
         storeOsmWayID(iter.getEdge(), wayOsmId);
+        if (storePillarNodeIds && pointList.size() > 2)
+            storeOsmPillarNodeIDs(iter.getEdge(), getPillarNodeIds(pointList, unsimplifiedPointList, pointOsmIds));
         return iter;
     }
 
+    /**
+     * @return the OSM ids of the pillar nodes that are left in pointList after the simplification
+     */
+    private static LongArrayList getPillarNodeIds(PointList pointList, PointList unsimplifiedPointList, LongArrayList pointOsmIds) {
+        LongArrayList pillarNodeIds = new LongArrayList(pointList.size() - 2);
+        if (unsimplifiedPointList == null) {
+            for (int i = 1; i < pointList.size() - 1; i++) {
+                pillarNodeIds.add(pointOsmIds.get(i));
+            }
+            return pillarNodeIds;
+        }
+
+        // the simplification only removes points, so the remaining points can be found in the same order
+        int index = 1;
+        for (int i = 1; i < unsimplifiedPointList.size() - 1 && index < pointList.size() - 1; i++) {
+            if (unsimplifiedPointList.getLat(i) == pointList.getLat(index)
+                    && unsimplifiedPointList.getLon(i) == pointList.getLon(index)) {
+                pillarNodeIds.add(pointOsmIds.get(i));
+                index++;
+            }
+        }
+        return pillarNodeIds;
+    }
+
+    /**
+     * Stores the OSM ids of the pillar nodes of the specified edge in the order of its way geometry. Only called if
+     * enabled via {@link #setStorePillarNodeIds(boolean)}.
+     */
+    protected void storeOsmPillarNodeIDs(int edgeId, LongArrayList osmNodeIds) {
+    }
+
     /**
      * Stores only osmWayIds which are required for relations
      */
@@ -740,8 +1003,17 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     protected void finishedReading() {
         printInfo("way");
         pillarInfo.clear();
+        eleNodeIds = null;
+        eleLats = null;
+        eleLons = null;
+        if (nodeCoordinates != null) {
+            nodeCoordinates.clear();
+            nodeCoordinates = null;
+        }
         encodingManager.releaseParsers();
         eleProvider.release();
+        if (osmNodeIdToInternalNodeMap instanceof DenseLongIntMap)
+            ((DenseLongIntMap) osmNodeIdToInternalNodeMap).clear();
         osmNodeIdToInternalNodeMap = null;
         osmNodeIdToNodeFlagsMap = null;
         osmWayIdToRouteWeightMap = null;
@@ -878,9 +1150,11 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
 
     IntsRef getRelFlagsMap(long osmId) {
         long relFlagsAsLong = osmWayIdToRouteWeightMap.get(osmId);
-        tempRelFlags.ints[0] = (int) relFlagsAsLong;
-        tempRelFlags.ints[1] = (int) (relFlagsAsLong >> 32);
-        return tempRelFlags;
+        // a new instance per call as the ways are parsed concurrently
+        IntsRef relFlags = encodingManager.createRelationFlags();
+        relFlags.ints[0] = (int) relFlagsAsLong;
+        relFlags.ints[1] = (int) (relFlagsAsLong >> 32);
+        return relFlags;
     }
 
     void putRelFlagsMap(long osmId, IntsRef relFlags) {
@@ -888,6 +1162,14 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         osmWayIdToRouteWeightMap.put(osmId, relFlagsAsLong);
     }
 
+    /**
+     * Enables calling {@link #storeOsmPillarNodeIDs} for every edge with pillar nodes.
+     */
+    public OSMReader setStorePillarNodeIds(boolean storePillarNodeIds) {
+        this.storePillarNodeIds = storePillarNodeIds;
+        return this;
+    }
+
     @Override
     public OSMReader setWayPointMaxDistance(double maxDist) {
         doSimplify = maxDist > 0;
@@ -901,6 +1183,51 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         return this;
     }
 
+    /**
+     * Collects up to the specified number of nodes before their elevation is fetched from the elevation provider in
+     * one call, so that the lookups can be sorted by tile. Use 0 to fetch the elevation per node via
+     * {@link #getElevation(ReaderNode)}, which is also done if a subclass overrides it. The default is 100_000.
+     */
+    public OSMReader setElevationBatchSize(int elevationBatchSize) {
+        if (elevationBatchSize < 0)
+            throw new IllegalArgumentException("elevation batch size cannot be negative: " + elevationBatchSize);
+        this.elevationBatchSize = elevationBatchSize;
+        return this;
+    }
+
+    /**
+     * Stores the coordinates of all nodes in a temporary memory mapped file in the first pass, so that the second
+     * pass does not need to decode the nodes again. This is fastest for pbf files sorted by type (nodes, ways,
+     * relations) but needs 8 bytes of disk space per node id up to the highest id in the file.
+     */
+    public OSMReader setSinglePass(boolean singlePass) {
+        this.singlePass = singlePass;
+        return this;
+    }
+
+    /**
+     * Selects how the OSM node ids are mapped to the internal ids. "btree" (the default) is an in-memory B-tree
+     * that works best for extracts. "dense_ram" and "dense_mmap" use a {@link DenseLongIntMap} that needs 4 bytes per
+     * id up to the highest node id, i.e. it is faster and more compact for the planet or big continents. With
+     * "dense_mmap" it is stored in a temporary memory mapped file and does not need heap space.
+     */
+    public OSMReader setNodeMapType(String nodeMapType) {
+        switch (nodeMapType) {
+            case "btree":
+                osmNodeIdToInternalNodeMap = new GHLongIntBTree(200);
+                break;
+            case "dense_ram":
+                osmNodeIdToInternalNodeMap = new DenseLongIntMap(ghStorage.getDirectory(), DAType.RAM, EMPTY_NODE);
+                break;
+            case "dense_mmap":
+                osmNodeIdToInternalNodeMap = new DenseLongIntMap(ghStorage.getDirectory(), DAType.MMAP, EMPTY_NODE);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown node map type: " + nodeMapType);
+        }
+        return this;
+    }
+
     @Override
     public OSMReader setWorkerThreads(int numOfWorkers) {
         this.workerThreads = numOfWorkers;
@@ -16,11 +16,15 @@ public class PbfBlobResult {
     private boolean complete;
     private boolean success;
     private Exception ex;
+    private final long offset;
 
     /**
      * Creates a new instance.
+     *
+     * @param offset The position of the decoded blob in the PBF stream.
      */
-    public PbfBlobResult() {
+    public PbfBlobResult(long offset) {
+        this.offset = offset;
         complete = false;
         success = false;
         ex = new RuntimeException("no success result stored");
@@ -71,6 +75,10 @@ public class PbfBlobResult {
         return ex;
     }
 
+    public long getOffset() {
+        return offset;
+    }
+
     /**
      * Gets the entities decoded from the blob. This is only valid after complete becomes true, and
      * if success is true.
@@ -28,6 +28,7 @@ public class PbfDecoder implements Runnable {
     private final Lock lock;
     private final Condition dataWaitCondition;
     private final Queue<PbfBlobResult> blobResults;
+    private long wayBlobOffset = -1;
 
     /**
      * Creates a new instance.
@@ -93,6 +94,8 @@ public class PbfDecoder implements Runnable {
             lock.unlock();
             try {
                 for (ReaderElement entity : blobResult.getEntities()) {
+                    if (wayBlobOffset < 0 && !entity.isType(ReaderElement.NODE) && !entity.isType(ReaderElement.FILEHEADER))
+                        wayBlobOffset = blobResult.getOffset();
                     sink.process(entity);
                 }
             } finally {
@@ -109,7 +112,7 @@ public class PbfDecoder implements Runnable {
 
             // Create the result object to capture the results of the decoded
             // blob and add it to the blob results queue.
-            final PbfBlobResult blobResult = new PbfBlobResult();
+            final PbfBlobResult blobResult = new PbfBlobResult(rawBlob.getOffset());
             blobResults.add(blobResult);
 
             // Create the listener object that will update the blob results
@@ -155,6 +158,14 @@ public class PbfDecoder implements Runnable {
         sendResultsToSink(0);
     }
 
+    /**
+     * @return the position of the first blob in the PBF stream that contains a way or a relation or -1 if there was
+     * no such blob
+     */
+    public long getWayBlobOffset() {
+        return wayBlobOffset;
+    }
+
     @Override
     public void run() {
         lock.lock();
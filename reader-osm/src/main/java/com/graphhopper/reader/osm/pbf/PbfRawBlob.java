@@ -11,18 +11,28 @@ package com.graphhopper.reader.osm.pbf;
 public class PbfRawBlob {
     private String type;
     private byte[] data;
+    private long offset;
 
     /**
      * Creates a new instance.
      * <p>
      *
-     * @param type The type of data represented by this blob. This corresponds to the type field in
-     *             the blob header.
-     * @param data The raw contents of the blob in binary undecoded form.
+     * @param type   The type of data represented by this blob. This corresponds to the type field in
+     *               the blob header.
+     * @param data   The raw contents of the blob in binary undecoded form.
+     * @param offset The position of the blob in the PBF stream.
      */
-    public PbfRawBlob(String type, byte[] data) {
+    public PbfRawBlob(String type, byte[] data, long offset) {
         this.type = type;
         this.data = data;
+        this.offset = offset;
+    }
+
+    /**
+     * Gets the position of this blob in the PBF stream, i.e. the number of bytes before its header.
+     */
+    public long getOffset() {
+        return offset;
     }
 
     /**
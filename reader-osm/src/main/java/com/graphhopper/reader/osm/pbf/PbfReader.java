@@ -16,6 +16,8 @@ public class PbfReader implements Runnable {
     private InputStream inputStream;
     private Sink sink;
     private int workers;
+    private long startOffset;
+    private volatile long wayBlobOffset = -1;
 
     /**
      * Creates a new instance.
@@ -30,12 +32,31 @@ public class PbfReader implements Runnable {
         this.workers = workers;
     }
 
+    /**
+     * Starts reading at the specified blob offset instead of the beginning of the stream, e.g. to skip the nodes.
+     */
+    public PbfReader setStartOffset(long startOffset) {
+        this.startOffset = startOffset;
+        return this;
+    }
+
+    /**
+     * @return the position of the first blob containing a way or a relation. This is only valid after the stream
+     * was read completely.
+     * @see PbfDecoder#getWayBlobOffset()
+     */
+    public long getWayBlobOffset() {
+        return wayBlobOffset;
+    }
+
     @Override
     public void run() {
         ExecutorService executorService = Executors.newFixedThreadPool(workers);
         try {
             // Create a stream splitter to break the PBF stream into blobs.
             PbfStreamSplitter streamSplitter = new PbfStreamSplitter(new DataInputStream(inputStream));
+            if (startOffset > 0)
+                streamSplitter.skipTo(startOffset);
 
             // Process all blobs of data in the stream using threads from the
             // executor service. We allow the decoder to issue an extra blob
@@ -45,6 +66,7 @@ public class PbfReader implements Runnable {
             // request stream, and sending decoded entities to the sink.
             PbfDecoder pbfDecoder = new PbfDecoder(streamSplitter, executorService, workers + 1, sink);
             pbfDecoder.run();
+            wayBlobOffset = pbfDecoder.getWayBlobOffset();
 
         } catch (Exception e) {
             throw new RuntimeException("Unable to read PBF file.", e);
@@ -21,6 +21,7 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
     private static Logger log = Logger.getLogger(PbfStreamSplitter.class.getName());
     private DataInputStream dis;
     private int dataBlockCount;
+    private long offset;
     private boolean eof;
     private PbfRawBlob nextBlob;
 
@@ -58,6 +59,7 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
             // Read the length of the next header block. This is the only time
             // we should expect to encounter an EOF exception. In all other
             // cases it indicates a corrupt or truncated file.
+            long blobOffset = offset;
             int headerLength;
             try {
                 headerLength = dis.readInt();
@@ -75,14 +77,31 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
                 log.finer("Processing blob of type " + blobHeader.getType() + ".");
             }
             byte[] blobData = readRawBlob(blobHeader);
+            offset += 4 + headerLength + blobData.length;
 
-            nextBlob = new PbfRawBlob(blobHeader.getType(), blobData);
+            nextBlob = new PbfRawBlob(blobHeader.getType(), blobData, blobOffset);
 
         } catch (IOException e) {
             throw new RuntimeException("Unable to get next blob from PBF stream.", e);
         }
     }
 
+    /**
+     * Skips all blobs before the specified position, which has to be the offset of a blob read previously from the
+     * same stream.
+     */
+    public void skipTo(long blobOffset) throws IOException {
+        if (blobOffset < offset)
+            throw new IllegalStateException("Cannot skip backwards from " + offset + " to " + blobOffset);
+
+        while (offset < blobOffset) {
+            int skipped = dis.skipBytes((int) Math.min(blobOffset - offset, Integer.MAX_VALUE));
+            if (skipped <= 0)
+                throw new EOFException("Cannot skip to " + blobOffset + ", end of stream at " + offset);
+            offset += skipped;
+        }
+    }
+
     @Override
     public boolean hasNext() {
         if (nextBlob == null && !eof) {
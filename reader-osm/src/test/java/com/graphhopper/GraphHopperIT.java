@@ -900,6 +900,19 @@ public class GraphHopperIT {
         assertEquals(62, arsp.getPoints().get(0).getElevation(), 1e-2);
         assertEquals(66, arsp.getPoints().get(1).getElevation(), 1e-2);
         assertEquals(52, arsp.getPoints().get(10).getElevation(), 1e-2);
+
+        // the ascend does not depend on the points and the grade is read from the precalculated edge statistics
+        rsp = hopper.route(new GHRequest(43.730729, 7.421288, 43.727697, 7.419199).
+                setAlgorithm(ASTAR).setProfile(profile).setPathDetails(Arrays.asList("grade")).
+                putHint(Routing.CALC_POINTS, false).putHint(Routing.INSTRUCTIONS, false));
+        assertEquals(84, rsp.getBest().getAscend(), 1e-1);
+        assertEquals(135, rsp.getBest().getDescend(), 1e-1);
+        rsp = hopper.route(new GHRequest(43.730729, 7.421288, 43.727697, 7.419199).
+                setAlgorithm(ASTAR).setProfile(profile).setPathDetails(Arrays.asList("grade")));
+        List<PathDetail> grades = rsp.getBest().getPathDetails().get("grade");
+        assertEquals(0, grades.get(0).getFirst());
+        assertEquals(rsp.getBest().getPoints().size() - 1, grades.get(grades.size() - 1).getLast());
+        assertTrue(grades.toString(), (Double) grades.get(0).getValue() > 0);
     }
 
     @Test
@@ -973,6 +986,41 @@ public class GraphHopperIT {
         assertEquals(31.32, pointList.getEle(5), .1);
     }
 
+    @Test
+    public void testSRTMWithSmoothingAndCompressedGeometry() {
+        // the compressed geometry of an edge can grow when the elevation is smoothed, so it is moved to a new slot
+        GHResponse expected = routeWithSmoothedElevation(false);
+        GHResponse rsp = routeWithSmoothedElevation(true);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(expected.getBest().getDistance(), rsp.getBest().getDistance(), .1);
+        PointList expectedPoints = expected.getBest().getPoints();
+        PointList points = rsp.getBest().getPoints();
+        assertEquals(expectedPoints.getSize(), points.getSize());
+        for (int i = 0; i < points.getSize(); i++) {
+            assertEquals(expectedPoints.getEle(i), points.getEle(i), .1);
+        }
+    }
+
+    private GHResponse routeWithSmoothedElevation(boolean compressedGeometry) {
+        Helper.removeDir(new File(GH_LOCATION));
+        GraphHopper hopper = new GraphHopperOSM().init(new GraphHopperConfig().
+                putObject("graph.flag_encoders", "foot").
+                putObject("graph.location", GH_LOCATION).
+                putObject("datareader.file", MONACO).
+                putObject("datareader.worker_threads", 4).
+                putObject("graph.compressed_geometry", compressedGeometry).
+                putObject("graph.elevation.smoothing", true).
+                setProfiles(Collections.singletonList(new ProfileConfig("profile").setVehicle("foot").setWeighting("shortest"))));
+        hopper.setElevationProvider(new SRTMProvider(DIR));
+        hopper.importOrLoad();
+        try {
+            return hopper.route(new GHRequest(43.74056471749763, 7.4299266210693755,
+                    43.73790260334179, 7.427984089259056).setProfile("profile"));
+        } finally {
+            hopper.close();
+        }
+    }
+
     @Test
     public void testSkadiElevationProvider() {
         final String profile = "profile";
@@ -38,6 +38,7 @@ import com.graphhopper.storage.GraphBuilder;
 import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.shapes.BBox;
@@ -51,6 +52,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA;
@@ -64,6 +66,9 @@ public class GraphHopperOSMTest {
     private static final String ghLoc = "./target/tmp/ghosm";
     private static final String testOsm = "./src/test/resources/com/graphhopper/reader/osm/test-osm.xml";
     private static final String testOsm3 = "./src/test/resources/com/graphhopper/reader/osm/test-osm3.xml";
+    private static final String testOsmChange = "./src/test/resources/com/graphhopper/reader/osm/test-osm-change.xml";
+    private static final String testOsmChanges = "./src/test/resources/com/graphhopper/reader/osm/test-osm-change.osc";
+    private static final String testOsmPillarChange = "./src/test/resources/com/graphhopper/reader/osm/test-osm-change-pillar.osc";
     private GraphHopper instance;
 
     @Before
@@ -377,6 +382,35 @@ public class GraphHopperOSMTest {
         assertEquals(3, rsp.getBest().getPoints().getSize());
     }
 
+    @Test
+    public void testCompressedGeometry() {
+        final String profile = "profile";
+        final String vehicle = "car";
+        final String weighting = "fastest";
+        instance = createGraphHopper(vehicle).
+                setProfiles(new ProfileConfig(profile).setVehicle(vehicle).setWeighting(weighting)).
+                setCompressedGeometry(true).
+                setSortGraph(true).
+                setGraphHopperLocation(ghLoc).
+                setDataReaderFile(testOsm);
+        instance.importOrLoad();
+        assertTrue(instance.getGraphHopperStorage().isCompressedGeometry());
+        GHRequest req = new GHRequest(51.2492152, 9.4317166, 51.2, 9.4).setProfile(profile);
+        PathWrapper rsp = instance.route(req).getBest();
+        assertFalse(rsp.hasErrors());
+        assertEquals(3, rsp.getPoints().getSize());
+        assertEquals(new GHPoint(52.0, 9.0), rsp.getPoints().get(1));
+        instance.close();
+
+        // the encoding is read from the stored graph
+        instance = createGraphHopper(vehicle).
+                setProfiles(new ProfileConfig(profile).setVehicle(vehicle).setWeighting(weighting)).
+                setGraphHopperLocation(ghLoc);
+        assertTrue(instance.load(ghLoc));
+        assertTrue(instance.getGraphHopperStorage().isCompressedGeometry());
+        assertEquals(rsp.getPoints(), instance.route(req).getBest().getPoints());
+    }
+
     @Test
     public void testSortedGraph_noCH() {
         final String profile = "profile";
@@ -1081,6 +1115,138 @@ public class GraphHopperOSMTest {
         }
     }
 
+    @Test
+    public void testApplyOSMChanges() throws IOException {
+        GraphHopperOSM hopper = createChangeHopper().setStoreOSMIds(true);
+        hopper.setGraphHopperLocation(ghLoc).setDataReaderFile(testOsmChange);
+        hopper.importOrLoad();
+        // along the way from 4 to 5
+        GHRequest req = new GHRequest(51.0099, 10.0195, 51.0099, 10.0105).setProfile("car");
+        assertEquals(630, hopper.route(req).getBest().getDistance(), 1);
+        hopper.close();
+
+        hopper = createChangeHopper().setStoreOSMIds(true);
+        instance = hopper;
+        assertTrue(hopper.load(ghLoc));
+        final AtomicInteger graphChanges = new AtomicInteger();
+        hopper.addGraphChangeListener(new Runnable() {
+            @Override
+            public void run() {
+                graphChanges.incrementAndGet();
+            }
+        });
+        OSMChangeUpdater updater = hopper.applyOSMChanges(testOsmChanges);
+        assertEquals(1, graphChanges.get());
+        assertEquals(1, updater.getModifiedEdges());
+        assertEquals(1, updater.getDeletedEdges());
+        assertEquals(2, updater.getCreatedEdges());
+        assertEquals(0, updater.getSkippedWays());
+        assertEquals(Collections.emptyList(), updater.getChangedCHProfiles());
+
+        // the way from 4 to 5 is oneway now, so we have to take the new ways via 8 and 3
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+        assertEquals(4393, rsp.getBest().getDistance(), 1);
+        hopper.close();
+
+        // the changes are stored
+        hopper = createChangeHopper().setStoreOSMIds(true);
+        instance = hopper;
+        assertTrue(hopper.load(ghLoc));
+        assertEquals(4393, hopper.route(req).getBest().getDistance(), 1);
+        // the location index contains the new edges
+        rsp = hopper.route(new GHRequest(51.0001, 10.0001, 51.0099, 10.0295).setProfile("car"));
+        assertEquals(3169, rsp.getBest().getDistance(), 1);
+    }
+
+    @Test
+    public void testStoreOSMIdsWithSortedGraph_error() {
+        try {
+            new GraphHopperOSM().init(new GraphHopperConfig().
+                    putObject("datareader.file", testOsmChange).
+                    putObject("graph.flag_encoders", "car").
+                    putObject("graph.do_sort", true).
+                    putObject("datareader.osm_ids", true));
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("graph.do_sort"));
+        }
+
+        GraphHopperOSM hopper = createChangeHopper().setStoreOSMIds(true);
+        hopper.setSortGraph(true);
+        hopper.setGraphHopperLocation(ghLoc).setDataReaderFile(testOsmChange);
+        try {
+            hopper.importOrLoad();
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("graph.do_sort"));
+        }
+    }
+
+    @Test
+    public void testApplyOSMChangesToPreparedGraph() throws IOException {
+        GraphHopperOSM hopper = createChangeHopper().setStoreOSMIds(true);
+        hopper.setGraphHopperLocation(ghLoc).setDataReaderFile(testOsmChange);
+        hopper.getCHPreparationHandler().setCHProfileConfigs(new CHProfileConfig("car"));
+        hopper.setWayPointMaxDistance(0);
+        hopper.importOrLoad();
+        instance = hopper;
+        int edges = hopper.getGraphHopperStorage().getEdges();
+        GHRequest req = new GHRequest(51.0099, 10.0195, 51.0099, 10.0105).setProfile("car");
+        assertEquals(630, hopper.route(req).getBest().getDistance(), 1);
+
+        // no edges can be added after the CH preparation, so nothing is changed
+        try {
+            hopper.applyOSMChanges(testOsmChanges);
+            fail();
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("[105, 106]"));
+        }
+        assertEquals(edges, hopper.getGraphHopperStorage().getEdges());
+        assertEquals(630, hopper.route(req).getBest().getDistance(), 1);
+
+        // moving a node does not need new edges
+        OSMChangeUpdater updater = hopper.applyOSMChanges(testOsmPillarChange);
+        assertEquals(1, updater.getMovedNodes());
+        assertEquals(Collections.singletonList("car"), updater.getChangedCHProfiles());
+    }
+
+    @Test
+    public void testApplyOSMChangesWithMovedPillarNode() throws IOException {
+        // keep the pillar node 9 although it is on a straight line
+        GraphHopperOSM hopper = createChangeHopper().setStoreOSMIds(true);
+        hopper.setWayPointMaxDistance(0);
+        hopper.setGraphHopperLocation(ghLoc).setDataReaderFile(testOsmChange);
+        hopper.importOrLoad();
+        instance = hopper;
+        GHRequest req = new GHRequest(51.0, 10.0, 51.0, 10.01).setProfile("car");
+        assertEquals(700, hopper.route(req).getBest().getDistance(), 1);
+
+        OSMChangeUpdater updater = hopper.applyOSMChanges(testOsmPillarChange);
+        assertEquals(1, updater.getMovedNodes());
+        assertEquals(0, updater.getCreatedEdges());
+        GHResponse rsp = hopper.route(req);
+        assertEquals(734, rsp.getBest().getDistance(), 1);
+        assertEquals(51.001, rsp.getBest().getPoints().getLat(1), 1e-6);
+        // the location index finds the new geometry
+        QueryResult qr = hopper.getLocationIndex().findClosest(51.0012, 10.005, EdgeFilter.ALL_EDGES);
+        assertEquals(22, qr.getQueryDistance(), 1);
+        hopper.close();
+
+        hopper = createChangeHopper().setStoreOSMIds(true);
+        instance = hopper;
+        assertTrue(hopper.load(ghLoc));
+        assertEquals(734, hopper.route(req).getBest().getDistance(), 1);
+        qr = hopper.getLocationIndex().findClosest(51.0012, 10.005, EdgeFilter.ALL_EDGES);
+        assertEquals(22, qr.getQueryDistance(), 1);
+    }
+
+    private GraphHopperOSM createChangeHopper() {
+        GraphHopperOSM hopper = (GraphHopperOSM) createGraphHopper("car");
+        hopper.setStoreOnFlush(true).setMinNetworkSize(3, 0);
+        return hopper;
+    }
+
     private GraphHopper createGraphHopper(String vehicles) {
         EncodingManager em = EncodingManager.create(vehicles);
         List<ProfileConfig> profiles = new ArrayList<>();
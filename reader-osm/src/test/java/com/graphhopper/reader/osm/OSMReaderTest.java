@@ -674,6 +674,58 @@ public class OSMReaderTest {
         assertEquals(Helper.createPointList3D(52, 9, -10, 51.25, 9.43, 100, 49, 10, -30), edge.fetchWayGeometry(FetchMode.ALL));
     }
 
+    @Test
+    public void testReadEleFromCustomOSMWithElevationProvider() {
+        GraphHopper hopper = new GraphHopperFacade("custom-osm-ele.xml") {
+            @Override
+            protected DataReader createReader(GraphHopperStorage tmpGraph) {
+                return initDataReader(new OSMReader(tmpGraph) {
+                    @Override
+                    protected double getElevation(ReaderNode node) {
+                        return node.getEle();
+                    }
+                });
+            }
+        };
+        // the overridden getElevation is used although the elevation of the provider could be looked up in batches
+        hopper.setElevationProvider(new ElevationProvider() {
+            @Override
+            public double getEle(double lat, double lon) {
+                return 1000;
+            }
+
+            @Override
+            public ElevationProvider setBaseURL(String baseURL) {
+                return this;
+            }
+
+            @Override
+            public ElevationProvider setDAType(DAType daType) {
+                return this;
+            }
+
+            @Override
+            public void setInterpolate(boolean interpolate) {
+            }
+
+            @Override
+            public void release() {
+            }
+
+            @Override
+            public void setAutoRemoveTemporaryFiles(boolean autoRemoveTemporary) {
+            }
+        });
+        hopper.importOrLoad();
+
+        Graph graph = hopper.getGraphHopperStorage();
+        int n20 = AbstractGraphStorageTester.getIdOf(graph, 52);
+        int n50 = AbstractGraphStorageTester.getIdOf(graph, 49);
+
+        EdgeIteratorState edge = GHUtility.getEdge(graph, n20, n50);
+        assertEquals(Helper.createPointList3D(52, 9, -10, 51.25, 9.43, 100, 49, 10, -30), edge.fetchWayGeometry(FetchMode.ALL));
+    }
+
     @Test
     public void testReadEleFromDataProvider() {
         GraphHopper hopper = new GraphHopperFacade("test-osm5.xml");
@@ -953,6 +1005,88 @@ public class OSMReaderTest {
         assertTrue(ex.getMessage(), ex.getMessage().contains("You requested the details [toll]"));
     }
 
+    @Test
+    public void testWorkerThreadsCreateSameGraph() throws IOException, URISyntaxException {
+        for (String file : Arrays.asList(file1, fileBarriers, "test-road-attributes.xml")) {
+            GraphHopperStorage expected = readGraph(file, 1);
+            GraphHopperStorage actual = readGraph(file, 4);
+            assertEquals(file, expected.getNodes(), actual.getNodes());
+            assertEquals(file, expected.getEdges(), actual.getEdges());
+            AllEdgesIterator expectedIter = expected.getAllEdges();
+            AllEdgesIterator actualIter = actual.getAllEdges();
+            while (expectedIter.next()) {
+                assertTrue(actualIter.next());
+                assertEquals(file, expectedIter.getBaseNode(), actualIter.getBaseNode());
+                assertEquals(file, expectedIter.getAdjNode(), actualIter.getAdjNode());
+                assertEquals(file, expectedIter.getFlags(), actualIter.getFlags());
+                assertEquals(file, expectedIter.getName(), actualIter.getName());
+                assertEquals(file, expectedIter.getDistance(), actualIter.getDistance(), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testSinglePassCreatesSameGraph() throws IOException, URISyntaxException {
+        for (String file : Arrays.asList(file1, file6, fileBarriers, "test-osm-negative-ids.xml", "test-road-attributes.xml")) {
+            GraphHopperStorage expected = readGraph(file, 2, false);
+            GraphHopperStorage actual = readGraph(file, 2, true);
+            // the node ids differ as the nodes are added in the order of the ways
+            assertEquals(file, expected.getNodes(), actual.getNodes());
+            assertEquals(file, getEdgeDescriptions(expected), getEdgeDescriptions(actual));
+            assertFalse(file, new File(dir, "tmp_node_coordinates").exists());
+        }
+    }
+
+    @Test
+    public void testNodeMapTypes() throws IOException, URISyntaxException {
+        for (String nodeMapType : Arrays.asList("dense_ram", "dense_mmap")) {
+            for (String file : Arrays.asList(file1, fileBarriers, "test-osm-negative-ids.xml")) {
+                GraphHopperStorage expected = readGraph(file, 2);
+                GraphHopperStorage actual = newGraph(dir, EncodingManager.create("car,bike,foot"), false, false);
+                new OSMReader(actual).setNodeMapType(nodeMapType).
+                        setFile(new File(getClass().getResource(file).toURI())).
+                        readGraph();
+                assertEquals(file, expected.getNodes(), actual.getNodes());
+                for (int node = 0; node < expected.getNodes(); node++) {
+                    assertEquals(file, expected.getNodeAccess().getLat(node), actual.getNodeAccess().getLat(node), 1e-6);
+                    assertEquals(file, expected.getNodeAccess().getLon(node), actual.getNodeAccess().getLon(node), 1e-6);
+                }
+                assertEquals(file, getEdgeDescriptions(expected), getEdgeDescriptions(actual));
+                assertFalse(file, new File(dir, "tmp_dense_long_int_map").exists());
+            }
+        }
+
+        try {
+            new OSMReader(newGraph(dir, EncodingManager.create("car"), false, false)).setNodeMapType("hash");
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("hash"));
+        }
+    }
+
+    private List<String> getEdgeDescriptions(GraphHopperStorage graph) {
+        List<String> list = new ArrayList<>();
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            list.add(iter.fetchWayGeometry(FetchMode.ALL) + " " + iter.getFlags() + " " + iter.getName()
+                    + " " + Helper.round(iter.getDistance(), 3));
+        }
+        Collections.sort(list);
+        return list;
+    }
+
+    private GraphHopperStorage readGraph(String file, int workerThreads) throws IOException, URISyntaxException {
+        return readGraph(file, workerThreads, false);
+    }
+
+    private GraphHopperStorage readGraph(String file, int workerThreads, boolean singlePass) throws IOException, URISyntaxException {
+        GraphHopperStorage graph = newGraph(dir, EncodingManager.create("car,bike,foot"), false, false);
+        new OSMReader(graph).setWorkerThreads(workerThreads).setSinglePass(singlePass).
+                setFile(new File(getClass().getResource(file).toURI())).
+                readGraph();
+        return graph;
+    }
+
     class GraphHopperFacade extends GraphHopperOSM {
         public GraphHopperFacade(String osmFile) {
             this(osmFile, false, "");
@@ -26,8 +26,16 @@ import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.config.CHProfileConfig;
 import com.graphhopper.config.LMProfileConfig;
 import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.http.JsonRouteResponse;
+import com.graphhopper.http.RouteProtobuf;
+import com.graphhopper.isochrone.algorithm.IsolineBuilder;
+import com.graphhopper.isochrone.algorithm.RasterIsolineBuilder;
+import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.isochrone.algorithm.TriangulationIsolineBuilder;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.json.geo.JsonFeatureCollection;
 import com.graphhopper.reader.DataReader;
+import com.graphhopper.reader.dem.GraphElevationSmoothing;
 import com.graphhopper.reader.osm.GraphHopperOSM;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.util.spatialrules.AbstractSpatialRule;
@@ -35,6 +43,7 @@ import com.graphhopper.routing.util.spatialrules.SpatialRule;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookup;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookupBuilder;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookupBuilder.SpatialRuleFactory;
+import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.*;
@@ -43,14 +52,20 @@ import com.graphhopper.util.Parameters.CH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Polygon;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
@@ -61,6 +76,7 @@ import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import static com.graphhopper.util.Helper.*;
 import static com.graphhopper.util.Parameters.Algorithms.ALT_ROUTE;
@@ -114,6 +130,9 @@ public class Measurement {
         put("measurement.gitinfo", args.getString("measurement.gitinfo", ""));
         int count = args.getInt("measurement.count", 5000);
         put("measurement.map", args.getString("datareader.file", "unknown"));
+        put("graph.import_node_map", args.getString("datareader.node_map", "btree"));
+        put("graph.elevation_smoothing", args.getBool("graph.elevation.smoothing", false));
+        put("graph.compressed_geometry", args.getBool("graph.compressed_geometry", false));
         String blockAreaStr = args.getString("measurement.block_area", "");
         final boolean useMeasurementTimeAsRefTime = args.getBool("measurement.use_measurement_time_as_ref_time", false);
         if (useMeasurementTimeAsRefTime && !useJson) {
@@ -151,9 +170,11 @@ public class Measurement {
 
             @Override
             protected DataReader importData() throws IOException {
+                resetHeapPeak();
                 StopWatch sw = new StopWatch().start();
                 DataReader dr = super.importData();
                 put("graph.import_time", sw.stop().getSeconds());
+                put("graph.import_heap_peak_MB", getHeapPeakMB());
                 return dr;
             }
         };
@@ -197,6 +218,7 @@ public class Measurement {
                     printTimeOfRouteQuery(hopper, new QuerySettings("routing_block_area", count / 20, isCH, isLM).
                             withInstructions().blockArea(blockAreaStr));
             }
+            printIsochrones(hopper, count / 50);
 
             if (hopper.getLMPreparationHandler().isEnabled()) {
                 System.gc();
@@ -239,6 +261,7 @@ public class Measurement {
                             sod());
                     printTimeOfRouteQuery(hopper, new QuerySettings("routingCH_full", count, isCH, isLM).
                             withInstructions().withPointHints().sod().simplify());
+                    printResponseSerialization(hopper, count / 10);
                 }
                 if (!hopper.getCHPreparationHandler().getEdgeBasedCHProfiles().isEmpty()) {
                     printTimeOfRouteQuery(hopper, new QuerySettings("routingCH_edge", count, isCH, isLM).
@@ -314,6 +337,26 @@ public class Measurement {
         return ghConfig;
     }
 
+    private static void resetHeapPeak() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+        }
+    }
+
+    /**
+     * @return the sum of the peak usages of all heap pools since the last resetHeapPeak call, i.e. an upper bound of
+     * the heap that was used
+     */
+    private static long getHeapPeakMB() {
+        long bytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                bytes += pool.getPeakUsage().getUsed();
+        }
+        return bytes / MB;
+    }
+
     private static class QuerySettings {
         private final String prefix;
         private final int count;
@@ -382,6 +425,8 @@ public class Measurement {
         put("graph.nodes", g.getNodes());
         put("graph.edges", g.getAllEdges().length());
         put("graph.size_in_MB", g.getCapacity() / MB);
+        put("graph.geometry_size_in_MB", g.getDirectory().find("geometry").getCapacity() / MB);
+        put("graph.string_index_size_in_MB", g.getDirectory().find("string_index_vals").getCapacity() / MB);
         put("graph.encoder", vehicleStr);
 
         AllEdgesIterator iter = g.getAllEdges();
@@ -480,6 +525,48 @@ public class Measurement {
             }
         }.setIterations(count).start();
         print("unit_tests" + description + ".get_edge_state", miniPerf);
+
+        if (!isCH) {
+            miniPerf = new MiniPerfTest() {
+                @Override
+                public int doCalc(boolean warmup, int run) {
+                    while (true) {
+                        int edgeId = rand.nextInt(maxEdgesId);
+                        if (allowedEdges.contains(edgeId))
+                            return graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE).fetchWayGeometry(FetchMode.ALL).size();
+                    }
+                }
+            }.setIterations(count).start();
+            print("unit_tests.fetch_way_geometry", miniPerf);
+
+            miniPerf = new MiniPerfTest() {
+                @Override
+                public int doCalc(boolean warmup, int run) {
+                    while (true) {
+                        int edgeId = rand.nextInt(maxEdgesId);
+                        if (allowedEdges.contains(edgeId))
+                            return graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE).getName().length();
+                    }
+                }
+            }.setIterations(count).start();
+            print("unit_tests.get_name", miniPerf);
+        }
+
+        if (!isCH && graph.getNodeAccess().is3D()) {
+            miniPerf = new MiniPerfTest() {
+                @Override
+                public int doCalc(boolean warmup, int run) {
+                    while (true) {
+                        int edgeId = rand.nextInt(maxEdgesId);
+                        if (allowedEdges.contains(edgeId)) {
+                            PointList geometry = graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE).fetchWayGeometry(FetchMode.ALL);
+                            return GraphElevationSmoothing.smoothElevation(geometry).size();
+                        }
+                    }
+                }
+            }.setIterations(count).start();
+            print("unit_tests.smooth_elevation", miniPerf);
+        }
     }
 
     private void printSpatialRuleLookupTest(String countryBordersDirectory, int count) {
@@ -772,6 +859,162 @@ public class Measurement {
         print(prefix, miniPerf);
     }
 
+    /**
+     * Compares size and serialization speed of the JSON and the binary (type=pbf) route response
+     */
+    private void printResponseSerialization(final GraphHopper hopper, int count) {
+        final NodeAccess na = hopper.getGraphHopperStorage().getNodeAccess();
+        final Random rand = new Random(seed);
+        final List<GHResponse> responses = new ArrayList<>(count);
+        for (int i = 0; i < count * 5 && responses.size() < count; i++) {
+            int from = rand.nextInt(maxNode);
+            int to = rand.nextInt(maxNode);
+            GHRequest req = new GHRequest(na.getLatitude(from), na.getLongitude(from), na.getLatitude(to), na.getLongitude(to));
+            req.setProfile("profile_no_tc");
+            req.setPathDetails(Arrays.asList(Parameters.Details.AVERAGE_SPEED, Parameters.Details.STREET_NAME));
+            GHResponse rsp = hopper.route(req);
+            if (!rsp.hasErrors())
+                responses.add(rsp);
+        }
+        if (responses.isEmpty())
+            return;
+
+        final ObjectMapper objectMapper = Jackson.newObjectMapper();
+        final AtomicLong jsonBytes = new AtomicLong(0);
+        final AtomicLong pbfBytes = new AtomicLong(0);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        MiniPerfTest jsonPerf = new MiniPerfTest() {
+            @Override
+            public int doCalc(boolean warmup, int run) {
+                bos.reset();
+                try {
+                    objectMapper.writeValue(bos, new JsonRouteResponse(responses.get(run % responses.size()), true, true, false, true, 0));
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+                if (!warmup)
+                    jsonBytes.addAndGet(bos.size());
+                return bos.size();
+            }
+        }.setIterations(count).start();
+        print("serialization.json", jsonPerf);
+
+        MiniPerfTest pbfPerf = new MiniPerfTest() {
+            @Override
+            public int doCalc(boolean warmup, int run) {
+                bos.reset();
+                try {
+                    RouteProtobuf.writeTo(bos, responses.get(run % responses.size()), true, true, false, 0);
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+                if (!warmup)
+                    pbfBytes.addAndGet(bos.size());
+                return bos.size();
+            }
+        }.setIterations(count).start();
+        print("serialization.pbf", pbfPerf);
+
+        put("serialization.json.bytes_mean", (float) jsonBytes.get() / count);
+        put("serialization.pbf.bytes_mean", (float) pbfBytes.get() / count);
+    }
+
+    /**
+     * Compares the triangulation and the raster isolines for the same shortest path trees: the time to build them and
+     * how much the area of the raster isochrone differs from the triangulated one.
+     */
+    private void printIsochrones(final GraphHopper hopper, int count) {
+        if (count < 1)
+            return;
+        final Graph graph = hopper.getGraphHopperStorage();
+        final NodeAccess na = graph.getNodeAccess();
+        final Weighting weighting = hopper.createWeighting(hopper.getProfile("profile_no_tc"), new PMap(), true);
+        final Random rand = new Random(seed);
+        final List<Double> zs = Arrays.asList(300_000d, 600_000d);
+        final List<IsolineBuilder> triangulations = new ArrayList<>(count);
+        final List<IsolineBuilder> rasters = new ArrayList<>(count);
+        for (int i = 0; i < count * 5 && triangulations.size() < count; i++) {
+            ShortestPathTree shortestPathTree = new ShortestPathTree(graph, weighting, false);
+            shortestPathTree.setTimeLimit(zs.get(zs.size() - 1));
+            final IsolineBuilder triangulation = new TriangulationIsolineBuilder();
+            final IsolineBuilder raster = new RasterIsolineBuilder(50);
+            shortestPathTree.search(rand.nextInt(maxNode), new Consumer<ShortestPathTree.IsoLabel>() {
+                @Override
+                public void accept(ShortestPathTree.IsoLabel label) {
+                    double lat = na.getLatitude(label.adjNode);
+                    double lon = na.getLongitude(label.adjNode);
+                    if (label.parent == null) {
+                        triangulation.addPoint(lat, lon, label.time);
+                        raster.addPoint(lat, lon, label.time);
+                    } else {
+                        ShortestPathTree.IsoLabel parent = (ShortestPathTree.IsoLabel) label.parent;
+                        double parentLat = na.getLatitude(parent.adjNode);
+                        double parentLon = na.getLongitude(parent.adjNode);
+                        triangulation.addEdge(parentLat, parentLon, parent.time, lat, lon, label.time);
+                        raster.addEdge(parentLat, parentLon, parent.time, lat, lon, label.time);
+                    }
+                }
+            });
+            // skip islands, the triangulation needs a few points
+            if (shortestPathTree.getVisitedNodes() < 100)
+                continue;
+            triangulations.add(triangulation);
+            rasters.add(raster);
+        }
+        if (triangulations.isEmpty())
+            return;
+
+        final List<List<MultiPolygon>> triangulationIsolines = new ArrayList<>(triangulations.size());
+        final List<List<MultiPolygon>> rasterIsolines = new ArrayList<>(rasters.size());
+        MiniPerfTest triangulationPerf = new MiniPerfTest() {
+            @Override
+            public int doCalc(boolean warmup, int run) {
+                List<MultiPolygon> isolines = triangulations.get(run % triangulations.size()).computeIsolines(zs);
+                if (!warmup && run < triangulations.size())
+                    triangulationIsolines.add(isolines);
+                return isolines.get(0).getNumPoints();
+            }
+        }.setIterations(count).start();
+        print("isochrone.triangulation", triangulationPerf);
+
+        MiniPerfTest rasterPerf = new MiniPerfTest() {
+            @Override
+            public int doCalc(boolean warmup, int run) {
+                List<MultiPolygon> isolines = rasters.get(run % rasters.size()).computeIsolines(zs);
+                if (!warmup && run < rasters.size())
+                    rasterIsolines.add(isolines);
+                return isolines.get(0).getNumPoints();
+            }
+        }.setIterations(count).start();
+        print("isochrone.raster", rasterPerf);
+
+        // like /isochrone compare the outline of the largest polygon
+        GeometryFactory geometryFactory = new GeometryFactory();
+        double deviationSum = 0;
+        int deviationCount = 0;
+        for (int i = 0; i < triangulationIsolines.size(); i++) {
+            for (int k = 0; k < zs.size(); k++) {
+                Polygon expected = largestOutline(geometryFactory, triangulationIsolines.get(i).get(k));
+                Polygon actual = largestOutline(geometryFactory, rasterIsolines.get(i).get(k));
+                if (expected == null || actual == null || expected.getArea() == 0)
+                    continue;
+                deviationSum += expected.symDifference(actual).getArea() / expected.getArea();
+                deviationCount++;
+            }
+        }
+        put("isochrone.raster.area_deviation_mean", deviationCount == 0 ? 0 : (float) (deviationSum / deviationCount));
+    }
+
+    private static Polygon largestOutline(GeometryFactory geometryFactory, MultiPolygon multiPolygon) {
+        Polygon largest = null;
+        for (int i = 0; i < multiPolygon.getNumGeometries(); i++) {
+            Polygon polygon = (Polygon) multiPolygon.getGeometryN(i);
+            if (largest == null || polygon.getArea() > largest.getArea())
+                largest = polygon;
+        }
+        return largest == null ? null : geometryFactory.createPolygon(largest.getExteriorRing().getCoordinates());
+    }
+
     void print(String prefix, MiniPerfTest perf) {
         logger.info(prefix + ": " + perf.getReport());
         put(prefix + ".sum", perf.getSum());
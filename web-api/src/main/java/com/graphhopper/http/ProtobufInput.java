@@ -0,0 +1,133 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal reader for the protobuf wire format.
+ *
+ * @see ProtobufOutput
+ */
+final class ProtobufInput {
+    private final byte[] bytes;
+    private final int end;
+    private int pos;
+
+    ProtobufInput(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.pos = offset;
+        this.end = offset + length;
+    }
+
+    boolean hasMore() {
+        return pos < end;
+    }
+
+    /**
+     * @return the tag, i.e. the field number shifted by three bits combined with the wire type
+     */
+    int readTag() {
+        return (int) readVarint();
+    }
+
+    long readVarint() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos >= end)
+                throw new IllegalStateException("Truncated varint at " + pos);
+            byte b = bytes[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return result;
+        }
+        throw new IllegalStateException("Malformed varint at " + pos);
+    }
+
+    long readSInt64() {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    int readSInt32() {
+        return (int) readSInt64();
+    }
+
+    boolean readBool() {
+        return readVarint() != 0;
+    }
+
+    double readDouble() {
+        checkAvailable(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits |= (long) (bytes[pos++] & 0xFF) << (8 * i);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    String readString() {
+        int length = readLength();
+        String str = new String(bytes, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return str;
+    }
+
+    /**
+     * Reads a length-delimited field, i.e. a nested message or a packed repeated field
+     */
+    ProtobufInput readMessage() {
+        int length = readLength();
+        ProtobufInput message = new ProtobufInput(bytes, pos, length);
+        pos += length;
+        return message;
+    }
+
+    void skipField(int tag) {
+        switch (tag & 0x7) {
+            case ProtobufOutput.VARINT:
+                readVarint();
+                break;
+            case ProtobufOutput.FIXED64:
+                checkAvailable(8);
+                pos += 8;
+                break;
+            case ProtobufOutput.LENGTH_DELIMITED:
+                int length = readLength();
+                pos += length;
+                break;
+            case ProtobufOutput.FIXED32:
+                checkAvailable(4);
+                pos += 4;
+                break;
+            default:
+                throw new IllegalStateException("Unsupported wire type " + (tag & 0x7) + " at " + pos);
+        }
+    }
+
+    private int readLength() {
+        int length = (int) readVarint();
+        checkAvailable(length);
+        return length;
+    }
+
+    private void checkAvailable(int length) {
+        if (length < 0 || pos + length > end)
+            throw new IllegalStateException("Truncated message, need " + length + " bytes at " + pos);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal writer for the protobuf wire format, see https://developers.google.com/protocol-buffers/docs/encoding
+ * Nested messages are written into their own ProtobufOutput first, because their length has to be known in advance.
+ *
+ * @see ProtobufInput
+ */
+final class ProtobufOutput {
+    static final int VARINT = 0;
+    static final int FIXED64 = 1;
+    static final int LENGTH_DELIMITED = 2;
+    static final int FIXED32 = 5;
+
+    private byte[] bytes;
+    private int size;
+
+    ProtobufOutput(int initialCapacity) {
+        bytes = new byte[Math.max(16, initialCapacity)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void writeTo(OutputStream os) throws IOException {
+        os.write(bytes, 0, size);
+    }
+
+    void writeTag(int field, int wireType) {
+        writeVarint((field << 3) | wireType);
+    }
+
+    void writeInt64(int field, long value) {
+        writeTag(field, VARINT);
+        writeVarint(value);
+    }
+
+    void writeSInt64(int field, long value) {
+        writeTag(field, VARINT);
+        writeVarint(zigZag(value));
+    }
+
+    void writeBool(int field, boolean value) {
+        writeTag(field, VARINT);
+        writeVarint(value ? 1 : 0);
+    }
+
+    void writeDouble(int field, double value) {
+        writeTag(field, FIXED64);
+        long bits = Double.doubleToRawLongBits(value);
+        ensureCapacity(8);
+        for (int i = 0; i < 8; i++) {
+            bytes[size++] = (byte) (bits >>> (8 * i));
+        }
+    }
+
+    void writeString(int field, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeTag(field, LENGTH_DELIMITED);
+        writeVarint(utf8.length);
+        ensureCapacity(utf8.length);
+        System.arraycopy(utf8, 0, bytes, size, utf8.length);
+        size += utf8.length;
+    }
+
+    void writeMessage(int field, ProtobufOutput message) {
+        writeTag(field, LENGTH_DELIMITED);
+        writeVarint(message.size);
+        ensureCapacity(message.size);
+        System.arraycopy(message.bytes, 0, bytes, size, message.size);
+        size += message.size;
+    }
+
+    /**
+     * Writes the first count values as packed repeated sint32 field. Nothing is written if count is 0.
+     */
+    void writePackedSInt32(int field, int[] values, int count) {
+        if (count == 0)
+            return;
+        long length = 0;
+        for (int i = 0; i < count; i++) {
+            length += varintSize(zigZag(values[i]));
+        }
+        writeTag(field, LENGTH_DELIMITED);
+        writeVarint(length);
+        for (int i = 0; i < count; i++) {
+            writeVarint(zigZag(values[i]));
+        }
+    }
+
+    void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (size + additional > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int varintSize(long value) {
+        int result = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            result++;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.NumberFormat;
+import java.util.*;
+
+/**
+ * Writes and reads the compact binary route response (type=pbf) for mobile clients. It is encoded in the protobuf wire
+ * format and the schema is documented in route.proto next to this class, so any protobuf library can decode it. Points
+ * are stored as integers and as differences to the previous point which makes them small and fast to parse.
+ */
+public class RouteProtobuf {
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+    private static final double COORD_FACTOR = 1e6;
+    private static final double ELE_FACTOR = 100;
+
+    public static void writeTo(OutputStream os, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints,
+                               boolean enableElevation, float took) throws IOException {
+        ProtobufOutput rsp = new ProtobufOutput(1024);
+        ProtobufOutput msg = new ProtobufOutput(64);
+        for (Map.Entry<String, Object> hint : ghRsp.getHints().toMap().entrySet()) {
+            msg.clear();
+            msg.writeString(1, hint.getKey());
+            msg.writeString(2, String.valueOf(hint.getValue()));
+            rsp.writeMessage(1, msg);
+        }
+
+        msg.clear();
+        for (String copyright : WebHelper.COPYRIGHTS) {
+            msg.writeString(1, copyright);
+        }
+        msg.writeInt64(2, Math.round(took * 1000));
+        rsp.writeMessage(2, msg);
+
+        ProtobufOutput path = new ProtobufOutput(1024);
+        for (PathWrapper ar : ghRsp.getAll()) {
+            path.clear();
+            writePath(path, msg, ar, enableInstructions, calcPoints, enableElevation);
+            rsp.writeMessage(3, path);
+        }
+        rsp.writeTo(os);
+    }
+
+    private static void writePath(ProtobufOutput path, ProtobufOutput msg, PathWrapper ar, boolean enableInstructions,
+                                  boolean calcPoints, boolean enableElevation) {
+        path.writeDouble(1, Helper.round(ar.getDistance(), 3));
+        path.writeDouble(2, Helper.round6(ar.getRouteWeight()));
+        path.writeInt64(3, ar.getTime());
+        path.writeInt64(4, ar.getNumChanges());
+        for (String description : ar.getDescription()) {
+            path.writeString(5, description);
+        }
+        if (calcPoints) {
+            writePoints(path, 6, msg, ar.getPoints(), enableElevation);
+            if (enableInstructions) {
+                InstructionList instructions = ar.getInstructions();
+                int pointsIndex = 0;
+                for (Instruction instruction : instructions) {
+                    msg.clear();
+                    int tmpIndex = pointsIndex + instruction.getLength();
+                    writeInstruction(msg, instruction, instructions.getTr(), pointsIndex, tmpIndex);
+                    pointsIndex = tmpIndex;
+                    path.writeMessage(8, msg);
+                }
+            }
+            ProtobufOutput entry = new ProtobufOutput(16);
+            for (Map.Entry<String, List<PathDetail>> details : ar.getPathDetails().entrySet()) {
+                msg.clear();
+                msg.writeString(1, details.getKey());
+                for (PathDetail detail : details.getValue()) {
+                    entry.clear();
+                    writePathDetail(entry, detail);
+                    msg.writeMessage(2, entry);
+                }
+                path.writeMessage(9, msg);
+            }
+            path.writeDouble(10, ar.getAscend());
+            path.writeDouble(11, ar.getDescend());
+        }
+        writePoints(path, 7, msg, ar.getWaypoints(), enableElevation);
+        if (ar.getFare() != null)
+            path.writeString(13, NumberFormat.getCurrencyInstance(Locale.ROOT).format(ar.getFare()));
+    }
+
+    private static void writePoints(ProtobufOutput parent, int field, ProtobufOutput msg, PointList points, boolean enableElevation) {
+        int size = points.getSize();
+        int[] deltas = new int[size];
+        msg.clear();
+        int prev = 0;
+        for (int i = 0; i < size; i++) {
+            int value = (int) Math.round(points.getLatitude(i) * COORD_FACTOR);
+            deltas[i] = value - prev;
+            prev = value;
+        }
+        msg.writePackedSInt32(1, deltas, size);
+        prev = 0;
+        for (int i = 0; i < size; i++) {
+            int value = (int) Math.round(points.getLongitude(i) * COORD_FACTOR);
+            deltas[i] = value - prev;
+            prev = value;
+        }
+        msg.writePackedSInt32(2, deltas, size);
+        if (enableElevation && points.is3D()) {
+            prev = 0;
+            for (int i = 0; i < size; i++) {
+                int value = (int) Math.round(points.getElevation(i) * ELE_FACTOR);
+                deltas[i] = value - prev;
+                prev = value;
+            }
+            msg.writePackedSInt32(3, deltas, size);
+        }
+        parent.writeMessage(field, msg);
+    }
+
+    private static void writeInstruction(ProtobufOutput msg, Instruction instruction, Translation tr, int intervalStart, int intervalEnd) {
+        InstructionAnnotation ia = instruction.getAnnotation();
+        String text = instruction.getTurnDescription(tr);
+        if (Helper.isEmpty(text))
+            text = ia.getMessage();
+        msg.writeString(1, Helper.firstBig(text));
+        if (instruction.getName() != null)
+            msg.writeString(2, instruction.getName());
+        msg.writeDouble(3, Helper.round(instruction.getDistance(), 3));
+        msg.writeInt64(4, instruction.getTime());
+        msg.writeSInt64(5, instruction.getSign());
+        msg.writeInt64(6, intervalStart);
+        msg.writeInt64(7, intervalEnd);
+        if (instruction instanceof RoundaboutInstruction) {
+            RoundaboutInstruction ri = (RoundaboutInstruction) instruction;
+            msg.writeInt64(8, ri.getExitNumber());
+            msg.writeBool(9, ri.isExited());
+            double turnAngle = ri.getTurnAngle();
+            if (!Double.isNaN(turnAngle))
+                msg.writeDouble(10, Helper.round(turnAngle, 2));
+        }
+        if (!ia.isEmpty()) {
+            msg.writeInt64(11, ia.getImportance());
+            msg.writeString(12, ia.getMessage());
+        }
+        Object heading = instruction.getExtraInfoJSON().get("heading");
+        if (heading instanceof Number)
+            msg.writeDouble(13, ((Number) heading).doubleValue());
+        Object lastHeading = instruction.getExtraInfoJSON().get("last_heading");
+        if (lastHeading instanceof Number)
+            msg.writeDouble(14, ((Number) lastHeading).doubleValue());
+    }
+
+    private static void writePathDetail(ProtobufOutput msg, PathDetail detail) {
+        msg.writeInt64(1, detail.getFirst());
+        msg.writeInt64(2, detail.getLast());
+        Object value = detail.getValue();
+        if (value instanceof String)
+            msg.writeString(3, (String) value);
+        else if (value instanceof Double)
+            msg.writeDouble(4, (Double) value);
+        else if (value instanceof Long)
+            msg.writeSInt64(5, (Long) value);
+        else if (value instanceof Integer)
+            msg.writeSInt64(7, (Integer) value);
+        else if (value instanceof Boolean)
+            msg.writeBool(6, (Boolean) value);
+        else if (value != null)
+            throw new IllegalArgumentException("Unsupported type for PathDetail.value " + value.getClass());
+    }
+
+    /**
+     * Reads a route response written by {@link #writeTo}.
+     *
+     * @param turnDescription if false the street name is used as instruction text instead of the turn description
+     */
+    public static GHResponse readFrom(InputStream is, boolean turnDescription) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) >= 0) {
+            bos.write(buffer, 0, read);
+        }
+        byte[] bytes = bos.toByteArray();
+        return read(new ProtobufInput(bytes, 0, bytes.length), turnDescription);
+    }
+
+    private static GHResponse read(ProtobufInput in, boolean turnDescription) {
+        GHResponse rsp = new GHResponse();
+        while (in.hasMore()) {
+            int tag = in.readTag();
+            switch (tag >>> 3) {
+                case 1:
+                    ProtobufInput hint = in.readMessage();
+                    String key = null, value = null;
+                    while (hint.hasMore()) {
+                        int hintTag = hint.readTag();
+                        if (hintTag >>> 3 == 1)
+                            key = hint.readString();
+                        else if (hintTag >>> 3 == 2)
+                            value = hint.readString();
+                        else
+                            hint.skipField(hintTag);
+                    }
+                    if (key != null && value != null)
+                        rsp.getHints().putObject(key, Helper.toObject(value));
+                    break;
+                case 3:
+                    rsp.add(readPath(in.readMessage(), turnDescription));
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return rsp;
+    }
+
+    private static PathWrapper readPath(ProtobufInput in, boolean turnDescription) {
+        PathWrapper pathWrapper = new PathWrapper();
+        List<String> description = new ArrayList<>();
+        List<ProtobufInput> instructions = new ArrayList<>();
+        Map<String, List<PathDetail>> pathDetails = new HashMap<>();
+        PointList points = null;
+        while (in.hasMore()) {
+            int tag = in.readTag();
+            switch (tag >>> 3) {
+                case 1:
+                    pathWrapper.setDistance(in.readDouble());
+                    break;
+                case 2:
+                    pathWrapper.setRouteWeight(in.readDouble());
+                    break;
+                case 3:
+                    pathWrapper.setTime(in.readVarint());
+                    break;
+                case 4:
+                    pathWrapper.setNumChanges((int) in.readVarint());
+                    break;
+                case 5:
+                    description.add(in.readString());
+                    break;
+                case 6:
+                    points = readPoints(in.readMessage());
+                    break;
+                case 7:
+                    pathWrapper.setWaypoints(readPoints(in.readMessage()));
+                    break;
+                case 8:
+                    // the points are needed to create the instructions
+                    instructions.add(in.readMessage());
+                    break;
+                case 9:
+                    readPathDetails(in.readMessage(), pathDetails);
+                    break;
+                case 10:
+                    pathWrapper.setAscend(in.readDouble());
+                    break;
+                case 11:
+                    pathWrapper.setDescend(in.readDouble());
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        if (!description.isEmpty())
+            pathWrapper.setDescription(description);
+        if (points != null) {
+            pathWrapper.setPoints(points);
+            if (!instructions.isEmpty()) {
+                InstructionList il = new InstructionList(null);
+                int viaCount = 1;
+                for (ProtobufInput instruction : instructions) {
+                    Instruction instr = readInstruction(instruction, points, turnDescription);
+                    if (instr instanceof ViaInstruction)
+                        ((ViaInstruction) instr).setViaCount(viaCount++);
+                    il.add(instr);
+                }
+                pathWrapper.setInstructions(il);
+            }
+            if (!pathDetails.isEmpty())
+                pathWrapper.addPathDetails(pathDetails);
+        }
+
+        List<Integer> pointsOrder = new ArrayList<>(pathWrapper.getWaypoints().size());
+        for (int i = 0; i < pathWrapper.getWaypoints().size(); i++) {
+            pointsOrder.add(i);
+        }
+        pathWrapper.setPointsOrder(pointsOrder);
+        return pathWrapper;
+    }
+
+    private static PointList readPoints(ProtobufInput in) {
+        int[] lats = new int[0], lons = new int[0], eles = null;
+        int size = 0;
+        while (in.hasMore()) {
+            int tag = in.readTag();
+            int field = tag >>> 3;
+            if (field >= 1 && field <= 3) {
+                ProtobufInput packed = in.readMessage();
+                int[] values = new int[16];
+                int count = 0;
+                int prev = 0;
+                while (packed.hasMore()) {
+                    if (count == values.length)
+                        values = Arrays.copyOf(values, count * 2);
+                    prev += packed.readSInt32();
+                    values[count++] = prev;
+                }
+                size = count;
+                if (field == 1)
+                    lats = values;
+                else if (field == 2)
+                    lons = values;
+                else
+                    eles = values;
+            } else {
+                in.skipField(tag);
+            }
+        }
+        PointList points = new PointList(size, eles != null);
+        for (int i = 0; i < size; i++) {
+            if (eles != null)
+                points.add(lats[i] / COORD_FACTOR, lons[i] / COORD_FACTOR, eles[i] / ELE_FACTOR);
+            else
+                points.add(lats[i] / COORD_FACTOR, lons[i] / COORD_FACTOR);
+        }
+        return points;
+    }
+
+    private static Instruction readInstruction(ProtobufInput in, PointList points, boolean turnDescription) {
+        String text = "", streetName = "", annotationText = null;
+        double distance = 0, turnAngle = Double.NaN, heading = Double.NaN, lastHeading = Double.NaN;
+        long time = 0;
+        int sign = 0, intervalStart = 0, intervalEnd = 0, exitNumber = 0, annotationImportance = 0;
+        boolean exited = false, hasExitNumber = false;
+        while (in.hasMore()) {
+            int tag = in.readTag();
+            switch (tag >>> 3) {
+                case 1:
+                    text = in.readString();
+                    break;
+                case 2:
+                    streetName = in.readString();
+                    break;
+                case 3:
+                    distance = in.readDouble();
+                    break;
+                case 4:
+                    time = in.readVarint();
+                    break;
+                case 5:
+                    sign = (int) in.readSInt64();
+                    break;
+                case 6:
+                    intervalStart = (int) in.readVarint();
+                    break;
+                case 7:
+                    intervalEnd = (int) in.readVarint();
+                    break;
+                case 8:
+                    exitNumber = (int) in.readVarint();
+                    hasExitNumber = true;
+                    break;
+                case 9:
+                    exited = in.readBool();
+                    break;
+                case 10:
+                    turnAngle = in.readDouble();
+                    break;
+                case 11:
+                    annotationImportance = (int) in.readVarint();
+                    break;
+                case 12:
+                    annotationText = in.readString();
+                    break;
+                case 13:
+                    heading = in.readDouble();
+                    break;
+                case 14:
+                    lastHeading = in.readDouble();
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+
+        String name = turnDescription ? text : streetName;
+        // the interval end is the first point of the next instruction, except for the virtual via and finish
+        // instructions which have an empty interval but still one point
+        int end = Math.max(intervalEnd, intervalStart + 1);
+        PointList instPL = new PointList(end - intervalStart, points.is3D());
+        for (int j = intervalStart; j < end; j++) {
+            instPL.add(points, j);
+        }
+        InstructionAnnotation ia = annotationText == null ? InstructionAnnotation.EMPTY : new InstructionAnnotation(annotationImportance, annotationText);
+        Instruction instr;
+        if (sign == Instruction.USE_ROUNDABOUT || sign == Instruction.LEAVE_ROUNDABOUT) {
+            RoundaboutInstruction ri = new RoundaboutInstruction(sign, name, ia, instPL);
+            if (hasExitNumber)
+                ri.setExitNumber(exitNumber);
+            if (exited)
+                ri.setExited();
+            if (!Double.isNaN(turnAngle)) {
+                ri.setDirOfRotation(turnAngle);
+                ri.setRadian((turnAngle < 0 ? -Math.PI : Math.PI) - turnAngle);
+            }
+            instr = ri;
+        } else if (sign == Instruction.REACHED_VIA) {
+            instr = new ViaInstruction(name, ia, instPL);
+        } else if (sign == Instruction.FINISH) {
+            instr = new FinishInstruction(name, instPL, 0);
+            if (!Double.isNaN(lastHeading))
+                instr.setExtraInfo("last_heading", lastHeading);
+        } else {
+            instr = new Instruction(sign, name, ia, instPL);
+            if (sign == Instruction.CONTINUE_ON_STREET && !Double.isNaN(heading))
+                instr.setExtraInfo("heading", heading);
+        }
+        if (turnDescription)
+            instr.setUseRawName();
+        instr.setDistance(distance).setTime(time);
+        return instr;
+    }
+
+    private static void readPathDetails(ProtobufInput in, Map<String, List<PathDetail>> pathDetails) {
+        String name = "";
+        List<PathDetail> list = new ArrayList<>();
+        while (in.hasMore()) {
+            int tag = in.readTag();
+            if (tag >>> 3 == 1) {
+                name = in.readString();
+            } else if (tag >>> 3 == 2) {
+                list.add(readPathDetail(in.readMessage()));
+            } else {
+                in.skipField(tag);
+            }
+        }
+        pathDetails.put(name, list);
+    }
+
+    private static PathDetail readPathDetail(ProtobufInput in) {
+        int first = 0, last = 0;
+        PathDetail pd = null;
+        while (in.hasMore()) {
+            int tag = in.readTag();
+            switch (tag >>> 3) {
+                case 1:
+                    first = (int) in.readVarint();
+                    break;
+                case 2:
+                    last = (int) in.readVarint();
+                    break;
+                case 3:
+                    pd = new PathDetail(in.readString());
+                    break;
+                case 4:
+                    pd = new PathDetail(in.readDouble());
+                    break;
+                case 5:
+                    pd = new PathDetail(in.readSInt64());
+                    break;
+                case 6:
+                    pd = new PathDetail(in.readBool());
+                    break;
+                case 7:
+                    // an Integer and not a long like for the other integer field
+                    pd = new PathDetail(Integer.valueOf(in.readSInt32()));
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        // no value was written for null
+        if (pd == null)
+            pd = new PathDetail((String) null);
+        pd.setFirst(first);
+        pd.setLast(last);
+        return pd;
+    }
+}
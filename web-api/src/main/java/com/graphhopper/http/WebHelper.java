@@ -17,6 +17,7 @@
  */
 package com.graphhopper.http;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -25,6 +26,7 @@ import com.graphhopper.PathWrapper;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.text.NumberFormat;
@@ -108,39 +110,76 @@ public class WebHelper {
     }
 
     public static String encodePolyline(PointList poly, boolean includeElevation, double precision) {
-        StringBuilder sb = new StringBuilder();
+        PolylineBuffer buffer = new PolylineBuffer(poly.getSize() * (includeElevation ? 3 : 2) * 4);
+        encodePolyline(buffer, poly, includeElevation, precision);
+        return buffer.toString();
+    }
+
+    /**
+     * Writes the encoded polyline as JSON string directly to the generator, without creating an intermediate String.
+     */
+    public static void writePolyline(JsonGenerator generator, PointList poly, boolean includeElevation) throws IOException {
+        PolylineBuffer buffer = new PolylineBuffer(poly.getSize() * (includeElevation ? 3 : 2) * 4);
+        encodePolyline(buffer, poly, includeElevation, 1e5);
+        generator.writeString(buffer.chars, 0, buffer.size);
+    }
+
+    private static void encodePolyline(PolylineBuffer buffer, PointList poly, boolean includeElevation, double precision) {
         int size = poly.getSize();
         int prevLat = 0;
         int prevLon = 0;
         int prevEle = 0;
         for (int i = 0; i < size; i++) {
             int num = (int) Math.floor(poly.getLatitude(i) * precision);
-            encodeNumber(sb, num - prevLat);
+            encodeNumber(buffer, num - prevLat);
             prevLat = num;
             num = (int) Math.floor(poly.getLongitude(i) * precision);
-            encodeNumber(sb, num - prevLon);
+            encodeNumber(buffer, num - prevLon);
             prevLon = num;
             if (includeElevation) {
                 num = (int) Math.floor(poly.getElevation(i) * 100);
-                encodeNumber(sb, num - prevEle);
+                encodeNumber(buffer, num - prevEle);
                 prevEle = num;
             }
         }
-        return sb.toString();
     }
 
-    private static void encodeNumber(StringBuilder sb, int num) {
+    private static void encodeNumber(PolylineBuffer buffer, int num) {
         num = num << 1;
         if (num < 0) {
             num = ~num;
         }
+        // an int needs at most 7 characters
+        buffer.ensureCapacity(7);
         while (num >= 0x20) {
             int nextValue = (0x20 | (num & 0x1f)) + 63;
-            sb.append((char) (nextValue));
+            buffer.chars[buffer.size++] = (char) nextValue;
             num >>= 5;
         }
         num += 63;
-        sb.append((char) (num));
+        buffer.chars[buffer.size++] = (char) num;
+    }
+
+    /**
+     * A minimal char buffer for the polyline encoding which (unlike StringBuilder) gives access to its backing array.
+     */
+    private static class PolylineBuffer {
+        char[] chars;
+        int size;
+
+        PolylineBuffer(int initialCapacity) {
+            chars = new char[Math.max(16, initialCapacity)];
+        }
+
+        void ensureCapacity(int additional) {
+            if (size + additional > chars.length)
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, size + additional));
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, size);
+        }
     }
 
     /**
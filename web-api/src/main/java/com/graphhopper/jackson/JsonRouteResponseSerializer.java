@@ -0,0 +1,94 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.http.JsonRouteResponse;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.util.Helper;
+
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Writes the route response field by field to the JsonGenerator. The output must stay identical to the tree built by
+ * {@link WebHelper#jsonObject}.
+ */
+public class JsonRouteResponseSerializer extends JsonSerializer<JsonRouteResponse> {
+    @Override
+    public void serialize(JsonRouteResponse rsp, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        GHResponse ghRsp = rsp.getGHResponse();
+        boolean enableElevation = rsp.isEnableElevation();
+        boolean pointsEncoded = rsp.isPointsEncoded();
+
+        gen.writeStartObject();
+        provider.defaultSerializeField("hints", ghRsp.getHints().toMap(), gen);
+        gen.writeObjectFieldStart("info");
+        provider.defaultSerializeField("copyrights", WebHelper.COPYRIGHTS, gen);
+        gen.writeNumberField("took", Math.round(rsp.getTook() * 1000));
+        gen.writeEndObject();
+        gen.writeArrayFieldStart("paths");
+        for (PathWrapper ar : ghRsp.getAll()) {
+            gen.writeStartObject();
+            gen.writeNumberField("distance", Helper.round(ar.getDistance(), 3));
+            gen.writeNumberField("weight", Helper.round6(ar.getRouteWeight()));
+            gen.writeNumberField("time", ar.getTime());
+            gen.writeNumberField("transfers", ar.getNumChanges());
+            if (!ar.getDescription().isEmpty()) {
+                provider.defaultSerializeField("description", ar.getDescription(), gen);
+            }
+            if (rsp.isCalcPoints()) {
+                gen.writeBooleanField("points_encoded", pointsEncoded);
+                if (ar.getPoints().getSize() >= 2) {
+                    provider.defaultSerializeField("bbox", ar.calcBBox2D(), gen);
+                }
+                gen.writeFieldName("points");
+                if (pointsEncoded)
+                    WebHelper.writePolyline(gen, ar.getPoints(), enableElevation);
+                else
+                    provider.defaultSerializeValue(ar.getPoints().toLineString(enableElevation), gen);
+                if (rsp.isEnableInstructions()) {
+                    provider.defaultSerializeField("instructions", ar.getInstructions(), gen);
+                }
+                provider.defaultSerializeField("legs", ar.getLegs(), gen);
+                provider.defaultSerializeField("details", ar.getPathDetails(), gen);
+                gen.writeNumberField("ascend", ar.getAscend());
+                gen.writeNumberField("descend", ar.getDescend());
+            }
+            gen.writeFieldName("snapped_waypoints");
+            if (pointsEncoded)
+                WebHelper.writePolyline(gen, ar.getWaypoints(), enableElevation);
+            else
+                provider.defaultSerializeValue(ar.getWaypoints().toLineString(enableElevation), gen);
+            if (!ar.getEdges().isEmpty()) {
+                provider.defaultSerializeField("edges", ar.getEdges(), gen);
+            }
+            if (ar.getFare() != null) {
+                gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(ar.getFare()));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+}
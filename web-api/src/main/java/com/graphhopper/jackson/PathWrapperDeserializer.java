@@ -167,6 +167,12 @@ public class PathWrapperDeserializer extends JsonDeserializer<PathWrapper> {
             }
         }
 
+        if (path.has("edges")) {
+            for (JsonNode legEdges : path.get("edges")) {
+                pathWrapper.getEdges().add((List<Integer>) objectMapper.convertValue(legEdges, List.class));
+            }
+        }
+
         if (path.has("points_order")) {
             pathWrapper.setPointsOrder((List<Integer>) objectMapper.convertValue(path.get("points_order"), List.class));
         } else {
@@ -0,0 +1,143 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RouteProtobufTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        GHResponse rsp = createResponse();
+        for (boolean calcPoints : Arrays.asList(true, false)) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            RouteProtobuf.writeTo(bos, rsp, calcPoints, calcPoints, true, 0.123f);
+            GHResponse decoded = RouteProtobuf.readFrom(new ByteArrayInputStream(bos.toByteArray()), true);
+
+            String expected = objectMapper.writeValueAsString(new JsonRouteResponse(rsp, calcPoints, calcPoints, true, false, 0.123f));
+            String actual = objectMapper.writeValueAsString(new JsonRouteResponse(decoded, calcPoints, calcPoints, true, false, 0.123f));
+            assertEquals(expected, actual);
+
+            String json = objectMapper.writeValueAsString(new JsonRouteResponse(rsp, calcPoints, calcPoints, true, true, 0.123f));
+            assertTrue(bos.size() + " vs. " + json.length(), bos.size() < json.length());
+        }
+    }
+
+    @Test
+    public void testWithoutElevation() throws Exception {
+        GHResponse rsp = createResponse();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        RouteProtobuf.writeTo(bos, rsp, true, true, false, 0.1f);
+        PathWrapper path = RouteProtobuf.readFrom(new ByteArrayInputStream(bos.toByteArray()), false).getBest();
+        assertEquals(Arrays.asList(1, 1, 1), Arrays.asList(path.getInstructions().get(0).getPoints().size(),
+                path.getInstructions().get(1).getPoints().size(), path.getInstructions().get(2).getPoints().size()));
+        assertEquals(3, path.getPoints().size());
+        assertEquals(false, path.getPoints().is3D());
+        assertEquals(-126.453, path.getPoints().getLon(2), 1e-6);
+        assertEquals("Main street", path.getInstructions().get(0).getName());
+        assertEquals(2, ((RoundaboutInstruction) path.getInstructions().get(1)).getExitNumber());
+        // the numbers keep their type
+        assertEquals(3, path.getPathDetails().get("max_speed").get(0).getValue());
+        assertEquals(123456789012L, path.getPathDetails().get("osm_id").get(0).getValue());
+        assertEquals(50.5, path.getPathDetails().get("average_speed").get(0).getValue());
+    }
+
+    private static GHResponse createResponse() {
+        GHResponse rsp = new GHResponse();
+        rsp.getHints().putObject("visited_nodes.sum", 42);
+        PathWrapper path = new PathWrapper();
+        PointList points = Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234.5, 43.252, -126.453, 1234);
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList3D(38.5, -120.2, 10, 43.252, -126.453, 1234));
+        path.setDistance(1234.5678).setTime(123456).setRouteWeight(12.3456789).setAscend(1224.5).setDescend(0.5);
+        path.setDescription(Collections.singletonList("some description"));
+
+        InstructionList il = new InstructionList(new Translation() {
+            @Override
+            public String tr(String key, Object... params) {
+                return key;
+            }
+
+            @Override
+            public Map<String, String> asMap() {
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public Locale getLocale() {
+                return Locale.US;
+            }
+
+            @Override
+            public String getLanguage() {
+                return "en";
+            }
+        });
+        Instruction continueInstr = new Instruction(Instruction.CONTINUE_ON_STREET, "Main street", InstructionAnnotation.EMPTY,
+                Helper.createPointList3D(38.5, -120.2, 10));
+        continueInstr.setExtraInfo("heading", 12.5);
+        continueInstr.setDistance(100).setTime(1000);
+        il.add(continueInstr);
+        RoundaboutInstruction roundabout = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "Ring",
+                new InstructionAnnotation(1, "toll"), Helper.createPointList3D(40.7, -120.95, 1234.5))
+                .setDirOfRotation(-0.1)
+                .setRadian(-Math.PI + 1)
+                .setExitNumber(2)
+                .setExited();
+        roundabout.setDistance(1134.5678).setTime(122456);
+        il.add(roundabout);
+        FinishInstruction finish = new FinishInstruction("", 43.252, -126.453, 1234);
+        finish.setExtraInfo("last_heading", 270.0);
+        il.add(finish);
+        // the decoded instructions use the text as name
+        for (Instruction instruction : il) {
+            instruction.setUseRawName();
+        }
+        path.setInstructions(il);
+
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("road_class", Collections.singletonList(setInterval(new PathDetail("residential"), 0, 2)));
+        details.put("average_speed", Arrays.asList(setInterval(new PathDetail(50.5), 0, 1), setInterval(new PathDetail((String) null), 1, 2)));
+        details.put("max_speed", Collections.singletonList(setInterval(new PathDetail(Integer.valueOf(3)), 0, 2)));
+        details.put("toll", Collections.singletonList(setInterval(new PathDetail(true), 0, 2)));
+        details.put("osm_id", Collections.singletonList(setInterval(new PathDetail(123456789012L), 0, 2)));
+        path.addPathDetails(details);
+        rsp.add(path);
+        return rsp;
+    }
+
+    private static PathDetail setInterval(PathDetail detail, int first, int last) {
+        detail.setFirst(first);
+        detail.setLast(last);
+        return detail;
+    }
+}
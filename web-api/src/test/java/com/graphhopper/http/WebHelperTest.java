@@ -17,11 +17,21 @@
  */
 package com.graphhopper.http;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
+import com.graphhopper.util.details.PathDetail;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -75,6 +85,43 @@ public class WebHelperTest {
                 Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234, 43.252, -126.453, 1234)));
     }
 
+    @Test
+    public void testWritePolyline() throws Exception {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        PointList list = Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234, 43.252, -126.453, 1234);
+        StringWriter writer = new StringWriter();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        WebHelper.writePolyline(generator, list, true);
+        generator.flush();
+        assertEquals("\"_p~iF~ps|Uo}@_ulLnnqC_anF_mqNvxq`@?\"", writer.toString());
+    }
+
+    @Test
+    public void testJsonRouteResponseEqualsJsonObject() throws Exception {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        GHResponse rsp = new GHResponse();
+        rsp.getHints().putObject("visited_nodes.sum", 42);
+        PathWrapper path = new PathWrapper();
+        PointList points = Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234, 43.252, -126.453, 1234);
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList3D(38.5, -120.2, 10, 43.252, -126.453, 1234));
+        path.setDistance(1234.5678).setTime(123456).setRouteWeight(12.3456789).setAscend(1224).setDescend(0);
+        path.setDescription(Collections.singletonList("some description"));
+        PathDetail detail = new PathDetail("residential");
+        detail.setFirst(0);
+        detail.setLast(2);
+        path.addPathDetails(Collections.singletonMap("road_class", Collections.singletonList(detail)));
+        rsp.add(path);
+
+        for (boolean pointsEncoded : Arrays.asList(true, false)) {
+            for (boolean calcPoints : Arrays.asList(true, false)) {
+                String expected = objectMapper.writeValueAsString(WebHelper.jsonObject(rsp, false, calcPoints, true, pointsEncoded, 0.123f));
+                String actual = objectMapper.writeValueAsString(new JsonRouteResponse(rsp, false, calcPoints, true, pointsEncoded, 0.123f));
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
     @Test
     public void testEncode1e6() throws Exception {
         assertEquals("ohdfzAgt}bVoEL", WebHelper.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
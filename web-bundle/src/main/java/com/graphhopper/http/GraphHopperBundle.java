@@ -190,10 +190,11 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         // If the "?type=gpx" parameter is present, sets a corresponding media type header
         environment.jersey().register(new TypeGPXFilter());
 
-        // Together, these two take care that MultiExceptions thrown from RouteResource
-        // come out as JSON or GPX, depending on the media type
+        // Together, these take care that MultiExceptions thrown from RouteResource and SPTResource
+        // come out as JSON, GPX or CSV, depending on the media type
         environment.jersey().register(new MultiExceptionMapper());
         environment.jersey().register(new MultiExceptionGPXMessageBodyWriter());
+        environment.jersey().register(new MultiExceptionCSVMessageBodyWriter());
 
         environment.jersey().register(new IllegalArgumentExceptionMapper());
         environment.jersey().register(new GHPointConverterProvider());
@@ -201,12 +202,26 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration(), environment.getObjectMapper());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        RoutingMetrics routingMetrics = new RoutingMetrics(environment.metrics());
+        graphHopper.setRouteStatsListener(routingMetrics);
+        environment.jersey().register(routingMetrics);
+        final GraphHopperAPI graphHopperAPI;
+        long routeCacheMB = configuration.getGraphHopperConfiguration().getLong("routing.result_cache.max_mb", 0);
+        if (routeCacheMB > 0) {
+            RouteResultCache routeResultCache = new RouteResultCache(graphHopper, routeCacheMB << 20);
+            // registered after GraphHopperManaged so that the cache is cleared after every (re)load
+            environment.lifecycle().manage(routeResultCache);
+            routeResultCache.registerMetrics(environment.metrics());
+            graphHopperAPI = routeResultCache;
+        } else {
+            graphHopperAPI = graphHopper;
+        }
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
                 bind(graphHopper).to(GraphHopper.class);
-                bind(graphHopper).to(GraphHopperAPI.class);
+                bind(graphHopperAPI).to(GraphHopperAPI.class);
                 bind(new ProfileResolver(graphHopper.getEncodingManager(), graphHopper.getProfiles(), graphHopper.getCHPreparationHandler().getCHProfileConfigs(), graphHopper.getLMPreparationHandler().getLMProfileConfigs()))
                         .to(ProfileResolver.class);
 
@@ -0,0 +1,228 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperAPI;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.routing.template.ViaRoutingTemplate;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Instruction;
+import com.graphhopper.util.details.PathDetail;
+import io.dropwizard.lifecycle.Managed;
+
+import java.util.*;
+
+import static com.graphhopper.util.Parameters.Algorithms.ROUND_TRIP;
+import static com.graphhopper.util.Parameters.Routing.BLOCK_AREA;
+
+/**
+ * Caches route responses for repeated requests like re-opened routes or shared links. The key does not contain the
+ * raw coordinates but the snapped edges and positions together with the profile and all hints that change the
+ * response, so requests for slightly different coordinates that snap to the same location share an entry. The
+ * snapping is done like in ViaRoutingTemplate and repeated for a cache miss, which is cheap compared to the search.
+ * <p>
+ * The cache is bounded by the estimated size of the responses. Entries are dropped when the graph (including the
+ * popularity index, CH and LM data) is (re)loaded or closed, i.e. when the managed lifecycle starts or stops, whenever
+ * the GraphHopperStorage instance changes and when the graph is changed in place, see
+ * {@link GraphHopper#fireGraphChanged()}.
+ * <p>
+ * Every cache hit returns a copy of the cached response, so callers can add paths, errors, hints or path details
+ * without changing the entry. The point lists of the cached paths and instructions are made immutable and shared
+ * with the copies, the Instruction and PathDetail objects are shared as well and must not be modified.
+ */
+public class RouteResultCache implements GraphHopperAPI, Managed {
+    // hints that do not change the GHResponse but only its serialization
+    private static final Set<String> IGNORED_HINTS = new HashSet<>(Arrays.asList("type", "points_encoded", "elevation",
+            "key", "point", "locale", "gpx.route", "gpx.track", "gpx.waypoints", "gpx.trackname", "gpx.millis"));
+
+    private final GraphHopper graphHopper;
+    private final Cache<String, GHResponse> cache;
+    private GraphHopperStorage cachedStorage;
+    // increased on every invalidation to avoid caching responses that were calculated before it
+    private long generation;
+
+    public RouteResultCache(GraphHopper graphHopper, long maxBytes) {
+        this.graphHopper = graphHopper;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, GHResponse rsp) -> estimateBytes(key, rsp))
+                .recordStats()
+                .build();
+        graphHopper.addGraphChangeListener(this::invalidateAll);
+    }
+
+    @Override
+    public boolean load(String graphFile) {
+        invalidateAll();
+        return graphHopper.load(graphFile);
+    }
+
+    @Override
+    public GHResponse route(GHRequest request) {
+        String key = createKey(request);
+        if (key == null)
+            return graphHopper.route(request);
+
+        GHResponse rsp = cache.getIfPresent(key);
+        if (rsp != null)
+            return rsp.copy();
+
+        long startGeneration = getGeneration();
+        rsp = graphHopper.route(request);
+        if (!rsp.hasErrors()) {
+            GHResponse cached = makeImmutable(rsp).copy();
+            synchronized (this) {
+                if (startGeneration == generation)
+                    cache.put(key, cached);
+            }
+        }
+        return rsp;
+    }
+
+    private static GHResponse makeImmutable(GHResponse rsp) {
+        for (PathWrapper path : rsp.getAll()) {
+            path.getPoints().makeImmutable();
+            path.getWaypoints().makeImmutable();
+            if (path.hasInstructions()) {
+                for (Instruction instruction : path.getInstructions()) {
+                    instruction.getPoints().makeImmutable();
+                }
+            }
+        }
+        return rsp;
+    }
+
+    /**
+     * @return the key for the specified request or null if it must not be cached
+     */
+    String createKey(GHRequest request) {
+        if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()) || request.getHints().has(BLOCK_AREA)
+                // the curbside directions are calculated from the raw coordinates
+                || request.hasCurbsides()
+                // rebuilding the path from the edges is already cheap
+                || !request.getEdges().isEmpty())
+            return null;
+
+        ProfileConfig profile = graphHopper.getProfile(request.getProfile());
+        if (profile == null || request.getPoints().size() < 2)
+            return null;
+
+        GraphHopperStorage storage = graphHopper.getGraphHopperStorage();
+        synchronized (this) {
+            if (storage != cachedStorage) {
+                invalidateAll();
+                cachedStorage = storage;
+            }
+        }
+        if (storage == null || storage.isClosed())
+            return null;
+
+        List<QueryResult> queryResults;
+        try {
+            Weighting weighting = graphHopper.createWeighting(profile, request.getHints());
+            GHResponse tmpRsp = new GHResponse();
+            queryResults = new ViaRoutingTemplate(request, tmpRsp, graphHopper.getLocationIndex(),
+                    graphHopper.getEncodingManager(), weighting).lookup(request.getPoints());
+            // let GraphHopper create the errors
+            if (tmpRsp.hasErrors())
+                return null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(profile.getName()).append('|').append(request.getAlgorithm()).append('|').append(request.getLocale());
+        for (int i = 0; i < queryResults.size(); i++) {
+            QueryResult qr = queryResults.get(i);
+            sb.append('|').append(qr.getClosestNode()).append(',').append(qr.getClosestEdge().getEdge()).
+                    append(',').append(qr.getWayIndex()).append(',').append(qr.getSnappedPosition().ordinal()).
+                    append(',').append(Helper.round6(qr.getSnappedPoint().lat)).append(',').append(Helper.round6(qr.getSnappedPoint().lon));
+            if (request.hasFavoredHeading(i))
+                sb.append(',').append(request.getFavoredHeading(i));
+        }
+        sb.append('|').append(request.getPathDetails());
+        // sort the hints to get the same key independent of the order of the parameters
+        for (Map.Entry<String, Object> hint : new TreeMap<>(request.getHints().toMap()).entrySet()) {
+            if (!IGNORED_HINTS.contains(hint.getKey()))
+                sb.append('|').append(hint.getKey()).append('=').append(hint.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A rough estimate of the memory used by the response, dominated by the points of the paths and instructions
+     */
+    static int estimateBytes(String key, GHResponse rsp) {
+        long bytes = 2L * key.length() + 200;
+        for (PathWrapper path : rsp.getAll()) {
+            // the instructions hold a copy of the points
+            bytes += 200 + 2 * 24L * path.getPoints().size() + 24L * path.getWaypoints().size();
+            for (List<PathDetail> details : path.getPathDetails().values()) {
+                bytes += 48L * details.size();
+            }
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getSize() {
+        return cache.size();
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        cache.invalidateAll();
+    }
+
+    private synchronized long getGeneration() {
+        return generation;
+    }
+
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register("route_cache.hits", (Gauge<Long>) () -> getStats().hitCount());
+        metrics.register("route_cache.misses", (Gauge<Long>) () -> getStats().missCount());
+        metrics.register("route_cache.evictions", (Gauge<Long>) () -> getStats().evictionCount());
+        metrics.register("route_cache.hit_rate", (Gauge<Double>) () -> getStats().hitRate());
+        metrics.register("route_cache.size", (Gauge<Long>) this::getSize);
+    }
+
+    @Override
+    public void start() {
+        invalidateAll();
+    }
+
+    @Override
+    public void stop() {
+        invalidateAll();
+    }
+}
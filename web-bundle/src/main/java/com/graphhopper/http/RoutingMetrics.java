@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.routing.RouteStats;
+import com.graphhopper.routing.RouteStatsListener;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Records the timings of the routing stages per profile and algorithm, the visited nodes and how often the CH, LM
+ * and flexible mode were used. The metrics are available via the admin servlet under /metrics. As an interceptor
+ * it also times the serialization of route responses, which happens after the resource method returned.
+ */
+public class RoutingMetrics implements RouteStatsListener, WriterInterceptor {
+
+    private final MetricRegistry metrics;
+
+    public RoutingMetrics(MetricRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onRoute(RouteStats stats) {
+        String prefix = name("routing", stats.getProfile(), stats.getAlgorithm());
+        metrics.timer(name(prefix, "lookup")).update(stats.getLookupNanos(), TimeUnit.NANOSECONDS);
+        metrics.timer(name(prefix, "query_graph")).update(stats.getQueryGraphNanos(), TimeUnit.NANOSECONDS);
+        metrics.timer(name(prefix, "search")).update(stats.getSearchNanos(), TimeUnit.NANOSECONDS);
+        metrics.timer(name(prefix, "path_extraction")).update(stats.getExtractionNanos(), TimeUnit.NANOSECONDS);
+        metrics.timer(name(prefix, "path_merge")).update(stats.getPathMergeNanos(), TimeUnit.NANOSECONDS);
+        metrics.histogram(name(prefix, "visited_nodes")).update(stats.getVisitedNodes());
+        metrics.counter(name("routing", "mode", stats.getMode())).inc();
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        String format;
+        if (context.getEntity() instanceof JsonRouteResponse)
+            format = "json";
+        else if (context.getMediaType() != null && context.getMediaType().isCompatible(MediaType.valueOf(RouteProtobuf.MEDIA_TYPE)))
+            format = "pbf";
+        else
+            format = null;
+
+        if (format == null) {
+            context.proceed();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            context.proceed();
+        } finally {
+            metrics.timer(name("routing", "serialization", format)).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -5,8 +5,10 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.ProfileConfig;
 import com.graphhopper.http.WebHelper;
-import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.IsolineBuilder;
+import com.graphhopper.isochrone.algorithm.RasterIsolineBuilder;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.isochrone.algorithm.TriangulationIsolineBuilder;
 import com.graphhopper.json.geo.JsonFeature;
 import com.graphhopper.routing.ProfileResolver;
 import com.graphhopper.routing.querygraph.QueryGraph;
@@ -22,10 +24,6 @@ import com.graphhopper.util.Parameters;
 import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.shapes.GHPoint;
 import org.locationtech.jts.geom.*;
-import org.locationtech.jts.triangulate.ConformingDelaunayTriangulator;
-import org.locationtech.jts.triangulate.ConstraintVertex;
-import org.locationtech.jts.triangulate.quadedge.QuadEdgeSubdivision;
-import org.locationtech.jts.triangulate.quadedge.Vertex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,22 +61,46 @@ public class IsochroneResource {
             @Context UriInfo uriInfo,
             @QueryParam("buckets") @DefaultValue("1") int nBuckets,
             @QueryParam("reverse_flow") @DefaultValue("false") boolean reverseFlow,
-            @QueryParam("point") GHPoint point,
+            @QueryParam("point") List<GHPoint> points,
+            @QueryParam("offset") List<Long> offsetsInSeconds,
             @QueryParam("time_limit") @DefaultValue("600") long timeLimitInSeconds,
             @QueryParam("distance_limit") @DefaultValue("-1") double distanceInMeter,
-            @QueryParam("type") @DefaultValue("json") String respType) {
+            @QueryParam("type") @DefaultValue("json") String respType,
+            @QueryParam("algorithm") @DefaultValue("triangulation") String algorithm,
+            @QueryParam("cell_size") @DefaultValue("50") double cellSizeInMeter) {
 
         if (nBuckets > 20 || nBuckets < 1)
             throw new IllegalArgumentException("Number of buckets has to be in the range [1, 20]");
 
-        if (point == null)
+        if (points.isEmpty())
             throw new IllegalArgumentException("point parameter cannot be null");
 
+        if (!offsetsInSeconds.isEmpty() && offsetsInSeconds.size() != points.size())
+            throw new IllegalArgumentException("If you pass offset, you need to pass exactly one offset for every point, "
+                    + "but there were " + offsetsInSeconds.size() + " offsets for " + points.size() + " points");
+        if (!offsetsInSeconds.isEmpty() && distanceInMeter > 0)
+            throw new IllegalArgumentException("offset is a time in seconds and cannot be used with distance_limit");
+        for (long offset : offsetsInSeconds) {
+            if (offset < 0)
+                throw new IllegalArgumentException("offset cannot be negative but was " + offset);
+        }
+
         StopWatch sw = new StopWatch().start();
 
         if (respType != null && !respType.equalsIgnoreCase("json") && !respType.equalsIgnoreCase("geojson"))
             throw new IllegalArgumentException("Format not supported:" + respType);
 
+        IsolineBuilder isolineBuilder;
+        if ("triangulation".equalsIgnoreCase(algorithm)) {
+            isolineBuilder = new TriangulationIsolineBuilder();
+        } else if ("raster".equalsIgnoreCase(algorithm)) {
+            if (cellSizeInMeter < 1)
+                throw new IllegalArgumentException("cell_size has to be at least 1 meter");
+            isolineBuilder = new RasterIsolineBuilder(cellSizeInMeter);
+        } else {
+            throw new IllegalArgumentException("Algorithm not supported:" + algorithm + ", use triangulation or raster");
+        }
+
         HintsMap hintsMap = new HintsMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
         if (!hintsMap.getBool(Parameters.CH.DISABLE, true))
@@ -97,21 +119,29 @@ public class IsochroneResource {
         hintsMap.remove(EDGE_BASED);
         // todo: #1934, only try to resolve the profile if no profile is given!
         ProfileConfig profile = profileResolver.resolveProfile(hintsMap);
+        // the offsets are added to the weight of the start nodes, which is only a time for the fastest weighting
+        if (!offsetsInSeconds.isEmpty() && !"fastest".equalsIgnoreCase(profile.getWeighting()))
+            throw new IllegalArgumentException("offset can only be used with the fastest weighting, but the profile '"
+                    + profile.getName() + "' uses " + profile.getWeighting());
         FlagEncoder encoder = encodingManager.getEncoder(profile.getVehicle());
         EdgeFilter edgeFilter = DefaultEdgeFilter.allEdges(encoder);
         LocationIndex locationIndex = graphHopper.getLocationIndex();
-        QueryResult qr = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
-        if (!qr.isValid())
-            throw new IllegalArgumentException("Point not found:" + point);
+        List<QueryResult> qrs = new ArrayList<>(points.size());
+        for (GHPoint point : points) {
+            QueryResult qr = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+            if (!qr.isValid())
+                throw new IllegalArgumentException("Point not found:" + point);
+            qrs.add(qr);
+        }
 
         Graph graph = graphHopper.getGraphHopperStorage();
-        QueryGraph queryGraph = QueryGraph.lookup(graph, qr);
+        QueryGraph queryGraph = QueryGraph.lookup(graph, qrs);
 
         // have to disable turn costs, as isochrones are running node-based
         Weighting weighting = graphHopper.createWeighting(profile, hintsMap, true);
         if (hintsMap.has(Parameters.Routing.BLOCK_AREA))
             weighting = new BlockAreaWeighting(weighting, GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
-                    Collections.singletonList(point), hintsMap, DefaultEdgeFilter.allEdges(encoder)));
+                    points, hintsMap, DefaultEdgeFilter.allEdges(encoder)));
         ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, weighting, reverseFlow);
 
         double limit;
@@ -127,28 +157,25 @@ public class IsochroneResource {
             zs.add(limit / (nBuckets - i));
         }
 
+        // all points are searched in one pass, the offsets are a head start for the time limit
+        int[] fromNodes = new int[qrs.size()];
+        long[] timeOffsets = new long[qrs.size()];
+        for (int i = 0; i < qrs.size(); i++) {
+            fromNodes[i] = qrs.get(i).getClosestNode();
+            timeOffsets[i] = offsetsInSeconds.isEmpty() ? 0 : offsetsInSeconds.get(i) * 1000;
+        }
+
         final NodeAccess na = queryGraph.getNodeAccess();
-        Collection<ConstraintVertex> sites = new ArrayList<>();
-        shortestPathTree.search(qr.getClosestNode(), label -> {
-            double exploreValue;
-            if (distanceInMeter > 0) {
-                exploreValue = label.distance;
-            } else {
-                exploreValue = label.time;
-            }
+        shortestPathTree.search(fromNodes, timeOffsets, label -> {
             double lat = na.getLatitude(label.adjNode);
             double lon = na.getLongitude(label.adjNode);
-            ConstraintVertex site = new ConstraintVertex(new Coordinate(lon, lat));
-            site.setZ(exploreValue);
-            sites.add(site);
-
-            // guess center of road to increase precision a bit for longer roads
             if (label.parent != null) {
-                double lat2 = na.getLatitude(label.parent.adjNode);
-                double lon2 = na.getLongitude(label.parent.adjNode);
-                ConstraintVertex site2 = new ConstraintVertex(new Coordinate((lon + lon2) / 2, (lat + lat2) / 2));
-                site2.setZ(exploreValue);
-                sites.add(site2);
+                ShortestPathTree.IsoLabel parent = (ShortestPathTree.IsoLabel) label.parent;
+                isolineBuilder.addEdge(na.getLatitude(parent.adjNode), na.getLongitude(parent.adjNode),
+                        distanceInMeter > 0 ? parent.distance : parent.time,
+                        lat, lon, distanceInMeter > 0 ? label.distance : label.time);
+            } else {
+                isolineBuilder.addPoint(lat, lon, distanceInMeter > 0 ? label.distance : label.time);
             }
         });
         if (shortestPathTree.getVisitedNodes() > graphHopper.getMaxVisitedNodes() / 5) {
@@ -156,42 +183,25 @@ public class IsochroneResource {
         }
 
         ArrayList<JsonFeature> features = new ArrayList<>();
-        ConformingDelaunayTriangulator conformingDelaunayTriangulator = new ConformingDelaunayTriangulator(sites, 0.0);
-        conformingDelaunayTriangulator.setConstraints(new ArrayList<>(), new ArrayList<>());
-        conformingDelaunayTriangulator.formInitialDelaunay();
-        conformingDelaunayTriangulator.enforceConstraints();
-        Geometry convexHull = conformingDelaunayTriangulator.getConvexHull();
-
-        // If there's only one site (and presumably also if the convex hull is otherwise degenerated),
-        // the triangulation only contains the frame, and not the site within the frame. Not sure if I agree with that.
-        // See ConformingDelaunayTriangulator, it does include a buffer for the frame, but that buffer is zero
-        // in these cases.
-        // It leads to the following follow-up defect:
-        // computeIsoline fails (returns an empty Multipolygon). This is clearly wrong, since
-        // the idea is that every real (non-frame) vertex has positive-length-edges around it that can be traversed
-        // to get a non-empty polygon.
-        // So we exclude this case for now (it is indeed only a corner-case).
-
-        if (!(convexHull instanceof Polygon)) {
-            throw new IllegalArgumentException("Too few points found. "
-                    + "Please try a different 'point' or a larger 'time_limit'.");
-        }
-
-        QuadEdgeSubdivision tin = conformingDelaunayTriangulator.getSubdivision();
-        for (Vertex vertex : (Collection<Vertex>) tin.getVertices(true)) {
-            if (tin.isFrameVertex(vertex)) {
-                vertex.setZ(Double.MAX_VALUE);
+        ArrayList<Geometry> polygons = new ArrayList<>();
+        Point center = geometryFactory.createPoint(new Coordinate(points.get(0).lon, points.get(0).lat));
+        for (MultiPolygon multiPolygon : isolineBuilder.computeIsolines(zs)) {
+            if (multiPolygon.isEmpty())
+                throw new IllegalArgumentException("Too few points found. "
+                        + "Please try a different 'point' or a larger 'time_limit'.");
+            if (points.size() == 1) {
+                Polygon maxPolygon = heuristicallyFindMainConnectedComponent(multiPolygon, center);
+                polygons.add(geometryFactory.createPolygon(maxPolygon.getExteriorRing().getCoordinates()));
+            } else {
+                // the areas around several points need not be connected, so keep all of them
+                Polygon[] shells = new Polygon[multiPolygon.getNumGeometries()];
+                for (int j = 0; j < shells.length; j++) {
+                    shells[j] = geometryFactory.createPolygon(((Polygon) multiPolygon.getGeometryN(j)).getExteriorRing().getCoordinates());
+                }
+                polygons.add(geometryFactory.createMultiPolygon(shells));
             }
         }
-        ArrayList<Coordinate[]> polygonShells = new ArrayList<>();
-        ContourBuilder contourBuilder = new ContourBuilder(tin.getEdges());
-
-        for (Double z : zs) {
-            MultiPolygon multiPolygon = contourBuilder.computeIsoline(z);
-            Polygon maxPolygon = heuristicallyFindMainConnectedComponent(multiPolygon, geometryFactory.createPoint(new Coordinate(point.lon, point.lat)));
-            polygonShells.add(maxPolygon.getExteriorRing().getCoordinates());
-        }
-        for (Coordinate[] polygonShell : polygonShells) {
+        for (Geometry polygon : polygons) {
             JsonFeature feature = new JsonFeature();
             HashMap<String, Object> properties = new HashMap<>();
             properties.put("bucket", features.size());
@@ -199,7 +209,7 @@ public class IsochroneResource {
                 properties.put("copyrights", WebHelper.COPYRIGHTS);
             }
             feature.setProperties(properties);
-            feature.setGeometry(geometryFactory.createPolygon(polygonShell));
+            feature.setGeometry(polygon);
             features.add(feature);
         }
         ObjectNode json = JsonNodeFactory.instance.objectNode();
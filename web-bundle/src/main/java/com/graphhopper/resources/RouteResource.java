@@ -22,7 +22,8 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.MultiException;
 import com.graphhopper.config.ProfileConfig;
-import com.graphhopper.http.WebHelper;
+import com.graphhopper.http.JsonRouteResponse;
+import com.graphhopper.http.RouteProtobuf;
 import com.graphhopper.routing.ProfileResolver;
 import com.graphhopper.routing.util.HintsMap;
 import com.graphhopper.util.Constants;
@@ -51,7 +52,8 @@ import static com.graphhopper.util.Parameters.Routing.*;
 /**
  * Resource to use GraphHopper in a remote client application like mobile or browser. Note: If type
  * is json it returns the points in GeoJson array format [longitude,latitude] unlike the format "lat,lon"
- * used for the request. See the full API response format in docs/web/api-doc.md
+ * used for the request. With type=pbf a compact binary response is returned, see RouteProtobuf. See the full API
+ * response format in docs/web/api-doc.md
  *
  * @author Peter Karich
  */
@@ -72,7 +74,7 @@ public class RouteResource {
     }
 
     @GET
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", RouteProtobuf.MEDIA_TYPE})
     public Response doGet(
             @Context HttpServletRequest httpReq,
             @Context UriInfo uriInfo,
@@ -99,6 +101,7 @@ public class RouteResource {
             @QueryParam("gpx.trackname") @DefaultValue("GraphHopper Track") String trackName,
             @QueryParam("gpx.millis") String timeString) {
         boolean writeGPX = "gpx".equalsIgnoreCase(type);
+        boolean writePBF = "pbf".equalsIgnoreCase(type);
         instructions = writeGPX || instructions;
 
         StopWatch sw = new StopWatch().start();
@@ -166,21 +169,24 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().getSize()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return writeGPX ?
-                    gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION).
-                            header("X-GH-Took", "" + Math.round(took * 1000)).
-                            build()
-                    :
-                    Response.ok(WebHelper.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
-                            header("X-GH-Took", "" + Math.round(took * 1000)).
-                            type(MediaType.APPLICATION_JSON).
-                            build();
+            if (writeGPX)
+                return gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION).
+                        header("X-GH-Took", "" + Math.round(took * 1000)).
+                        build();
+            if (writePBF)
+                return pbfSuccessResponseBuilder(ghResponse, instructions, calcPoints, enableElevation, took).
+                        header("X-GH-Took", "" + Math.round(took * 1000)).
+                        build();
+            return Response.ok(new JsonRouteResponse(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    header("X-GH-Took", "" + Math.round(took * 1000)).
+                    type(MediaType.APPLICATION_JSON).
+                    build();
         }
     }
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", RouteProtobuf.MEDIA_TYPE})
     public Response doPost(GHRequest request, @Context HttpServletRequest httpReq) {
         if (request == null)
             throw new IllegalArgumentException("Empty request");
@@ -194,7 +200,9 @@ public class RouteResource {
         GHResponse ghResponse = graphHopper.route(request);
 
         boolean instructions = request.getHints().getBool(INSTRUCTIONS, true);
-        boolean writeGPX = "gpx".equalsIgnoreCase(request.getHints().getString("type", "json"));
+        String type = request.getHints().getString("type", "json");
+        boolean writeGPX = "gpx".equalsIgnoreCase(type);
+        boolean writePBF = "pbf".equalsIgnoreCase(type);
         instructions = writeGPX || instructions;
         boolean enableElevation = request.getHints().getBool("elevation", false);
         boolean calcPoints = request.getHints().getBool(CALC_POINTS, true);
@@ -221,18 +229,35 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().getSize()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return writeGPX ?
-                    gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION).
-                            header("X-GH-Took", "" + Math.round(took * 1000)).
-                            build()
-                    :
-                    Response.ok(WebHelper.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
-                            header("X-GH-Took", "" + Math.round(took * 1000)).
-                            type(MediaType.APPLICATION_JSON).
-                            build();
+            if (writeGPX)
+                return gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION).
+                        header("X-GH-Took", "" + Math.round(took * 1000)).
+                        build();
+            if (writePBF)
+                return pbfSuccessResponseBuilder(ghResponse, instructions, calcPoints, enableElevation, took).
+                        header("X-GH-Took", "" + Math.round(took * 1000)).
+                        build();
+            return Response.ok(new JsonRouteResponse(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    header("X-GH-Took", "" + Math.round(took * 1000)).
+                    type(MediaType.APPLICATION_JSON).
+                    build();
         }
     }
 
+    /**
+     * Creates the instructions and path details for the edges of an earlier route that was requested with
+     * calc_edges=true, without calculating the route again. The request has to contain the same points and profile.
+     */
+    @POST
+    @Path("details")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", RouteProtobuf.MEDIA_TYPE})
+    public Response doPostDetails(GHRequest request, @Context HttpServletRequest httpReq) {
+        if (request == null || request.getEdges().isEmpty())
+            throw new IllegalArgumentException("Pass the edges of a route that was calculated with " + CALC_EDGES + "=true");
+        return doPost(request, httpReq);
+    }
+
     private void enableEdgeBasedIfThereAreCurbsides(List<String> curbsides, GHRequest request) {
         if (!curbsides.isEmpty()) {
             if (!request.getHints().getBool(TURN_COSTS, true))
@@ -264,6 +289,12 @@ public class RouteResource {
                 header("Content-Disposition", "attachment;filename=" + "GraphHopper.gpx");
     }
 
+    private static Response.ResponseBuilder pbfSuccessResponseBuilder(GHResponse ghRsp, boolean enableInstructions,
+                                                                      boolean calcPoints, boolean enableElevation, float took) {
+        StreamingOutput output = os -> RouteProtobuf.writeTo(os, ghRsp, enableInstructions, calcPoints, enableElevation, took);
+        return Response.ok(output, RouteProtobuf.MEDIA_TYPE);
+    }
+
     static void initHints(HintsMap m, MultivaluedMap<String, String> parameterMap) {
         for (Map.Entry<String, List<String>> e : parameterMap.entrySet()) {
             if (e.getValue().size() == 1) {
@@ -22,37 +22,28 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.io.*;
 import java.util.*;
 
 import static com.graphhopper.util.Parameters.Routing.EDGE_BASED;
 import static com.graphhopper.util.Parameters.Routing.TURN_COSTS;
 
 /**
- * This resource provides the entire shortest path tree as response. In a simple CSV format discussed at #1577.
+ * This resource provides the entire shortest path tree as response. In a simple CSV format discussed at #1577 or, with
+ * type=binary, in a compact columnar format for bulk analysis. Both are streamed while the tree is searched.
  */
 @Path("spt")
 public class SPTResource {
 
     private static final Logger logger = LoggerFactory.getLogger(SPTResource.class);
 
-    public static class IsoLabelWithCoordinates {
-        public final int nodeId;
-        public int edgeId, prevEdgeId, prevNodeId;
-        public int timeMillis, prevTimeMillis;
-        public int distance, prevDistance;
-        public GHPoint coordinate, prevCoordinate;
-
-        public IsoLabelWithCoordinates(int nodeId) {
-            this.nodeId = nodeId;
-        }
-    }
+    private static final int BLOCK_SIZE = 4096;
+    // the header of the binary response: "GHSP" in ASCII, the version of the format and the number of columns
+    private static final int BINARY_MAGIC = 0x47485350, BINARY_VERSION = 1, BINARY_COLUMNS = 5;
 
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
@@ -66,18 +57,36 @@ public class SPTResource {
     }
 
     @GET
-    @Produces("text/csv")
+    @Produces({"text/csv", MediaType.APPLICATION_OCTET_STREAM})
     public Response doGet(
             @Context UriInfo uriInfo,
             @QueryParam("reverse_flow") @DefaultValue("false") boolean reverseFlow,
-            @QueryParam("point") GHPoint point,
+            @QueryParam("point") List<GHPoint> points,
+            @QueryParam("offset") List<Long> offsetsInSeconds,
             @QueryParam("columns") String columnsParam,
             @QueryParam("time_limit") @DefaultValue("600") long timeLimitInSeconds,
-            @QueryParam("distance_limit") @DefaultValue("-1") double distanceInMeter) {
+            @QueryParam("distance_limit") @DefaultValue("-1") double distanceInMeter,
+            @QueryParam("type") @DefaultValue("csv") String respType) {
 
-        if (point == null)
+        if (points.isEmpty())
             throw new IllegalArgumentException("point parameter cannot be null");
 
+        if (!offsetsInSeconds.isEmpty() && offsetsInSeconds.size() != points.size())
+            throw new IllegalArgumentException("If you pass offset, you need to pass exactly one offset for every point, "
+                    + "but there were " + offsetsInSeconds.size() + " offsets for " + points.size() + " points");
+        if (!offsetsInSeconds.isEmpty() && distanceInMeter > 0)
+            throw new IllegalArgumentException("offset is a time in seconds and cannot be used with distance_limit");
+        for (long offset : offsetsInSeconds) {
+            if (offset < 0)
+                throw new IllegalArgumentException("offset cannot be negative but was " + offset);
+        }
+
+        boolean binary = "binary".equalsIgnoreCase(respType);
+        if (!binary && !"csv".equalsIgnoreCase(respType))
+            throw new IllegalArgumentException("Format not supported:" + respType);
+        if (binary && !Helper.isEmpty(columnsParam))
+            throw new IllegalArgumentException("The binary format has fixed columns, do not use the columns parameter");
+
         StopWatch sw = new StopWatch().start();
         HintsMap hintsMap = new HintsMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
@@ -97,22 +106,30 @@ public class SPTResource {
         hintsMap.remove(EDGE_BASED);
         // todo: #1934, only try to resolve the profile if no profile is given!
         ProfileConfig profile = profileResolver.resolveProfile(hintsMap);
+        // the offsets are added to the weight of the start nodes, which is only a time for the fastest weighting
+        if (!offsetsInSeconds.isEmpty() && !"fastest".equalsIgnoreCase(profile.getWeighting()))
+            throw new IllegalArgumentException("offset can only be used with the fastest weighting, but the profile '"
+                    + profile.getName() + "' uses " + profile.getWeighting());
         FlagEncoder encoder = encodingManager.getEncoder(profile.getVehicle());
         EdgeFilter edgeFilter = DefaultEdgeFilter.allEdges(encoder);
         LocationIndex locationIndex = graphHopper.getLocationIndex();
-        QueryResult qr = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
-        if (!qr.isValid())
-            throw new IllegalArgumentException("Point not found:" + point);
+        List<QueryResult> qrs = new ArrayList<>(points.size());
+        for (GHPoint point : points) {
+            QueryResult qr = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+            if (!qr.isValid())
+                throw new IllegalArgumentException("Point not found:" + point);
+            qrs.add(qr);
+        }
 
         Graph graph = graphHopper.getGraphHopperStorage();
-        QueryGraph queryGraph = QueryGraph.lookup(graph, qr);
+        QueryGraph queryGraph = QueryGraph.lookup(graph, qrs);
         NodeAccess nodeAccess = queryGraph.getNodeAccess();
 
         // have to disable turn costs, as isochrones are running node-based
         Weighting weighting = graphHopper.createWeighting(profile, hintsMap, true);
         if (hintsMap.has(Parameters.Routing.BLOCK_AREA))
             weighting = new BlockAreaWeighting(weighting, GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
-                    Collections.singletonList(point), hintsMap, DefaultEdgeFilter.allEdges(encoder)));
+                    points, hintsMap, DefaultEdgeFilter.allEdges(encoder)));
 
         ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, weighting, reverseFlow);
 
@@ -123,6 +140,22 @@ public class SPTResource {
             shortestPathTree.setTimeLimit(limit + Math.max(limit * 0.14, 200_000));
         }
 
+        // all points are searched in one pass, the offsets are a head start for the time limit
+        int[] fromNodes = new int[qrs.size()];
+        long[] timeOffsets = new long[qrs.size()];
+        for (int i = 0; i < qrs.size(); i++) {
+            fromNodes[i] = qrs.get(i).getClosestNode();
+            timeOffsets[i] = offsetsInSeconds.isEmpty() ? 0 : offsetsInSeconds.get(i) * 1000;
+        }
+
+        if (binary) {
+            StreamingOutput out = output -> {
+                writeBinary(new DataOutputStream(new BufferedOutputStream(output)), shortestPathTree, fromNodes, timeOffsets);
+                logger.info("took: " + sw.stop().getSeconds() + ", visited nodes:" + shortestPathTree.getVisitedNodes() + ", " + uriInfo.getQueryParameters());
+            };
+            return Response.ok(out, MediaType.APPLICATION_OCTET_STREAM_TYPE).build();
+        }
+
         final String COL_SEP = ",", LINE_SEP = "\n";
         List<String> columns;
         if (!Helper.isEmpty(columnsParam))
@@ -149,8 +182,10 @@ public class SPTResource {
                 }
                 sb.append(LINE_SEP);
                 writer.write(sb.toString());
-                shortestPathTree.search(qr.getClosestNode(), l -> {
-                    IsoLabelWithCoordinates label = isoLabelWithCoordinates(nodeAccess, l);
+                // every row is copied into this buffer, which avoids creating a String per row
+                char[][] chars = {new char[256]};
+                shortestPathTree.search(fromNodes, timeOffsets, label -> {
+                    ShortestPathTree.IsoLabel prevLabel = (ShortestPathTree.IsoLabel) label.parent;
                     sb.setLength(0);
                     for (int colIndex = 0; colIndex < columns.size(); colIndex++) {
                         String col = columns.get(colIndex);
@@ -159,47 +194,50 @@ public class SPTResource {
 
                         switch (col) {
                             case "node_id":
-                                sb.append(label.nodeId);
+                                sb.append(label.adjNode);
                                 continue;
                             case "prev_node_id":
-                                sb.append(label.prevNodeId);
+                                sb.append(prevLabel == null ? 0 : prevLabel.adjNode);
+                                continue;
+                            case "origin":
+                                sb.append(label.origin);
                                 continue;
                             case "edge_id":
-                                sb.append(label.edgeId);
+                                sb.append(label.edge);
                                 continue;
                             case "prev_edge_id":
-                                sb.append(label.prevEdgeId);
+                                sb.append(prevLabel == null ? 0 : prevLabel.edge);
                                 continue;
                             case "distance":
-                                sb.append(label.distance);
+                                sb.append(Math.round(label.distance));
                                 continue;
                             case "prev_distance":
-                                sb.append(label.prevCoordinate == null ? 0 : label.prevDistance);
+                                sb.append(prevLabel == null ? 0 : Math.round(prevLabel.distance));
                                 continue;
                             case "time":
-                                sb.append(label.timeMillis);
+                                sb.append(label.time);
                                 continue;
                             case "prev_time":
-                                sb.append(label.prevCoordinate == null ? 0 : label.prevTimeMillis);
+                                sb.append(prevLabel == null ? 0 : prevLabel.time);
                                 continue;
                             case "longitude":
-                                sb.append(label.coordinate.lon);
+                                sb.append(nodeAccess.getLongitude(label.adjNode));
                                 continue;
                             case "prev_longitude":
-                                sb.append(label.prevCoordinate == null ? null : label.prevCoordinate.lon);
+                                sb.append(prevLabel == null ? null : nodeAccess.getLongitude(prevLabel.adjNode));
                                 continue;
                             case "latitude":
-                                sb.append(label.coordinate.lat);
+                                sb.append(nodeAccess.getLatitude(label.adjNode));
                                 continue;
                             case "prev_latitude":
-                                sb.append(label.prevCoordinate == null ? null : label.prevCoordinate.lat);
+                                sb.append(prevLabel == null ? null : nodeAccess.getLatitude(prevLabel.adjNode));
                                 continue;
                         }
 
-                        if (!EdgeIterator.Edge.isValid(label.edgeId))
+                        if (!EdgeIterator.Edge.isValid(label.edge))
                             continue;
 
-                        EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.edgeId, label.nodeId);
+                        EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.edge, label.adjNode);
                         if (edge == null)
                             continue;
 
@@ -226,8 +264,11 @@ public class SPTResource {
                         }
                     }
                     sb.append(LINE_SEP);
+                    if (chars[0].length < sb.length())
+                        chars[0] = new char[Math.max(sb.length(), 2 * chars[0].length)];
+                    sb.getChars(0, sb.length(), chars[0], 0);
                     try {
-                        writer.write(sb.toString());
+                        writer.write(chars[0], 0, sb.length());
                     } catch (IOException ex) {
                         throw new RuntimeException(ex);
                     }
@@ -239,28 +280,52 @@ public class SPTResource {
             }
         };
         // took header does not make sense as we stream
-        return Response.ok(out).build();
+        return Response.ok(out, "text/csv").build();
     }
 
-    private IsoLabelWithCoordinates isoLabelWithCoordinates(NodeAccess na, ShortestPathTree.IsoLabel label) {
-        double lat = na.getLatitude(label.adjNode);
-        double lon = na.getLongitude(label.adjNode);
-        IsoLabelWithCoordinates isoLabelWC = new IsoLabelWithCoordinates(label.adjNode);
-        isoLabelWC.coordinate = new GHPoint(lat, lon);
-        isoLabelWC.timeMillis = Math.round(label.time);
-        isoLabelWC.distance = (int) Math.round(label.distance);
-        isoLabelWC.edgeId = label.edge;
-        if (label.parent != null) {
-            ShortestPathTree.IsoLabel prevLabel = (ShortestPathTree.IsoLabel) label.parent;
-            int prevNodeId = prevLabel.adjNode;
-            double prevLat = na.getLatitude(prevNodeId);
-            double prevLon = na.getLongitude(prevNodeId);
-            isoLabelWC.prevNodeId = prevNodeId;
-            isoLabelWC.prevEdgeId = prevLabel.edge;
-            isoLabelWC.prevCoordinate = new GHPoint(prevLat, prevLon);
-            isoLabelWC.prevDistance = (int) Math.round(prevLabel.distance);
-            isoLabelWC.prevTimeMillis = Math.round(prevLabel.time);
+    /**
+     * Writes the tree in blocks of up to BLOCK_SIZE labels while it is searched, so the response needs constant
+     * memory. The response starts with a header of the magic number 0x47485350, the version 1 and the number of
+     * columns, currently 5. Every block starts with the number of labels n, followed by n values per
+     * column: the node ids, the previous node ids (-1 for the start), the times in milliseconds, the distances in
+     * meter and the indices of the point the node was reached from. All values are big-endian 32 bit integers. A
+     * block with n=0 ends the response.
+     */
+    private static void writeBinary(DataOutputStream output, ShortestPathTree shortestPathTree, int[] fromNodes, long[] timeOffsets) throws IOException {
+        output.writeInt(BINARY_MAGIC);
+        output.writeInt(BINARY_VERSION);
+        output.writeInt(BINARY_COLUMNS);
+        int[] nodes = new int[BLOCK_SIZE], prevNodes = new int[BLOCK_SIZE], times = new int[BLOCK_SIZE], distances = new int[BLOCK_SIZE];
+        int[] origins = new int[BLOCK_SIZE];
+        int[] size = {0};
+        shortestPathTree.search(fromNodes, timeOffsets, label -> {
+            int i = size[0]++;
+            nodes[i] = label.adjNode;
+            prevNodes[i] = label.parent == null ? -1 : label.parent.adjNode;
+            times[i] = (int) label.time;
+            distances[i] = (int) Math.round(label.distance);
+            origins[i] = label.origin;
+            if (size[0] == BLOCK_SIZE) {
+                writeBlock(output, size[0], nodes, prevNodes, times, distances, origins);
+                size[0] = 0;
+            }
+        });
+        if (size[0] > 0)
+            writeBlock(output, size[0], nodes, prevNodes, times, distances, origins);
+        output.writeInt(0);
+        output.flush();
+    }
+
+    private static void writeBlock(DataOutputStream output, int size, int[]... columns) {
+        try {
+            output.writeInt(size);
+            for (int[] column : columns) {
+                for (int i = 0; i < size; i++) {
+                    output.writeInt(column[i]);
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
         }
-        return isoLabelWC;
     }
 }
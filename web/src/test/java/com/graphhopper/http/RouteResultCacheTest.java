@@ -0,0 +1,105 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.Helper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class RouteResultCacheTest {
+    private static final String DIR = "./target/route-result-cache-gh/";
+    private GraphHopperOSM hopper;
+    private RouteResultCache cache;
+
+    @Before
+    public void setUp() {
+        Helper.removeDir(new File(DIR));
+        hopper = new GraphHopperOSM();
+        hopper.setDataReaderFile("../core/files/andorra.osm.pbf").
+                setGraphHopperLocation(DIR).
+                setEncodingManager(EncodingManager.create("car")).
+                setProfiles(new ProfileConfig("car_profile").setVehicle("car").setWeighting("fastest"));
+        hopper.importOrLoad();
+        cache = new RouteResultCache(hopper, 10 << 20);
+    }
+
+    @After
+    public void tearDown() {
+        hopper.close();
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testHitsReturnCopies() {
+        GHRequest req = new GHRequest(42.554851, 1.536198, 42.510071, 1.548128).setProfile("car_profile");
+        GHResponse first = cache.route(req);
+        assertFalse(first.getErrors().toString(), first.hasErrors());
+        assertEquals(1, cache.getSize());
+
+        GHResponse second = cache.route(req);
+        assertEquals(1, cache.getStats().hitCount());
+        assertNotSame(first, second);
+        assertNotSame(first.getBest(), second.getBest());
+        assertEquals(first.getBest().getDistance(), second.getBest().getDistance(), 1e-6);
+        assertEquals(first.getBest().getPoints(), second.getBest().getPoints());
+        assertEquals(first.getBest().getInstructions().size(), second.getBest().getInstructions().size());
+
+        // changes of a returned response do not change the cached one
+        second.add(new PathWrapper());
+        second.getHints().putObject("changed", true);
+        second.getBest().getInstructions().clear();
+        GHResponse third = cache.route(req);
+        assertEquals(2, cache.getStats().hitCount());
+        assertEquals(1, third.getAll().size());
+        assertFalse(third.getHints().has("changed"));
+        assertEquals(first.getBest().getInstructions().size(), third.getBest().getInstructions().size());
+
+        // the shared points cannot be changed
+        try {
+            third.getBest().getPoints().add(42.5, 1.5);
+            fail("the points of a cached response must be immutable");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInvalidateOnGraphChange() {
+        GHRequest req = new GHRequest(42.554851, 1.536198, 42.510071, 1.548128).setProfile("car_profile");
+        cache.route(req);
+        assertEquals(1, cache.getSize());
+
+        hopper.fireGraphChanged();
+        assertEquals(0, cache.getSize());
+        cache.route(req);
+        assertEquals(0, cache.getStats().hitCount());
+        assertEquals(2, cache.getStats().missCount());
+        assertEquals(1, cache.getSize());
+    }
+}
@@ -93,6 +93,71 @@ public class IsochroneResourceTest {
         assertFalse(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.635246, 42.53841))));
     }
 
+    @Test
+    public void requestRaster() {
+        Response rsp = clientTarget(app, "/isochrone")
+                .queryParam("weighting", "fastest")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("time_limit", 5 * 60)
+                .queryParam("buckets", 2)
+                .queryParam("algorithm", "raster")
+                .queryParam("cell_size", 30)
+                .queryParam("type", "geojson")
+                .request().buildGet().invoke();
+        JsonFeatureCollection featureCollection = rsp.readEntity(JsonFeatureCollection.class);
+
+        assertEquals(2, featureCollection.getFeatures().size());
+        Geometry polygon0 = featureCollection.getFeatures().get(0).getGeometry();
+        Geometry polygon1 = featureCollection.getFeatures().get(1).getGeometry();
+
+        assertTrue(polygon0.contains(geometryFactory.createPoint(new Coordinate(1.587224, 42.5386))));
+        assertFalse(polygon0.contains(geometryFactory.createPoint(new Coordinate(1.589756, 42.558012))));
+
+        assertTrue(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.589756, 42.558012))));
+        assertFalse(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.635246, 42.53841))));
+    }
+
+    @Test
+    public void requestMultiplePoints() {
+        Response rsp = clientTarget(app, "/isochrone")
+                .queryParam("weighting", "fastest")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("point", "42.508114,1.531942")
+                .queryParam("time_limit", 2 * 60)
+                .queryParam("type", "geojson")
+                .request().buildGet().invoke();
+        JsonFeatureCollection featureCollection = rsp.readEntity(JsonFeatureCollection.class);
+
+        assertEquals(1, featureCollection.getFeatures().size());
+        Geometry geometry = featureCollection.getFeatures().get(0).getGeometry();
+        assertTrue(geometry.contains(geometryFactory.createPoint(new Coordinate(1.573792, 42.531073))));
+        assertTrue(geometry.contains(geometryFactory.createPoint(new Coordinate(1.531942, 42.508114))));
+    }
+
+    @Test
+    public void requestOffsets_error() {
+        // the offsets are a time and cannot be combined with the weight of shortest
+        Response rsp = clientTarget(app, "/isochrone")
+                .queryParam("weighting", "shortest")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("point", "42.508114,1.531942")
+                .queryParam("offset", 0)
+                .queryParam("offset", 60)
+                .request().buildGet().invoke();
+        assertEquals(400, rsp.getStatus());
+        assertTrue(rsp.readEntity(JsonNode.class).get("message").asText().contains("fastest"));
+
+        rsp = clientTarget(app, "/isochrone")
+                .queryParam("weighting", "fastest")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("point", "42.508114,1.531942")
+                .queryParam("offset", 0)
+                .queryParam("offset", -60)
+                .request().buildGet().invoke();
+        assertEquals(400, rsp.getStatus());
+        assertTrue(rsp.readEntity(JsonNode.class).get("message").asText().contains("negative"));
+    }
+
     @Test
     public void requestByDistanceLimit() {
         Response rsp = clientTarget(app, "/isochrone")
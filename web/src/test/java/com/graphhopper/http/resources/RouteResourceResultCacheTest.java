@@ -0,0 +1,103 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.codahale.metrics.Gauge;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.config.CHProfileConfig;
+import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Collections;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.Assert.assertEquals;
+
+public class RouteResourceResultCacheTest {
+    private static final String DIR = "./target/andorra-result-cache-gh/";
+
+    private static final GraphHopperServerTestConfiguration config = new GraphHopperServerTestConfiguration();
+
+    static {
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("routing.result_cache.max_mb", 10).
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR)
+                .setProfiles(Collections.singletonList(
+                        new ProfileConfig("car_profile").setVehicle("car").setWeighting("fastest")
+                ))
+                .setCHProfiles(Collections.singletonList(
+                        new CHProfileConfig("car_profile")
+                ));
+    }
+
+    @ClassRule
+    public static final DropwizardAppRule<GraphHopperServerTestConfiguration> app = new DropwizardAppRule(GraphHopperApplication.class, config);
+
+    @BeforeClass
+    @AfterClass
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testCache() {
+        JsonNode first = route("point=42.554851,1.536198&point=42.510071,1.548128");
+        assertEquals(0, gauge("route_cache.hits"));
+        assertEquals(1, gauge("route_cache.misses"));
+
+        // slightly different coordinates snap to the same location
+        JsonNode second = route("point=42.5548512,1.5361982&point=42.5100711,1.5481281&type=json");
+        assertEquals(1, gauge("route_cache.hits"));
+        assertEquals(first.get("paths").get(0).get("distance"), second.get("paths").get(0).get("distance"));
+        assertEquals(first.get("paths").get(0).get("points"), second.get("paths").get(0).get("points"));
+
+        // hints that change the response are part of the key
+        JsonNode third = route("point=42.554851,1.536198&point=42.510071,1.548128&instructions=false");
+        assertEquals(1, gauge("route_cache.hits"));
+        assertEquals(2, gauge("route_cache.misses"));
+        assertEquals(false, third.get("paths").get(0).has("instructions"));
+        assertEquals(2, gauge("route_cache.size"));
+
+        // errors are not cached
+        Response response = clientTarget(app, "/route?point=42.554851,1.536198&point=43.510071,1.548128").request().buildGet().invoke();
+        assertEquals(400, response.getStatus());
+        assertEquals(2, gauge("route_cache.size"));
+    }
+
+    private static JsonNode route(String query) {
+        Response response = clientTarget(app, "/route?profile=car_profile&" + query).request().buildGet().invoke();
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertEquals(json.toString(), 200, response.getStatus());
+        return json;
+    }
+
+    private static long gauge(String name) {
+        return ((Number) ((Gauge) app.getEnvironment().metrics().getGauges().get(name)).getValue()).longValue();
+    }
+}
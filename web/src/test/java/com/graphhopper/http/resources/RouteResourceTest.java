@@ -17,6 +17,7 @@
  */
 package com.graphhopper.http.resources;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
@@ -112,6 +113,42 @@ public class RouteResourceTest {
         assertTrue("distance wasn't correct:" + distance, distance < 9500);
     }
 
+    @Test
+    public void testDetailsFromEdges() {
+        String points = "\"points\": [[1.536198,42.554851], [1.542401,42.533211], [1.548128, 42.510071]]";
+        Response response = clientTarget(app, "/route").request().post(Entity.json("{ " + points + ", \"instructions\": false, \"calc_edges\": true }"));
+        assertEquals(200, response.getStatus());
+        JsonNode path = response.readEntity(JsonNode.class).get("paths").get(0);
+        assertFalse(path.has("instructions"));
+        JsonNode edges = path.get("edges");
+        assertEquals(2, edges.size());
+        assertTrue(edges.get(0).size() > 10);
+
+        String detailsStr = "{ " + points + ", \"edges\": " + edges + ", \"details\": [\"edge_id\"] }";
+        response = clientTarget(app, "/route/details").request().post(Entity.json(detailsStr));
+        assertEquals(200, response.getStatus());
+        JsonNode details = response.readEntity(JsonNode.class).get("paths").get(0);
+        assertEquals(path.get("distance").asDouble(), details.get("distance").asDouble(), 1.e-3);
+        assertEquals(path.get("time").asLong(), details.get("time").asLong());
+        assertFalse(details.has("edges"));
+        assertTrue(details.get("details").get("edge_id").size() > 10);
+
+        response = clientTarget(app, "/route").request().post(Entity.json("{ " + points + ", \"details\": [\"edge_id\"] }"));
+        JsonNode expected = response.readEntity(JsonNode.class).get("paths").get(0);
+        assertEquals(expected.get("points").asText(), details.get("points").asText());
+        assertEquals(expected.get("instructions"), details.get("instructions"));
+        assertEquals(expected.get("details"), details.get("details"));
+
+        // the edges do not fit the points
+        detailsStr = "{ \"points\": [[1.536198,42.554851], [1.548128, 42.510071]], \"edges\": " + edges + " }";
+        response = clientTarget(app, "/route/details").request().post(Entity.json(detailsStr));
+        assertEquals(400, response.getStatus());
+
+        response = clientTarget(app, "/route/details").request().post(Entity.json("{ " + points + " }"));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("calc_edges=true"));
+    }
+
     @Test
     public void testWrongPointFormat() {
         final Response response = clientTarget(app, "/route?point=1234&point=42.510071,1.548128").request().buildGet().invoke();
@@ -194,6 +231,23 @@ public class RouteResourceTest {
         assertEquals("Elevation not supported!", json.get("message").asText());
     }
 
+    @Test
+    public void testRoutingMetrics() {
+        MetricRegistry metrics = app.getEnvironment().metrics();
+        long searchCount = metrics.timer("routing.my_car.dijkstrabi.search").getCount();
+        long chCount = metrics.counter("routing.mode.ch").getCount();
+        long jsonCount = metrics.timer("routing.serialization.json").getCount();
+        final Response response = clientTarget(app, "/route?point=42.554851,1.536198&point=42.510071,1.548128").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        response.readEntity(JsonNode.class);
+
+        assertEquals(searchCount + 1, metrics.timer("routing.my_car.dijkstrabi.search").getCount());
+        assertEquals(searchCount + 1, metrics.timer("routing.my_car.dijkstrabi.path_merge").getCount());
+        assertTrue(metrics.histogram("routing.my_car.dijkstrabi.visited_nodes").getSnapshot().getMax() > 0);
+        assertEquals(chCount + 1, metrics.counter("routing.mode.ch").getCount());
+        assertEquals(jsonCount + 1, metrics.timer("routing.serialization.json").getCount());
+    }
+
     @Test
     public void testGraphHopperWeb() {
         GraphHopperWeb hopper = new GraphHopperWeb();
@@ -223,6 +277,37 @@ public class RouteResourceTest {
         assertEquals(false, instructions.get(22).getExtraInfoJSON().get("exited"));
     }
 
+    @Test
+    public void testGraphHopperWebProtobuf() {
+        GraphHopperWeb hopper = new GraphHopperWeb();
+        assertTrue(hopper.load(clientUrl(app, "/route")));
+        for (boolean post : Arrays.asList(false, true)) {
+            hopper.setPostRequest(post);
+            GHRequest request = new GHRequest(42.554851, 1.536198, 42.510071, 1.548128);
+            request.setPathDetails(Arrays.asList(RoadClass.KEY, "average_speed"));
+            PathWrapper json = hopper.route(request).getBest();
+
+            request.getHints().putObject("type", "pbf");
+            GHResponse rsp = hopper.route(request);
+            assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+            PathWrapper pbf = rsp.getBest();
+            assertEquals(json.getDistance(), pbf.getDistance(), 1e-3);
+            assertEquals(json.getTime(), pbf.getTime());
+            assertEquals(json.getPoints().size(), pbf.getPoints().size());
+            assertEquals(json.getPoints().getLat(10), pbf.getPoints().getLat(10), 1e-5);
+            assertEquals(json.getInstructions().size(), pbf.getInstructions().size());
+            assertEquals("At roundabout, take exit 2", pbf.getInstructions().get(4).getTurnDescription(null));
+            assertEquals(json.getPathDetails().get(RoadClass.KEY).size(), pbf.getPathDetails().get(RoadClass.KEY).size());
+            assertEquals(json.getPathDetails().get("average_speed").get(0).getValue(), pbf.getPathDetails().get("average_speed").get(0).getValue());
+        }
+
+        // errors are still returned as JSON
+        GHRequest request = new GHRequest(42.554851, 1.536198, 43.510071, 1.548128);
+        request.getHints().putObject("type", "pbf");
+        GHResponse rsp = hopper.route(request);
+        assertTrue(rsp.hasErrors());
+    }
+
     @Test
     public void testPathDetailsRoadClass() {
         GraphHopperAPI hopper = new com.graphhopper.api.GraphHopperWeb();
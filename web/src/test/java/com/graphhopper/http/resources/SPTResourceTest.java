@@ -28,10 +28,11 @@ import org.junit.ClassRule;
 import org.junit.Test;
 
 import javax.ws.rs.core.Response;
+import java.io.DataInputStream;
 import java.io.File;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
 
 import static com.graphhopper.http.util.TestUtils.clientTarget;
 import static junit.framework.TestCase.assertTrue;
@@ -106,4 +107,84 @@ public class SPTResourceTest {
         assertEquals("secondary", row[1]);
         assertTrue(Double.isInfinite(Double.parseDouble(row[2])));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void requestBinary() throws IOException {
+        Response rsp = clientTarget(app, "/spt?point=42.531073,1.573792&time_limit=300&columns=node_id,prev_node_id,time,distance").request().buildGet().invoke();
+        String[] lines = rsp.readEntity(String.class).split("\n");
+
+        rsp = clientTarget(app, "/spt?point=42.531073,1.573792&time_limit=300&type=binary").request().buildGet().invoke();
+        assertEquals("application/octet-stream", rsp.getMediaType().toString());
+        int row = 1;
+        try (DataInputStream input = new DataInputStream(rsp.readEntity(InputStream.class))) {
+            assertEquals(0x47485350, input.readInt());
+            assertEquals(1, input.readInt());
+            assertEquals(5, input.readInt());
+            int size;
+            while ((size = input.readInt()) > 0) {
+                int[][] columns = new int[5][size];
+                for (int[] column : columns) {
+                    for (int i = 0; i < size; i++) {
+                        column[i] = input.readInt();
+                    }
+                }
+                for (int i = 0; i < size; i++, row++) {
+                    String[] csvRow = lines[row].split(",");
+                    assertEquals(Integer.parseInt(csvRow[0]), columns[0][i]);
+                    // the csv uses 0 for the previous node of the start
+                    assertEquals(row == 1 ? -1 : Integer.parseInt(csvRow[1]), columns[1][i]);
+                    assertEquals(Integer.parseInt(csvRow[2]), columns[2][i]);
+                    assertEquals(Integer.parseInt(csvRow[3]), columns[3][i]);
+                    assertEquals(0, columns[4][i]);
+                }
+            }
+            assertEquals(-1, input.read());
+        }
+        assertEquals(lines.length, row);
+        assertTrue(row > 500);
+    }
+
+    @Test
+    public void requestMultiplePoints() {
+        Response rsp = clientTarget(app, "/spt?point=42.531073,1.573792&point=42.508114,1.531942&time_limit=120&columns=node_id,origin,time").request().buildGet().invoke();
+        String[] lines = rsp.readEntity(String.class).split("\n");
+        int[] nodesPerOrigin = new int[2];
+        Set<String> nodes = new HashSet<>();
+        for (int i = 1; i < lines.length; i++) {
+            String[] row = lines[i].split(",");
+            assertTrue("every node is reached only once", nodes.add(row[0]));
+            nodesPerOrigin[Integer.parseInt(row[1])]++;
+        }
+        assertTrue(nodesPerOrigin[0] > 50);
+        assertTrue(nodesPerOrigin[1] > 50);
+
+        // leaving the second point later means fewer nodes are reached from it
+        rsp = clientTarget(app, "/spt?point=42.531073,1.573792&point=42.508114,1.531942&offset=0&offset=60&time_limit=120&columns=origin,time").request().buildGet().invoke();
+        lines = rsp.readEntity(String.class).split("\n");
+        int fromSecondPoint = 0;
+        for (int i = 1; i < lines.length; i++) {
+            String[] row = lines[i].split(",");
+            if (row[0].equals("1")) {
+                fromSecondPoint++;
+                assertTrue(Integer.parseInt(row[1]) >= 60_000);
+            }
+        }
+        assertTrue(fromSecondPoint > 0);
+        assertTrue(fromSecondPoint < nodesPerOrigin[1]);
+
+        rsp = clientTarget(app, "/spt?point=42.531073,1.573792&point=42.508114,1.531942&offset=60").request().buildGet().invoke();
+        assertEquals(400, rsp.getStatus());
+        assertTrue(rsp.readEntity(String.class).contains("one offset for every point"));
+
+        rsp = clientTarget(app, "/spt?point=42.531073,1.573792&point=42.508114,1.531942&offset=0&offset=-60").request().buildGet().invoke();
+        assertEquals(400, rsp.getStatus());
+        assertTrue(rsp.readEntity(String.class).contains("offset cannot be negative"));
+    }
+
+    @Test
+    public void requestBinaryWithColumns() {
+        Response rsp = clientTarget(app, "/spt?point=42.531073,1.573792&type=binary&columns=time").request().buildGet().invoke();
+        assertEquals(400, rsp.getStatus());
+        assertTrue(rsp.readEntity(String.class).contains("fixed columns"));
+    }
+}